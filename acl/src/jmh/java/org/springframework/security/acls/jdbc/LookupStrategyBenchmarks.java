@@ -0,0 +1,206 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Compares the latency of {@link BasicLookupStrategy} and {@link RecursiveLookupStrategy}
+ * when reading an ACL with an ancestor chain of the given depth from an embedded HSQLDB
+ * database without a cache. The {@code queries} and {@code reads} counters report the
+ * number of round trips and reads per iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupStrategyBenchmarks {
+
+	private static final String TARGET_CLASS = "org.springframework.security.acls.TargetObject";
+
+	private static final int ENTRIES_PER_ACL = 10;
+
+	@Param({ "basic", "recursive" })
+	private String strategy;
+
+	@Param({ "1", "5", "20" })
+	private int depth;
+
+	private EmbeddedDatabase database;
+
+	private LookupStrategy lookupStrategy;
+
+	private List<ObjectIdentity> objectIdentities;
+
+	private long queries;
+
+	@Setup
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("createAclSchema.sql").build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.database);
+		jdbcTemplate.update("insert into acl_sid (id, principal, sid) values (1, true, 'owner')");
+		jdbcTemplate.update("insert into acl_class (id, class) values (1, ?)", TARGET_CLASS);
+		for (int i = 1; i <= this.depth; i++) {
+			jdbcTemplate.update(
+					"insert into acl_object_identity (id, object_id_class, object_id_identity, parent_object, "
+							+ "owner_sid, entries_inheriting) values (?, 1, ?, ?, 1, true)",
+					i, i, (i > 1) ? i - 1 : null);
+			for (int j = 0; j < ENTRIES_PER_ACL; j++) {
+				jdbcTemplate.update("insert into acl_sid (principal, sid) values (false, ?)", "ROLE_" + i + "_" + j);
+				jdbcTemplate.update("insert into acl_entry (acl_object_identity, ace_order, sid, mask, granting, "
+						+ "audit_success, audit_failure) values (?, ?, (select id from acl_sid where sid = ?), 1, "
+						+ "true, false, false)", i, j, "ROLE_" + i + "_" + j);
+			}
+		}
+		DataSource dataSource = new CountingDataSource(this.database, this);
+		AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+				new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+		PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger());
+		this.lookupStrategy = "basic".equals(this.strategy)
+				? new BasicLookupStrategy(dataSource, new NullAclCache(), authorizationStrategy, grantingStrategy)
+				: new RecursiveLookupStrategy(dataSource, new NullAclCache(), authorizationStrategy, grantingStrategy);
+		this.objectIdentities = Collections.singletonList(new ObjectIdentityImpl(TARGET_CLASS, (long) this.depth));
+	}
+
+	@TearDown
+	public void shutdown() {
+		this.database.shutdown();
+	}
+
+	@Benchmark
+	public Map<ObjectIdentity, Acl> readAclsById(RoundTrips roundTrips) {
+		long before = this.queries;
+		Map<ObjectIdentity, Acl> acls = this.lookupStrategy.readAclsById(this.objectIdentities, null);
+		roundTrips.queries += this.queries - before;
+		roundTrips.reads++;
+		return acls;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class RoundTrips {
+
+		public long queries;
+
+		public long reads;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.queries = 0;
+			this.reads = 0;
+		}
+
+	}
+
+	private static final class CountingDataSource extends DelegatingDataSource {
+
+		private final LookupStrategyBenchmarks benchmarks;
+
+		private CountingDataSource(DataSource dataSource, LookupStrategyBenchmarks benchmarks) {
+			super(dataSource);
+			this.benchmarks = benchmarks;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = super.getConnection();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+					(proxy, method, args) -> {
+						if ("prepareStatement".equals(method.getName())) {
+							this.benchmarks.queries++;
+						}
+						return method.invoke(connection, args);
+					});
+		}
+
+	}
+
+	private static final class NullAclCache implements AclCache {
+
+		@Override
+		public void evictFromCache(Serializable pk) {
+		}
+
+		@Override
+		public void evictFromCache(ObjectIdentity objectIdentity) {
+		}
+
+		@Override
+		public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+			return null;
+		}
+
+		@Override
+		public MutableAcl getFromCache(Serializable pk) {
+			return null;
+		}
+
+		@Override
+		public void putInCache(MutableAcl acl) {
+		}
+
+		@Override
+		public void clearCache() {
+		}
+
+	}
+
+}
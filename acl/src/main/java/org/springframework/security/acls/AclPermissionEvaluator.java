@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,16 @@
 package org.springframework.security.acls;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -40,6 +47,7 @@ import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Used by Spring Security's expression-based access control implementation to evaluate
@@ -63,6 +71,12 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
 
 	private PermissionFactory permissionFactory = new DefaultPermissionFactory();
 
+	private final boolean hasPermissionOverridden = isOverridden("hasPermission", Authentication.class, Object.class,
+			Object.class);
+
+	private final boolean hasPermissionByIdOverridden = isOverridden("hasPermission", Authentication.class,
+			Serializable.class, String.class, Object.class);
+
 	public AclPermissionEvaluator(AclService aclService) {
 		this.aclService = aclService;
 	}
@@ -88,6 +102,99 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
 		return checkPermission(authentication, objectIdentity, permission);
 	}
 
+	/**
+	 * Determines, for each of the domain objects, whether the user has the given
+	 * permission(s) using the ACL configuration. The ACLs of all the domain objects are
+	 * read with a single {@link AclService#findAclsById(List, List)} call, unless a
+	 * subclass overrides {@link #hasPermission(Authentication, Object, Object)}, in which
+	 * case that method is called for each domain object.
+	 */
+	@Override
+	public BitSet hasPermissions(Authentication authentication, Collection<?> domainObjects, Object permission) {
+		if (this.hasPermissionOverridden) {
+			return PermissionEvaluator.super.hasPermissions(authentication, domainObjects, permission);
+		}
+		List<ObjectIdentity> objectIdentities = new ArrayList<>(domainObjects.size());
+		for (Object domainObject : domainObjects) {
+			objectIdentities.add((domainObject != null)
+					? this.objectIdentityRetrievalStrategy.getObjectIdentity(domainObject) : null);
+		}
+		return hasPermissionsById(authentication, objectIdentities, permission);
+	}
+
+	/**
+	 * Determines, for each of the object identities, whether the user has the given
+	 * permission(s) using the ACL configuration. The ACLs are read with a single
+	 * {@link AclService#findAclsById(List, List)} call and the permission is checked once
+	 * for each distinct object identity. If a subclass overrides
+	 * {@link #hasPermission(Authentication, Serializable, String, Object)}, that method
+	 * is called for each object identity instead.
+	 * @param authentication represents the user in question
+	 * @param objectIdentities the object identities to check, may contain
+	 * <code>null</code> elements, for which the permission is not granted
+	 * @param permission the permission(s) to check
+	 * @return a {@link BitSet} in which the bit at index <code>i</code> is set if the
+	 * permission is granted for the <code>i</code>th object identity
+	 * @since 5.8
+	 */
+	public BitSet hasPermissionsById(Authentication authentication, List<ObjectIdentity> objectIdentities,
+			Object permission) {
+		if (this.hasPermissionByIdOverridden) {
+			BitSet granted = new BitSet(objectIdentities.size());
+			for (int i = 0; i < objectIdentities.size(); i++) {
+				ObjectIdentity oid = objectIdentities.get(i);
+				if (oid != null && hasPermission(authentication, oid.getIdentifier(), oid.getType(), permission)) {
+					granted.set(i);
+				}
+			}
+			return granted;
+		}
+		List<Permission> requiredPermission = resolvePermission(permission);
+		this.logger.debug(LogMessage
+				.of(() -> "Checking permission '" + permission + "' for " + objectIdentities.size() + " objects"));
+		return isGranted(authentication, objectIdentities, requiredPermission);
+	}
+
+	/**
+	 * Determines, for each of the object identities, whether the principal is granted the
+	 * permissions. The ACLs are read with a single
+	 * {@link AclService#findAclsById(List, List)} call and the permissions are checked
+	 * once for each distinct object identity. Object identities without an ACL, and
+	 * <code>null</code> elements, are not granted.
+	 */
+	private BitSet isGranted(Authentication authentication, List<ObjectIdentity> objectIdentities,
+			List<Permission> permission) {
+		BitSet granted = new BitSet(objectIdentities.size());
+		Set<ObjectIdentity> distinct = new LinkedHashSet<>(objectIdentities);
+		distinct.remove(null);
+		if (distinct.isEmpty()) {
+			return granted;
+		}
+		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
+		Map<ObjectIdentity, Acl> acls = this.aclService.findAclsById(new ArrayList<>(distinct), sids);
+		Map<ObjectIdentity, Boolean> decisions = new HashMap<>();
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			ObjectIdentity objectIdentity = objectIdentities.get(i);
+			if (objectIdentity != null
+					&& decisions.computeIfAbsent(objectIdentity, (key) -> isGranted(acls.get(key), permission, sids))) {
+				granted.set(i);
+			}
+		}
+		return granted;
+	}
+
+	private static boolean isGranted(Acl acl, List<Permission> permission, List<Sid> sids) {
+		if (acl == null) {
+			return false;
+		}
+		try {
+			return acl.isGranted(permission, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return false;
+		}
+	}
+
 	private boolean checkPermission(Authentication authentication, ObjectIdentity oid, Object permission) {
 		// Obtain the SIDs applicable to the principal
 		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
@@ -153,4 +260,13 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
 		this.permissionFactory = permissionFactory;
 	}
 
+	/**
+	 * Determines whether a subclass overrides a method, in which case the bulk checks
+	 * would bypass it and each element has to be checked with that method instead.
+	 */
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		return ReflectionUtils.findMethod(getClass(), name, parameterTypes)
+				.getDeclaringClass() != AclPermissionEvaluator.class;
+	}
+
 }
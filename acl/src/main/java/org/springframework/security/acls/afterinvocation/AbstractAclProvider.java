@@ -16,7 +16,13 @@
 
 package org.springframework.security.acls.afterinvocation;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.security.access.AfterInvocationProvider;
 import org.springframework.security.access.ConfigAttribute;
@@ -33,6 +39,7 @@ import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Abstract {@link AfterInvocationProvider} which provides commonly-used ACL-related
@@ -54,6 +61,10 @@ public abstract class AbstractAclProvider implements AfterInvocationProvider {
 
 	protected final List<Permission> requirePermission;
 
+	private final boolean hasPermissionOverridden = ReflectionUtils
+		.findMethod(getClass(), "hasPermission", Authentication.class, Object.class)
+		.getDeclaringClass() != AbstractAclProvider.class;
+
 	public AbstractAclProvider(AclService aclService, String processConfigAttribute,
 			List<Permission> requirePermission) {
 		Assert.hasText(processConfigAttribute, "A processConfigAttribute is mandatory");
@@ -85,6 +96,76 @@ public abstract class AbstractAclProvider implements AfterInvocationProvider {
 		}
 	}
 
+	/**
+	 * Determines, for each of the domain objects, whether the principal is granted the
+	 * required permissions. The ACLs of all the domain objects are read with a single
+	 * {@link AclService#findAclsById(List, List)} call, unless a subclass overrides
+	 * {@link #hasPermission(Authentication, Object)}, in which case that method is called
+	 * for each domain object.
+	 * @param authentication the principal
+	 * @param domainObjects the domain objects to check
+	 * @return a {@link BitSet} in which the bit at index <code>i</code> is set if the
+	 * principal is granted the required permissions for the <code>i</code>th domain
+	 * object
+	 * @since 5.8
+	 */
+	protected BitSet hasPermissions(Authentication authentication, List<?> domainObjects) {
+		if (this.hasPermissionOverridden) {
+			BitSet granted = new BitSet(domainObjects.size());
+			for (int i = 0; i < domainObjects.size(); i++) {
+				if (hasPermission(authentication, domainObjects.get(i))) {
+					granted.set(i);
+				}
+			}
+			return granted;
+		}
+		List<ObjectIdentity> objectIdentities = new ArrayList<>(domainObjects.size());
+		for (Object domainObject : domainObjects) {
+			objectIdentities.add(this.objectIdentityRetrievalStrategy.getObjectIdentity(domainObject));
+		}
+		return isGranted(authentication, objectIdentities, this.requirePermission);
+	}
+
+	/**
+	 * Determines, for each of the object identities, whether the principal is granted the
+	 * permissions. The ACLs are read with a single
+	 * {@link AclService#findAclsById(List, List)} call and the permissions are checked
+	 * once for each distinct object identity. Object identities without an ACL, and
+	 * <code>null</code> elements, are not granted.
+	 */
+	private BitSet isGranted(Authentication authentication, List<ObjectIdentity> objectIdentities,
+			List<Permission> permission) {
+		BitSet granted = new BitSet(objectIdentities.size());
+		Set<ObjectIdentity> distinct = new LinkedHashSet<>(objectIdentities);
+		distinct.remove(null);
+		if (distinct.isEmpty()) {
+			return granted;
+		}
+		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
+		Map<ObjectIdentity, Acl> acls = this.aclService.findAclsById(new ArrayList<>(distinct), sids);
+		Map<ObjectIdentity, Boolean> decisions = new HashMap<>();
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			ObjectIdentity objectIdentity = objectIdentities.get(i);
+			if (objectIdentity != null
+					&& decisions.computeIfAbsent(objectIdentity, (key) -> isGranted(acls.get(key), permission, sids))) {
+				granted.set(i);
+			}
+		}
+		return granted;
+	}
+
+	private static boolean isGranted(Acl acl, List<Permission> permission, List<Sid> sids) {
+		if (acl == null) {
+			return false;
+		}
+		try {
+			return acl.isGranted(permission, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return false;
+		}
+	}
+
 	public void setObjectIdentityRetrievalStrategy(ObjectIdentityRetrievalStrategy objectIdentityRetrievalStrategy) {
 		Assert.notNull(objectIdentityRetrievalStrategy, "ObjectIdentityRetrievalStrategy required");
 		this.objectIdentityRetrievalStrategy = objectIdentityRetrievalStrategy;
@@ -16,6 +16,8 @@
 
 package org.springframework.security.acls.afterinvocation;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
@@ -47,7 +49,8 @@ import org.springframework.security.core.Authentication;
  * Acl.isGranted()} when presenting the {@link #requirePermission} array to that method.
  * <p>
  * If the principal does not have permission, that element will not be included in the
- * returned <code>Collection</code>.
+ * returned <code>Collection</code>. The ACLs of all elements are read at once, see
+ * {@link #hasPermissions(Authentication, List)}.
  * <p>
  * Often users will setup a <code>BasicAclEntryAfterInvocationProvider</code> with a
  * {@link #processConfigAttribute} of <code>AFTER_ACL_COLLECTION_READ</code> and a
@@ -90,13 +93,19 @@ public class AclEntryAfterInvocationCollectionFilteringProvider extends Abstract
 			Filterer filterer = getFilterer(returnedObject);
 
 			// Locate unauthorised Collection elements
+			List<Object> domainObjects = new ArrayList<>();
 			for (Object domainObject : filterer) {
 				// Ignore nulls or entries which aren't instances of the configured domain
 				// object class
 				if (domainObject == null || !getProcessDomainObjectClass().isAssignableFrom(domainObject.getClass())) {
 					continue;
 				}
-				if (!hasPermission(authentication, domainObject)) {
+				domainObjects.add(domainObject);
+			}
+			BitSet granted = hasPermissions(authentication, domainObjects);
+			for (int i = 0; i < domainObjects.size(); i++) {
+				if (!granted.get(i)) {
+					Object domainObject = domainObjects.get(i);
 					filterer.remove(domainObject);
 					logger.debug(LogMessage.of(() -> "Principal is NOT authorised for element: " + domainObject));
 				}
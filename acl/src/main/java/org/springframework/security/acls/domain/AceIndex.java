@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Sid;
+
+/**
+ * An immutable index of the entries of an ACL by {@link Sid} and permission mask. For
+ * each combination only the first {@link AccessControlEntry} in ACL order is kept, since
+ * that is the entry whose grant or deny decision prevails.
+ *
+ * @since 5.8
+ * @see IndexedPermissionGrantingStrategy
+ */
+final class AceIndex {
+
+	private final Map<Sid, Map<Integer, AccessControlEntry>> entriesBySid;
+
+	AceIndex(List<AccessControlEntry> aces) {
+		this.entriesBySid = new HashMap<>();
+		for (AccessControlEntry ace : aces) {
+			Map<Integer, AccessControlEntry> entriesByMask = this.entriesBySid.computeIfAbsent(ace.getSid(),
+					(sid) -> new HashMap<>());
+			entriesByMask.putIfAbsent(ace.getPermission().getMask(), ace);
+		}
+	}
+
+	/**
+	 * Returns the first entry for the given {@link Sid} whose permission has exactly the
+	 * given mask.
+	 * @param sid the {@link Sid} to look up
+	 * @param mask the permission mask to look up
+	 * @return the first matching entry, or {@code null} if there is none
+	 */
+	AccessControlEntry getFirstEntry(Sid sid, int mask) {
+		Map<Integer, AccessControlEntry> entriesByMask = this.entriesBySid.get(sid);
+		return (entriesByMask != null) ? entriesByMask.get(mask) : null;
+	}
+
+}
@@ -18,7 +18,9 @@ package org.springframework.security.acls.domain;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.security.acls.model.AccessControlEntry;
 import org.springframework.security.acls.model.Acl;
@@ -61,6 +63,9 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 
 	private boolean entriesInheriting = true;
 
+	// lazily built from aces and discarded whenever they change
+	private transient volatile AceIndex aceIndex;
+
 	/**
 	 * Minimal constructor, which should be used
 	 * {@link org.springframework.security.acls.model.MutableAclService#createAcl(ObjectIdentity)}
@@ -113,6 +118,19 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		this.permissionGrantingStrategy = grantingStrategy;
 	}
 
+	/**
+	 * Creates a {@link Builder} for an {@link AclImpl} that is read from persistent
+	 * storage. Unlike the {@link MutableAcl} methods, the {@link Builder} does not
+	 * perform any security checks when adding entries.
+	 * @param objectIdentity the object identity this ACL relates to (required)
+	 * @param id the primary key of this ACL (required)
+	 * @return the {@link Builder}
+	 * @since 5.8
+	 */
+	public static Builder builder(ObjectIdentity objectIdentity, Serializable id) {
+		return new Builder(objectIdentity, id);
+	}
+
 	/**
 	 * Private no-argument constructor for use by reflection-based persistence tools along
 	 * with field-level access.
@@ -127,6 +145,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		verifyAceIndexExists(aceIndex);
 		synchronized (this.aces) {
 			this.aces.remove(aceIndex);
+			this.aceIndex = null;
 		}
 	}
 
@@ -156,6 +175,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		AccessControlEntryImpl ace = new AccessControlEntryImpl(null, this, sid, permission, granting, false, false);
 		synchronized (this.aces) {
 			this.aces.add(atIndexLocation, ace);
+			this.aceIndex = null;
 		}
 	}
 
@@ -166,6 +186,26 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		return new ArrayList<>(this.aces);
 	}
 
+	/**
+	 * Returns an index of the entries of this ACL by {@link Sid} and permission mask,
+	 * building it if the entries changed since it was last requested.
+	 * @return the index of the entries of this ACL
+	 * @since 5.8
+	 */
+	AceIndex getAceIndex() {
+		AceIndex index = this.aceIndex;
+		if (index == null) {
+			synchronized (this.aces) {
+				index = this.aceIndex;
+				if (index == null) {
+					index = new AceIndex(this.aces);
+					this.aceIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
 	@Override
 	public Serializable getId() {
 		return this.id;
@@ -261,6 +301,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		synchronized (this.aces) {
 			AccessControlEntryImpl ace = (AccessControlEntryImpl) this.aces.get(aceIndex);
 			ace.setPermission(permission);
+			this.aceIndex = null;
 		}
 	}
 
@@ -337,4 +378,165 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		return sb.toString();
 	}
 
+	/**
+	 * A builder for an {@link AclImpl} and its entries, typically used by a
+	 * {@link org.springframework.security.acls.jdbc.LookupStrategy} to assemble an ACL
+	 * that is read from persistent storage.
+	 *
+	 * @since 5.8
+	 */
+	public static final class Builder {
+
+		private final ObjectIdentity objectIdentity;
+
+		private final Serializable id;
+
+		private AclAuthorizationStrategy aclAuthorizationStrategy;
+
+		private PermissionGrantingStrategy permissionGrantingStrategy;
+
+		private Acl parentAcl;
+
+		private List<Sid> loadedSids;
+
+		private boolean entriesInheriting = true;
+
+		private Sid owner;
+
+		private final List<Entry> entries = new ArrayList<>();
+
+		private final Set<Serializable> entryIds = new HashSet<>();
+
+		private Builder(ObjectIdentity objectIdentity, Serializable id) {
+			this.objectIdentity = objectIdentity;
+			this.id = id;
+		}
+
+		/**
+		 * Sets the {@link AclAuthorizationStrategy} (required).
+		 * @param aclAuthorizationStrategy the authorization strategy
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder aclAuthorizationStrategy(AclAuthorizationStrategy aclAuthorizationStrategy) {
+			this.aclAuthorizationStrategy = aclAuthorizationStrategy;
+			return this;
+		}
+
+		/**
+		 * Sets the {@link PermissionGrantingStrategy} which will be used by
+		 * {@link AclImpl#isGranted(List, List, boolean)}.
+		 * @param permissionGrantingStrategy the permission granting strategy
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder permissionGrantingStrategy(PermissionGrantingStrategy permissionGrantingStrategy) {
+			this.permissionGrantingStrategy = permissionGrantingStrategy;
+			return this;
+		}
+
+		/**
+		 * Sets the parent {@link Acl}. The default is no parent.
+		 * @param parentAcl the parent (may be {@code null})
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder parentAcl(Acl parentAcl) {
+			this.parentAcl = parentAcl;
+			return this;
+		}
+
+		/**
+		 * Sets the loaded SIDs if only a subset were loaded. The default is that all SIDs
+		 * were loaded.
+		 * @param loadedSids the loaded SIDs (may be {@code null})
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder loadedSids(List<Sid> loadedSids) {
+			this.loadedSids = loadedSids;
+			return this;
+		}
+
+		/**
+		 * Sets if the entries of the parent should inherit into this ACL. The default is
+		 * {@code true}.
+		 * @param entriesInheriting if the entries of the parent should inherit
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder entriesInheriting(boolean entriesInheriting) {
+			this.entriesInheriting = entriesInheriting;
+			return this;
+		}
+
+		/**
+		 * Sets the owner (required).
+		 * @param owner the owner
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder owner(Sid owner) {
+			this.owner = owner;
+			return this;
+		}
+
+		/**
+		 * Appends an entry to the ACL. An entry with the same non-null id as an entry
+		 * that was already appended is ignored.
+		 * @param id the primary key of the entry (may be {@code null})
+		 * @param sid the recipient of the entry (required)
+		 * @param permission the permission of the entry (required)
+		 * @param granting if the entry grants or denies the permission
+		 * @param auditSuccess if successful uses of the entry should be audited
+		 * @param auditFailure if failed uses of the entry should be audited
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder entry(Serializable id, Sid sid, Permission permission, boolean granting, boolean auditSuccess,
+				boolean auditFailure) {
+			Assert.notNull(sid, "Sid required");
+			Assert.notNull(permission, "Permission required");
+			if (id == null || this.entryIds.add(id)) {
+				this.entries.add(new Entry(id, sid, permission, granting, auditSuccess, auditFailure));
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the {@link AclImpl}.
+		 * @return the {@link AclImpl}
+		 */
+		public AclImpl build() {
+			AclImpl acl = new AclImpl(this.objectIdentity, this.id, this.aclAuthorizationStrategy,
+					this.permissionGrantingStrategy, this.parentAcl, this.loadedSids, this.entriesInheriting,
+					this.owner);
+			for (Entry entry : this.entries) {
+				acl.aces.add(new AccessControlEntryImpl(entry.id, acl, entry.sid, entry.permission, entry.granting,
+						entry.auditSuccess, entry.auditFailure));
+			}
+			return acl;
+		}
+
+		private static final class Entry {
+
+			private final Serializable id;
+
+			private final Sid sid;
+
+			private final Permission permission;
+
+			private final boolean granting;
+
+			private final boolean auditSuccess;
+
+			private final boolean auditFailure;
+
+			private Entry(Serializable id, Sid sid, Permission permission, boolean granting, boolean auditSuccess,
+					boolean auditFailure) {
+				this.id = id;
+				this.sid = sid;
+				this.permission = permission;
+				this.granting = granting;
+				this.auditSuccess = auditSuccess;
+				this.auditFailure = auditFailure;
+			}
+
+		}
+
+	}
+
 }
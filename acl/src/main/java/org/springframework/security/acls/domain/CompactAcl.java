@@ -0,0 +1,413 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.UnloadedSidException;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A read-only {@link Acl} that needs much less memory than an {@link AclImpl} with the
+ * same entries, for caching large numbers of ACLs that are only used for authorization
+ * decisions.
+ * <p>
+ * Rather than an {@link AccessControlEntryImpl} per entry, the ids, permission masks,
+ * {@link Sid}s and granting and auditing flags of the entries are kept in parallel
+ * arrays. The {@link Sid}s are expected to be shared between ACLs, and the
+ * {@link Permission}s are only built by the {@link PermissionFactory} when
+ * {@link #getEntries()} is called. An {@link IndexedPermissionGrantingStrategy} scans the
+ * arrays and only creates the entry that decides, whereas a
+ * {@link DefaultPermissionGrantingStrategy} calls {@link #getEntries()} and so creates
+ * every entry on each check.
+ * <p>
+ * As it is not a {@link MutableAcl}, it is stored in an
+ * {@link org.springframework.security.acls.model.AclCache} with
+ * {@link org.springframework.security.acls.model.AclCache#putAclInCache(Acl)}, and a
+ * {@link org.springframework.security.acls.jdbc.JdbcMutableAclService} refuses to return
+ * it with an {@link IllegalStateException}.
+ *
+ * @since 5.8
+ * @see org.springframework.security.acls.jdbc.BasicLookupStrategy#setCompactAcls(boolean)
+ */
+public final class CompactAcl implements Acl {
+
+	private static final PermissionFactory DEFAULT_PERMISSION_FACTORY = new DefaultPermissionFactory();
+
+	private static final byte GRANTING = 1;
+
+	private static final byte AUDIT_SUCCESS = 2;
+
+	private static final byte AUDIT_FAILURE = 4;
+
+	private final ObjectIdentity objectIdentity;
+
+	private final Serializable id;
+
+	private final Sid owner;
+
+	private final Acl parentAcl;
+
+	private final boolean entriesInheriting;
+
+	private final long[] entryIds;
+
+	private final int[] masks;
+
+	private final Sid[] sids;
+
+	private final byte[] flags;
+
+	private transient PermissionGrantingStrategy permissionGrantingStrategy;
+
+	private transient PermissionFactory permissionFactory;
+
+	private CompactAcl(Builder builder) {
+		int size = builder.size;
+		this.objectIdentity = builder.objectIdentity;
+		this.id = builder.id;
+		this.owner = builder.owner;
+		this.parentAcl = builder.parentAcl;
+		this.entriesInheriting = builder.entriesInheriting;
+		this.entryIds = Arrays.copyOf(builder.entryIds, size);
+		this.masks = Arrays.copyOf(builder.masks, size);
+		this.sids = Arrays.copyOf(builder.sids, size);
+		this.flags = Arrays.copyOf(builder.flags, size);
+		this.permissionGrantingStrategy = builder.permissionGrantingStrategy;
+		this.permissionFactory = builder.permissionFactory;
+	}
+
+	/**
+	 * Creates a {@link Builder} for a {@link CompactAcl} that is read from persistent
+	 * storage.
+	 * @param objectIdentity the object identity this ACL relates to (required)
+	 * @param id the primary key of this ACL (required)
+	 * @return the {@link Builder}
+	 */
+	public static Builder builder(ObjectIdentity objectIdentity, Serializable id) {
+		return new Builder(objectIdentity, id);
+	}
+
+	/**
+	 * Returns new {@link AccessControlEntryImpl}s for the entries of this ACL, whose
+	 * permissions are built by the {@link PermissionFactory}.
+	 */
+	@Override
+	public List<AccessControlEntry> getEntries() {
+		List<AccessControlEntry> entries = new ArrayList<>(this.masks.length);
+		for (int i = 0; i < this.masks.length; i++) {
+			entries.add(getEntry(i));
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the first entry for the given {@link Sid} whose permission has exactly the
+	 * given mask. The entries are scanned in order and only the matching one is created.
+	 * @param sid the {@link Sid} to look up
+	 * @param mask the permission mask to look up
+	 * @return the first matching entry, or {@code null} if there is none
+	 */
+	AccessControlEntry getFirstEntry(Sid sid, int mask) {
+		for (int i = 0; i < this.masks.length; i++) {
+			if (this.masks[i] == mask && (this.sids[i] == sid || this.sids[i].equals(sid))) {
+				return getEntry(i);
+			}
+		}
+		return null;
+	}
+
+	PermissionGrantingStrategy getPermissionGrantingStrategy() {
+		return this.permissionGrantingStrategy;
+	}
+
+	/**
+	 * Restores the {@link PermissionGrantingStrategy} after deserialization, as it is not
+	 * serialized.
+	 * @param permissionGrantingStrategy the permission granting strategy
+	 */
+	void setPermissionGrantingStrategy(PermissionGrantingStrategy permissionGrantingStrategy) {
+		this.permissionGrantingStrategy = permissionGrantingStrategy;
+	}
+
+	/**
+	 * Returns the primary key of an ACL that is stored in an
+	 * {@link org.springframework.security.acls.model.AclCache}.
+	 * @param acl either a {@link MutableAcl} or a {@link CompactAcl}
+	 * @return the primary key
+	 */
+	static Serializable idOf(Acl acl) {
+		if (acl instanceof CompactAcl) {
+			return ((CompactAcl) acl).getId();
+		}
+		Assert.isInstanceOf(MutableAcl.class, acl, "Acl must be a MutableAcl or a CompactAcl");
+		return ((MutableAcl) acl).getId();
+	}
+
+	private AccessControlEntry getEntry(int index) {
+		PermissionFactory factory = (this.permissionFactory != null) ? this.permissionFactory
+				: DEFAULT_PERMISSION_FACTORY;
+		byte flags = this.flags[index];
+		return new AccessControlEntryImpl(this.entryIds[index], this, this.sids[index],
+				factory.buildFromMask(this.masks[index]), (flags & GRANTING) != 0, (flags & AUDIT_SUCCESS) != 0,
+				(flags & AUDIT_FAILURE) != 0);
+	}
+
+	/**
+	 * Returns the primary key of this ACL.
+	 * @return the primary key
+	 */
+	public Serializable getId() {
+		return this.id;
+	}
+
+	@Override
+	public ObjectIdentity getObjectIdentity() {
+		return this.objectIdentity;
+	}
+
+	@Override
+	public Sid getOwner() {
+		return this.owner;
+	}
+
+	@Override
+	public Acl getParentAcl() {
+		return this.parentAcl;
+	}
+
+	@Override
+	public boolean isEntriesInheriting() {
+		return this.entriesInheriting;
+	}
+
+	/**
+	 * Delegates to the {@link PermissionGrantingStrategy}.
+	 */
+	@Override
+	public boolean isGranted(List<Permission> permission, List<Sid> sids, boolean administrativeMode)
+			throws NotFoundException, UnloadedSidException {
+		Assert.notEmpty(permission, "Permissions required");
+		Assert.notEmpty(sids, "SIDs required");
+		return this.permissionGrantingStrategy.isGranted(this, permission, sids, administrativeMode);
+	}
+
+	/**
+	 * Always returns {@code true}, as the entries of all SIDs are loaded.
+	 */
+	@Override
+	public boolean isSidLoaded(List<Sid> sids) {
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof CompactAcl)) {
+			return false;
+		}
+		CompactAcl other = (CompactAcl) obj;
+		return this.id.equals(other.id) && this.objectIdentity.equals(other.objectIdentity)
+				&& ObjectUtils.nullSafeEquals(this.owner, other.owner)
+				&& ObjectUtils.nullSafeEquals(this.parentAcl, other.parentAcl)
+				&& this.entriesInheriting == other.entriesInheriting && Arrays.equals(this.entryIds, other.entryIds)
+				&& Arrays.equals(this.masks, other.masks) && Arrays.equals(this.sids, other.sids)
+				&& Arrays.equals(this.flags, other.flags);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = this.id.hashCode();
+		result = 31 * result + this.objectIdentity.hashCode();
+		result = 31 * result + Arrays.hashCode(this.masks);
+		result = 31 * result + Arrays.hashCode(this.sids);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("CompactAcl[");
+		sb.append("id: ").append(this.id).append("; ");
+		sb.append("objectIdentity: ").append(this.objectIdentity).append("; ");
+		sb.append("owner: ").append(this.owner).append("; ");
+		sb.append("entries: ").append(this.masks.length).append("; ");
+		sb.append("inheriting: ").append(this.entriesInheriting).append("; ");
+		sb.append("parent: ").append((this.parentAcl == null) ? "Null" : this.parentAcl.getObjectIdentity().toString());
+		sb.append("; ");
+		sb.append("permissionGrantingStrategy: ").append(this.permissionGrantingStrategy);
+		sb.append("]");
+		return sb.toString();
+	}
+
+	/**
+	 * A builder for a {@link CompactAcl} and its entries, typically used by a
+	 * {@link org.springframework.security.acls.jdbc.LookupStrategy} to assemble an ACL
+	 * that is read from persistent storage.
+	 */
+	public static final class Builder {
+
+		private final ObjectIdentity objectIdentity;
+
+		private final Serializable id;
+
+		private PermissionGrantingStrategy permissionGrantingStrategy;
+
+		private PermissionFactory permissionFactory = DEFAULT_PERMISSION_FACTORY;
+
+		private Acl parentAcl;
+
+		private boolean entriesInheriting = true;
+
+		private Sid owner;
+
+		private int size;
+
+		private long[] entryIds = new long[4];
+
+		private int[] masks = new int[4];
+
+		private Sid[] sids = new Sid[4];
+
+		private byte[] flags = new byte[4];
+
+		private final Set<Long> seenEntryIds = new HashSet<>();
+
+		private Builder(ObjectIdentity objectIdentity, Serializable id) {
+			Assert.notNull(objectIdentity, "Object Identity required");
+			Assert.notNull(id, "Id required");
+			this.objectIdentity = objectIdentity;
+			this.id = id;
+		}
+
+		/**
+		 * Sets the {@link PermissionGrantingStrategy} which will be used by
+		 * {@link CompactAcl#isGranted(List, List, boolean)} (required).
+		 * @param permissionGrantingStrategy the permission granting strategy
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder permissionGrantingStrategy(PermissionGrantingStrategy permissionGrantingStrategy) {
+			this.permissionGrantingStrategy = permissionGrantingStrategy;
+			return this;
+		}
+
+		/**
+		 * Sets the {@link PermissionFactory} which builds the permissions of the entries
+		 * from their masks. The default is a {@link DefaultPermissionFactory}. As the
+		 * factory is not serialized, a deserialized {@link CompactAcl} uses the default.
+		 * @param permissionFactory the permission factory
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder permissionFactory(PermissionFactory permissionFactory) {
+			Assert.notNull(permissionFactory, "permissionFactory cannot be null");
+			this.permissionFactory = permissionFactory;
+			return this;
+		}
+
+		/**
+		 * Sets the parent {@link Acl}. The default is no parent.
+		 * @param parentAcl the parent (may be {@code null})
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder parentAcl(Acl parentAcl) {
+			this.parentAcl = parentAcl;
+			return this;
+		}
+
+		/**
+		 * Sets if the entries of the parent should inherit into this ACL. The default is
+		 * {@code true}.
+		 * @param entriesInheriting if the entries of the parent should inherit
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder entriesInheriting(boolean entriesInheriting) {
+			this.entriesInheriting = entriesInheriting;
+			return this;
+		}
+
+		/**
+		 * Sets the owner (required).
+		 * @param owner the owner
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder owner(Sid owner) {
+			this.owner = owner;
+			return this;
+		}
+
+		/**
+		 * Appends an entry to the ACL. An entry with the same id as an entry that was
+		 * already appended is ignored.
+		 * @param id the primary key of the entry
+		 * @param sid the recipient of the entry, ideally shared with other ACLs
+		 * (required)
+		 * @param mask the mask of the permission of the entry
+		 * @param granting if the entry grants or denies the permission
+		 * @param auditSuccess if successful uses of the entry should be audited
+		 * @param auditFailure if failed uses of the entry should be audited
+		 * @return the {@link Builder} for further configuration
+		 */
+		public Builder entry(long id, Sid sid, int mask, boolean granting, boolean auditSuccess, boolean auditFailure) {
+			Assert.notNull(sid, "Sid required");
+			if (!this.seenEntryIds.add(id)) {
+				return this;
+			}
+			if (this.size == this.masks.length) {
+				int capacity = this.size * 2;
+				this.entryIds = Arrays.copyOf(this.entryIds, capacity);
+				this.masks = Arrays.copyOf(this.masks, capacity);
+				this.sids = Arrays.copyOf(this.sids, capacity);
+				this.flags = Arrays.copyOf(this.flags, capacity);
+			}
+			this.entryIds[this.size] = id;
+			this.masks[this.size] = mask;
+			this.sids[this.size] = sid;
+			this.flags[this.size] = (byte) ((granting ? GRANTING : 0) | (auditSuccess ? AUDIT_SUCCESS : 0)
+					| (auditFailure ? AUDIT_FAILURE : 0));
+			this.size++;
+			return this;
+		}
+
+		/**
+		 * Builds the {@link CompactAcl}.
+		 * @return the {@link CompactAcl}
+		 */
+		public CompactAcl build() {
+			Assert.notNull(this.permissionGrantingStrategy, "PermissionGrantingStrategy required");
+			Assert.notNull(this.owner, "Owner required");
+			return new CompactAcl(this);
+		}
+
+	}
+
+}
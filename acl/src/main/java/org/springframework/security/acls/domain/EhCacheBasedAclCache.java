@@ -22,6 +22,7 @@ import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
+import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclCache;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.ObjectIdentity;
@@ -61,9 +62,9 @@ public class EhCacheBasedAclCache implements AclCache {
 	@Override
 	public void evictFromCache(Serializable pk) {
 		Assert.notNull(pk, "Primary key (identifier) required");
-		MutableAcl acl = getFromCache(pk);
+		Acl acl = getAclFromCache(pk);
 		if (acl != null) {
-			this.cache.remove(acl.getId());
+			this.cache.remove(CompactAcl.idOf(acl));
 			this.cache.remove(acl.getObjectIdentity());
 		}
 	}
@@ -71,19 +72,31 @@ public class EhCacheBasedAclCache implements AclCache {
 	@Override
 	public void evictFromCache(ObjectIdentity objectIdentity) {
 		Assert.notNull(objectIdentity, "ObjectIdentity required");
-		MutableAcl acl = getFromCache(objectIdentity);
+		Acl acl = getAclFromCache(objectIdentity);
 		if (acl != null) {
-			this.cache.remove(acl.getId());
+			this.cache.remove(CompactAcl.idOf(acl));
 			this.cache.remove(acl.getObjectIdentity());
 		}
 	}
 
 	@Override
 	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		Acl acl = getAclFromCache(objectIdentity);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		Acl acl = getAclFromCache(pk);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public Acl getAclFromCache(ObjectIdentity objectIdentity) {
 		Assert.notNull(objectIdentity, "ObjectIdentity required");
 		try {
 			Element element = this.cache.get(objectIdentity);
-			return (element != null) ? initializeTransientFields((MutableAcl) element.getValue()) : null;
+			return (element != null) ? initializeTransientFields((Acl) element.getValue()) : null;
 		}
 		catch (CacheException ex) {
 			return null;
@@ -91,11 +104,11 @@ public class EhCacheBasedAclCache implements AclCache {
 	}
 
 	@Override
-	public MutableAcl getFromCache(Serializable pk) {
+	public Acl getAclFromCache(Serializable pk) {
 		Assert.notNull(pk, "Primary key (identifier) required");
 		try {
 			Element element = this.cache.get(pk);
-			return (element != null) ? initializeTransientFields((MutableAcl) element.getValue()) : null;
+			return (element != null) ? initializeTransientFields((Acl) element.getValue()) : null;
 		}
 		catch (CacheException ex) {
 			return null;
@@ -104,9 +117,14 @@ public class EhCacheBasedAclCache implements AclCache {
 
 	@Override
 	public void putInCache(MutableAcl acl) {
+		putAclInCache(acl);
+	}
+
+	@Override
+	public void putAclInCache(Acl acl) {
 		Assert.notNull(acl, "Acl required");
 		Assert.notNull(acl.getObjectIdentity(), "ObjectIdentity required");
-		Assert.notNull(acl.getId(), "ID required");
+		Assert.notNull(CompactAcl.idOf(acl), "ID required");
 		if (this.aclAuthorizationStrategy == null) {
 			if (acl instanceof AclImpl) {
 				this.aclAuthorizationStrategy = (AclAuthorizationStrategy) FieldUtils
@@ -115,20 +133,26 @@ public class EhCacheBasedAclCache implements AclCache {
 						.getProtectedFieldValue("permissionGrantingStrategy", acl);
 			}
 		}
-		if ((acl.getParentAcl() != null) && (acl.getParentAcl() instanceof MutableAcl)) {
-			putInCache((MutableAcl) acl.getParentAcl());
+		if (this.permissionGrantingStrategy == null && acl instanceof CompactAcl) {
+			this.permissionGrantingStrategy = ((CompactAcl) acl).getPermissionGrantingStrategy();
+		}
+		if (acl.getParentAcl() instanceof MutableAcl || acl.getParentAcl() instanceof CompactAcl) {
+			putAclInCache(acl.getParentAcl());
 		}
 		this.cache.put(new Element(acl.getObjectIdentity(), acl));
-		this.cache.put(new Element(acl.getId(), acl));
+		this.cache.put(new Element(CompactAcl.idOf(acl), acl));
 	}
 
-	private MutableAcl initializeTransientFields(MutableAcl value) {
+	private Acl initializeTransientFields(Acl value) {
 		if (value instanceof AclImpl) {
 			FieldUtils.setProtectedFieldValue("aclAuthorizationStrategy", value, this.aclAuthorizationStrategy);
 			FieldUtils.setProtectedFieldValue("permissionGrantingStrategy", value, this.permissionGrantingStrategy);
 		}
+		else if (value instanceof CompactAcl && this.permissionGrantingStrategy != null) {
+			((CompactAcl) value).setPermissionGrantingStrategy(this.permissionGrantingStrategy);
+		}
 		if (value.getParentAcl() != null) {
-			initializeTransientFields((MutableAcl) value.getParentAcl());
+			initializeTransientFields(value.getParentAcl());
 		}
 		return value;
 	}
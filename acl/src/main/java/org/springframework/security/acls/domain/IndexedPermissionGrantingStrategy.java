@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.List;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PermissionGrantingStrategy} that makes the same decisions as
+ * {@link DefaultPermissionGrantingStrategy}, but looks up entries in an index of the
+ * entries of an {@link AclImpl} by {@link Sid} and permission mask instead of scanning
+ * all of them for every permission and {@link Sid}. This makes a check independent of the
+ * number of entries, which pays off for ACLs with many entries.
+ * <p>
+ * The index is built the first time an {@link AclImpl} is checked and is discarded when
+ * its entries are changed through the
+ * {@link org.springframework.security.acls.model.MutableAcl} methods. Like
+ * {@link DefaultPermissionGrantingStrategy}, permission masks are compared for exact
+ * equality. The entries of a {@link CompactAcl} are scanned in place, only creating the
+ * entry that decides. Other {@link Acl} implementations are checked by a
+ * {@link DefaultPermissionGrantingStrategy}.
+ *
+ * @since 5.8
+ */
+public class IndexedPermissionGrantingStrategy implements PermissionGrantingStrategy {
+
+	private final transient AuditLogger auditLogger;
+
+	private final DefaultPermissionGrantingStrategy fallback;
+
+	/**
+	 * Creates an instance with the logger which will be used to record granting and
+	 * denial of requested permissions.
+	 */
+	public IndexedPermissionGrantingStrategy(AuditLogger auditLogger) {
+		Assert.notNull(auditLogger, "auditLogger cannot be null");
+		this.auditLogger = auditLogger;
+		this.fallback = new DefaultPermissionGrantingStrategy(auditLogger);
+	}
+
+	/**
+	 * Determines authorization with the same semantics as
+	 * {@link DefaultPermissionGrantingStrategy#isGranted(Acl, List, List, boolean)}.
+	 */
+	@Override
+	public boolean isGranted(Acl acl, List<Permission> permission, List<Sid> sids, boolean administrativeMode)
+			throws NotFoundException {
+		if (!(acl instanceof AclImpl) && !(acl instanceof CompactAcl)) {
+			return this.fallback.isGranted(acl, permission, sids, administrativeMode);
+		}
+		AceIndex index = (acl instanceof AclImpl) ? ((AclImpl) acl).getAceIndex() : null;
+		AccessControlEntry firstRejection = null;
+		for (Permission p : permission) {
+			int mask = p.getMask();
+			for (Sid sid : sids) {
+				AccessControlEntry ace = (index != null) ? index.getFirstEntry(sid, mask)
+						: ((CompactAcl) acl).getFirstEntry(sid, mask);
+				if (ace == null) {
+					continue;
+				}
+				if (ace.isGranting()) {
+					if (!administrativeMode) {
+						this.auditLogger.logIfNeeded(true, ace);
+					}
+					return true;
+				}
+				if (firstRejection == null) {
+					firstRejection = ace;
+				}
+				break;
+			}
+		}
+		if (firstRejection != null) {
+			if (!administrativeMode) {
+				this.auditLogger.logIfNeeded(false, firstRejection);
+			}
+			return false;
+		}
+		if (acl.isEntriesInheriting() && (acl.getParentAcl() != null)) {
+			return acl.getParentAcl().isGranted(permission, sids, false);
+		}
+		throw new NotFoundException("Unable to locate a matching ACE for passed permissions and SIDs");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.security.acls.domain;
 import java.io.Serializable;
 
 import org.springframework.cache.Cache;
+import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclCache;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.ObjectIdentity;
@@ -60,9 +61,9 @@ public class SpringCacheBasedAclCache implements AclCache {
 	@Override
 	public void evictFromCache(Serializable pk) {
 		Assert.notNull(pk, "Primary key (identifier) required");
-		MutableAcl acl = getFromCache(pk);
+		Acl acl = getAclFromCache(pk);
 		if (acl != null) {
-			this.cache.evict(acl.getId());
+			this.cache.evict(CompactAcl.idOf(acl));
 			this.cache.evict(acl.getObjectIdentity());
 		}
 	}
@@ -70,52 +71,72 @@ public class SpringCacheBasedAclCache implements AclCache {
 	@Override
 	public void evictFromCache(ObjectIdentity objectIdentity) {
 		Assert.notNull(objectIdentity, "ObjectIdentity required");
-		MutableAcl acl = getFromCache(objectIdentity);
+		Acl acl = getAclFromCache(objectIdentity);
 		if (acl != null) {
-			this.cache.evict(acl.getId());
+			this.cache.evict(CompactAcl.idOf(acl));
 			this.cache.evict(acl.getObjectIdentity());
 		}
 	}
 
 	@Override
 	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		Acl acl = getAclFromCache(objectIdentity);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		Acl acl = getAclFromCache(pk);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public Acl getAclFromCache(ObjectIdentity objectIdentity) {
 		Assert.notNull(objectIdentity, "ObjectIdentity required");
 		return getFromCache((Object) objectIdentity);
 	}
 
 	@Override
-	public MutableAcl getFromCache(Serializable pk) {
+	public Acl getAclFromCache(Serializable pk) {
 		Assert.notNull(pk, "Primary key (identifier) required");
 		return getFromCache((Object) pk);
 	}
 
 	@Override
 	public void putInCache(MutableAcl acl) {
+		putAclInCache(acl);
+	}
+
+	@Override
+	public void putAclInCache(Acl acl) {
 		Assert.notNull(acl, "Acl required");
 		Assert.notNull(acl.getObjectIdentity(), "ObjectIdentity required");
-		Assert.notNull(acl.getId(), "ID required");
-		if ((acl.getParentAcl() != null) && (acl.getParentAcl() instanceof MutableAcl)) {
-			putInCache((MutableAcl) acl.getParentAcl());
+		Assert.notNull(CompactAcl.idOf(acl), "ID required");
+		if (acl.getParentAcl() instanceof MutableAcl || acl.getParentAcl() instanceof CompactAcl) {
+			putAclInCache(acl.getParentAcl());
 		}
 		this.cache.put(acl.getObjectIdentity(), acl);
-		this.cache.put(acl.getId(), acl);
+		this.cache.put(CompactAcl.idOf(acl), acl);
 	}
 
-	private MutableAcl getFromCache(Object key) {
+	private Acl getFromCache(Object key) {
 		Cache.ValueWrapper element = this.cache.get(key);
 		if (element == null) {
 			return null;
 		}
-		return initializeTransientFields((MutableAcl) element.get());
+		return initializeTransientFields((Acl) element.get());
 	}
 
-	private MutableAcl initializeTransientFields(MutableAcl value) {
+	private Acl initializeTransientFields(Acl value) {
 		if (value instanceof AclImpl) {
 			FieldUtils.setProtectedFieldValue("aclAuthorizationStrategy", value, this.aclAuthorizationStrategy);
 			FieldUtils.setProtectedFieldValue("permissionGrantingStrategy", value, this.permissionGrantingStrategy);
 		}
+		else if (value instanceof CompactAcl) {
+			((CompactAcl) value).setPermissionGrantingStrategy(this.permissionGrantingStrategy);
+		}
 		if (value.getParentAcl() != null) {
-			initializeTransientFields((MutableAcl) value.getParentAcl());
+			initializeTransientFields(value.getParentAcl());
 		}
 		return value;
 	}
@@ -0,0 +1,538 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.util.FieldUtils;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link AclCache} that keeps a bounded number of ACLs in memory, optionally in front
+ * of a shared {@link Cache}.
+ * <p>
+ * The in-memory tier is split into independently locked segments, each evicting its least
+ * recently used entries once the maximum size is reached. ACLs are held once, under their
+ * {@link ObjectIdentity}, and looked up by primary key through an index. When a shared
+ * {@link Cache} is configured, ACLs are written through to it and ACLs missing from
+ * memory are read from it. The transient fields of an {@link AclImpl} read from the
+ * shared {@link Cache} are initialized once, when it is copied into memory, rather than
+ * on every access.
+ * <p>
+ * Object identities that have no ACL can be remembered for
+ * {@link #setNotFoundTimeToLive(Duration) a limited time}, so that repeated lookups do
+ * not reach the database. These entries are kept in memory only.
+ * <p>
+ * Evicting an ACL also evicts the ACLs in memory that have it as their parent, and so on
+ * down the hierarchy, since they hold a reference to the evicted instance. Children that
+ * are only held by the shared {@link Cache} are not tracked and are left to the caller,
+ * as {@link org.springframework.security.acls.jdbc.JdbcMutableAclService} does.
+ *
+ * @since 5.8
+ * @see #getStatistics()
+ */
+public class TieredAclCache implements AclCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final Map<Serializable, ObjectIdentity> objectIdentities = new ConcurrentHashMap<>();
+
+	private final Map<ObjectIdentity, Set<ObjectIdentity>> childrenByParent = new ConcurrentHashMap<>();
+
+	private final Cache sharedCache;
+
+	private final PermissionGrantingStrategy permissionGrantingStrategy;
+
+	private final AclAuthorizationStrategy aclAuthorizationStrategy;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder sharedHits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder notFoundHits = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	private Duration notFoundTimeToLive = Duration.ZERO;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Creates an in-memory only cache
+	 * @param maximumSize the maximum number of entries kept in memory
+	 * @param permissionGrantingStrategy the strategy of the cached ACLs
+	 * @param aclAuthorizationStrategy the authorization strategy of the cached ACLs
+	 */
+	public TieredAclCache(int maximumSize, PermissionGrantingStrategy permissionGrantingStrategy,
+			AclAuthorizationStrategy aclAuthorizationStrategy) {
+		this(maximumSize, null, permissionGrantingStrategy, aclAuthorizationStrategy);
+	}
+
+	/**
+	 * Creates a cache that keeps recently used ACLs in memory in front of a shared
+	 * {@link Cache}
+	 * @param maximumSize the maximum number of entries kept in memory
+	 * @param sharedCache the shared cache, or <code>null</code> to only cache in memory
+	 * @param permissionGrantingStrategy the strategy of the cached ACLs
+	 * @param aclAuthorizationStrategy the authorization strategy of the cached ACLs
+	 */
+	public TieredAclCache(int maximumSize, Cache sharedCache, PermissionGrantingStrategy permissionGrantingStrategy,
+			AclAuthorizationStrategy aclAuthorizationStrategy) {
+		Assert.isTrue(maximumSize >= 1, "maximumSize must be greater than 0");
+		Assert.notNull(permissionGrantingStrategy, "PermissionGrantingStrategy required");
+		Assert.notNull(aclAuthorizationStrategy, "AclAuthorizationStrategy required");
+		int segmentSize = (maximumSize + SEGMENTS - 1) / SEGMENTS;
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment(segmentSize);
+		}
+		this.sharedCache = sharedCache;
+		this.permissionGrantingStrategy = permissionGrantingStrategy;
+		this.aclAuthorizationStrategy = aclAuthorizationStrategy;
+	}
+
+	/**
+	 * Sets how long an object identity without an ACL is remembered. Defaults to
+	 * {@link Duration#ZERO}, which disables caching of object identities without an ACL.
+	 * <p>
+	 * These entries are only evicted by this instance. When ACLs may be created by
+	 * another node, for example one sharing the same database or shared {@link Cache},
+	 * this node keeps denying access to the object identity until the entry expires, so
+	 * choose a time to live that such a delay is acceptable for.
+	 * @param notFoundTimeToLive the time to live, not negative
+	 */
+	public void setNotFoundTimeToLive(Duration notFoundTimeToLive) {
+		Assert.notNull(notFoundTimeToLive, "notFoundTimeToLive cannot be null");
+		Assert.isTrue(!notFoundTimeToLive.isNegative(), "notFoundTimeToLive cannot be negative");
+		this.notFoundTimeToLive = notFoundTimeToLive;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire object identities without an ACL. Defaults to
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the clock
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	@Override
+	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		Acl acl = getAclFromCache(objectIdentity);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		Acl acl = getAclFromCache(pk);
+		return (acl instanceof MutableAcl) ? (MutableAcl) acl : null;
+	}
+
+	@Override
+	public Acl getAclFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		Entry entry = getEntry(objectIdentity);
+		if (entry != null) {
+			if (entry.acl != null) {
+				this.hits.increment();
+				return entry.acl;
+			}
+			this.misses.increment();
+			return null;
+		}
+		return getFromSharedCache(objectIdentity);
+	}
+
+	@Override
+	public Acl getAclFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		ObjectIdentity objectIdentity = this.objectIdentities.get(pk);
+		if (objectIdentity != null) {
+			Entry entry = getEntry(objectIdentity);
+			if (entry != null && entry.acl != null && pk.equals(CompactAcl.idOf(entry.acl))) {
+				this.hits.increment();
+				return entry.acl;
+			}
+		}
+		objectIdentity = getSharedObjectIdentity(pk);
+		if (objectIdentity == null) {
+			this.misses.increment();
+			return null;
+		}
+		return getFromSharedCache(objectIdentity);
+	}
+
+	@Override
+	public void putInCache(MutableAcl acl) {
+		putAclInCache(acl);
+	}
+
+	@Override
+	public void putAclInCache(Acl acl) {
+		Assert.notNull(acl, "Acl required");
+		Assert.notNull(acl.getObjectIdentity(), "ObjectIdentity required");
+		Serializable id = CompactAcl.idOf(acl);
+		Assert.notNull(id, "ID required");
+		if (acl.getParentAcl() instanceof MutableAcl || acl.getParentAcl() instanceof CompactAcl) {
+			putAclInCache(acl.getParentAcl());
+		}
+		if (this.sharedCache != null) {
+			this.sharedCache.put(acl.getObjectIdentity(), acl);
+			this.sharedCache.put(id, acl.getObjectIdentity());
+		}
+		putEntry(acl.getObjectIdentity(), new Entry(acl, 0));
+	}
+
+	@Override
+	public void evictFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		ObjectIdentity objectIdentity = this.objectIdentities.get(pk);
+		if (objectIdentity == null) {
+			objectIdentity = getSharedObjectIdentity(pk);
+		}
+		if (objectIdentity != null) {
+			evictFromCache(objectIdentity);
+		}
+		else if (this.sharedCache != null) {
+			this.sharedCache.evict(pk);
+		}
+	}
+
+	@Override
+	public void evictFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		Segment segment = segmentFor(objectIdentity);
+		Entry removed;
+		synchronized (segment) {
+			removed = segment.remove(objectIdentity);
+			if (removed != null) {
+				unindex(objectIdentity, removed);
+			}
+		}
+		if (removed != null && removed.acl != null) {
+			this.invalidations.increment();
+		}
+		if (this.sharedCache != null) {
+			Serializable id = (removed != null && removed.acl != null) ? CompactAcl.idOf(removed.acl)
+					: getSharedId(objectIdentity);
+			if (id != null) {
+				this.sharedCache.evict(id);
+			}
+			this.sharedCache.evict(objectIdentity);
+		}
+		Set<ObjectIdentity> children = this.childrenByParent.remove(objectIdentity);
+		if (children != null) {
+			for (ObjectIdentity child : children) {
+				evictFromCache(child);
+			}
+		}
+	}
+
+	@Override
+	public void putNotFoundInCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		if (this.notFoundTimeToLive.isZero()) {
+			return;
+		}
+		long expiresAt = this.clock.millis() + this.notFoundTimeToLive.toMillis();
+		Segment segment = segmentFor(objectIdentity);
+		synchronized (segment) {
+			Entry existing = segment.get(objectIdentity);
+			if (existing == null || existing.acl == null) {
+				segment.put(objectIdentity, new Entry(null, expiresAt));
+			}
+		}
+	}
+
+	@Override
+	public boolean isNotFoundInCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		Segment segment = segmentFor(objectIdentity);
+		synchronized (segment) {
+			Entry entry = segment.get(objectIdentity);
+			if (entry == null || entry.acl != null) {
+				return false;
+			}
+			if (entry.expiresAt <= this.clock.millis()) {
+				segment.remove(objectIdentity);
+				return false;
+			}
+		}
+		this.notFoundHits.increment();
+		return true;
+	}
+
+	@Override
+	public void clearCache() {
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		this.objectIdentities.clear();
+		this.childrenByParent.clear();
+		if (this.sharedCache != null) {
+			this.sharedCache.clear();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the hit, miss and eviction counts of this cache
+	 * @return the statistics
+	 */
+	public Statistics getStatistics() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return new Statistics(this.hits.sum(), this.sharedHits.sum(), this.misses.sum(), this.notFoundHits.sum(),
+				this.evictions.sum(), this.invalidations.sum(), size);
+	}
+
+	private Entry getEntry(ObjectIdentity objectIdentity) {
+		Segment segment = segmentFor(objectIdentity);
+		synchronized (segment) {
+			return segment.get(objectIdentity);
+		}
+	}
+
+	private void putEntry(ObjectIdentity objectIdentity, Entry entry) {
+		Segment segment = segmentFor(objectIdentity);
+		synchronized (segment) {
+			Entry previous = segment.put(objectIdentity, entry);
+			if (previous != null) {
+				unindex(objectIdentity, previous);
+			}
+			this.objectIdentities.put(CompactAcl.idOf(entry.acl), objectIdentity);
+			Acl parent = entry.acl.getParentAcl();
+			if (parent != null) {
+				this.childrenByParent
+						.computeIfAbsent(parent.getObjectIdentity(), (key) -> ConcurrentHashMap.newKeySet())
+						.add(objectIdentity);
+			}
+		}
+	}
+
+	private void unindex(ObjectIdentity objectIdentity, Entry entry) {
+		if (entry.acl == null) {
+			return;
+		}
+		this.objectIdentities.remove(CompactAcl.idOf(entry.acl), objectIdentity);
+		Acl parent = entry.acl.getParentAcl();
+		if (parent != null) {
+			this.childrenByParent.computeIfPresent(parent.getObjectIdentity(), (key, siblings) -> {
+				siblings.remove(objectIdentity);
+				return (siblings.isEmpty()) ? null : siblings;
+			});
+		}
+	}
+
+	private Acl getFromSharedCache(ObjectIdentity objectIdentity) {
+		Acl acl = (this.sharedCache != null) ? this.sharedCache.get(objectIdentity, Acl.class) : null;
+		if (acl == null) {
+			this.misses.increment();
+			return null;
+		}
+		this.sharedHits.increment();
+		initializeTransientFields(acl);
+		putEntry(objectIdentity, new Entry(acl, 0));
+		return acl;
+	}
+
+	private ObjectIdentity getSharedObjectIdentity(Serializable pk) {
+		return (this.sharedCache != null) ? this.sharedCache.get(pk, ObjectIdentity.class) : null;
+	}
+
+	private Serializable getSharedId(ObjectIdentity objectIdentity) {
+		Acl acl = this.sharedCache.get(objectIdentity, Acl.class);
+		return (acl != null) ? CompactAcl.idOf(acl) : null;
+	}
+
+	private void initializeTransientFields(Acl acl) {
+		if (acl instanceof AclImpl) {
+			FieldUtils.setProtectedFieldValue("aclAuthorizationStrategy", acl, this.aclAuthorizationStrategy);
+			FieldUtils.setProtectedFieldValue("permissionGrantingStrategy", acl, this.permissionGrantingStrategy);
+		}
+		else if (acl instanceof CompactAcl) {
+			((CompactAcl) acl).setPermissionGrantingStrategy(this.permissionGrantingStrategy);
+		}
+		if (acl.getParentAcl() != null) {
+			initializeTransientFields(acl.getParentAcl());
+		}
+	}
+
+	private Segment segmentFor(ObjectIdentity objectIdentity) {
+		int hash = objectIdentity.hashCode();
+		hash ^= (hash >>> 16);
+		return this.segments[hash & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * The hit, miss and eviction counts of a {@link TieredAclCache}.
+	 */
+	public static final class Statistics {
+
+		private final long hitCount;
+
+		private final long sharedHitCount;
+
+		private final long missCount;
+
+		private final long notFoundHitCount;
+
+		private final long evictionCount;
+
+		private final long invalidationCount;
+
+		private final int size;
+
+		Statistics(long hitCount, long sharedHitCount, long missCount, long notFoundHitCount, long evictionCount,
+				long invalidationCount, int size) {
+			this.hitCount = hitCount;
+			this.sharedHitCount = sharedHitCount;
+			this.missCount = missCount;
+			this.notFoundHitCount = notFoundHitCount;
+			this.evictionCount = evictionCount;
+			this.invalidationCount = invalidationCount;
+			this.size = size;
+		}
+
+		/**
+		 * Returns the number of ACLs found in memory
+		 * @return the in-memory hit count
+		 */
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		/**
+		 * Returns the number of ACLs missing from memory but found in the shared cache
+		 * @return the shared cache hit count
+		 */
+		public long getSharedHitCount() {
+			return this.sharedHitCount;
+		}
+
+		/**
+		 * Returns the number of ACLs found in neither tier
+		 * @return the miss count
+		 */
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		/**
+		 * Returns the number of lookups answered by a remembered object identity without
+		 * an ACL
+		 * @return the not found hit count
+		 */
+		public long getNotFoundHitCount() {
+			return this.notFoundHitCount;
+		}
+
+		/**
+		 * Returns the number of entries removed from memory to respect the maximum size
+		 * @return the eviction count
+		 */
+		public long getEvictionCount() {
+			return this.evictionCount;
+		}
+
+		/**
+		 * Returns the number of ACLs removed from memory by
+		 * {@link TieredAclCache#evictFromCache(ObjectIdentity)}, including the children
+		 * evicted along with their parent
+		 * @return the invalidation count
+		 */
+		public long getInvalidationCount() {
+			return this.invalidationCount;
+		}
+
+		/**
+		 * Returns the number of entries in memory, including object identities without an
+		 * ACL
+		 * @return the in-memory size
+		 */
+		public int getSize() {
+			return this.size;
+		}
+
+		@Override
+		public String toString() {
+			return "TieredAclCache.Statistics[hits=" + this.hitCount + ", sharedHits=" + this.sharedHitCount
+					+ ", misses=" + this.missCount + ", notFoundHits=" + this.notFoundHitCount + ", evictions="
+					+ this.evictionCount + ", invalidations=" + this.invalidationCount + ", size=" + this.size + "]";
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final Acl acl;
+
+		private final long expiresAt;
+
+		private Entry(Acl acl, long expiresAt) {
+			this.acl = acl;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	private final class Segment extends LinkedHashMap<ObjectIdentity, Entry> {
+
+		private final int maximumSize;
+
+		private Segment(int maximumSize) {
+			super(16, 0.75f, true);
+			this.maximumSize = maximumSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ObjectIdentity, Entry> eldest) {
+			if (size() <= this.maximumSize) {
+				return false;
+			}
+			unindex(eldest.getKey(), eldest.getValue());
+			TieredAclCache.this.evictions.increment();
+			return true;
+		}
+
+	}
+
+}
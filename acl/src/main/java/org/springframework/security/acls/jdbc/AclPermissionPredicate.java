@@ -0,0 +1,275 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * Builds a SQL predicate that selects the domain objects on which a principal has been
+ * granted a {@link Permission}, so that the permission check can be part of the query
+ * that loads the domain objects rather than be applied to its results. This allows paging
+ * over the permitted objects only.
+ * <p>
+ * The predicate is written against the schema used by {@link JdbcAclService} and has the
+ * form <code>id in (select ...)</code>, where the subquery selects the
+ * <code>object_id_identity</code> of the permitted ACLs. It uses named parameters, whose
+ * values are returned by {@link #getParameters(List, String, Permission)}, so the SQL
+ * itself can be built once and reused for all principals, for example:
+ *
+ * <pre>
+ * AclPermissionPredicate predicate = new AclPermissionPredicate();
+ * String sql = "select * from document where " + predicate.getPredicate("document.id") + " order by title";
+ * Map&lt;String, Object&gt; parameters = predicate.getParameters(sidRetrievalStrategy.getSids(authentication),
+ * 		Document.class.getName(), BasePermission.READ);
+ * List&lt;Document&gt; documents = namedParameterJdbcTemplate.query(sql, parameters, documentRowMapper);
+ * </pre>
+ *
+ * <p>
+ * Like
+ * {@link org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy}, an
+ * entry applies if its mask equals the mask of the permission, and the first applicable
+ * entry decides. An entry of the {@link PrincipalSid} takes precedence over an entry of a
+ * {@link GrantedAuthoritySid}. Unlike the granting strategy, which considers the
+ * authorities in the order they are returned by the
+ * {@link org.springframework.security.acls.model.SidRetrievalStrategy}, the predicate
+ * chooses the authority entry with the lowest <code>ace_order</code>. The two only differ
+ * when several of the principal's authorities have applicable entries on the same ACL
+ * with different outcomes. When no entry applies, the parent ACL is consulted if entries
+ * are inherited, up to {@link #setInheritanceDepth(int) a maximum depth}.
+ *
+ * @since 5.8
+ */
+public class AclPermissionPredicate {
+
+	/**
+	 * The name of the parameter holding the {@link PrincipalSid#getPrincipal()
+	 * principal}.
+	 */
+	public static final String PRINCIPAL_PARAMETER = "aclPrincipal";
+
+	/**
+	 * The name of the parameter holding the collection of
+	 * {@link GrantedAuthoritySid#getGrantedAuthority() authorities}.
+	 */
+	public static final String AUTHORITIES_PARAMETER = "aclAuthorities";
+
+	/**
+	 * The name of the parameter holding the class of the domain objects.
+	 */
+	public static final String TYPE_PARAMETER = "aclType";
+
+	/**
+	 * The name of the parameter holding the {@link Permission#getMask() mask} of the
+	 * permission.
+	 */
+	public static final String MASK_PARAMETER = "aclMask";
+
+	/**
+	 * Binds in place of an empty collection of authorities, since <code>in ()</code> is
+	 * not valid SQL. It never matches, as a {@link GrantedAuthoritySid} cannot be empty.
+	 */
+	private static final List<String> NO_AUTHORITIES = Collections.singletonList("");
+
+	private int inheritanceDepth = 0;
+
+	private String trueLiteral = "true";
+
+	private String identifierType;
+
+	private Function<String, String> parameterReference = (name) -> ":" + name;
+
+	private String sql = computeSql();
+
+	/**
+	 * Returns a query that selects the <code>object_id_identity</code> of each ACL that
+	 * grants the permission, cast to the {@link #setIdentifierType(String) identifier
+	 * type} if one is set
+	 * @return the query, using the named parameters of this class
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Returns a predicate that holds for the domain objects on which the permission is
+	 * granted
+	 * @param idColumn the column holding the identifier of the domain object, as stored
+	 * in <code>acl_object_identity.object_id_identity</code> and of the
+	 * {@link #setIdentifierType(String) identifier type}
+	 * @return the predicate
+	 */
+	public String getPredicate(String idColumn) {
+		Assert.hasText(idColumn, "idColumn cannot be empty");
+		return idColumn + " in (" + this.sql + ")";
+	}
+
+	/**
+	 * Returns the values of the named parameters of the predicate
+	 * @param sids the security identities of the principal, consisting of at most one
+	 * {@link PrincipalSid} and any number of {@link GrantedAuthoritySid}s, as returned by
+	 * {@link org.springframework.security.acls.domain.SidRetrievalStrategyImpl}
+	 * @param type the class of the domain objects, as stored in
+	 * <code>acl_class.class</code>
+	 * @param permission the permission to check
+	 * @return the parameter values, keyed by parameter name
+	 */
+	public Map<String, Object> getParameters(List<Sid> sids, String type, Permission permission) {
+		Assert.notNull(sids, "sids cannot be null");
+		Assert.hasText(type, "type cannot be empty");
+		Assert.notNull(permission, "permission cannot be null");
+		String principal = null;
+		List<String> authorities = new ArrayList<>(sids.size());
+		for (Sid sid : sids) {
+			if (sid instanceof PrincipalSid) {
+				Assert.isNull(principal, "Only one PrincipalSid is supported");
+				principal = ((PrincipalSid) sid).getPrincipal();
+			}
+			else if (sid instanceof GrantedAuthoritySid) {
+				authorities.add(((GrantedAuthoritySid) sid).getGrantedAuthority());
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported sid " + sid);
+			}
+		}
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put(PRINCIPAL_PARAMETER, principal);
+		parameters.put(AUTHORITIES_PARAMETER, (!authorities.isEmpty()) ? authorities : NO_AUTHORITIES);
+		parameters.put(TYPE_PARAMETER, type);
+		parameters.put(MASK_PARAMETER, permission.getMask());
+		return parameters;
+	}
+
+	/**
+	 * Sets how many ancestors of an ACL are consulted when it has no applicable entries
+	 * and inherits entries. Defaults to 0, so only the entries of the ACL of the domain
+	 * object itself are considered. Each level adds a nested subquery, so this should
+	 * match the depth of the ACL hierarchy.
+	 * @param inheritanceDepth the maximum number of ancestors to consult
+	 */
+	public void setInheritanceDepth(int inheritanceDepth) {
+		Assert.isTrue(inheritanceDepth >= 0, "inheritanceDepth cannot be negative");
+		this.inheritanceDepth = inheritanceDepth;
+		this.sql = computeSql();
+	}
+
+	/**
+	 * Sets the SQL literal that the boolean columns of the ACL schema are compared with.
+	 * Defaults to <code>true</code>. Databases without a boolean type, such as Oracle,
+	 * need <code>1</code>.
+	 * @param trueLiteral the literal for a true boolean column value
+	 */
+	public void setTrueLiteral(String trueLiteral) {
+		Assert.hasText(trueLiteral, "trueLiteral cannot be empty");
+		this.trueLiteral = trueLiteral;
+		this.sql = computeSql();
+	}
+
+	/**
+	 * Sets the SQL type that <code>object_id_identity</code> is cast to before it is
+	 * compared with the identifier column of the domain objects. Defaults to no cast,
+	 * which suits the default schema, where both are <code>bigint</code>. The schemas
+	 * that store <code>object_id_identity</code> as <code>varchar</code>, such as the
+	 * PostgreSQL one, need the type of the identifier column, for example
+	 * <code>bigint</code>, on databases that do not convert between the two implicitly.
+	 * @param identifierType the SQL type of the identifier column, or <code>null</code>
+	 * for no cast
+	 */
+	public void setIdentifierType(String identifierType) {
+		Assert.isTrue(identifierType == null || !identifierType.trim().isEmpty(), "identifierType cannot be empty");
+		this.identifierType = identifierType;
+		this.sql = computeSql();
+	}
+
+	/**
+	 * Sets how parameters are referenced in the SQL. Defaults to <code>:name</code>, as
+	 * understood by
+	 * {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate} and JPA
+	 * native queries. A Spring Data <code>@Query</code> can bind the principal and
+	 * authorities exposed by <code>SecurityEvaluationContextExtension</code> with
+	 * <code>:#{aclPrincipal}</code> and <code>:#{aclAuthorities}</code>.
+	 * @param parameterReference maps a parameter name to its reference in the SQL
+	 */
+	public void setParameterReference(Function<String, String> parameterReference) {
+		Assert.notNull(parameterReference, "parameterReference cannot be null");
+		this.parameterReference = parameterReference;
+		this.sql = computeSql();
+	}
+
+	private String computeSql() {
+		String identifier = (this.identifierType != null)
+				? "cast(acl_o0.object_id_identity as " + this.identifierType + ")" : "acl_o0.object_id_identity";
+		return "select " + identifier + " from acl_object_identity acl_o0"
+				+ " join acl_class acl_c on acl_c.id = acl_o0.object_id_class where acl_c.class = "
+				+ parameter(TYPE_PARAMETER) + " and " + granted(0);
+	}
+
+	private String granted(int level) {
+		String objectIdentity = "acl_o" + level;
+		String entry = "acl_e" + level;
+		String sid = "acl_s" + level;
+		String earlierEntry = "acl_f" + level;
+		String earlierSid = "acl_t" + level;
+		// @formatter:off
+		String grantedHere = "exists (select 1 from acl_entry " + entry + " join acl_sid " + sid
+				+ " on " + sid + ".id = " + entry + ".sid where " + applies(objectIdentity, entry, sid)
+				+ " and " + entry + ".granting = " + this.trueLiteral
+				+ " and not exists (select 1 from acl_entry " + earlierEntry + " join acl_sid " + earlierSid
+				+ " on " + earlierSid + ".id = " + earlierEntry + ".sid where "
+				+ applies(objectIdentity, earlierEntry, earlierSid)
+				+ " and ((" + earlierSid + ".principal = " + this.trueLiteral + " and " + sid + ".principal <> " + this.trueLiteral + ")"
+				+ " or (" + earlierSid + ".principal = " + sid + ".principal and " + earlierEntry + ".ace_order < " + entry + ".ace_order))))";
+		// @formatter:on
+		if (level == this.inheritanceDepth) {
+			return grantedHere;
+		}
+		String parent = "acl_o" + (level + 1);
+		String entryHere = "acl_a" + level;
+		String sidHere = "acl_b" + level;
+		// @formatter:off
+		return "(" + grantedHere
+				+ " or (not exists (select 1 from acl_entry " + entryHere + " join acl_sid " + sidHere
+				+ " on " + sidHere + ".id = " + entryHere + ".sid where " + applies(objectIdentity, entryHere, sidHere) + ")"
+				+ " and " + objectIdentity + ".entries_inheriting = " + this.trueLiteral
+				+ " and exists (select 1 from acl_object_identity " + parent
+				+ " where " + parent + ".id = " + objectIdentity + ".parent_object and " + granted(level + 1) + ")))";
+		// @formatter:on
+	}
+
+	private String applies(String objectIdentity, String entry, String sid) {
+		// @formatter:off
+		return entry + ".acl_object_identity = " + objectIdentity + ".id and " + entry + ".mask = " + parameter(MASK_PARAMETER)
+				+ " and ((" + sid + ".principal = " + this.trueLiteral + " and " + sid + ".sid = " + parameter(PRINCIPAL_PARAMETER) + ")"
+				+ " or (" + sid + ".principal <> " + this.trueLiteral + " and " + sid + ".sid in (" + parameter(AUTHORITIES_PARAMETER) + ")))";
+		// @formatter:on
+	}
+
+	private String parameter(String name) {
+		return this.parameterReference.apply(name);
+	}
+
+}
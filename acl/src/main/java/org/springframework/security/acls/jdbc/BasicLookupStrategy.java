@@ -17,14 +17,13 @@
 package org.springframework.security.acls.jdbc;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,28 +34,25 @@ import org.springframework.core.convert.ConversionException;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
-import org.springframework.security.acls.domain.AccessControlEntryImpl;
 import org.springframework.security.acls.domain.AclAuthorizationStrategy;
 import org.springframework.security.acls.domain.AclImpl;
 import org.springframework.security.acls.domain.AuditLogger;
+import org.springframework.security.acls.domain.CompactAcl;
 import org.springframework.security.acls.domain.DefaultPermissionFactory;
 import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.IndexedPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.ObjectIdentityRetrievalStrategyImpl;
 import org.springframework.security.acls.domain.PermissionFactory;
 import org.springframework.security.acls.domain.PrincipalSid;
-import org.springframework.security.acls.model.AccessControlEntry;
 import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclCache;
-import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.NotFoundException;
 import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.ObjectIdentityGenerator;
 import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.PermissionGrantingStrategy;
 import org.springframework.security.acls.model.Sid;
-import org.springframework.security.acls.model.UnloadedSidException;
-import org.springframework.security.util.FieldUtils;
 import org.springframework.util.Assert;
 
 /**
@@ -101,6 +97,8 @@ public class BasicLookupStrategy implements LookupStrategy {
 	public static final String DEFAULT_ACL_CLASS_ID_SELECT_CLAUSE = DEFAULT_SELECT_CLAUSE_COLUMNS
 			+ DEFAULT_SELECT_CLAUSE_ACL_CLASS_ID_TYPE_COLUMN + DEFAULT_SELECT_CLAUSE_FROM;
 
+	private static final int MAX_INTERNED_SIDS = 10000;
+
 	private static final String DEFAULT_LOOKUP_KEYS_WHERE_CLAUSE = "(acl_object_identity.id = ?)";
 
 	private static final String DEFAULT_LOOKUP_IDENTITIES_WHERE_CLAUSE = "(acl_object_identity.object_id_identity = ? and acl_class.class = ?)";
@@ -122,9 +120,16 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 	private int batchSize = 50;
 
-	private final Field fieldAces = FieldUtils.getField(AclImpl.class, "aces");
+	private boolean compactAcls;
+
+	private final Map<Sid, Sid> internedSids = new LinkedHashMap<Sid, Sid>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Sid, Sid> eldest) {
+			return size() > MAX_INTERNED_SIDS;
+		}
 
-	private final Field fieldAcl = FieldUtils.getField(AccessControlEntryImpl.class, "acl");
+	};
 
 	// SQL Customization fields
 	private String selectClause = DEFAULT_SELECT_CLAUSE;
@@ -167,8 +172,6 @@ public class BasicLookupStrategy implements LookupStrategy {
 		this.grantingStrategy = grantingStrategy;
 		this.objectIdentityGenerator = new ObjectIdentityRetrievalStrategyImpl();
 		this.aclClassIdUtils = new AclClassIdUtils();
-		this.fieldAces.setAccessible(true);
-		this.fieldAcl.setAccessible(true);
 	}
 
 	private String computeRepeatingSql(String repeatingSql, int requiredRepetitions) {
@@ -188,42 +191,15 @@ public class BasicLookupStrategy implements LookupStrategy {
 		return sqlStringBldr.toString();
 	}
 
-	@SuppressWarnings("unchecked")
-	private List<AccessControlEntryImpl> readAces(AclImpl acl) {
-		try {
-			return (List<AccessControlEntryImpl>) this.fieldAces.get(acl);
-		}
-		catch (IllegalAccessException ex) {
-			throw new IllegalStateException("Could not obtain AclImpl.aces field", ex);
-		}
-	}
-
-	private void setAclOnAce(AccessControlEntryImpl ace, AclImpl acl) {
-		try {
-			this.fieldAcl.set(ace, acl);
-		}
-		catch (IllegalAccessException ex) {
-			throw new IllegalStateException("Could not or set AclImpl on AccessControlEntryImpl fields", ex);
-		}
-	}
-
-	private void setAces(AclImpl acl, List<AccessControlEntryImpl> aces) {
-		try {
-			this.fieldAces.set(acl, aces);
-		}
-		catch (IllegalAccessException ex) {
-			throw new IllegalStateException("Could not set AclImpl entries", ex);
-		}
-	}
-
 	/**
-	 * Locates the primary key IDs specified in "findNow", adding AclImpl instances with
-	 * StubAclParents to the "acls" Map.
-	 * @param acls the AclImpls (with StubAclParents)
+	 * Locates the primary key IDs specified in "findNow", adding {@link AclRecord}s to
+	 * the "acls" Map.
+	 * @param acls the {@link AclRecord}s
 	 * @param findNow Long-based primary keys to retrieve
 	 * @param sids
 	 */
-	private void lookupPrimaryKeys(final Map<Serializable, Acl> acls, final Set<Long> findNow, final List<Sid> sids) {
+	private void lookupPrimaryKeys(final Map<Serializable, AclRecord> acls, final Set<Long> findNow,
+			final List<Sid> sids) {
 		Assert.notNull(acls, "ACLs are required");
 		Assert.notEmpty(findNow, "Items to find now required");
 		String sql = computeRepeatingSql(this.lookupPrimaryKeysWhereClause, findNow.size());
@@ -279,7 +255,7 @@ public class BasicLookupStrategy implements LookupStrategy {
 			}
 			// Check cache for the present ACL entry
 			if (!aclFound) {
-				Acl acl = this.aclCache.getFromCache(oid);
+				Acl acl = this.aclCache.getAclFromCache(oid);
 				// Ensure any cached element supports all the requested SIDs
 				// (they should always, as our base impl doesn't filter on SID)
 				if (acl != null) {
@@ -290,8 +266,8 @@ public class BasicLookupStrategy implements LookupStrategy {
 					aclFound = true;
 				}
 			}
-			// Load the ACL from the database
-			if (!aclFound) {
+			// Load the ACL from the database, unless it is known not to exist
+			if (!aclFound && !this.aclCache.isNotFoundInCache(oid)) {
 				currentBatchToLoad.add(oid);
 			}
 			// Is it time to load from JDBC the currentBatchToLoad?
@@ -302,7 +278,12 @@ public class BasicLookupStrategy implements LookupStrategy {
 					result.putAll(loadedBatch);
 					// Add the loaded batch to the cache
 					for (Acl loadedAcl : loadedBatch.values()) {
-						this.aclCache.putInCache((AclImpl) loadedAcl);
+						this.aclCache.putAclInCache(loadedAcl);
+					}
+					for (ObjectIdentity batchOid : currentBatchToLoad) {
+						if (!loadedBatch.containsKey(batchOid)) {
+							this.aclCache.putNotFoundInCache(batchOid);
+						}
 					}
 					currentBatchToLoad.clear();
 				}
@@ -325,8 +306,8 @@ public class BasicLookupStrategy implements LookupStrategy {
 			List<Sid> sids) {
 		Assert.notEmpty(objectIdentities, "Must provide identities to lookup");
 
-		// contains Acls with StubAclParents
-		Map<Serializable, Acl> acls = new HashMap<>();
+		// contains Acls from the cache and Acls whose parents are not resolved yet
+		Map<Serializable, AclRecord> acls = new HashMap<>();
 
 		// Make the "acls" map contain all requested objectIdentities
 		// (including markers to each parent in the hierarchy)
@@ -341,12 +322,11 @@ public class BasicLookupStrategy implements LookupStrategy {
 			lookupPrimaryKeys(acls, parentsToLookup, sids);
 		}
 
-		// Finally, convert our "acls" containing StubAclParents into true Acls
+		// Finally, convert our "acls" into true Acls with resolved parents
+		Map<Serializable, Acl> converted = new HashMap<>();
 		Map<ObjectIdentity, Acl> resultMap = new HashMap<>();
-		for (Acl inputAcl : acls.values()) {
-			Assert.isInstanceOf(AclImpl.class, inputAcl, "Map should have contained an AclImpl");
-			Assert.isInstanceOf(Long.class, ((AclImpl) inputAcl).getId(), "Acl.getId() must be Long");
-			Acl result = convert(acls, (Long) ((AclImpl) inputAcl).getId());
+		for (Serializable id : acls.keySet()) {
+			Acl result = convert(acls, id, converted);
 			resultMap.put(result.getObjectIdentity(), result);
 		}
 
@@ -372,55 +352,34 @@ public class BasicLookupStrategy implements LookupStrategy {
 	}
 
 	/**
-	 * The final phase of converting the <code>Map</code> of <code>AclImpl</code>
-	 * instances which contain <code>StubAclParent</code>s into proper, valid
-	 * <code>AclImpl</code>s with correct ACL parents.
-	 * @param inputMap the unconverted <code>AclImpl</code>s
-	 * @param currentIdentity the current<code>Acl</code> that we wish to convert (this
-	 * may be
+	 * The final phase of converting the <code>Map</code> of {@link AclRecord}s into
+	 * proper, valid <code>AclImpl</code>s or <code>CompactAcl</code>s with correct ACL
+	 * parents.
+	 * @param inputMap the unconverted {@link AclRecord}s
+	 * @param currentIdentity the id of the <code>Acl</code> that we wish to convert
+	 * @param converted the ACLs converted so far, so that a parent shared by several ACLs
+	 * is only converted once
 	 */
-	private AclImpl convert(Map<Serializable, Acl> inputMap, Long currentIdentity) {
+	private Acl convert(Map<Serializable, AclRecord> inputMap, Serializable currentIdentity,
+			Map<Serializable, Acl> converted) {
 		Assert.notEmpty(inputMap, "InputMap required");
 		Assert.notNull(currentIdentity, "CurrentIdentity required");
-
+		Acl result = converted.get(currentIdentity);
+		if (result != null) {
+			return result;
+		}
 		// Retrieve this Acl from the InputMap
-		Acl uncastAcl = inputMap.get(currentIdentity);
-		Assert.isInstanceOf(AclImpl.class, uncastAcl, "The inputMap contained a non-AclImpl");
-
-		AclImpl inputAcl = (AclImpl) uncastAcl;
-
-		Acl parent = inputAcl.getParentAcl();
-
-		if ((parent != null) && parent instanceof StubAclParent) {
-			// Lookup the parent
-			StubAclParent stubAclParent = (StubAclParent) parent;
-			parent = convert(inputMap, stubAclParent.getId());
+		AclRecord record = inputMap.get(currentIdentity);
+		Assert.notNull(record, () -> "The inputMap did not contain " + currentIdentity);
+		if (record.acl != null) {
+			result = record.acl;
 		}
-
-		// Now we have the parent (if there is one), create the true AclImpl
-		AclImpl result = new AclImpl(inputAcl.getObjectIdentity(), inputAcl.getId(), this.aclAuthorizationStrategy,
-				this.grantingStrategy, parent, null, inputAcl.isEntriesInheriting(), inputAcl.getOwner());
-
-		// Copy the "aces" from the input to the destination
-
-		// Obtain the "aces" from the input ACL
-		List<AccessControlEntryImpl> aces = readAces(inputAcl);
-
-		// Create a list in which to store the "aces" for the "result" AclImpl instance
-		List<AccessControlEntryImpl> acesNew = new ArrayList<>();
-
-		// Iterate over the "aces" input and replace each nested
-		// AccessControlEntryImpl.getAcl() with the new "result" AclImpl instance
-		// This ensures StubAclParent instances are removed, as per SEC-951
-		for (AccessControlEntryImpl ace : aces) {
-			setAclOnAce(ace, result);
-			acesNew.add(ace);
+		else {
+			// Lookup the parent (if there is one), then create the true Acl
+			Acl parent = (record.parentId != null) ? convert(inputMap, record.parentId, converted) : null;
+			result = record.build(parent);
 		}
-
-		// Finally, now that the "aces" have been converted to have the "result" AclImpl
-		// instance, modify the "result" AclImpl instance
-		setAces(result, acesNew);
-
+		converted.put(currentIdentity, result);
 		return result;
 	}
 
@@ -452,6 +411,29 @@ public class BasicLookupStrategy implements LookupStrategy {
 		this.batchSize = batchSize;
 	}
 
+	/**
+	 * Sets whether ACLs are read as {@link CompactAcl}s rather than {@link AclImpl}s,
+	 * which greatly reduces the memory used by the {@link AclCache}. The default is
+	 * {@code false}. The {@link Sid}s of the entries are then shared between ACLs, the
+	 * most recently used ones being remembered for that purpose.
+	 * <p>
+	 * This requires an {@link IndexedPermissionGrantingStrategy}, as the
+	 * {@link DefaultPermissionGrantingStrategy} would create all entries of a
+	 * {@link CompactAcl} on each check. As {@link CompactAcl}s are read-only, they are
+	 * cached with {@link AclCache#putAclInCache(Acl)}, which the built-in
+	 * {@link AclCache}s implement by restoring the same strategy, and a
+	 * {@link JdbcMutableAclService} refuses to return them.
+	 * @param compactAcls whether to read {@link CompactAcl}s
+	 * @throws IllegalArgumentException if enabled without an
+	 * {@link IndexedPermissionGrantingStrategy}
+	 * @since 5.8
+	 */
+	public void setCompactAcls(boolean compactAcls) {
+		Assert.isTrue(!compactAcls || this.grantingStrategy instanceof IndexedPermissionGrantingStrategy,
+				"compactAcls requires an IndexedPermissionGrantingStrategy");
+		this.compactAcls = compactAcls;
+	}
+
 	/**
 	 * The SQL for the select clause. If customizing in order to modify column names,
 	 * schema etc, the other SQL customization fields must also be set to match.
@@ -501,13 +483,24 @@ public class BasicLookupStrategy implements LookupStrategy {
 		this.aclClassIdUtils = new AclClassIdUtils(conversionService);
 	}
 
+	/**
+	 * Returns an equal {@link Sid} that was returned before, so that {@link CompactAcl}s
+	 * share their {@link Sid}s.
+	 */
+	private Sid intern(Sid sid) {
+		synchronized (this.internedSids) {
+			Sid interned = this.internedSids.putIfAbsent(sid, sid);
+			return (interned != null) ? interned : sid;
+		}
+	}
+
 	private class ProcessResultSet implements ResultSetExtractor<Set<Long>> {
 
-		private final Map<Serializable, Acl> acls;
+		private final Map<Serializable, AclRecord> acls;
 
 		private final List<Sid> sids;
 
-		ProcessResultSet(Map<Serializable, Acl> acls, List<Sid> sids) {
+		ProcessResultSet(Map<Serializable, AclRecord> acls, List<Sid> sids) {
 			Assert.notNull(acls, "ACLs cannot be null");
 			this.acls = acls;
 			this.sids = sids; // can be null
@@ -528,7 +521,7 @@ public class BasicLookupStrategy implements LookupStrategy {
 			Set<Long> parentIdsToLookup = new HashSet<>(); // Set of parent_id Longs
 
 			while (rs.next()) {
-				// Convert current row into an Acl (albeit with a StubAclParent)
+				// Convert current row into an AclRecord
 				convertCurrentResultIntoObject(this.acls, rs);
 
 				// Figure out if this row means we need to lookup another parent
@@ -541,14 +534,15 @@ public class BasicLookupStrategy implements LookupStrategy {
 					}
 
 					// Now try to find it in the cache
-					MutableAcl cached = BasicLookupStrategy.this.aclCache.getFromCache(parentId);
-					if ((cached == null) || !cached.isSidLoaded(this.sids)) {
+					Acl cached = BasicLookupStrategy.this.aclCache.getAclFromCache(parentId);
+					if (!(cached instanceof AclImpl || cached instanceof CompactAcl)
+							|| !cached.isSidLoaded(this.sids)) {
 						parentIdsToLookup.add(parentId);
 					}
 					else {
 						// Pop into the acls map, so our convert method doesn't
 						// need to deal with an unsynchronized AclCache
-						this.acls.put(cached.getId(), cached);
+						this.acls.put(parentId, new AclRecord(cached));
 					}
 				}
 			}
@@ -558,21 +552,22 @@ public class BasicLookupStrategy implements LookupStrategy {
 		}
 
 		/**
-		 * Accepts the current <code>ResultSet</code> row, and converts it into an
-		 * <code>AclImpl</code> that contains a <code>StubAclParent</code>
+		 * Accepts the current <code>ResultSet</code> row, and adds it to the
+		 * {@link AclRecord} of its ACL
 		 * @param acls the Map we should add the converted Acl to
 		 * @param rs the ResultSet focused on a current row
 		 * @throws SQLException if something goes wrong converting values
 		 * @throws ConversionException if can't convert to the desired Java type
 		 */
-		private void convertCurrentResultIntoObject(Map<Serializable, Acl> acls, ResultSet rs) throws SQLException {
+		private void convertCurrentResultIntoObject(Map<Serializable, AclRecord> acls, ResultSet rs)
+				throws SQLException {
 			Long id = rs.getLong("acl_id");
 
 			// If we already have an ACL for this ID, just create the ACE
-			Acl acl = acls.get(id);
+			AclRecord record = acls.get(id);
 
-			if (acl == null) {
-				// Make an AclImpl and pop it into the Map
+			if (record == null) {
+				// Make an AclRecord and pop it into the Map
 
 				// If the Java type is a String, check to see if we can convert it to the
 				// target id type, e.g. UUID.
@@ -581,96 +576,93 @@ public class BasicLookupStrategy implements LookupStrategy {
 				ObjectIdentity objectIdentity = BasicLookupStrategy.this.objectIdentityGenerator
 						.createObjectIdentity(identifier, rs.getString("class"));
 
-				Acl parentAcl = null;
 				long parentAclId = rs.getLong("parent_object");
-
-				if (parentAclId != 0) {
-					parentAcl = new StubAclParent(parentAclId);
-				}
-
 				boolean entriesInheriting = rs.getBoolean("entries_inheriting");
 				Sid owner = createSid(rs.getBoolean("acl_principal"), rs.getString("acl_sid"));
 
-				acl = new AclImpl(objectIdentity, id, BasicLookupStrategy.this.aclAuthorizationStrategy,
-						BasicLookupStrategy.this.grantingStrategy, parentAcl, null, entriesInheriting, owner);
-
-				acls.put(id, acl);
+				Long parentId = (parentAclId != 0) ? parentAclId : null;
+				if (BasicLookupStrategy.this.compactAcls) {
+					CompactAcl.Builder builder = CompactAcl.builder(objectIdentity, id)
+							.permissionGrantingStrategy(BasicLookupStrategy.this.grantingStrategy)
+							.permissionFactory(BasicLookupStrategy.this.permissionFactory)
+							.entriesInheriting(entriesInheriting).owner(intern(owner));
+					record = new AclRecord(builder, parentId);
+				}
+				else {
+					AclImpl.Builder builder = AclImpl.builder(objectIdentity, id)
+							.aclAuthorizationStrategy(BasicLookupStrategy.this.aclAuthorizationStrategy)
+							.permissionGrantingStrategy(BasicLookupStrategy.this.grantingStrategy)
+							.entriesInheriting(entriesInheriting).owner(owner);
+					record = new AclRecord(builder, parentId);
+				}
+				acls.put(id, record);
 			}
 
 			// Add an extra ACE to the ACL (ORDER BY maintains the ACE list order)
 			// It is permissible to have no ACEs in an ACL (which is detected by a null
 			// ACE_SID)
-			if (rs.getString("ace_sid") != null) {
+			if (rs.getString("ace_sid") != null && record.acl == null) {
 				Long aceId = rs.getLong("ace_id");
 				Sid recipient = createSid(rs.getBoolean("ace_principal"), rs.getString("ace_sid"));
 
 				int mask = rs.getInt("mask");
-				Permission permission = BasicLookupStrategy.this.permissionFactory.buildFromMask(mask);
 				boolean granting = rs.getBoolean("granting");
 				boolean auditSuccess = rs.getBoolean("audit_success");
 				boolean auditFailure = rs.getBoolean("audit_failure");
 
-				AccessControlEntryImpl ace = new AccessControlEntryImpl(aceId, acl, recipient, permission, granting,
-						auditSuccess, auditFailure);
-
-				// Field acesField = FieldUtils.getField(AclImpl.class, "aces");
-				List<AccessControlEntryImpl> aces = readAces((AclImpl) acl);
-
-				// Add the ACE if it doesn't already exist in the ACL.aces field
-				if (!aces.contains(ace)) {
-					aces.add(ace);
+				// The builders ignore an ACE that already exists in the ACL
+				if (record.compactBuilder != null) {
+					record.compactBuilder.entry(aceId, intern(recipient), mask, granting, auditSuccess, auditFailure);
+				}
+				else {
+					Permission permission = BasicLookupStrategy.this.permissionFactory.buildFromMask(mask);
+					record.builder.entry(aceId, recipient, permission, granting, auditSuccess, auditFailure);
 				}
 			}
 		}
 
 	}
 
-	private static class StubAclParent implements Acl {
-
-		private final Long id;
-
-		StubAclParent(Long id) {
-			this.id = id;
-		}
+	/**
+	 * Either an {@link AclImpl} or {@link CompactAcl} taken from the cache, or an ACL
+	 * read from the database whose parent has not been resolved yet.
+	 */
+	private static final class AclRecord {
 
-		Long getId() {
-			return this.id;
-		}
+		private final Acl acl;
 
-		@Override
-		public List<AccessControlEntry> getEntries() {
-			throw new UnsupportedOperationException("Stub only");
-		}
+		private final AclImpl.Builder builder;
 
-		@Override
-		public ObjectIdentity getObjectIdentity() {
-			throw new UnsupportedOperationException("Stub only");
-		}
+		private final CompactAcl.Builder compactBuilder;
 
-		@Override
-		public Sid getOwner() {
-			throw new UnsupportedOperationException("Stub only");
-		}
+		private final Long parentId;
 
-		@Override
-		public Acl getParentAcl() {
-			throw new UnsupportedOperationException("Stub only");
+		AclRecord(Acl acl) {
+			this.acl = acl;
+			this.builder = null;
+			this.compactBuilder = null;
+			this.parentId = null;
 		}
 
-		@Override
-		public boolean isEntriesInheriting() {
-			throw new UnsupportedOperationException("Stub only");
+		AclRecord(AclImpl.Builder builder, Long parentId) {
+			this.acl = null;
+			this.builder = builder;
+			this.compactBuilder = null;
+			this.parentId = parentId;
 		}
 
-		@Override
-		public boolean isGranted(List<Permission> permission, List<Sid> sids, boolean administrativeMode)
-				throws NotFoundException, UnloadedSidException {
-			throw new UnsupportedOperationException("Stub only");
+		AclRecord(CompactAcl.Builder compactBuilder, Long parentId) {
+			this.acl = null;
+			this.builder = null;
+			this.compactBuilder = compactBuilder;
+			this.parentId = parentId;
 		}
 
-		@Override
-		public boolean isSidLoaded(List<Sid> sids) {
-			throw new UnsupportedOperationException("Stub only");
+		Acl build(Acl parent) {
+			if (this.compactBuilder != null) {
+				return this.compactBuilder.parentAcl(parent).build();
+			}
+			return this.builder.parentAcl(parent).build();
 		}
 
 	}
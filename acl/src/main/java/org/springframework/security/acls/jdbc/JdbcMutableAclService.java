@@ -18,13 +18,26 @@ package org.springframework.security.acls.jdbc;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.security.acls.domain.AccessControlEntryImpl;
+import org.springframework.security.acls.domain.CompactAcl;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
@@ -41,8 +54,10 @@ import org.springframework.security.acls.model.Sid;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Provides a base JDBC implementation of {@link MutableAclService}.
@@ -53,6 +68,10 @@ import org.springframework.util.Assert;
  * other queries, SQL inserts and updates can also be customized to accomodate schema
  * variations, but must produce results consistent with those expected by the defaults.
  * <p>
+ * The primary keys of <tt>acl_sid</tt> and <tt>acl_class</tt> rows can be remembered with
+ * {@link #setPrimaryKeyCacheSize(int)}, once the transaction that read or created them
+ * commits, as this class never deletes such rows.
+ * <p>
  * See the appendix of the Spring Security reference manual for more information on the
  * expected schema and how it is used. Information on using PostgreSQL is also included.
  *
@@ -74,6 +93,8 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 
 	private String deleteEntryByObjectIdentityForeignKey = "delete from acl_entry where acl_object_identity=?";
 
+	private String deleteEntriesFromOrder = "delete from acl_entry where acl_object_identity=? and ace_order>=?";
+
 	private String deleteObjectIdentityByPrimaryKey = "delete from acl_object_identity where id=?";
 
 	private String classIdentityQuery = "call identity()";
@@ -93,15 +114,36 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 
 	private String selectClassPrimaryKey = "select id from acl_class where class=?";
 
+	private String selectEntries = "select ace_order, sid, mask, granting, audit_success, audit_failure "
+			+ "from acl_entry where acl_object_identity=?";
+
 	private String selectObjectIdentityPrimaryKey = "select acl_object_identity.id from acl_object_identity, acl_class "
 			+ "where acl_object_identity.object_id_class = acl_class.id and acl_class.class=? "
 			+ "and acl_object_identity.object_id_identity = ?";
 
 	private String selectSidPrimaryKey = "select id from acl_sid where principal=? and sid=?";
 
+	private String selectSidPrimaryKeys = "select id, principal, sid from acl_sid where ";
+
+	private String sidPrimaryKeysWhereClause = "(principal=? and sid=?)";
+
+	private String updateEntry = "update acl_entry set sid = ?, mask = ?, granting = ?, audit_success = ?, "
+			+ "audit_failure = ? where acl_object_identity = ? and ace_order = ?";
+
 	private String updateObjectIdentity = "update acl_object_identity set "
 			+ "parent_object = ?, owner_sid = ?, entries_inheriting = ?" + " where id = ?";
 
+	private int batchSize = 100;
+
+	private boolean updateChangedEntriesOnly = false;
+
+	private final boolean sidPrimaryKeyLookupOverridden = isOverridden("createOrRetrieveSidPrimaryKey", String.class,
+			boolean.class, boolean.class) || isOverridden("createOrRetrieveSidPrimaryKey", Sid.class, boolean.class);
+
+	private final PrimaryKeyCache sidPrimaryKeys = new PrimaryKeyCache();
+
+	private final PrimaryKeyCache classPrimaryKeys = new PrimaryKeyCache();
+
 	public JdbcMutableAclService(DataSource dataSource, LookupStrategy lookupStrategy, AclCache aclCache) {
 		super(dataSource, lookupStrategy);
 		Assert.notNull(aclCache, "AclCache required");
@@ -125,6 +167,9 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		// Create the acl_object_identity row
 		createObjectIdentity(objectIdentity, sid);
 
+		// Forget any earlier lookup that found no ACL for this object identity
+		this.aclCache.evictFromCache(objectIdentity);
+
 		// Retrieve the ACL via superclass (ensures cache registration, proper retrieval
 		// etc)
 		Acl acl = readAclById(objectIdentity);
@@ -133,6 +178,53 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		return (MutableAcl) acl;
 	}
 
+	/**
+	 * Creates the <tt>acl_object_identity</tt> rows of all passed object identities with
+	 * batched statements, owned by the current principal. Like
+	 * {@link #createAcl(ObjectIdentity)}, this must be called within a transaction, so
+	 * that either all or none of the ACLs are created.
+	 */
+	@Override
+	public Map<ObjectIdentity, MutableAcl> createAcls(List<ObjectIdentity> objectIdentities)
+			throws AlreadyExistsException {
+		Assert.notNull(objectIdentities, "Object Identities required");
+		Assert.noNullElements(objectIdentities, "Object Identities cannot contain null");
+		List<ObjectIdentity> objects = new ArrayList<>(new LinkedHashSet<>(objectIdentities));
+		if (objects.isEmpty()) {
+			return new LinkedHashMap<>();
+		}
+
+		// Check none of the object identities has already been persisted
+		Map<ObjectIdentity, Acl> existing = findAclsById(objects, null);
+		if (!existing.isEmpty()) {
+			throw new AlreadyExistsException(
+					"Object identity '" + existing.keySet().iterator().next() + "' already exists");
+		}
+		Authentication auth = this.securityContextHolderStrategy.getContext().getAuthentication();
+		Long sidId = createOrRetrieveSidPrimaryKey(new PrincipalSid(auth), true);
+		Map<String, Long> classIds = new HashMap<>();
+		List<Object[]> rows = new ArrayList<>(objects.size());
+		for (ObjectIdentity object : objects) {
+			Long classId = classIds.computeIfAbsent(object.getType(),
+					(type) -> createOrRetrieveClassPrimaryKey(type, true, object.getIdentifier().getClass()));
+			rows.add(new Object[] { classId, object.getIdentifier().toString(), sidId, Boolean.TRUE });
+		}
+		this.jdbcOperations.batchUpdate(this.insertObjectIdentity, rows);
+
+		// Forget any earlier lookup that found no ACL for these object identities
+		for (ObjectIdentity object : objects) {
+			this.aclCache.evictFromCache(object);
+		}
+		Map<ObjectIdentity, Acl> acls = readAclsById(objects);
+		Map<ObjectIdentity, MutableAcl> result = new LinkedHashMap<>();
+		for (ObjectIdentity object : objects) {
+			Acl acl = acls.get(object);
+			Assert.isInstanceOf(MutableAcl.class, acl, "MutableAcl should be been returned");
+			result.put(object, (MutableAcl) acl);
+		}
+		return result;
+	}
+
 	/**
 	 * Creates a new row in acl_entry for every ACE defined in the passed MutableAcl
 	 * object.
@@ -167,6 +259,63 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		});
 	}
 
+	/**
+	 * Brings the rows in acl_entry in line with the ACEs defined in the passed MutableAcl
+	 * object, inserting, updating or deleting only the rows of ACEs that changed. Used by
+	 * {@link #updateAcl(MutableAcl)} when {@link #setUpdateChangedEntriesOnly(boolean)
+	 * enabled}.
+	 * <p>
+	 * Rows are matched to ACEs by their position (<tt>ace_order</tt>), not by content.
+	 * Appending, changing or removing ACEs at the end of the list touches only the rows
+	 * of those ACEs, but inserting or removing an ACE at index 0 shifts all the others
+	 * and so rewrites every row.
+	 * @param acl containing the ACEs to store
+	 * @since 5.8
+	 */
+	protected void updateEntries(MutableAcl acl) {
+		List<AccessControlEntry> entries = acl.getEntries();
+		Map<Sid, Long> sidIds = createOrRetrieveSidPrimaryKeys(getSids(entries), true);
+		Map<Integer, List<Object>> existing = new HashMap<>();
+		RowCallbackHandler handler = (rs) -> existing.put(rs.getInt("ace_order"),
+				Arrays.asList(rs.getLong("sid"), rs.getInt("mask"), rs.getBoolean("granting"),
+						rs.getBoolean("audit_success"), rs.getBoolean("audit_failure")));
+		this.jdbcOperations.query(this.selectEntries, handler, acl.getId());
+		List<Object[]> inserts = new ArrayList<>();
+		List<Object[]> updates = new ArrayList<>();
+		for (int i = 0; i < entries.size(); i++) {
+			Assert.isTrue(entries.get(i) instanceof AccessControlEntryImpl, "Unknown ACE class");
+			AccessControlEntryImpl entry = (AccessControlEntryImpl) entries.get(i);
+			List<Object> row = Arrays.asList(sidIds.get(entry.getSid()), entry.getPermission().getMask(),
+					entry.isGranting(), entry.isAuditSuccess(), entry.isAuditFailure());
+			List<Object> current = existing.remove(i);
+			if (current == null) {
+				inserts.add(
+						new Object[] { acl.getId(), i, row.get(0), row.get(1), row.get(2), row.get(3), row.get(4) });
+			}
+			else if (!current.equals(row)) {
+				updates.add(
+						new Object[] { row.get(0), row.get(1), row.get(2), row.get(3), row.get(4), acl.getId(), i });
+			}
+		}
+		if (!existing.isEmpty()) {
+			this.jdbcOperations.update(this.deleteEntriesFromOrder, acl.getId(), entries.size());
+		}
+		if (!updates.isEmpty()) {
+			this.jdbcOperations.batchUpdate(this.updateEntry, updates);
+		}
+		if (!inserts.isEmpty()) {
+			this.jdbcOperations.batchUpdate(this.insertEntry, inserts);
+		}
+	}
+
+	private static Set<Sid> getSids(List<AccessControlEntry> entries) {
+		Set<Sid> sids = new LinkedHashSet<>();
+		for (AccessControlEntry entry : entries) {
+			sids.add(entry.getSid());
+		}
+		return sids;
+	}
+
 	/**
 	 * Creates an entry in the acl_object_identity table for the passed ObjectIdentity.
 	 * The Sid is also necessary, as acl_object_identity has defined the sid column as
@@ -190,10 +339,16 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 	 * @return the primary key or null if not found
 	 */
 	protected Long createOrRetrieveClassPrimaryKey(String type, boolean allowCreate, Class idType) {
+		Long classId = this.classPrimaryKeys.get(type);
+		if (classId != null) {
+			return classId;
+		}
+
 		List<Long> classIds = this.jdbcOperations.queryForList(this.selectClassPrimaryKey, new Object[] { type },
 				Long.class);
 
 		if (!classIds.isEmpty()) {
+			this.classPrimaryKeys.put(Collections.singletonMap(type, classIds.get(0)));
 			return classIds.get(0);
 		}
 
@@ -205,7 +360,9 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 				this.jdbcOperations.update(this.insertClass, type, idType.getCanonicalName());
 			}
 			Assert.isTrue(TransactionSynchronizationManager.isSynchronizationActive(), "Transaction must be running");
-			return this.jdbcOperations.queryForObject(this.classIdentityQuery, Long.class);
+			classId = this.jdbcOperations.queryForObject(this.classIdentityQuery, Long.class);
+			this.classPrimaryKeys.put(Collections.singletonMap(type, classId));
+			return classId;
 		}
 
 		return null;
@@ -242,19 +399,144 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 	 * @return the primary key or null if not found
 	 */
 	protected Long createOrRetrieveSidPrimaryKey(String sidName, boolean sidIsPrincipal, boolean allowCreate) {
+		List<Object> key = Arrays.asList(sidIsPrincipal, sidName);
+		Long sidId = this.sidPrimaryKeys.get(key);
+		if (sidId != null) {
+			return sidId;
+		}
 		List<Long> sidIds = this.jdbcOperations.queryForList(this.selectSidPrimaryKey,
 				new Object[] { sidIsPrincipal, sidName }, Long.class);
 		if (!sidIds.isEmpty()) {
+			this.sidPrimaryKeys.put(Collections.singletonMap(key, sidIds.get(0)));
 			return sidIds.get(0);
 		}
 		if (allowCreate) {
 			this.jdbcOperations.update(this.insertSid, sidIsPrincipal, sidName);
 			Assert.isTrue(TransactionSynchronizationManager.isSynchronizationActive(), "Transaction must be running");
-			return this.jdbcOperations.queryForObject(this.sidIdentityQuery, Long.class);
+			sidId = this.jdbcOperations.queryForObject(this.sidIdentityQuery, Long.class);
+			this.sidPrimaryKeys.put(Collections.singletonMap(key, sidId));
+			return sidId;
 		}
 		return null;
 	}
 
+	/**
+	 * Retrieves the primary keys from acl_sid for many Sids at once, creating new rows if
+	 * needed and the allowCreate property is true. {@link PrincipalSid}s and
+	 * {@link GrantedAuthoritySid}s are looked up and created in batches, other Sid
+	 * implementations are passed to {@link #createOrRetrieveSidPrimaryKey(Sid, boolean)}.
+	 * If a subclass overrides either <code>createOrRetrieveSidPrimaryKey</code> method,
+	 * all Sids are passed to {@link #createOrRetrieveSidPrimaryKey(Sid, boolean)}
+	 * instead.
+	 * @param sids to find or create
+	 * @param allowCreate true if creation is permitted if not found
+	 * @return the primary keys of the Sids that were found or created
+	 * @since 5.8
+	 */
+	protected Map<Sid, Long> createOrRetrieveSidPrimaryKeys(Collection<Sid> sids, boolean allowCreate) {
+		Assert.notNull(sids, "Sids required");
+		Map<Sid, Long> sidIds = new HashMap<>();
+		if (this.sidPrimaryKeyLookupOverridden) {
+			for (Sid sid : sids) {
+				Assert.notNull(sid, "Sid required");
+				Long sidId = createOrRetrieveSidPrimaryKey(sid, allowCreate);
+				if (sidId != null) {
+					sidIds.put(sid, sidId);
+				}
+			}
+			return sidIds;
+		}
+		Map<List<Object>, Sid> missing = new LinkedHashMap<>();
+		for (Sid sid : new LinkedHashSet<>(sids)) {
+			Assert.notNull(sid, "Sid required");
+			List<Object> key = getSidKey(sid);
+			Long sidId = (key != null) ? this.sidPrimaryKeys.get(key) : createOrRetrieveSidPrimaryKey(sid, allowCreate);
+			if (sidId != null) {
+				sidIds.put(sid, sidId);
+			}
+			else if (key != null) {
+				missing.put(key, sid);
+			}
+		}
+		if (missing.isEmpty()) {
+			return sidIds;
+		}
+		Set<List<Object>> caseInsensitiveMatches = selectSidPrimaryKeys(missing, sidIds);
+		List<Object[]> rows = new ArrayList<>();
+		for (List<Object> key : missing.keySet()) {
+			if (!caseInsensitiveMatches.contains(getCaseInsensitiveSidKey(key))) {
+				rows.add(key.toArray());
+			}
+		}
+		if (allowCreate && !rows.isEmpty()) {
+			this.jdbcOperations.batchUpdate(this.insertSid, rows);
+			Assert.isTrue(TransactionSynchronizationManager.isSynchronizationActive(), "Transaction must be running");
+			selectSidPrimaryKeys(missing, sidIds);
+		}
+		// A database that compares sids regardless of case may hold a row that differs in
+		// case only, which is left to the single Sid lookup
+		for (Sid sid : missing.values()) {
+			Long sidId = createOrRetrieveSidPrimaryKey(sid, allowCreate);
+			if (sidId != null) {
+				sidIds.put(sid, sidId);
+			}
+		}
+		return sidIds;
+	}
+
+	/**
+	 * Moves the Sids found in acl_sid from missing to sidIds.
+	 * @return the case insensitive keys of rows that did not match any Sid exactly
+	 */
+	private Set<List<Object>> selectSidPrimaryKeys(Map<List<Object>, Sid> missing, Map<Sid, Long> sidIds) {
+		Set<List<Object>> unmatched = new HashSet<>();
+		Map<Object, Long> found = new HashMap<>();
+		List<List<Object>> keys = new ArrayList<>(missing.keySet());
+		for (int i = 0; i < keys.size(); i += this.batchSize) {
+			List<List<Object>> batch = keys.subList(i, Math.min(i + this.batchSize, keys.size()));
+			String sql = computeRepeatingSql(this.selectSidPrimaryKeys, this.sidPrimaryKeysWhereClause, batch.size());
+			Object[] args = batch.stream().flatMap(List::stream).toArray();
+			this.jdbcOperations.query(sql, (rs) -> {
+				List<Object> key = Arrays.asList(rs.getBoolean("principal"), rs.getString("sid"));
+				Sid sid = missing.remove(key);
+				if (sid != null) {
+					sidIds.put(sid, rs.getLong("id"));
+					found.put(key, rs.getLong("id"));
+				}
+				else {
+					unmatched.add(getCaseInsensitiveSidKey(key));
+				}
+			}, args);
+		}
+		this.sidPrimaryKeys.put(found);
+		return unmatched;
+	}
+
+	private static String computeRepeatingSql(String selectClause, String repeatingSql, int requiredRepetitions) {
+		StringBuilder sql = new StringBuilder(selectClause);
+		for (int i = 0; i < requiredRepetitions; i++) {
+			if (i != 0) {
+				sql.append(" or ");
+			}
+			sql.append(repeatingSql);
+		}
+		return sql.toString();
+	}
+
+	private static List<Object> getSidKey(Sid sid) {
+		if (sid instanceof PrincipalSid) {
+			return Arrays.asList(true, ((PrincipalSid) sid).getPrincipal());
+		}
+		if (sid instanceof GrantedAuthoritySid) {
+			return Arrays.asList(false, ((GrantedAuthoritySid) sid).getGrantedAuthority());
+		}
+		return null;
+	}
+
+	private static List<Object> getCaseInsensitiveSidKey(List<Object> key) {
+		return Arrays.asList(key.get(0), ((String) key.get(1)).toLowerCase(Locale.ROOT));
+	}
+
 	@Override
 	public void deleteAcl(ObjectIdentity objectIdentity, boolean deleteChildren) throws ChildrenExistException {
 		Assert.notNull(objectIdentity, "Object Identity required");
@@ -330,21 +612,46 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		}
 	}
 
+	/**
+	 * Reads the ACLs like {@link JdbcAclService}, but refuses read-only
+	 * {@link CompactAcl}s, which the {@link MutableAcl}s this service returns cannot be.
+	 * @throws IllegalStateException if the {@link LookupStrategy} returned a
+	 * {@link CompactAcl}
+	 */
+	@Override
+	public Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids)
+			throws NotFoundException {
+		Map<ObjectIdentity, Acl> result = super.readAclsById(objects, sids);
+		for (Acl acl : result.values()) {
+			Assert.state(!(acl instanceof CompactAcl),
+					() -> "The read-only CompactAcl " + acl.getObjectIdentity() + " cannot be read by a "
+							+ "JdbcMutableAclService; do not enable compact ACLs on its LookupStrategy");
+		}
+		return result;
+	}
+
 	/**
 	 * This implementation will simply delete all ACEs in the database and recreate them
-	 * on each invocation of this method. A more comprehensive implementation might use
-	 * dirty state checking, or more likely use ORM capabilities for create, update and
-	 * delete operations of {@link MutableAcl}.
+	 * on each invocation of this method, using {@link #deleteEntries(Long)} and
+	 * {@link #createEntries(MutableAcl)}. If {@link #setUpdateChangedEntriesOnly(boolean)
+	 * enabled}, it compares the ACEs with the rows in the database instead and only
+	 * writes the rows that changed, see {@link #updateEntries(MutableAcl)}.
 	 */
 	@Override
 	public MutableAcl updateAcl(MutableAcl acl) throws NotFoundException {
 		Assert.notNull(acl.getId(), "Object Identity doesn't provide an identifier");
 
-		// Delete this ACL's ACEs in the acl_entry table
-		deleteEntries(retrieveObjectIdentityPrimaryKey(acl.getObjectIdentity()));
+		if (this.updateChangedEntriesOnly) {
+			// Write the changes to this ACL's ACEs in the acl_entry table
+			updateEntries(acl);
+		}
+		else {
+			// Delete this ACL's ACEs in the acl_entry table
+			deleteEntries(retrieveObjectIdentityPrimaryKey(acl.getObjectIdentity()));
 
-		// Create this ACL's ACEs in the acl_entry table
-		createEntries(acl);
+			// Create this ACL's ACEs in the acl_entry table
+			createEntries(acl);
+		}
 
 		// Change the mutable columns in acl_object_identity
 		updateObjectIdentity(acl);
@@ -418,6 +725,15 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		this.deleteEntryByObjectIdentityForeignKey = deleteEntryByObjectIdentityForeignKey;
 	}
 
+	/**
+	 * @param deleteEntriesFromOrder the statement deleting the rows of an ACL's ACEs from
+	 * a position on, taking the acl_object_identity and ace_order
+	 * @since 5.8
+	 */
+	public void setDeleteEntriesFromOrderSql(String deleteEntriesFromOrder) {
+		this.deleteEntriesFromOrder = deleteEntriesFromOrder;
+	}
+
 	public void setDeleteObjectIdentityByPrimaryKeySql(String deleteObjectIdentityByPrimaryKey) {
 		this.deleteObjectIdentityByPrimaryKey = deleteObjectIdentityByPrimaryKey;
 	}
@@ -442,6 +758,15 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		this.selectClassPrimaryKey = selectClassPrimaryKey;
 	}
 
+	/**
+	 * @param selectEntries the query selecting the ace_order, sid, mask, granting,
+	 * audit_success and audit_failure of an ACL's ACEs, taking the acl_object_identity
+	 * @since 5.8
+	 */
+	public void setEntriesQuery(String selectEntries) {
+		this.selectEntries = selectEntries;
+	}
+
 	public void setObjectIdentityPrimaryKeyQuery(String selectObjectIdentityPrimaryKey) {
 		this.selectObjectIdentityPrimaryKey = selectObjectIdentityPrimaryKey;
 	}
@@ -450,10 +775,95 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		this.selectSidPrimaryKey = selectSidPrimaryKey;
 	}
 
+	/**
+	 * @param selectSidPrimaryKeys the start of the query selecting the id, principal and
+	 * sid of many acl_sid rows, followed by the
+	 * {@link #setSidPrimaryKeysWhereClause(String) where clause} for each of them
+	 * @since 5.8
+	 */
+	public void setSidPrimaryKeysQuery(String selectSidPrimaryKeys) {
+		this.selectSidPrimaryKeys = selectSidPrimaryKeys;
+	}
+
+	/**
+	 * @param sidPrimaryKeysWhereClause the clause matching a single acl_sid row, taking
+	 * the principal and sid, repeated with <tt>or</tt> for each Sid
+	 * @since 5.8
+	 */
+	public void setSidPrimaryKeysWhereClause(String sidPrimaryKeysWhereClause) {
+		this.sidPrimaryKeysWhereClause = sidPrimaryKeysWhereClause;
+	}
+
+	/**
+	 * @param updateEntry the statement updating the sid, mask, granting, audit_success
+	 * and audit_failure of the row of an ACE, identified by its acl_object_identity and
+	 * ace_order
+	 * @since 5.8
+	 */
+	public void setUpdateEntrySql(String updateEntry) {
+		this.updateEntry = updateEntry;
+	}
+
 	public void setUpdateObjectIdentity(String updateObjectIdentity) {
 		this.updateObjectIdentity = updateObjectIdentity;
 	}
 
+	/**
+	 * Sets whether {@link #updateAcl(MutableAcl)} only writes the rows of the ACEs that
+	 * changed, see {@link #updateEntries(MutableAcl)}, rather than deleting and
+	 * recreating all of them. Defaults to <code>false</code>. This uses the
+	 * {@link #setEntriesQuery(String) entries query}, the
+	 * {@link #setUpdateEntrySql(String) update entry} and
+	 * {@link #setDeleteEntriesFromOrderSql(String) delete entries from order} statements
+	 * and the {@link #setSidPrimaryKeysQuery(String) sid primary keys query}, whose
+	 * defaults use the table names of the default schema, so they have to be set as well
+	 * if the tables are named differently.
+	 * @param updateChangedEntriesOnly whether to only write the rows that changed
+	 * @since 5.8
+	 */
+	public void setUpdateChangedEntriesOnly(boolean updateChangedEntriesOnly) {
+		this.updateChangedEntriesOnly = updateChangedEntriesOnly;
+	}
+
+	/**
+	 * Sets the maximum number of Sids looked up by a single query. Defaults to 100.
+	 * @param batchSize the maximum number of Sids per query
+	 * @since 5.8
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the maximum number of primary keys remembered each for <tt>acl_sid</tt> and
+	 * <tt>acl_class</tt> rows, so that they are not selected again. Defaults to 0, which
+	 * disables the cache.
+	 * <p>
+	 * Only enable the cache if <tt>acl_sid</tt> and <tt>acl_class</tt> rows are never
+	 * deleted or renumbered other than through this instance, or call
+	 * {@link #clearPrimaryKeyCache()} whenever they are. Otherwise stale primary keys are
+	 * written to <tt>acl_entry</tt> and <tt>acl_object_identity</tt>, which fails with a
+	 * foreign key violation or refers to the wrong row.
+	 * @param primaryKeyCacheSize the maximum number of primary keys
+	 * @since 5.8
+	 */
+	public void setPrimaryKeyCacheSize(int primaryKeyCacheSize) {
+		Assert.isTrue(primaryKeyCacheSize >= 0, "primaryKeyCacheSize cannot be negative");
+		this.sidPrimaryKeys.setMaximumSize(primaryKeyCacheSize);
+		this.classPrimaryKeys.setMaximumSize(primaryKeyCacheSize);
+	}
+
+	/**
+	 * Forgets the remembered primary keys of <tt>acl_sid</tt> and <tt>acl_class</tt>
+	 * rows, which is needed after such rows have been deleted.
+	 * @since 5.8
+	 */
+	public void clearPrimaryKeyCache() {
+		this.sidPrimaryKeys.clear();
+		this.classPrimaryKeys.clear();
+	}
+
 	/**
 	 * @param foreignKeysInDatabase if false this class will perform additional FK
 	 * constrain checking, which may cause deadlocks (the default is true, so deadlocks
@@ -488,4 +898,72 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		this.securityContextHolderStrategy = securityContextHolderStrategy;
 	}
 
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		return ReflectionUtils.findMethod(getClass(), name, parameterTypes)
+				.getDeclaringClass() != JdbcMutableAclService.class;
+	}
+
+	/**
+	 * Remembers primary keys by a natural key, evicting the least recently used ones
+	 * beyond the maximum size. Keys read or created within a transaction are only
+	 * remembered once it commits, as they are gone if it rolls back.
+	 */
+	private static final class PrimaryKeyCache {
+
+		private volatile int maximumSize;
+
+		private final Map<Object, Long> primaryKeys = new LinkedHashMap<Object, Long>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+				return size() > PrimaryKeyCache.this.maximumSize;
+			}
+
+		};
+
+		Long get(Object key) {
+			synchronized (this.primaryKeys) {
+				return this.primaryKeys.get(key);
+			}
+		}
+
+		void put(Map<?, Long> primaryKeys) {
+			if (primaryKeys.isEmpty() || this.maximumSize == 0) {
+				return;
+			}
+			if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+				putNow(primaryKeys);
+				return;
+			}
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					putNow(primaryKeys);
+				}
+
+			});
+		}
+
+		private void putNow(Map<?, Long> primaryKeys) {
+			synchronized (this.primaryKeys) {
+				this.primaryKeys.putAll(primaryKeys);
+			}
+		}
+
+		void setMaximumSize(int maximumSize) {
+			synchronized (this.primaryKeys) {
+				this.maximumSize = maximumSize;
+				this.primaryKeys.clear();
+			}
+		}
+
+		void clear() {
+			synchronized (this.primaryKeys) {
+				this.primaryKeys.clear();
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclImpl;
+import org.springframework.security.acls.domain.DefaultPermissionFactory;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.ObjectIdentityRetrievalStrategyImpl;
+import org.springframework.security.acls.domain.PermissionFactory;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.ObjectIdentityGenerator;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link LookupStrategy} that uses a recursive common table expression to read a batch
+ * of object identities, all of their ancestors and all of their ACEs in a single query.
+ * {@link BasicLookupStrategy} needs an additional query for each level of the ACL
+ * hierarchy, which makes deep hierarchies expensive to load.
+ * <p>
+ * The query uses {@code WITH RECURSIVE}, which is supported by PostgreSQL, H2 and HSQLDB
+ * among others, and the default schema that is used by {@link BasicLookupStrategy}. Like
+ * {@link BasicLookupStrategy}, this implementation disregards the "sids" argument and
+ * caches every loaded {@link Acl}, including the ancestors.
+ * <p>
+ * An ancestor is read once per query, so the ACLs that descend from it share the same
+ * parent {@link Acl} instance, which is also the instance that is returned and cached for
+ * the ancestor itself. Modifications should therefore be made to an ACL read through a
+ * {@link org.springframework.security.acls.model.MutableAclService}, rather than to a
+ * parent obtained from {@link Acl#getParentAcl()}. An ACL that is its own ancestor causes
+ * an {@link IllegalStateException}.
+ *
+ * @since 5.8
+ * @see BasicLookupStrategy
+ */
+public class RecursiveLookupStrategy implements LookupStrategy {
+
+	private static final String DEFAULT_SELECT_CLAUSE_COLUMNS = "select acl_object_identity.object_id_identity, "
+			+ "acl_entry.ace_order, acl_object_identity.id as acl_id, acl_object_identity.parent_object, "
+			+ "acl_object_identity.entries_inheriting, acl_entry.id as ace_id, acl_entry.mask, "
+			+ "acl_entry.granting, acl_entry.audit_success, acl_entry.audit_failure, "
+			+ "acl_sid.principal as ace_principal, acl_sid.sid as ace_sid, "
+			+ "acli_sid.principal as acl_principal, acli_sid.sid as acl_sid, acl_class.class";
+
+	private static final String DEFAULT_SELECT_CLAUSE_ACL_CLASS_ID_TYPE_COLUMN = ", acl_class.class_id_type";
+
+	private static final String DEFAULT_ANCESTORS_CLAUSE = "with recursive acl_ancestors(id, parent_object) as ("
+			+ "select acl_object_identity.id, acl_object_identity.parent_object from acl_object_identity "
+			+ "join acl_class on acl_class.id = acl_object_identity.object_id_class where ";
+
+	private static final String DEFAULT_ANCESTORS_WHERE_CLAUSE = "(acl_object_identity.object_id_identity = ? and acl_class.class = ?)";
+
+	private static final String DEFAULT_ANCESTORS_RECURSION_CLAUSE = " union "
+			+ "select acl_object_identity.id, acl_object_identity.parent_object from acl_object_identity "
+			+ "join acl_ancestors on acl_object_identity.id = acl_ancestors.parent_object) ";
+
+	private static final String DEFAULT_FROM_CLAUSE = " from acl_ancestors "
+			+ "join acl_object_identity on acl_object_identity.id = acl_ancestors.id "
+			+ "left join acl_sid acli_sid on acli_sid.id = acl_object_identity.owner_sid "
+			+ "left join acl_class on acl_class.id = acl_object_identity.object_id_class "
+			+ "left join acl_entry on acl_object_identity.id = acl_entry.acl_object_identity "
+			+ "left join acl_sid on acl_entry.sid = acl_sid.id "
+			+ "order by acl_object_identity.id asc, acl_entry.ace_order asc";
+
+	private final AclAuthorizationStrategy aclAuthorizationStrategy;
+
+	private final PermissionGrantingStrategy grantingStrategy;
+
+	private final AclCache aclCache;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private ObjectIdentityGenerator objectIdentityGenerator = new ObjectIdentityRetrievalStrategyImpl();
+
+	private PermissionFactory permissionFactory = new DefaultPermissionFactory();
+
+	private AclClassIdUtils aclClassIdUtils = new AclClassIdUtils();
+
+	private String selectClause = DEFAULT_SELECT_CLAUSE_COLUMNS;
+
+	private int batchSize = 50;
+
+	/**
+	 * Creates a new instance
+	 * @param dataSource to access the database
+	 * @param aclCache the cache where fully-loaded elements can be stored
+	 * @param aclAuthorizationStrategy authorization strategy
+	 * @param grantingStrategy the PermissionGrantingStrategy
+	 */
+	public RecursiveLookupStrategy(DataSource dataSource, AclCache aclCache,
+			AclAuthorizationStrategy aclAuthorizationStrategy, PermissionGrantingStrategy grantingStrategy) {
+		Assert.notNull(dataSource, "DataSource required");
+		Assert.notNull(aclCache, "AclCache required");
+		Assert.notNull(aclAuthorizationStrategy, "AclAuthorizationStrategy required");
+		Assert.notNull(grantingStrategy, "grantingStrategy required");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.aclCache = aclCache;
+		this.aclAuthorizationStrategy = aclAuthorizationStrategy;
+		this.grantingStrategy = grantingStrategy;
+	}
+
+	/**
+	 * Reads the ACLs of the given object identities and of all of their ancestors, using
+	 * one query for each batch of {@link #setBatchSize(int) batchSize} object identities
+	 * that are not in the cache.
+	 * @param objects the identities to lookup (required)
+	 * @param sids the SIDs for which identities are required (ignored by this
+	 * implementation)
+	 * @return a <tt>Map</tt> where keys represent the {@link ObjectIdentity} of the
+	 * located {@link Acl} and values are the located {@link Acl}
+	 */
+	@Override
+	public Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		Assert.notEmpty(objects, "Objects to lookup required");
+		Map<ObjectIdentity, Acl> result = new HashMap<>();
+		List<ObjectIdentity> batch = new ArrayList<>(this.batchSize);
+		for (ObjectIdentity oid : objects) {
+			if (result.containsKey(oid)) {
+				continue;
+			}
+			Acl cached = this.aclCache.getFromCache(oid);
+			if (cached != null) {
+				Assert.state(cached.isSidLoaded(sids),
+						"Error: SID-filtered element detected when implementation does not perform SID filtering "
+								+ "- have you added something to the cache manually?");
+				result.put(oid, cached);
+				continue;
+			}
+			if (this.aclCache.isNotFoundInCache(oid)) {
+				continue;
+			}
+			if (!batch.contains(oid)) {
+				batch.add(oid);
+			}
+			if (batch.size() == this.batchSize) {
+				lookupObjectIdentities(batch, result);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			lookupObjectIdentities(batch, result);
+		}
+		return result;
+	}
+
+	private void lookupObjectIdentities(List<ObjectIdentity> objectIdentities, Map<ObjectIdentity, Acl> result) {
+		String sql = computeSql(objectIdentities.size());
+		Map<Long, AclRecord> records = this.jdbcTemplate.query(sql, (ps) -> setObjectIdentities(ps, objectIdentities),
+				new ProcessResultSet());
+		Map<Long, AclImpl> converted = new HashMap<>();
+		Set<Long> converting = new HashSet<>();
+		for (Long id : records.keySet()) {
+			AclImpl acl = convert(records, id, converted, converting);
+			result.put(acl.getObjectIdentity(), acl);
+			this.aclCache.putInCache(acl);
+		}
+		for (ObjectIdentity oid : objectIdentities) {
+			if (!result.containsKey(oid)) {
+				this.aclCache.putNotFoundInCache(oid);
+			}
+		}
+	}
+
+	private String computeSql(int objectIdentities) {
+		StringBuilder sql = new StringBuilder(DEFAULT_ANCESTORS_CLAUSE);
+		for (int i = 0; i < objectIdentities; i++) {
+			if (i > 0) {
+				sql.append(" or ");
+			}
+			sql.append(DEFAULT_ANCESTORS_WHERE_CLAUSE);
+		}
+		return sql.append(DEFAULT_ANCESTORS_RECURSION_CLAUSE).append(this.selectClause).append(DEFAULT_FROM_CLAUSE)
+				.toString();
+	}
+
+	private void setObjectIdentities(PreparedStatement ps, List<ObjectIdentity> objectIdentities) throws SQLException {
+		int i = 0;
+		for (ObjectIdentity oid : objectIdentities) {
+			ps.setString(++i, oid.getIdentifier().toString());
+			ps.setString(++i, oid.getType());
+		}
+	}
+
+	private AclImpl convert(Map<Long, AclRecord> records, Long id, Map<Long, AclImpl> converted, Set<Long> converting) {
+		AclImpl acl = converted.get(id);
+		if (acl != null) {
+			return acl;
+		}
+		AclRecord record = records.get(id);
+		Assert.state(record != null, () -> "The ancestors of an ACL did not include " + id);
+		// the recursive query terminates on a cycle, but the conversion would not
+		Assert.state(converting.add(id), () -> "The ACL " + id + " is its own ancestor");
+		Acl parent = (record.parentId != null) ? convert(records, record.parentId, converted, converting) : null;
+		acl = record.builder.parentAcl(parent).build();
+		converted.put(id, acl);
+		return acl;
+	}
+
+	/**
+	 * Creates a particular implementation of {@link Sid} depending on the arguments.
+	 * @param isPrincipal whether it's a user or granted authority like role
+	 * @param sid the name of the sid representing its unique identifier
+	 * @return the instance of Sid with the {@code sidName} as an identifier
+	 */
+	protected Sid createSid(boolean isPrincipal, String sid) {
+		if (isPrincipal) {
+			return new PrincipalSid(sid);
+		}
+		return new GrantedAuthoritySid(sid);
+	}
+
+	/**
+	 * Sets the {@code PermissionFactory} instance which will be used to convert loaded
+	 * permission data values to {@code Permission}s. A {@code DefaultPermissionFactory}
+	 * will be used by default.
+	 * @param permissionFactory the {@code PermissionFactory} to use
+	 */
+	public void setPermissionFactory(PermissionFactory permissionFactory) {
+		Assert.notNull(permissionFactory, "permissionFactory cannot be null");
+		this.permissionFactory = permissionFactory;
+	}
+
+	/**
+	 * Sets the maximum number of object identities that are read with one query. The
+	 * default is 50.
+	 * @param batchSize the batch size, at least 1
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize >= 1, "batchSize must be >= 1");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets if the {@code acl_class.class_id_type} column is read to convert object
+	 * identifiers to their original type. The default is false.
+	 * @param aclClassIdSupported if the {@code acl_class.class_id_type} column exists
+	 */
+	public void setAclClassIdSupported(boolean aclClassIdSupported) {
+		this.selectClause = aclClassIdSupported
+				? DEFAULT_SELECT_CLAUSE_COLUMNS + DEFAULT_SELECT_CLAUSE_ACL_CLASS_ID_TYPE_COLUMN
+				: DEFAULT_SELECT_CLAUSE_COLUMNS;
+	}
+
+	public void setObjectIdentityGenerator(ObjectIdentityGenerator objectIdentityGenerator) {
+		Assert.notNull(objectIdentityGenerator, "objectIdentityGenerator cannot be null");
+		this.objectIdentityGenerator = objectIdentityGenerator;
+	}
+
+	public void setConversionService(ConversionService conversionService) {
+		this.aclClassIdUtils = new AclClassIdUtils(conversionService);
+	}
+
+	private class ProcessResultSet implements ResultSetExtractor<Map<Long, AclRecord>> {
+
+		@Override
+		public Map<Long, AclRecord> extractData(ResultSet rs) throws SQLException {
+			Map<Long, AclRecord> records = new LinkedHashMap<>();
+			while (rs.next()) {
+				Long id = rs.getLong("acl_id");
+				AclRecord record = records.get(id);
+				if (record == null) {
+					record = createRecord(id, rs);
+					records.put(id, record);
+				}
+				// It is permissible to have no ACEs in an ACL (which is detected by a
+				// null ACE_SID)
+				if (rs.getString("ace_sid") != null) {
+					Sid recipient = createSid(rs.getBoolean("ace_principal"), rs.getString("ace_sid"));
+					Permission permission = RecursiveLookupStrategy.this.permissionFactory
+							.buildFromMask(rs.getInt("mask"));
+					record.builder.entry(rs.getLong("ace_id"), recipient, permission, rs.getBoolean("granting"),
+							rs.getBoolean("audit_success"), rs.getBoolean("audit_failure"));
+				}
+			}
+			return records;
+		}
+
+		private AclRecord createRecord(Long id, ResultSet rs) throws SQLException {
+			Serializable identifier = (Serializable) rs.getObject("object_id_identity");
+			identifier = RecursiveLookupStrategy.this.aclClassIdUtils.identifierFrom(identifier, rs);
+			ObjectIdentity objectIdentity = RecursiveLookupStrategy.this.objectIdentityGenerator
+					.createObjectIdentity(identifier, rs.getString("class"));
+			long parentId = rs.getLong("parent_object");
+			Sid owner = createSid(rs.getBoolean("acl_principal"), rs.getString("acl_sid"));
+			AclImpl.Builder builder = AclImpl.builder(objectIdentity, id)
+					.aclAuthorizationStrategy(RecursiveLookupStrategy.this.aclAuthorizationStrategy)
+					.permissionGrantingStrategy(RecursiveLookupStrategy.this.grantingStrategy)
+					.entriesInheriting(rs.getBoolean("entries_inheriting")).owner(owner);
+			return new AclRecord(builder, (parentId != 0) ? parentId : null);
+		}
+
+	}
+
+	private static final class AclRecord {
+
+		private final AclImpl.Builder builder;
+
+		private final Long parentId;
+
+		AclRecord(AclImpl.Builder builder, Long parentId) {
+			this.builder = builder;
+			this.parentId = parentId;
+		}
+
+	}
+
+}
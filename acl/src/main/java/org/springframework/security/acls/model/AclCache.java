@@ -39,4 +39,68 @@ public interface AclCache {
 
 	void clearCache();
 
+	/**
+	 * Returns the cached ACL of the given {@link ObjectIdentity}, which may be a
+	 * read-only {@link Acl}, such as a
+	 * {@link org.springframework.security.acls.domain.CompactAcl}, that
+	 * {@link #getFromCache(ObjectIdentity)} does not return. The default implementation
+	 * delegates to {@link #getFromCache(ObjectIdentity)}.
+	 * @param objectIdentity the object identity of the ACL
+	 * @return the cached ACL, or <code>null</code> if there is none
+	 * @since 5.8
+	 */
+	default Acl getAclFromCache(ObjectIdentity objectIdentity) {
+		return getFromCache(objectIdentity);
+	}
+
+	/**
+	 * Returns the cached ACL with the given primary key, which may be a read-only
+	 * {@link Acl} that {@link #getFromCache(Serializable)} does not return. The default
+	 * implementation delegates to {@link #getFromCache(Serializable)}.
+	 * @param pk the primary key of the ACL
+	 * @return the cached ACL, or <code>null</code> if there is none
+	 * @since 5.8
+	 */
+	default Acl getAclFromCache(Serializable pk) {
+		return getFromCache(pk);
+	}
+
+	/**
+	 * Puts an ACL in the cache, which may be a read-only {@link Acl} such as a
+	 * {@link org.springframework.security.acls.domain.CompactAcl}. The default
+	 * implementation only caches {@link MutableAcl}s, using
+	 * {@link #putInCache(MutableAcl)}.
+	 * @param acl the ACL to cache
+	 * @since 5.8
+	 */
+	default void putAclInCache(Acl acl) {
+		if (acl instanceof MutableAcl) {
+			putInCache((MutableAcl) acl);
+		}
+	}
+
+	/**
+	 * Records that no ACL exists for the given {@link ObjectIdentity}, so that repeated
+	 * lookups of it need not query the underlying store. The default implementation does
+	 * nothing.
+	 * @param objectIdentity the object identity that has no ACL
+	 * @since 5.8
+	 */
+	default void putNotFoundInCache(ObjectIdentity objectIdentity) {
+	}
+
+	/**
+	 * Determines whether the given {@link ObjectIdentity} was recently
+	 * {@link #putNotFoundInCache(ObjectIdentity) recorded} as having no ACL. Evicting the
+	 * {@link ObjectIdentity} clears that record. The default implementation always
+	 * returns <code>false</code>.
+	 * @param objectIdentity the object identity to check
+	 * @return <code>true</code> if it is known that there is no ACL for the object
+	 * identity
+	 * @since 5.8
+	 */
+	default boolean isNotFoundInCache(ObjectIdentity objectIdentity) {
+		return false;
+	}
+
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.security.acls.model;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -100,4 +101,38 @@ public interface AclService {
 	 */
 	Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) throws NotFoundException;
 
+	/**
+	 * Same as {@link #readAclsById(List, List)} except that object identities without an
+	 * <tt>Acl</tt> are left out of the returned map rather than causing a
+	 * {@link NotFoundException}. This allows the <tt>Acl</tt>s of many objects, some of
+	 * which may not have one, to be read at once.
+	 * <p>
+	 * The default implementation calls {@link #readAclsById(List, List)} and, if that
+	 * throws a {@link NotFoundException}, reads the <tt>Acl</tt>s one at a time.
+	 * </p>
+	 * @param objects the objects to find {@link Acl} information for
+	 * @param sids the security identities for which {@link Acl} information is required
+	 * (may be <tt>null</tt> to denote all entries)
+	 * @return a map with one element for each {@link ObjectIdentity} passed as an
+	 * argument that has an {@link Acl} (never <tt>null</tt>)
+	 * @since 5.8
+	 */
+	default Map<ObjectIdentity, Acl> findAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		try {
+			return readAclsById(objects, sids);
+		}
+		catch (NotFoundException ex) {
+			Map<ObjectIdentity, Acl> result = new HashMap<>();
+			for (ObjectIdentity object : objects) {
+				try {
+					result.put(object, readAclById(object, sids));
+				}
+				catch (NotFoundException notFound) {
+					// Leave it out of the result
+				}
+			}
+			return result;
+		}
+	}
+
 }
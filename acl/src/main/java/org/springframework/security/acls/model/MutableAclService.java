@@ -16,6 +16,10 @@
 
 package org.springframework.security.acls.model;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Provides support for creating and storing <code>Acl</code> instances.
  *
@@ -32,6 +36,27 @@ public interface MutableAclService extends AclService {
 	 */
 	MutableAcl createAcl(ObjectIdentity objectIdentity) throws AlreadyExistsException;
 
+	/**
+	 * Creates an empty <code>Acl</code> object in the database for each of the passed
+	 * object identities. The default implementation calls
+	 * {@link #createAcl(ObjectIdentity)} for each of them, implementations can create
+	 * them at once.
+	 * @param objectIdentities the object identities to create
+	 * @return the ACL objects with their ID set, keyed by object identity in the order
+	 * they were passed
+	 * @throws AlreadyExistsException if one of the passed object identities already has a
+	 * record
+	 * @since 5.8
+	 */
+	default Map<ObjectIdentity, MutableAcl> createAcls(List<ObjectIdentity> objectIdentities)
+			throws AlreadyExistsException {
+		Map<ObjectIdentity, MutableAcl> acls = new LinkedHashMap<>();
+		for (ObjectIdentity objectIdentity : objectIdentities) {
+			acls.put(objectIdentity, createAcl(objectIdentity));
+		}
+		return acls;
+	}
+
 	/**
 	 * Removes the specified entry from the database.
 	 * @param objectIdentity the object identity to remove
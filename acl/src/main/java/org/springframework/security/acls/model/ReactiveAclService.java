@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides retrieval of {@link Acl} instances without blocking the calling thread. The
+ * reactive counterpart of {@link AclService}.
+ *
+ * @since 5.8
+ */
+public interface ReactiveAclService {
+
+	/**
+	 * Locates all object identities that use the specified parent. This is useful for
+	 * administration tools.
+	 * @param parentIdentity to locate children of
+	 * @return the children (empty if none were found)
+	 */
+	Flux<ObjectIdentity> findChildren(ObjectIdentity parentIdentity);
+
+	/**
+	 * Same as {@link #readAclsById(List)} except it returns only a single Acl.
+	 * @param object to locate an {@link Acl} for
+	 * @return the {@link Acl} for the requested {@link ObjectIdentity}, or an error with
+	 * a {@link NotFoundException} if an {@link Acl} was not found
+	 */
+	default Mono<Acl> readAclById(ObjectIdentity object) {
+		return readAclById(object, null);
+	}
+
+	/**
+	 * Same as {@link #readAclsById(List, List)} except it returns only a single Acl.
+	 * @param object to locate an {@link Acl} for
+	 * @param sids the security identities for which {@link Acl} information is required
+	 * (may be <tt>null</tt> to denote all entries)
+	 * @return the {@link Acl} for the requested {@link ObjectIdentity}, or an error with
+	 * a {@link NotFoundException} if an {@link Acl} was not found
+	 */
+	default Mono<Acl> readAclById(ObjectIdentity object, List<Sid> sids) {
+		return readAclsById(Collections.singletonList(object), sids).map((acls) -> acls.get(object));
+	}
+
+	/**
+	 * Obtains all the <tt>Acl</tt>s that apply for the passed <tt>Object</tt>s.
+	 * @param objects the objects to find {@link Acl} information for
+	 * @return a map with exactly one element for each {@link ObjectIdentity} passed as an
+	 * argument, or an error with a {@link NotFoundException} if an {@link Acl} was not
+	 * found for each requested {@link ObjectIdentity}
+	 */
+	default Mono<Map<ObjectIdentity, Acl>> readAclsById(List<ObjectIdentity> objects) {
+		return readAclsById(objects, null);
+	}
+
+	/**
+	 * Obtains all the <tt>Acl</tt>s that apply for the passed <tt>Object</tt>s, but only
+	 * for the security identities passed.
+	 * @param objects the objects to find {@link Acl} information for
+	 * @param sids the security identities for which {@link Acl} information is required
+	 * (may be <tt>null</tt> to denote all entries)
+	 * @return a map with exactly one element for each {@link ObjectIdentity} passed as an
+	 * argument, or an error with a {@link NotFoundException} if an {@link Acl} was not
+	 * found for each requested {@link ObjectIdentity}
+	 */
+	Mono<Map<ObjectIdentity, Acl>> readAclsById(List<ObjectIdentity> objects, List<Sid> sids);
+
+	/**
+	 * Obtains the <tt>Acl</tt>s that apply for the passed <tt>Object</tt>s, only for the
+	 * security identities passed, allowing objects without an <tt>Acl</tt>.
+	 * @param objects the objects to find {@link Acl} information for
+	 * @param sids the security identities for which {@link Acl} information is required
+	 * (may be <tt>null</tt> to denote all entries)
+	 * @return a map with one element for each {@link ObjectIdentity} passed as an
+	 * argument that has an {@link Acl}
+	 */
+	Mono<Map<ObjectIdentity, Acl>> findAclsById(List<ObjectIdentity> objects, List<Sid> sids);
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.util.Assert;
+
+/**
+ * Converts the database representation of {@link ObjectIdentity#getIdentifier()} into the
+ * Java type given by <code>acl_class.class_id_type</code>, in the same way as the JDBC
+ * lookups do.
+ *
+ * @since 5.8
+ */
+class AclClassIdConverter {
+
+	private static final Log log = LogFactory.getLog(AclClassIdConverter.class);
+
+	private final ConversionService conversionService;
+
+	AclClassIdConverter() {
+		GenericConversionService genericConversionService = new GenericConversionService();
+		genericConversionService.addConverter(String.class, Long.class, Long::parseLong);
+		genericConversionService.addConverter(String.class, UUID.class, UUID::fromString);
+		this.conversionService = genericConversionService;
+	}
+
+	AclClassIdConverter(ConversionService conversionService) {
+		Assert.notNull(conversionService, "conversionService must not be null");
+		this.conversionService = conversionService;
+	}
+
+	/**
+	 * Converts the raw type from the database into the right Java type.
+	 * @param identifier the identifier from the database
+	 * @param classIdType the value of <code>acl_class.class_id_type</code>, or
+	 * <code>null</code> if it is not selected
+	 * @return the identifier in the appropriate target Java type, typically Long or UUID
+	 */
+	Serializable identifierFrom(Serializable identifier, String classIdType) {
+		if (identifier instanceof String) {
+			Class<?> targetType = classIdTypeFrom(classIdType);
+			if (targetType != null && this.conversionService.canConvert(String.class, targetType)) {
+				return (Serializable) this.conversionService.convert(identifier, targetType);
+			}
+		}
+		// Assume it should be a Long type
+		if (this.conversionService.canConvert(identifier.getClass(), Long.class)) {
+			return this.conversionService.convert(identifier, Long.class);
+		}
+		return Long.valueOf(identifier.toString());
+	}
+
+	private Class<?> classIdTypeFrom(String className) {
+		if (className == null) {
+			return null;
+		}
+		try {
+			return Class.forName(className);
+		}
+		catch (ClassNotFoundException ex) {
+			log.debug("Unable to find class id type on classpath", ex);
+			return null;
+		}
+	}
+
+}
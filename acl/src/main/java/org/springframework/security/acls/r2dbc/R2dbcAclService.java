@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.acls.domain.ObjectIdentityRetrievalStrategyImpl;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.ObjectIdentityGenerator;
+import org.springframework.security.acls.model.ReactiveAclService;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * A R2DBC implementation of {@link ReactiveAclService} that uses a {@link DatabaseClient}
+ * and the schema of {@link org.springframework.security.acls.jdbc.JdbcAclService}, so
+ * that WebFlux applications can read ACLs without blocking.
+ *
+ * @since 5.8
+ * @see R2dbcLookupStrategy
+ */
+public class R2dbcAclService implements ReactiveAclService {
+
+	private static final String DEFAULT_SELECT_ACL_WITH_PARENT_SQL = "select obj.object_id_identity as obj_id, "
+			+ "class.class as class from acl_object_identity obj, acl_object_identity parent, acl_class class "
+			+ "where obj.parent_object = parent.id and obj.object_id_class = class.id "
+			+ "and parent.object_id_identity = :identifier and parent.object_id_class = ("
+			+ "select id FROM acl_class where acl_class.class = :type)";
+
+	private static final String DEFAULT_SELECT_ACL_WITH_PARENT_SQL_WITH_CLASS_ID_TYPE = "select obj.object_id_identity as obj_id, "
+			+ "class.class as class, class.class_id_type as class_id_type "
+			+ "from acl_object_identity obj, acl_object_identity parent, acl_class class "
+			+ "where obj.parent_object = parent.id and obj.object_id_class = class.id "
+			+ "and parent.object_id_identity = :identifier and parent.object_id_class = ("
+			+ "select id FROM acl_class where acl_class.class = :type)";
+
+	protected final DatabaseClient databaseClient;
+
+	private final ReactiveLookupStrategy lookupStrategy;
+
+	private String findChildrenSql = DEFAULT_SELECT_ACL_WITH_PARENT_SQL;
+
+	private ObjectIdentityGenerator objectIdentityGenerator = new ObjectIdentityRetrievalStrategyImpl();
+
+	private AclClassIdConverter aclClassIdConverter = new AclClassIdConverter();
+
+	private boolean aclClassIdSupported;
+
+	public R2dbcAclService(DatabaseClient databaseClient, ReactiveLookupStrategy lookupStrategy) {
+		Assert.notNull(databaseClient, "DatabaseClient required");
+		Assert.notNull(lookupStrategy, "LookupStrategy required");
+		this.databaseClient = databaseClient;
+		this.lookupStrategy = lookupStrategy;
+	}
+
+	@Override
+	public Flux<ObjectIdentity> findChildren(ObjectIdentity parentIdentity) {
+		// @formatter:off
+		return this.databaseClient.sql(this.findChildrenSql)
+				.bind("identifier", R2dbcLookupStrategy.identifierParameter(parentIdentity, this.aclClassIdSupported))
+				.bind("type", parentIdentity.getType())
+				.map((row, metadata) -> {
+					String classIdType = this.aclClassIdSupported ? row.get("class_id_type", String.class) : null;
+					Serializable identifier = this.aclClassIdConverter.identifierFrom((Serializable) row.get("obj_id"),
+							classIdType);
+					return this.objectIdentityGenerator.createObjectIdentity(identifier, row.get("class", String.class));
+				})
+				.all();
+		// @formatter:on
+	}
+
+	@Override
+	public Mono<Map<ObjectIdentity, Acl>> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		return this.lookupStrategy.readAclsById(objects, sids).flatMap((result) -> {
+			// Check every requested object identity was found
+			for (ObjectIdentity oid : objects) {
+				if (!result.containsKey(oid)) {
+					return Mono.error(
+							new NotFoundException("Unable to find ACL information for object identity '" + oid + "'"));
+				}
+			}
+			return Mono.just(result);
+		});
+	}
+
+	@Override
+	public Mono<Map<ObjectIdentity, Acl>> findAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		return this.lookupStrategy.readAclsById(objects, sids);
+	}
+
+	/**
+	 * Allows customization of the SQL query used to find child object identities. It
+	 * binds the named parameters <code>identifier</code> and <code>type</code> of the
+	 * parent, and selects the <code>obj_id</code> and <code>class</code> of each child.
+	 * @param findChildrenSql the SQL query
+	 */
+	public void setFindChildrenQuery(String findChildrenSql) {
+		Assert.hasText(findChildrenSql, "findChildrenSql cannot be empty");
+		this.findChildrenSql = findChildrenSql;
+	}
+
+	/**
+	 * Sets whether the <code>acl_class.class_id_type</code> column is selected by the
+	 * default query to find child object identities, and used to convert their
+	 * identifiers, which are then bound as strings. The default is <code>false</code>.
+	 * @param aclClassIdSupported if the <code>acl_class.class_id_type</code> column
+	 * exists
+	 * @see R2dbcLookupStrategy#setAclClassIdSupported(boolean)
+	 */
+	public void setAclClassIdSupported(boolean aclClassIdSupported) {
+		this.aclClassIdSupported = aclClassIdSupported;
+		if (aclClassIdSupported && this.findChildrenSql.equals(DEFAULT_SELECT_ACL_WITH_PARENT_SQL)) {
+			this.findChildrenSql = DEFAULT_SELECT_ACL_WITH_PARENT_SQL_WITH_CLASS_ID_TYPE;
+		}
+	}
+
+	/**
+	 * Sets the {@link ConversionService} that converts the identifiers of child object
+	 * identities into the type given by <code>acl_class.class_id_type</code>.
+	 * @param conversionService the conversion service
+	 */
+	public void setConversionService(ConversionService conversionService) {
+		this.aclClassIdConverter = new AclClassIdConverter(conversionService);
+	}
+
+	/**
+	 * Sets the {@link ObjectIdentityGenerator} that creates the child object identities.
+	 * An {@link ObjectIdentityRetrievalStrategyImpl} is used by default.
+	 * @param objectIdentityGenerator the object identity generator
+	 */
+	public void setObjectIdentityGenerator(ObjectIdentityGenerator objectIdentityGenerator) {
+		Assert.notNull(objectIdentityGenerator, "objectIdentityGenerator cannot be null");
+		this.objectIdentityGenerator = objectIdentityGenerator;
+	}
+
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclImpl;
+import org.springframework.security.acls.domain.DefaultPermissionFactory;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.ObjectIdentityRetrievalStrategyImpl;
+import org.springframework.security.acls.domain.PermissionFactory;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.jdbc.BasicLookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.ObjectIdentityGenerator;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * Performs lookups of ACLs with a {@link DatabaseClient}, in a manner that is compatible
+ * with ANSI SQL and the schema used by
+ * {@link org.springframework.security.acls.jdbc.BasicLookupStrategy}.
+ * <p>
+ * Like {@link BasicLookupStrategy}, it reads the requested ACLs in batches, with one
+ * query per batch, followed by one query per level of their ancestors that are not in the
+ * {@link AclCache}. The loaded ACLs are then added to the {@link AclCache}. As the
+ * {@link AclCache} is accessed on the thread that processes the results, it should not
+ * block, which the in-memory caches, such as
+ * {@link org.springframework.security.acls.domain.TieredAclCache}, do not.
+ * <p>
+ * By default, numeric identifiers are bound as <code>bigint</code>, which matches the
+ * <code>object_id_identity</code> column of <code>createAclSchema.sql</code>. The schemas
+ * with an <code>acl_class.class_id_type</code> column, such as
+ * <code>createAclSchemaWithAclClassIdType.sql</code> and
+ * <code>createAclSchemaPostgres.sql</code>, declare <code>object_id_identity</code> as
+ * <code>varchar</code> and require {@link #setAclClassIdSupported(boolean)}, so that
+ * identifiers are bound as strings and read back as the type given by
+ * <code>class_id_type</code>, for example {@link java.util.UUID}. Identifiers are
+ * converted like {@link BasicLookupStrategy} does.
+ *
+ * @since 5.8
+ * @see R2dbcAclService
+ */
+public class R2dbcLookupStrategy implements ReactiveLookupStrategy {
+
+	private static final String LOOKUP_KEYS_WHERE_CLAUSE = "acl_object_identity.id in (:ids)";
+
+	private final DatabaseClient databaseClient;
+
+	private final AclCache aclCache;
+
+	private final AclAuthorizationStrategy aclAuthorizationStrategy;
+
+	private final PermissionGrantingStrategy grantingStrategy;
+
+	private PermissionFactory permissionFactory = new DefaultPermissionFactory();
+
+	private ObjectIdentityGenerator objectIdentityGenerator = new ObjectIdentityRetrievalStrategyImpl();
+
+	private AclClassIdConverter aclClassIdConverter = new AclClassIdConverter();
+
+	private boolean aclClassIdSupported;
+
+	private int batchSize = 50;
+
+	/**
+	 * Constructor accepting mandatory arguments
+	 * @param databaseClient to access the database
+	 * @param aclCache the cache where fully-loaded elements can be stored
+	 * @param aclAuthorizationStrategy authorization strategy (required)
+	 * @param grantingStrategy the PermissionGrantingStrategy
+	 */
+	public R2dbcLookupStrategy(DatabaseClient databaseClient, AclCache aclCache,
+			AclAuthorizationStrategy aclAuthorizationStrategy, PermissionGrantingStrategy grantingStrategy) {
+		Assert.notNull(databaseClient, "DatabaseClient required");
+		Assert.notNull(aclCache, "AclCache required");
+		Assert.notNull(aclAuthorizationStrategy, "AclAuthorizationStrategy required");
+		Assert.notNull(grantingStrategy, "grantingStrategy required");
+		this.databaseClient = databaseClient;
+		this.aclCache = aclCache;
+		this.aclAuthorizationStrategy = aclAuthorizationStrategy;
+		this.grantingStrategy = grantingStrategy;
+	}
+
+	/**
+	 * Reads the ACLs that are not in the {@link AclCache} from the database.
+	 * <p>
+	 * Like {@link BasicLookupStrategy}, this implementation disregards the "sids"
+	 * argument, and every item in the cache is expected to contain all SIDs.
+	 * @param objects the identities to lookup (required)
+	 * @param sids the SIDs for which identities are required (ignored by this
+	 * implementation)
+	 * @return a <tt>Map</tt> where keys represent the {@link ObjectIdentity} of the
+	 * located {@link Acl} and values are the located {@link Acl}
+	 */
+	@Override
+	public Mono<Map<ObjectIdentity, Acl>> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		Assert.notEmpty(objects, "Objects to lookup required");
+		return Mono.defer(() -> {
+			Map<ObjectIdentity, Acl> result = new HashMap<>();
+			Set<ObjectIdentity> toLoad = new LinkedHashSet<>();
+			for (ObjectIdentity oid : objects) {
+				if (result.containsKey(oid)) {
+					continue;
+				}
+				Acl acl = this.aclCache.getFromCache(oid);
+				if (acl != null) {
+					Assert.state(acl.isSidLoaded(sids),
+							"Error: SID-filtered element detected when implementation does not perform SID filtering "
+									+ "- have you added something to the cache manually?");
+					result.put(acl.getObjectIdentity(), acl);
+				}
+				else if (!this.aclCache.isNotFoundInCache(oid)) {
+					toLoad.add(oid);
+				}
+			}
+			// @formatter:off
+			return Flux.fromIterable(toLoad)
+					.buffer(this.batchSize)
+					.concatMap((batch) -> lookupObjectIdentities(batch, sids))
+					.reduce(result, (acls, loaded) -> {
+						acls.putAll(loaded);
+						return acls;
+					});
+			// @formatter:on
+		});
+	}
+
+	/**
+	 * Looks up a batch of <code>ObjectIdentity</code>s, and their ancestors that are not
+	 * in the {@link AclCache}, from the database and adds them to the {@link AclCache}.
+	 */
+	private Mono<Map<ObjectIdentity, Acl>> lookupObjectIdentities(List<ObjectIdentity> objectIdentities,
+			List<Sid> sids) {
+		Map<Serializable, AclRecord> acls = new HashMap<>();
+		StringBuilder where = new StringBuilder();
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			if (i > 0) {
+				where.append(" or ");
+			}
+			where.append("(acl_object_identity.object_id_identity = :identifier").append(i);
+			where.append(" and acl_class.class = :type").append(i).append(")");
+		}
+		GenericExecuteSpec spec = this.databaseClient.sql(sql(where.toString()));
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			ObjectIdentity oid = objectIdentities.get(i);
+			spec = spec.bind("identifier" + i, identifierParameter(oid, this.aclClassIdSupported)).bind("type" + i,
+					oid.getType());
+		}
+		// @formatter:off
+		return readRows(spec, acls, sids)
+				.flatMap((parentIds) -> lookupPrimaryKeys(acls, parentIds, sids))
+				.then(Mono.fromSupplier(() -> convert(acls)))
+				.doOnNext((loaded) -> {
+					for (Acl acl : loaded.values()) {
+						this.aclCache.putInCache((MutableAcl) acl);
+					}
+					for (ObjectIdentity oid : objectIdentities) {
+						if (!loaded.containsKey(oid)) {
+							this.aclCache.putNotFoundInCache(oid);
+						}
+					}
+				});
+		// @formatter:on
+	}
+
+	/**
+	 * Looks up the ACLs with the given primary keys, and their ancestors that are not in
+	 * the {@link AclCache}, from the database.
+	 */
+	private Mono<Void> lookupPrimaryKeys(Map<Serializable, AclRecord> acls, Set<Long> ids, List<Sid> sids) {
+		if (ids.isEmpty()) {
+			return Mono.empty();
+		}
+		// @formatter:off
+		return Flux.fromIterable(ids)
+				.buffer(this.batchSize)
+				.concatMap((batch) -> readRows(this.databaseClient.sql(sql(LOOKUP_KEYS_WHERE_CLAUSE)).bind("ids", batch),
+						acls, sids))
+				.collect(HashSet<Long>::new, Set::addAll)
+				.flatMap((parentIds) -> {
+					parentIds.removeAll(acls.keySet());
+					return lookupPrimaryKeys(acls, parentIds, sids);
+				});
+		// @formatter:on
+	}
+
+	private String sql(String whereClause) {
+		String selectClause = this.aclClassIdSupported ? BasicLookupStrategy.DEFAULT_ACL_CLASS_ID_SELECT_CLAUSE
+				: BasicLookupStrategy.DEFAULT_SELECT_CLAUSE;
+		return selectClause + whereClause + BasicLookupStrategy.DEFAULT_ORDER_BY_CLAUSE;
+	}
+
+	/**
+	 * Adds the rows of the query to the {@link AclRecord}s of their ACLs.
+	 * @return the ids of the parents that are neither loaded nor in the {@link AclCache}
+	 */
+	private Mono<Set<Long>> readRows(GenericExecuteSpec spec, Map<Serializable, AclRecord> acls, List<Sid> sids) {
+		// @formatter:off
+		return spec.map((row, metadata) -> new AclRow(row, this.aclClassIdSupported))
+				.all()
+				.collect(HashSet::new, (parentIds, row) -> addRow(acls, row, sids, parentIds));
+		// @formatter:on
+	}
+
+	private void addRow(Map<Serializable, AclRecord> acls, AclRow row, List<Sid> sids, Set<Long> parentIds) {
+		AclRecord record = acls.get(row.aclId);
+		if (record == null) {
+			Serializable identifier = this.aclClassIdConverter.identifierFrom(row.identifier, row.classIdType);
+			ObjectIdentity objectIdentity = this.objectIdentityGenerator.createObjectIdentity(identifier, row.type);
+			// @formatter:off
+			AclImpl.Builder builder = AclImpl.builder(objectIdentity, row.aclId)
+					.aclAuthorizationStrategy(this.aclAuthorizationStrategy)
+					.permissionGrantingStrategy(this.grantingStrategy)
+					.entriesInheriting(row.entriesInheriting)
+					.owner(createSid(row.ownerPrincipal, row.ownerSid));
+			// @formatter:on
+			record = new AclRecord(builder, row.parentId);
+			acls.put(row.aclId, record);
+		}
+		// It is permissible to have no ACEs in an ACL (which is detected by a null
+		// ACE_SID). The builder ignores an ACE that already exists in the ACL.
+		if (row.aceSid != null && record.builder != null) {
+			record.builder.entry(row.aceId, createSid(row.acePrincipal, row.aceSid),
+					this.permissionFactory.buildFromMask(row.mask), row.granting, row.auditSuccess, row.auditFailure);
+		}
+		if (row.parentId != null && !acls.containsKey(row.parentId)) {
+			MutableAcl cached = this.aclCache.getFromCache(row.parentId);
+			if (cached != null && cached.isSidLoaded(sids)) {
+				acls.put(cached.getId(), new AclRecord(cached));
+			}
+			else {
+				parentIds.add(row.parentId);
+			}
+		}
+	}
+
+	/**
+	 * Converts the {@link AclRecord}s into {@link Acl}s with resolved parents.
+	 */
+	private Map<ObjectIdentity, Acl> convert(Map<Serializable, AclRecord> acls) {
+		Map<Serializable, MutableAcl> converted = new HashMap<>();
+		Map<ObjectIdentity, Acl> result = new HashMap<>();
+		for (Serializable id : acls.keySet()) {
+			Acl acl = convert(acls, id, converted);
+			result.put(acl.getObjectIdentity(), acl);
+		}
+		return result;
+	}
+
+	private MutableAcl convert(Map<Serializable, AclRecord> acls, Serializable id,
+			Map<Serializable, MutableAcl> converted) {
+		MutableAcl result = converted.get(id);
+		if (result != null) {
+			return result;
+		}
+		AclRecord record = acls.get(id);
+		Assert.state(record != null, () -> "The ACL with id " + id + " was not loaded");
+		if (record.acl != null) {
+			result = record.acl;
+		}
+		else {
+			Acl parent = (record.parentId != null) ? convert(acls, record.parentId, converted) : null;
+			result = record.builder.parentAcl(parent).build();
+		}
+		converted.put(id, result);
+		return result;
+	}
+
+	/**
+	 * Creates a particular implementation of {@link Sid} depending on the arguments.
+	 * @param isPrincipal whether it's a user or granted authority like role
+	 * @param sid the name of the sid representing its unique identifier
+	 * @return the instance of Sid with the {@code sid} as an identifier
+	 */
+	protected Sid createSid(boolean isPrincipal, String sid) {
+		if (isPrincipal) {
+			return new PrincipalSid(sid);
+		}
+		return new GrantedAuthoritySid(sid);
+	}
+
+	/**
+	 * Sets the {@code PermissionFactory} instance which will be used to convert loaded
+	 * permission data values to {@code Permission}s. A {@code DefaultPermissionFactory}
+	 * will be used by default.
+	 * @param permissionFactory the permission factory
+	 */
+	public void setPermissionFactory(PermissionFactory permissionFactory) {
+		Assert.notNull(permissionFactory, "permissionFactory cannot be null");
+		this.permissionFactory = permissionFactory;
+	}
+
+	/**
+	 * Sets the maximum number of object identities or primary keys that are looked up
+	 * with a single query. The default is 50.
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize >= 1, "BatchSize must be >= 1");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the {@link ObjectIdentityGenerator} that creates the {@link ObjectIdentity} of
+	 * each loaded ACL from its converted identifier and type. An
+	 * {@link ObjectIdentityRetrievalStrategyImpl} is used by default.
+	 * @param objectIdentityGenerator the object identity generator
+	 */
+	public void setObjectIdentityGenerator(ObjectIdentityGenerator objectIdentityGenerator) {
+		Assert.notNull(objectIdentityGenerator, "objectIdentityGenerator cannot be null");
+		this.objectIdentityGenerator = objectIdentityGenerator;
+	}
+
+	/**
+	 * Sets whether the <code>acl_class.class_id_type</code> column is selected, and used
+	 * to convert the identifiers that are read from the database into their Java type,
+	 * for example {@link java.util.UUID}. Otherwise identifiers are converted to
+	 * {@link Long}. When set, identifiers are also bound as strings, matching the
+	 * <code>varchar</code> <code>object_id_identity</code> column of the schemas that
+	 * have this column. The default is <code>false</code>.
+	 * @param aclClassIdSupported if the <code>acl_class.class_id_type</code> column
+	 * exists
+	 */
+	public void setAclClassIdSupported(boolean aclClassIdSupported) {
+		this.aclClassIdSupported = aclClassIdSupported;
+	}
+
+	/**
+	 * Sets the {@link ConversionService} that converts the identifiers that are read from
+	 * the database into the type given by <code>acl_class.class_id_type</code>.
+	 * @param conversionService the conversion service
+	 */
+	public void setConversionService(ConversionService conversionService) {
+		this.aclClassIdConverter = new AclClassIdConverter(conversionService);
+	}
+
+	/**
+	 * Returns the value to bind for the identifier of the object identity: a string if
+	 * the schema has the <code>acl_class.class_id_type</code> column, and therefore a
+	 * <code>varchar</code> <code>object_id_identity</code> column, otherwise a
+	 * {@link Long} for numeric identifiers.
+	 */
+	static Object identifierParameter(ObjectIdentity oid, boolean aclClassIdSupported) {
+		Serializable identifier = oid.getIdentifier();
+		if (!aclClassIdSupported && identifier instanceof Number) {
+			return ((Number) identifier).longValue();
+		}
+		return identifier.toString();
+	}
+
+	/**
+	 * The values of a row of the query, which cannot be read once the next row has been
+	 * emitted.
+	 */
+	private static final class AclRow {
+
+		private final Long aclId;
+
+		private final Serializable identifier;
+
+		private final String type;
+
+		private final String classIdType;
+
+		private final Long parentId;
+
+		private final boolean entriesInheriting;
+
+		private final boolean ownerPrincipal;
+
+		private final String ownerSid;
+
+		private final Long aceId;
+
+		private final int mask;
+
+		private final boolean granting;
+
+		private final boolean auditSuccess;
+
+		private final boolean auditFailure;
+
+		private final boolean acePrincipal;
+
+		private final String aceSid;
+
+		AclRow(Row row, boolean aclClassIdSupported) {
+			this.aclId = row.get("acl_id", Long.class);
+			this.identifier = (Serializable) row.get("object_id_identity");
+			this.type = row.get("class", String.class);
+			this.classIdType = aclClassIdSupported ? row.get("class_id_type", String.class) : null;
+			this.parentId = row.get("parent_object", Long.class);
+			this.entriesInheriting = Boolean.TRUE.equals(row.get("entries_inheriting", Boolean.class));
+			this.ownerPrincipal = Boolean.TRUE.equals(row.get("acl_principal", Boolean.class));
+			this.ownerSid = row.get("acl_sid", String.class);
+			this.aceSid = row.get("ace_sid", String.class);
+			this.aceId = row.get("ace_id", Long.class);
+			Integer mask = row.get("mask", Integer.class);
+			this.mask = (mask != null) ? mask : 0;
+			this.granting = Boolean.TRUE.equals(row.get("granting", Boolean.class));
+			this.auditSuccess = Boolean.TRUE.equals(row.get("audit_success", Boolean.class));
+			this.auditFailure = Boolean.TRUE.equals(row.get("audit_failure", Boolean.class));
+			this.acePrincipal = Boolean.TRUE.equals(row.get("ace_principal", Boolean.class));
+		}
+
+	}
+
+	/**
+	 * Either an {@link Acl} taken from the cache, or an ACL read from the database whose
+	 * parent has not been resolved yet.
+	 */
+	private static final class AclRecord {
+
+		private final MutableAcl acl;
+
+		private final AclImpl.Builder builder;
+
+		private final Long parentId;
+
+		AclRecord(MutableAcl acl) {
+			this.acl = acl;
+			this.builder = null;
+			this.parentId = null;
+		}
+
+		AclRecord(AclImpl.Builder builder, Long parentId) {
+			this.acl = null;
+			this.builder = builder;
+			this.parentId = parentId;
+		}
+
+	}
+
+}
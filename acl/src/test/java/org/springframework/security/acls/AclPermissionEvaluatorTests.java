@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,19 @@
 
 package org.springframework.security.acls;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclService;
+import org.springframework.security.acls.model.NotFoundException;
 import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.ObjectIdentityRetrievalStrategy;
 import org.springframework.security.acls.model.SidRetrievalStrategy;
@@ -33,6 +40,9 @@ import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 /**
  * @author Luke Taylor
@@ -55,6 +65,86 @@ public class AclPermissionEvaluatorTests {
 		assertThat(pe.hasPermission(mock(Authentication.class), new Object(), "READ")).isTrue();
 	}
 
+	@Test
+	public void hasPermissionsWhenDomainObjectsThenAclsReadOnce() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service);
+		ObjectIdentity grantedOid = mock(ObjectIdentity.class);
+		ObjectIdentity deniedOid = mock(ObjectIdentity.class);
+		ObjectIdentity missingOid = mock(ObjectIdentity.class);
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity("granted")).willReturn(grantedOid);
+		given(oidStrategy.getObjectIdentity("denied")).willReturn(deniedOid);
+		given(oidStrategy.getObjectIdentity("missing")).willReturn(missingOid);
+		pe.setObjectIdentityRetrievalStrategy(oidStrategy);
+		pe.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+		Acl grantedAcl = mock(Acl.class);
+		given(grantedAcl.isGranted(anyList(), anyList(), eq(false))).willReturn(true);
+		Acl deniedAcl = mock(Acl.class);
+		given(deniedAcl.isGranted(anyList(), anyList(), eq(false))).willThrow(new NotFoundException("denied"));
+		Map<ObjectIdentity, Acl> acls = new HashMap<>();
+		acls.put(grantedOid, grantedAcl);
+		acls.put(deniedOid, deniedAcl);
+		given(service.findAclsById(anyList(), anyList())).willReturn(acls);
+		BitSet granted = pe.hasPermissions(mock(Authentication.class),
+				Arrays.asList("granted", "denied", null, "missing", "granted"), "READ");
+		assertThat(granted.stream()).containsExactly(0, 4);
+		verify(service).findAclsById(eq(Arrays.asList(grantedOid, deniedOid, missingOid)), anyList());
+		verify(grantedAcl).isGranted(anyList(), anyList(), eq(false));
+		verifyNoMoreInteractions(service);
+	}
+
+	@Test
+	public void hasPermissionsWhenNoObjectIdentitiesThenEmpty() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service);
+		assertThat(pe.hasPermissions(mock(Authentication.class), Arrays.asList(null, null), "READ").isEmpty()).isTrue();
+		verifyNoInteractions(service);
+	}
+
+	@Test
+	public void hasPermissionsWhenHasPermissionOverriddenThenCalledForEachDomainObject() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service) {
+			@Override
+			public boolean hasPermission(Authentication authentication, Object domainObject, Object permission) {
+				return "granted".equals(domainObject);
+			}
+		};
+		BitSet granted = pe.hasPermissions(mock(Authentication.class), Arrays.asList("granted", "denied", "granted"),
+				"READ");
+		assertThat(granted.stream()).containsExactly(0, 2);
+		verifyNoInteractions(service);
+	}
+
+	@Test
+	public void hasPermissionsWhenHasPermissionOverriddenThenCalledForNullDomainObjects() {
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(mock(AclService.class)) {
+			@Override
+			public boolean hasPermission(Authentication authentication, Object domainObject, Object permission) {
+				return domainObject == null;
+			}
+		};
+		BitSet granted = pe.hasPermissions(mock(Authentication.class), Arrays.asList("denied", null), "READ");
+		assertThat(granted.stream()).containsExactly(1);
+	}
+
+	@Test
+	public void hasPermissionsByIdWhenHasPermissionOverriddenThenCalledForEachObjectIdentity() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service) {
+			@Override
+			public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType,
+					Object permission) {
+				return Long.valueOf(1).equals(targetId);
+			}
+		};
+		BitSet granted = pe.hasPermissionsById(mock(Authentication.class),
+				Arrays.asList(new ObjectIdentityImpl("type", 1L), null, new ObjectIdentityImpl("type", 2L)), "READ");
+		assertThat(granted.stream()).containsExactly(0);
+		verifyNoInteractions(service);
+	}
+
 	@Test
 	public void resolvePermissionNonEnglishLocale() {
 		Locale systemLocale = Locale.getDefault();
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import io.r2dbc.h2.CloseableConnectionFactory;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.TieredAclCache;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.ObjectIdentityRetrievalStrategy;
+import org.springframework.security.acls.model.ReactiveAclService;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
+import org.springframework.security.acls.r2dbc.R2dbcAclService;
+import org.springframework.security.acls.r2dbc.R2dbcLookupStrategy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.method.PreAuthorizeReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.parameters.P;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link ReactiveAclPermissionEvaluator}.
+ */
+public class ReactiveAclPermissionEvaluatorTests {
+
+	private ReactiveAclService service;
+
+	private ReactiveAclPermissionEvaluator evaluator;
+
+	@BeforeEach
+	public void setup() {
+		this.service = mock(ReactiveAclService.class);
+		this.evaluator = new ReactiveAclPermissionEvaluator(this.service);
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity(any(Object.class))).willReturn(mock(ObjectIdentity.class));
+		this.evaluator.setObjectIdentityRetrievalStrategy(oidStrategy);
+		this.evaluator.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+	}
+
+	@Test
+	public void constructorWhenNullAclServiceThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new ReactiveAclPermissionEvaluator(null));
+	}
+
+	@Test
+	public void hasPermissionWhenAclGrantsPermissionThenTrue() {
+		Acl acl = mock(Acl.class);
+		given(this.service.readAclById(any(ObjectIdentity.class), anyList())).willReturn(Mono.just(acl));
+		given(acl.isGranted(anyList(), anyList(), eq(false))).willReturn(true);
+		StepVerifier.create(this.evaluator.hasPermission(mock(Authentication.class), new Object(), "READ"))
+				.expectNext(true).verifyComplete();
+	}
+
+	@Test
+	public void hasPermissionWhenAclDeniesPermissionThenFalse() {
+		Acl acl = mock(Acl.class);
+		given(this.service.readAclById(any(ObjectIdentity.class), anyList())).willReturn(Mono.just(acl));
+		given(acl.isGranted(anyList(), anyList(), eq(false))).willThrow(new NotFoundException("denied"));
+		StepVerifier.create(this.evaluator.hasPermission(mock(Authentication.class), new Object(), "READ"))
+				.expectNext(false).verifyComplete();
+	}
+
+	@Test
+	public void hasPermissionWhenAclNotFoundThenFalse() {
+		given(this.service.readAclById(any(ObjectIdentity.class), anyList()))
+				.willReturn(Mono.error(new NotFoundException("missing")));
+		StepVerifier.create(this.evaluator.hasPermission(mock(Authentication.class), 1L, "Type", "READ"))
+				.expectNext(false).verifyComplete();
+	}
+
+	@Test
+	public void hasPermissionWhenNullDomainObjectThenFalse() {
+		StepVerifier.create(this.evaluator.hasPermission(mock(Authentication.class), null, "READ")).expectNext(false)
+				.verifyComplete();
+		verifyNoInteractions(this.service);
+	}
+
+	@Test
+	public void checkWhenPreAuthorizeUsesEvaluatorThenDecisionFromDatabase() throws Exception {
+		CloseableConnectionFactory connectionFactory = H2ConnectionFactory.inMemory("acl-" + UUID.randomUUID());
+		String data = "insert into acl_sid(id,principal,sid) values (1,true,'ben');"
+				+ "insert into acl_class(id,class) values (1,'" + TargetObject.class.getName() + "');"
+				+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (1,1,100,null,1,true);"
+				+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (1,1,0,1,1,true,false,false);";
+		new ResourceDatabasePopulator(new ClassPathResource("createAclSchema.sql"),
+				new ByteArrayResource(data.getBytes(StandardCharsets.UTF_8))).populate(connectionFactory).block();
+		try {
+			AclAuthorizationStrategyImpl authorizationStrategy = new AclAuthorizationStrategyImpl(
+					new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+			DefaultPermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(
+					new ConsoleAuditLogger());
+			DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+			R2dbcLookupStrategy lookupStrategy = new R2dbcLookupStrategy(databaseClient,
+					new TieredAclCache(100, grantingStrategy, authorizationStrategy), authorizationStrategy,
+					grantingStrategy);
+			GenericApplicationContext context = new GenericApplicationContext();
+			context.registerBean("aclPermissionEvaluator", ReactiveAclPermissionEvaluator.class,
+					() -> new ReactiveAclPermissionEvaluator(new R2dbcAclService(databaseClient, lookupStrategy)));
+			context.refresh();
+			DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+			expressionHandler.setApplicationContext(context);
+			PreAuthorizeReactiveAuthorizationManager manager = new PreAuthorizeReactiveAuthorizationManager(
+					expressionHandler);
+			SimpleMethodInvocation findById = new SimpleMethodInvocation(new DocumentService(),
+					DocumentService.class.getMethod("findById", Long.class), 100L);
+			SimpleMethodInvocation deleteById = new SimpleMethodInvocation(new DocumentService(),
+					DocumentService.class.getMethod("deleteById", Long.class), 100L);
+			Mono<Authentication> ben = Mono.just(new TestingAuthenticationToken("ben", "password"));
+			Mono<Authentication> scott = Mono.just(new TestingAuthenticationToken("scott", "password"));
+			StepVerifier.create(manager.check(ben, findById).map(AuthorizationDecision::isGranted)).expectNext(true)
+					.verifyComplete();
+			StepVerifier.create(manager.check(ben, deleteById).map(AuthorizationDecision::isGranted)).expectNext(false)
+					.verifyComplete();
+			StepVerifier.create(manager.check(scott, findById).map(AuthorizationDecision::isGranted)).expectNext(false)
+					.verifyComplete();
+		}
+		finally {
+			connectionFactory.close();
+		}
+	}
+
+	public static class DocumentService {
+
+		@PreAuthorize("@aclPermissionEvaluator.hasPermission(authentication, #id, 'org.springframework.security.acls.TargetObject', 'read')")
+		public Mono<String> findById(@P("id") Long id) {
+			return Mono.just("document");
+		}
+
+		@PreAuthorize("@aclPermissionEvaluator.hasPermission(authentication, #id, 'org.springframework.security.acls.TargetObject', 'delete')")
+		public Mono<Void> deleteById(@P("id") Long id) {
+			return Mono.empty();
+		}
+
+	}
+
+}
@@ -19,7 +19,9 @@ package org.springframework.security.acls.afterinvocation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -36,10 +38,12 @@ import org.springframework.security.core.Authentication;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 /**
  * @author Luke Taylor
@@ -70,6 +74,51 @@ public class AclEntryAfterInvocationCollectionFilteringProviderTests {
 		assertThat(((Object[]) returned).length == 0).isTrue();
 	}
 
+	@Test
+	public void decideWhenCollectionThenAclsReadOnce() {
+		AclService service = mock(AclService.class);
+		ObjectIdentity grantedOid = mock(ObjectIdentity.class);
+		ObjectIdentity deniedOid = mock(ObjectIdentity.class);
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity("granted")).willReturn(grantedOid);
+		given(oidStrategy.getObjectIdentity("denied")).willReturn(deniedOid);
+		Acl grantedAcl = mock(Acl.class);
+		given(grantedAcl.isGranted(any(), any(), anyBoolean())).willReturn(true);
+		Acl deniedAcl = mock(Acl.class);
+		Map<ObjectIdentity, Acl> acls = new HashMap<>();
+		acls.put(grantedOid, grantedAcl);
+		acls.put(deniedOid, deniedAcl);
+		given(service.findAclsById(any(), any())).willReturn(acls);
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				service, Arrays.asList(mock(Permission.class)));
+		provider.setObjectIdentityRetrievalStrategy(oidStrategy);
+		provider.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"),
+				new ArrayList(Arrays.asList("granted", "denied", null, "granted")));
+		assertThat((List<Object>) returned).containsExactly("granted", null, "granted");
+		verify(service).findAclsById(eq(Arrays.asList(grantedOid, deniedOid)), any());
+		verify(service, never()).readAclById(any(), any());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void decideWhenHasPermissionOverriddenThenCalledForEachElement() {
+		AclService service = mock(AclService.class);
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				service, Arrays.asList(mock(Permission.class))) {
+			@Override
+			protected boolean hasPermission(Authentication authentication, Object domainObject) {
+				return "granted".equals(domainObject);
+			}
+		};
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"),
+				new ArrayList(Arrays.asList("granted", "denied", "granted")));
+		assertThat((List<Object>) returned).containsExactly("granted", "granted");
+		verifyNoInteractions(service);
+	}
+
 	@Test
 	public void accessIsGrantedIfNoAttributesDefined() {
 		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
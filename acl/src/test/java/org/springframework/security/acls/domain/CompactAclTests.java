@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AuditableAccessControlEntry;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.SerializationUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CompactAcl}.
+ */
+public class CompactAclTests {
+
+	private static final List<Permission> PERMISSIONS = Arrays.asList(BasePermission.READ, BasePermission.WRITE,
+			BasePermission.CREATE, BasePermission.DELETE, BasePermission.ADMINISTRATION);
+
+	private static final List<Sid> SIDS = Arrays.asList(new PrincipalSid("ben"), new PrincipalSid("scott"),
+			new GrantedAuthoritySid("ROLE_USER"), new GrantedAuthoritySid("ROLE_ADMIN"));
+
+	private static final Sid BEN = SIDS.get(0);
+
+	private final AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+			new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+
+	private final PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(
+			new ConsoleAuditLogger());
+
+	@Test
+	public void buildWhenNoOwnerThenIllegalArgumentException() {
+		CompactAcl.Builder builder = CompactAcl.builder(oid(1L), 1L).permissionGrantingStrategy(this.grantingStrategy);
+		assertThatIllegalArgumentException().isThrownBy(builder::build);
+	}
+
+	@Test
+	public void buildWhenNoPermissionGrantingStrategyThenIllegalArgumentException() {
+		CompactAcl.Builder builder = CompactAcl.builder(oid(1L), 1L).owner(BEN);
+		assertThatIllegalArgumentException().isThrownBy(builder::build);
+	}
+
+	@Test
+	public void getEntriesWhenBuiltThenSameAsAclImpl() {
+		Acl parent = compactAcl(1L, null).build();
+		// @formatter:off
+		CompactAcl acl = compactAcl(2L, parent)
+				.entriesInheriting(false)
+				.entry(10L, SIDS.get(0), BasePermission.READ.getMask(), true, true, false)
+				.entry(11L, SIDS.get(2), BasePermission.WRITE.getMask(), false, false, true)
+				.entry(10L, SIDS.get(1), BasePermission.DELETE.getMask(), true, false, false)
+				.build();
+		AclImpl expected = AclImpl.builder(oid(2L), 2L)
+				.aclAuthorizationStrategy(this.authorizationStrategy)
+				.permissionGrantingStrategy(this.grantingStrategy)
+				.parentAcl(parent)
+				.entriesInheriting(false)
+				.owner(BEN)
+				.entry(10L, SIDS.get(0), BasePermission.READ, true, true, false)
+				.entry(11L, SIDS.get(2), BasePermission.WRITE, false, false, true)
+				.build();
+		// @formatter:on
+		assertThat(acl.getParentAcl()).isSameAs(parent);
+		assertThat(acl.isEntriesInheriting()).isFalse();
+		assertThat(acl.getOwner()).isEqualTo(BEN);
+		assertThat(acl.getObjectIdentity()).isEqualTo(oid(2L));
+		assertThat(acl.getId()).isEqualTo(2L);
+		assertThat(acl.isSidLoaded(SIDS)).isTrue();
+		List<AccessControlEntry> entries = acl.getEntries();
+		List<AccessControlEntry> expectedEntries = expected.getEntries();
+		assertThat(entries).hasSameSizeAs(expectedEntries);
+		for (int i = 0; i < entries.size(); i++) {
+			AuditableAccessControlEntry entry = (AuditableAccessControlEntry) entries.get(i);
+			AuditableAccessControlEntry expectedEntry = (AuditableAccessControlEntry) expectedEntries.get(i);
+			assertThat(entry.getId()).isEqualTo(expectedEntry.getId());
+			assertThat(entry.getSid()).isSameAs(expectedEntry.getSid());
+			assertThat(entry.getPermission()).isEqualTo(expectedEntry.getPermission());
+			assertThat(entry.isGranting()).isEqualTo(expectedEntry.isGranting());
+			assertThat(entry.isAuditSuccess()).isEqualTo(expectedEntry.isAuditSuccess());
+			assertThat(entry.isAuditFailure()).isEqualTo(expectedEntry.isAuditFailure());
+			assertThat(entry.getAcl()).isSameAs(acl);
+		}
+	}
+
+	@Test
+	public void getEntriesWhenPermissionFactoryThenPermissionsBuiltByFactory() {
+		DefaultPermissionFactory permissionFactory = new DefaultPermissionFactory(SpecialPermission.class);
+		// @formatter:off
+		CompactAcl acl = compactAcl(1L, null)
+				.permissionFactory(permissionFactory)
+				.entry(10L, BEN, SpecialPermission.ENTER.getMask(), true, false, false)
+				.build();
+		// @formatter:on
+		assertThat(acl.getEntries().get(0).getPermission()).isSameAs(SpecialPermission.ENTER);
+	}
+
+	@Test
+	public void putAclInCacheWhenSpringCacheBasedAclCacheThenNotReturnedAsMutableAcl() {
+		SpringCacheBasedAclCache cache = new SpringCacheBasedAclCache(new ConcurrentMapCache("acls"),
+				this.grantingStrategy, this.authorizationStrategy);
+		CompactAcl parent = compactAcl(1L, null).build();
+		CompactAcl acl = compactAcl(2L, parent).build();
+		cache.putAclInCache(acl);
+		assertThat(cache.getAclFromCache(2L)).isSameAs(acl);
+		assertThat(cache.getAclFromCache(parent.getObjectIdentity())).isSameAs(parent);
+		assertThat(cache.getFromCache(2L)).isNull();
+		assertThat(cache.getFromCache(acl.getObjectIdentity())).isNull();
+		cache.evictFromCache(2L);
+		assertThat(cache.getAclFromCache(acl.getObjectIdentity())).isNull();
+	}
+
+	@Test
+	public void isGrantedWhenRandomEntriesThenSameAsAclImpl() {
+		PermissionGrantingStrategy indexed = new IndexedPermissionGrantingStrategy(new ConsoleAuditLogger());
+		Random random = new Random(42);
+		for (int run = 0; run < 200; run++) {
+			CompactAcl.Builder parentCompact = compactAcl(1L, null).permissionGrantingStrategy(indexed);
+			AclImpl.Builder parentImpl = aclImpl(1L, null);
+			addRandomEntries(random, 0, parentCompact, parentImpl);
+			CompactAcl compactParent = parentCompact.build();
+			AclImpl implParent = parentImpl.build();
+			boolean inheriting = random.nextBoolean();
+			CompactAcl.Builder childCompact = compactAcl(2L, compactParent).permissionGrantingStrategy(indexed)
+					.entriesInheriting(inheriting);
+			AclImpl.Builder childImpl = aclImpl(2L, implParent).entriesInheriting(inheriting);
+			addRandomEntries(random, 100, childCompact, childImpl);
+			CompactAcl compact = childCompact.build();
+			AclImpl impl = childImpl.build();
+			for (int check = 0; check < 10; check++) {
+				List<Permission> permissions = PERMISSIONS.subList(random.nextInt(3), 3 + random.nextInt(3));
+				List<Sid> sids = SIDS.subList(random.nextInt(2), 2 + random.nextInt(3));
+				assertThat(isGranted(compact, permissions, sids)).isEqualTo(isGranted(impl, permissions, sids));
+			}
+		}
+	}
+
+	@Test
+	public void isGrantedWhenSerializedThenEqualAndUsable() {
+		CompactAcl parent = compactAcl(1L, null).entry(10L, BEN, BasePermission.READ.getMask(), true, false, false)
+				.build();
+		CompactAcl acl = compactAcl(2L, parent).entry(20L, BEN, BasePermission.WRITE.getMask(), false, false, false)
+				.build();
+		CompactAcl deserialized = (CompactAcl) SerializationUtils.deserialize(SerializationUtils.serialize(acl));
+		assertThat(deserialized).isEqualTo(acl).hasSameHashCodeAs(acl);
+		assertThat(deserialized.getEntries().get(0).getPermission()).isEqualTo(BasePermission.WRITE);
+		assertThat(deserialized.getParentAcl()).isEqualTo(parent);
+	}
+
+	@Test
+	public void fieldsWhenDeclaredThenNoObjectPerEntry() {
+		List<Class<?>> allowed = Arrays.asList(ObjectIdentity.class, Serializable.class, Sid.class, Acl.class,
+				boolean.class, long[].class, int[].class, Sid[].class, byte[].class, PermissionGrantingStrategy.class,
+				PermissionFactory.class);
+		for (Field field : CompactAcl.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				assertThat(allowed).as(field.getName()).contains(field.getType());
+			}
+		}
+	}
+
+	@Test
+	public void getEntriesWhenCalledTwiceThenEntriesNotRetained() {
+		CompactAcl first = compactAcl(1L, null).entry(10L, BEN, BasePermission.READ.getMask(), true, false, false)
+				.build();
+		CompactAcl second = compactAcl(2L, null).entry(20L, BEN, BasePermission.READ.getMask(), true, false, false)
+				.build();
+		assertThat(first.getEntries().get(0)).isNotSameAs(first.getEntries().get(0));
+		assertThat(first.getEntries().get(0).getSid()).isSameAs(second.getEntries().get(0).getSid());
+	}
+
+	private void addRandomEntries(Random random, long firstId, CompactAcl.Builder compact, AclImpl.Builder impl) {
+		int entries = random.nextInt(8);
+		for (int i = 0; i < entries; i++) {
+			Sid sid = SIDS.get(random.nextInt(SIDS.size()));
+			Permission permission = PERMISSIONS.get(random.nextInt(PERMISSIONS.size()));
+			boolean granting = random.nextBoolean();
+			compact.entry(firstId + i, sid, permission.getMask(), granting, false, false);
+			impl.entry(firstId + i, sid, permission, granting, false, false);
+		}
+	}
+
+	private static Object isGranted(Acl acl, List<Permission> permissions, List<Sid> sids) {
+		try {
+			return acl.isGranted(permissions, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return ex.getClass();
+		}
+	}
+
+	private CompactAcl.Builder compactAcl(long id, Acl parent) {
+		return CompactAcl.builder(oid(id), id).permissionGrantingStrategy(this.grantingStrategy).parentAcl(parent)
+				.owner(BEN);
+	}
+
+	private AclImpl.Builder aclImpl(long id, Acl parent) {
+		return AclImpl.builder(oid(id), id).aclAuthorizationStrategy(this.authorizationStrategy)
+				.permissionGrantingStrategy(this.grantingStrategy).parentAcl(parent).owner(BEN);
+	}
+
+	private static ObjectIdentity oid(long id) {
+		return new ObjectIdentityImpl(TargetObject.class, id);
+	}
+
+}
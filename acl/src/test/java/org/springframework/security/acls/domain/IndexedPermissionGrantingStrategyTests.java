@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link IndexedPermissionGrantingStrategy}.
+ */
+public class IndexedPermissionGrantingStrategyTests {
+
+	private static final List<Permission> PERMISSIONS = Arrays.asList(BasePermission.READ, BasePermission.WRITE,
+			BasePermission.CREATE, BasePermission.DELETE, BasePermission.ADMINISTRATION);
+
+	private static final List<Sid> SIDS = Arrays.asList(new PrincipalSid("ben"), new PrincipalSid("scott"),
+			new GrantedAuthoritySid("ROLE_USER"), new GrantedAuthoritySid("ROLE_ADMIN"));
+
+	private final ObjectIdentity objectIdentity = new ObjectIdentityImpl("org.springframework.TargetObject", 100);
+
+	private AclAuthorizationStrategy authzStrategy;
+
+	private AuditLogger auditLogger;
+
+	private IndexedPermissionGrantingStrategy strategy;
+
+	@BeforeEach
+	public void setUp() {
+		this.authzStrategy = mock(AclAuthorizationStrategy.class);
+		this.auditLogger = mock(AuditLogger.class);
+		this.strategy = new IndexedPermissionGrantingStrategy(this.auditLogger);
+	}
+
+	@Test
+	public void constructorWhenNullAuditLoggerThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new IndexedPermissionGrantingStrategy(null));
+	}
+
+	@Test
+	public void isGrantedWhenRandomAclsThenSameAsDefaultPermissionGrantingStrategy() {
+		Random random = new Random(42);
+		PermissionGrantingStrategy expected = new DefaultPermissionGrantingStrategy(this.auditLogger);
+		for (int i = 0; i < 200; i++) {
+			AclImpl acl = createAcl(this.strategy);
+			int entries = random.nextInt(20);
+			for (int j = 0; j < entries; j++) {
+				acl.insertAce(random.nextInt(j + 1), randomElement(random, PERMISSIONS), randomElement(random, SIDS),
+						random.nextBoolean());
+			}
+			for (int j = 0; j < 20; j++) {
+				List<Permission> permissions = Arrays.asList(randomElement(random, PERMISSIONS),
+						randomElement(random, PERMISSIONS));
+				List<Sid> sids = Arrays.asList(randomElement(random, SIDS), randomElement(random, SIDS));
+				assertThat(decide(this.strategy, acl, permissions, sids))
+						.isEqualTo(decide(expected, acl, permissions, sids));
+			}
+		}
+	}
+
+	@Test
+	public void isGrantedWhenFirstMatchingEntryDeniesThenDenied() {
+		Sid ben = new PrincipalSid("ben");
+		AclImpl acl = createAcl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, ben, false);
+		acl.insertAce(1, BasePermission.READ, ben, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(ben), false)).isFalse();
+		verify(this.auditLogger).logIfNeeded(eq(false), eq(acl.getEntries().get(0)));
+	}
+
+	@Test
+	public void isGrantedWhenEntriesChangedThenIndexRebuilt() {
+		Sid ben = new PrincipalSid("ben");
+		List<Permission> read = Arrays.asList(BasePermission.READ);
+		List<Sid> sids = Arrays.asList(ben);
+		AclImpl acl = createAcl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, ben, true);
+		assertThat(acl.isGranted(read, sids, true)).isTrue();
+		acl.insertAce(0, BasePermission.READ, ben, false);
+		assertThat(acl.isGranted(read, sids, true)).isFalse();
+		acl.updateAce(0, BasePermission.WRITE);
+		assertThat(acl.isGranted(read, sids, true)).isTrue();
+		acl.deleteAce(1);
+		assertThatExceptionOfType(NotFoundException.class).isThrownBy(() -> acl.isGranted(read, sids, true));
+	}
+
+	@Test
+	public void isGrantedWhenNoMatchThenParentConsulted() {
+		Sid ben = new PrincipalSid("ben");
+		AclImpl parent = createAcl(this.strategy);
+		parent.insertAce(0, BasePermission.READ, ben, true);
+		AclImpl acl = createAcl(this.strategy);
+		acl.setParent(parent);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(ben), false)).isTrue();
+		acl.setEntriesInheriting(false);
+		assertThatExceptionOfType(NotFoundException.class)
+				.isThrownBy(() -> acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(ben), false));
+	}
+
+	@Test
+	public void isGrantedWhenAdministrativeModeThenNotAudited() {
+		Sid ben = new PrincipalSid("ben");
+		AclImpl acl = createAcl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, ben, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(ben), true)).isTrue();
+		verifyNoInteractions(this.auditLogger);
+	}
+
+	@Test
+	public void isGrantedWhenNotAclImplThenScansEntries() {
+		Sid ben = new PrincipalSid("ben");
+		AclImpl entries = createAcl(this.strategy);
+		entries.insertAce(0, BasePermission.READ, ben, true);
+		Acl acl = mock(Acl.class);
+		given(acl.getEntries()).willReturn(entries.getEntries());
+		assertThat(this.strategy.isGranted(acl, Arrays.asList(BasePermission.READ), Arrays.asList(ben), false))
+				.isTrue();
+		verify(this.auditLogger).logIfNeeded(eq(true), any());
+	}
+
+	private AclImpl createAcl(PermissionGrantingStrategy strategy) {
+		return new AclImpl(this.objectIdentity, 1, this.authzStrategy, strategy, null, null, true,
+				new PrincipalSid("joe"));
+	}
+
+	private static String decide(PermissionGrantingStrategy strategy, Acl acl, List<Permission> permissions,
+			List<Sid> sids) {
+		try {
+			return String.valueOf(strategy.isGranted(acl, permissions, sids, true));
+		}
+		catch (NotFoundException ex) {
+			return "not found";
+		}
+	}
+
+	private static <T> T randomElement(Random random, List<T> elements) {
+		return elements.get(random.nextInt(elements.size()));
+	}
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link TieredAclCache}.
+ */
+public class TieredAclCacheTests {
+
+	private static final Sid BEN = new PrincipalSid("ben");
+
+	private final AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+			new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+
+	private final PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(
+			new ConsoleAuditLogger());
+
+	private TieredAclCache cache;
+
+	@BeforeEach
+	public void setup() {
+		this.cache = new TieredAclCache(100, this.grantingStrategy, this.authorizationStrategy);
+	}
+
+	@Test
+	public void constructorWhenMaximumSizeZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new TieredAclCache(0, this.grantingStrategy, this.authorizationStrategy));
+	}
+
+	@Test
+	public void setNotFoundTimeToLiveWhenNegativeThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setNotFoundTimeToLive(Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void getFromCacheWhenPutThenFoundByObjectIdentityAndId() {
+		MutableAcl acl = acl(1L, null);
+		this.cache.putInCache(acl);
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isSameAs(acl);
+		assertThat(this.cache.getFromCache(1L)).isSameAs(acl);
+		assertThat(this.cache.getFromCache(2L)).isNull();
+		assertThat(this.cache.getFromCache(oid(2L))).isNull();
+		TieredAclCache.Statistics statistics = this.cache.getStatistics();
+		assertThat(statistics.getHitCount()).isEqualTo(2);
+		assertThat(statistics.getMissCount()).isEqualTo(2);
+		assertThat(statistics.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void putInCacheWhenParentThenParentCached() {
+		MutableAcl parent = acl(1L, null);
+		MutableAcl child = acl(2L, parent);
+		this.cache.putInCache(child);
+		assertThat(this.cache.getFromCache(1L)).isSameAs(parent);
+		assertThat(this.cache.getFromCache(2L)).isSameAs(child);
+	}
+
+	@Test
+	public void evictFromCacheWhenIdThenBothKeysEvicted() {
+		MutableAcl acl = acl(1L, null);
+		this.cache.putInCache(acl);
+		this.cache.evictFromCache(1L);
+		assertThat(this.cache.getFromCache(1L)).isNull();
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isNull();
+		assertThat(this.cache.getStatistics().getInvalidationCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void evictFromCacheWhenParentThenDescendantsEvicted() {
+		MutableAcl parent = acl(1L, null);
+		MutableAcl child = acl(2L, parent);
+		MutableAcl grandchild = acl(3L, child);
+		MutableAcl unrelated = acl(4L, null);
+		this.cache.putInCache(grandchild);
+		this.cache.putInCache(unrelated);
+		this.cache.evictFromCache(parent.getObjectIdentity());
+		assertThat(this.cache.getFromCache(1L)).isNull();
+		assertThat(this.cache.getFromCache(2L)).isNull();
+		assertThat(this.cache.getFromCache(3L)).isNull();
+		assertThat(this.cache.getFromCache(4L)).isSameAs(unrelated);
+		assertThat(this.cache.getStatistics().getInvalidationCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void evictFromCacheWhenChildThenParentRetained() {
+		MutableAcl parent = acl(1L, null);
+		MutableAcl child = acl(2L, parent);
+		this.cache.putInCache(child);
+		this.cache.evictFromCache(child.getObjectIdentity());
+		assertThat(this.cache.getFromCache(1L)).isSameAs(parent);
+		assertThat(this.cache.getFromCache(2L)).isNull();
+		this.cache.putInCache(acl(3L, parent));
+		this.cache.evictFromCache(parent.getObjectIdentity());
+		assertThat(this.cache.getFromCache(3L)).isNull();
+	}
+
+	@Test
+	public void putInCacheWhenMaximumSizeExceededThenEntriesEvicted() {
+		TieredAclCache cache = new TieredAclCache(32, this.grantingStrategy, this.authorizationStrategy);
+		for (long id = 0; id < 1000; id++) {
+			cache.putInCache(acl(id, null));
+		}
+		TieredAclCache.Statistics statistics = cache.getStatistics();
+		assertThat(statistics.getSize()).isLessThanOrEqualTo(32);
+		assertThat(statistics.getEvictionCount()).isEqualTo(1000 - statistics.getSize());
+		int found = 0;
+		for (long id = 0; id < 1000; id++) {
+			if (cache.getFromCache(id) != null) {
+				found++;
+			}
+		}
+		assertThat(found).isEqualTo(statistics.getSize());
+	}
+
+	@Test
+	public void putInCacheWhenRecentlyUsedThenRetained() {
+		TieredAclCache cache = new TieredAclCache(32, this.grantingStrategy, this.authorizationStrategy);
+		MutableAcl used = acl(0L, null);
+		cache.putInCache(used);
+		for (long id = 1; id < 1000; id++) {
+			cache.putInCache(acl(id, null));
+			assertThat(cache.getFromCache(used.getObjectIdentity())).isSameAs(used);
+		}
+	}
+
+	@Test
+	public void isNotFoundInCacheWhenPutNotFoundThenTrueUntilExpired() {
+		MutableClock clock = new MutableClock();
+		this.cache.setClock(clock);
+		this.cache.setNotFoundTimeToLive(Duration.ofSeconds(10));
+		ObjectIdentity oid = oid(1L);
+		assertThat(this.cache.isNotFoundInCache(oid)).isFalse();
+		this.cache.putNotFoundInCache(oid);
+		assertThat(this.cache.isNotFoundInCache(oid)).isTrue();
+		assertThat(this.cache.getFromCache(oid)).isNull();
+		clock.advance(Duration.ofSeconds(10));
+		assertThat(this.cache.isNotFoundInCache(oid)).isFalse();
+		assertThat(this.cache.getStatistics().getNotFoundHitCount()).isEqualTo(1);
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void isNotFoundInCacheWhenEvictedThenFalse() {
+		this.cache.setNotFoundTimeToLive(Duration.ofSeconds(10));
+		ObjectIdentity oid = oid(1L);
+		this.cache.putNotFoundInCache(oid);
+		this.cache.evictFromCache(oid);
+		assertThat(this.cache.isNotFoundInCache(oid)).isFalse();
+	}
+
+	@Test
+	public void isNotFoundInCacheWhenAclPutThenFalse() {
+		this.cache.setNotFoundTimeToLive(Duration.ofSeconds(10));
+		MutableAcl acl = acl(1L, null);
+		this.cache.putNotFoundInCache(acl.getObjectIdentity());
+		this.cache.putInCache(acl);
+		this.cache.putNotFoundInCache(acl.getObjectIdentity());
+		assertThat(this.cache.isNotFoundInCache(acl.getObjectIdentity())).isFalse();
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isSameAs(acl);
+	}
+
+	@Test
+	public void isNotFoundInCacheWhenTimeToLiveNotSetThenFalse() {
+		this.cache.putNotFoundInCache(oid(1L));
+		assertThat(this.cache.isNotFoundInCache(oid(1L))).isFalse();
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void isNotFoundInCacheWhenTimeToLiveZeroThenFalse() {
+		this.cache.setNotFoundTimeToLive(Duration.ofSeconds(10));
+		this.cache.setNotFoundTimeToLive(Duration.ZERO);
+		this.cache.putNotFoundInCache(oid(1L));
+		assertThat(this.cache.isNotFoundInCache(oid(1L))).isFalse();
+	}
+
+	@Test
+	public void getFromCacheWhenOnlyInSharedCacheThenTransientFieldsInitializedOnce() {
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+		cacheManager.setBeanClassLoader(getClass().getClassLoader());
+		cacheManager.setStoreByValue(true);
+		Cache shared = cacheManager.getCache("acls");
+		MutableAcl parent = acl(1L, null);
+		MutableAcl child = acl(2L, parent);
+		new TieredAclCache(100, shared, this.grantingStrategy, this.authorizationStrategy).putInCache(child);
+		TieredAclCache cache = new TieredAclCache(100, shared, this.grantingStrategy, this.authorizationStrategy);
+		MutableAcl fromShared = cache.getFromCache(2L);
+		assertThat(fromShared).isEqualTo(child).isNotSameAs(child);
+		List<Sid> sids = Arrays.asList(BEN);
+		assertThat(fromShared.isGranted(Arrays.asList(BasePermission.READ), sids, false)).isTrue();
+		assertThat(cache.getFromCache(child.getObjectIdentity())).isSameAs(fromShared);
+		assertThat(cache.getStatistics().getSharedHitCount()).isEqualTo(1);
+		assertThat(cache.getStatistics().getHitCount()).isEqualTo(1);
+		cache.evictFromCache(1L);
+		assertThat(cache.getFromCache(1L)).isNull();
+		assertThat(cache.getFromCache(2L)).isNull();
+		assertThat(shared.get(1L)).isNull();
+		assertThat(shared.get(child.getObjectIdentity())).isNull();
+	}
+
+	@Test
+	public void clearCacheWhenCalledThenEmpty() {
+		Cache shared = new ConcurrentMapCacheManager().getCache("acls");
+		TieredAclCache cache = new TieredAclCache(100, shared, this.grantingStrategy, this.authorizationStrategy);
+		cache.setNotFoundTimeToLive(Duration.ofSeconds(10));
+		cache.putInCache(acl(1L, null));
+		cache.putNotFoundInCache(oid(2L));
+		cache.clearCache();
+		assertThat(cache.getFromCache(1L)).isNull();
+		assertThat(cache.isNotFoundInCache(oid(2L))).isFalse();
+		assertThat(cache.getStatistics().getSize()).isZero();
+		assertThat(shared.get(1L)).isNull();
+	}
+
+	@Test
+	public void putAclInCacheWhenCompactAclThenNotReturnedAsMutableAcl() {
+		Cache shared = new ConcurrentMapCacheManager().getCache("acls");
+		TieredAclCache cache = new TieredAclCache(100, shared, this.grantingStrategy, this.authorizationStrategy);
+		CompactAcl parent = compactAcl(1L, null);
+		CompactAcl acl = compactAcl(2L, parent);
+		cache.putAclInCache(acl);
+		assertThat(cache.getAclFromCache(2L)).isSameAs(acl);
+		assertThat(cache.getAclFromCache(parent.getObjectIdentity())).isSameAs(parent);
+		assertThat(cache.getFromCache(2L)).isNull();
+		assertThat(cache.getFromCache(acl.getObjectIdentity())).isNull();
+		TieredAclCache other = new TieredAclCache(100, shared, this.grantingStrategy, this.authorizationStrategy);
+		assertThat(other.getAclFromCache(2L)).isSameAs(acl);
+		cache.evictFromCache(1L);
+		assertThat(cache.getAclFromCache(acl.getObjectIdentity())).isNull();
+		assertThat(shared.get(2L)).isNull();
+	}
+
+	private CompactAcl compactAcl(long id, Acl parent) {
+		// @formatter:off
+		return CompactAcl.builder(oid(id), id)
+				.permissionGrantingStrategy(this.grantingStrategy)
+				.parentAcl(parent)
+				.owner(BEN)
+				.entry(id * 10, BEN, BasePermission.READ.getMask(), true, false, false)
+				.build();
+		// @formatter:on
+	}
+
+	private MutableAcl acl(long id, Acl parent) {
+		// @formatter:off
+		return AclImpl.builder(oid(id), id)
+				.aclAuthorizationStrategy(this.authorizationStrategy)
+				.permissionGrantingStrategy(this.grantingStrategy)
+				.parentAcl(parent)
+				.owner(BEN)
+				.entry(id * 10, BEN, BasePermission.READ, true, false, false)
+				.build();
+		// @formatter:on
+	}
+
+	private static ObjectIdentity oid(long id) {
+		return new ObjectIdentityImpl(TargetObject.class, id);
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant instant = Instant.EPOCH;
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return this.instant;
+		}
+
+		private void advance(Duration duration) {
+			this.instant = this.instant.plus(duration);
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.security.acls.jdbc;
 
+import java.io.Serializable;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -38,13 +40,16 @@ import org.springframework.security.acls.TargetObjectWithUUID;
 import org.springframework.security.acls.domain.AclAuthorizationStrategy;
 import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
 import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.CompactAcl;
 import org.springframework.security.acls.domain.ConsoleAuditLogger;
 import org.springframework.security.acls.domain.DefaultPermissionFactory;
 import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.EhCacheBasedAclCache;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.IndexedPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.TieredAclCache;
 import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AuditableAccessControlEntry;
 import org.springframework.security.acls.model.MutableAcl;
@@ -178,16 +183,47 @@ public abstract class AbstractBasicLookupStrategyTests {
 		checkEntries(topParentOid, middleParentOid, childOid, map);
 	}
 
+	@Test
+	public void setCompactAclsWhenDefaultPermissionGrantingStrategyThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.strategy.setCompactAcls(true));
+	}
+
+	@Test
+	public void readAclsByIdWhenCompactAclsThenCompactAclsWithSharedSids() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		this.strategy = new BasicLookupStrategy(getDataSource(), aclCache(), aclAuthStrategy(),
+				new IndexedPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		this.strategy.setCompactAcls(true);
+		Map<ObjectIdentity, Acl> map = this.strategy
+				.readAclsById(Arrays.asList(topParentOid, middleParentOid, childOid), null);
+		checkEntries(topParentOid, middleParentOid, childOid, map);
+		assertThat(map.values()).allMatch(CompactAcl.class::isInstance);
+		Acl child = map.get(childOid);
+		assertThat(child.getParentAcl()).isInstanceOf(CompactAcl.class);
+		assertThat(child.getOwner()).isSameAs(map.get(topParentOid).getOwner());
+		assertThat(child.getEntries().get(0).getSid()).isSameAs(child.getOwner());
+		assertThat(child.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(BEN_SID), false)).isTrue();
+		assertThat(child.isGranted(Arrays.asList(BasePermission.DELETE), Arrays.asList(BEN_SID), false)).isFalse();
+		// Read again from the cache
+		emptyDatabase();
+		map = this.strategy.readAclsById(Arrays.asList(topParentOid, middleParentOid, childOid), null);
+		checkEntries(topParentOid, middleParentOid, childOid, map);
+		assertThat(map.get(childOid).isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(BEN_SID), false))
+				.isTrue();
+	}
+
 	private void checkEntries(ObjectIdentity topParentOid, ObjectIdentity middleParentOid, ObjectIdentity childOid,
 			Map<ObjectIdentity, Acl> map) {
 		assertThat(map).hasSize(3);
-		MutableAcl topParent = (MutableAcl) map.get(topParentOid);
-		MutableAcl middleParent = (MutableAcl) map.get(middleParentOid);
-		MutableAcl child = (MutableAcl) map.get(childOid);
+		Acl topParent = map.get(topParentOid);
+		Acl middleParent = map.get(middleParentOid);
+		Acl child = map.get(childOid);
 		// Check the retrieved versions has IDs
-		assertThat(topParent.getId()).isNotNull();
-		assertThat(middleParent.getId()).isNotNull();
-		assertThat(child.getId()).isNotNull();
+		assertThat(getId(topParent)).isNotNull();
+		assertThat(getId(middleParent)).isNotNull();
+		assertThat(getId(child)).isNotNull();
 		// Check their parents were correctly retrieved
 		assertThat(topParent.getParentAcl()).isNull();
 		assertThat(middleParent.getParentAcl().getObjectIdentity()).isEqualTo(topParentOid);
@@ -202,7 +238,7 @@ public abstract class AbstractBasicLookupStrategyTests {
 		assertThat(child.getObjectIdentity()).isEqualTo(childOid);
 		// Check each entry
 		assertThat(topParent.isEntriesInheriting()).isTrue();
-		assertThat(Long.valueOf(1)).isEqualTo(topParent.getId());
+		assertThat(Long.valueOf(1)).isEqualTo(getId(topParent));
 		assertThat(new PrincipalSid("ben")).isEqualTo(topParent.getOwner());
 		assertThat(Long.valueOf(1)).isEqualTo(topParent.getEntries().get(0).getId());
 		assertThat(topParent.getEntries().get(0).getPermission()).isEqualTo(BasePermission.READ);
@@ -217,7 +253,7 @@ public abstract class AbstractBasicLookupStrategyTests {
 		assertThat(((AuditableAccessControlEntry) topParent.getEntries().get(1)).isAuditSuccess()).isFalse();
 		assertThat(topParent.getEntries().get(1).isGranting()).isFalse();
 		assertThat(middleParent.isEntriesInheriting()).isTrue();
-		assertThat(Long.valueOf(2)).isEqualTo(middleParent.getId());
+		assertThat(Long.valueOf(2)).isEqualTo(getId(middleParent));
 		assertThat(new PrincipalSid("ben")).isEqualTo(middleParent.getOwner());
 		assertThat(Long.valueOf(3)).isEqualTo(middleParent.getEntries().get(0).getId());
 		assertThat(middleParent.getEntries().get(0).getPermission()).isEqualTo(BasePermission.DELETE);
@@ -226,7 +262,7 @@ public abstract class AbstractBasicLookupStrategyTests {
 		assertThat(((AuditableAccessControlEntry) middleParent.getEntries().get(0)).isAuditSuccess()).isFalse();
 		assertThat(middleParent.getEntries().get(0).isGranting()).isTrue();
 		assertThat(child.isEntriesInheriting()).isTrue();
-		assertThat(Long.valueOf(3)).isEqualTo(child.getId());
+		assertThat(Long.valueOf(3)).isEqualTo(getId(child));
 		assertThat(new PrincipalSid("ben")).isEqualTo(child.getOwner());
 		assertThat(Long.valueOf(4)).isEqualTo(child.getEntries().get(0).getId());
 		assertThat(child.getEntries().get(0).getPermission()).isEqualTo(BasePermission.DELETE);
@@ -236,6 +272,10 @@ public abstract class AbstractBasicLookupStrategyTests {
 		assertThat((child.getEntries().get(0)).isGranting()).isFalse();
 	}
 
+	private static Serializable getId(Acl acl) {
+		return (acl instanceof CompactAcl) ? ((CompactAcl) acl).getId() : ((MutableAcl) acl).getId();
+	}
+
 	@Test
 	public void testAllParentsAreRetrievedWhenChildIsLoaded() {
 		String query = "INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (6,2,103,1,1,1);";
@@ -257,6 +297,22 @@ public abstract class AbstractBasicLookupStrategyTests {
 		assertThat(map.get(middleParent2Oid)).isNull();
 	}
 
+	@Test
+	public void readAclsByIdWhenNotFoundThenRememberedByCache() {
+		TieredAclCache cache = new TieredAclCache(100, new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()),
+				aclAuthStrategy());
+		cache.setNotFoundTimeToLive(Duration.ofMinutes(1));
+		BasicLookupStrategy strategy = new BasicLookupStrategy(getDataSource(), cache, aclAuthStrategy(),
+				new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		ObjectIdentity missingOid = new ObjectIdentityImpl(TARGET_CLASS, 999L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		Map<ObjectIdentity, Acl> foundAcls = strategy.readAclsById(Arrays.asList(missingOid, childOid),
+				Arrays.asList(BEN_SID));
+		assertThat(foundAcls).containsKey(childOid).doesNotContainKey(missingOid);
+		assertThat(cache.isNotFoundInCache(missingOid)).isTrue();
+		assertThat(cache.isNotFoundInCache(childOid)).isFalse();
+	}
+
 	/**
 	 * Test created from SEC-590.
 	 */
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.acls.AclPermissionEvaluator;
+import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.SidRetrievalStrategyImpl;
+import org.springframework.security.acls.domain.SpringCacheBasedAclCache;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link AclPermissionPredicate}.
+ */
+public class AclPermissionPredicateTests {
+
+	private static final String TYPE = TargetObject.class.getName();
+
+	private static final Sid BEN = new PrincipalSid("ben");
+
+	private static final Sid ROLE_USER = new GrantedAuthoritySid("ROLE_USER");
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private AclPermissionPredicate predicate = new AclPermissionPredicate();
+
+	@BeforeEach
+	public void setup() {
+		createDatabase("createAclSchema.sql");
+	}
+
+	@AfterEach
+	public void cleanup() {
+		this.database.shutdown();
+	}
+
+	@Test
+	public void getParametersWhenSidsThenPrincipalAndAuthoritiesSeparated() {
+		Map<String, Object> parameters = this.predicate.getParameters(Arrays.asList(BEN, ROLE_USER), TYPE,
+				BasePermission.WRITE);
+		assertThat(parameters).containsEntry(AclPermissionPredicate.PRINCIPAL_PARAMETER, "ben")
+				.containsEntry(AclPermissionPredicate.AUTHORITIES_PARAMETER, Arrays.asList("ROLE_USER"))
+				.containsEntry(AclPermissionPredicate.TYPE_PARAMETER, TYPE)
+				.containsEntry(AclPermissionPredicate.MASK_PARAMETER, BasePermission.WRITE.getMask());
+	}
+
+	@Test
+	public void getParametersWhenTwoPrincipalsThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.predicate
+				.getParameters(Arrays.asList(BEN, new PrincipalSid("joe")), TYPE, BasePermission.READ));
+	}
+
+	@Test
+	public void getParametersWhenUnknownSidThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.predicate.getParameters(Arrays.asList(new Sid() {
+		}), TYPE, BasePermission.READ));
+	}
+
+	@Test
+	public void setInheritanceDepthWhenNegativeThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.predicate.setInheritanceDepth(-1));
+	}
+
+	@Test
+	public void getSqlWhenEntriesThenGrantedObjectsSelected() {
+		insertObjectIdentity(1, 1, 101, null, true);
+		insertObjectIdentity(2, 1, 102, null, true);
+		insertObjectIdentity(3, 1, 103, null, true);
+		insertObjectIdentity(4, 2, 104, null, true);
+		insertEntry(1, 0, 1, BasePermission.READ, true);
+		insertEntry(2, 0, 1, BasePermission.WRITE, true);
+		insertEntry(3, 0, 3, BasePermission.READ, true);
+		insertEntry(4, 0, 1, BasePermission.READ, true);
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).containsExactly(101L);
+		assertThat(select(Arrays.asList(BEN), BasePermission.WRITE)).containsExactly(102L);
+		assertThat(select(Arrays.asList(BEN, ROLE_USER), BasePermission.READ)).containsExactly(101L, 103L);
+		assertThat(select(Arrays.asList(new PrincipalSid("joe")), BasePermission.READ)).isEmpty();
+	}
+
+	@Test
+	public void getSqlWhenPrincipalDeniedThenAuthorityIgnored() {
+		insertObjectIdentity(1, 1, 101, null, true);
+		insertEntry(1, 0, 3, BasePermission.READ, true);
+		insertEntry(1, 1, 1, BasePermission.READ, false);
+		assertThat(select(Arrays.asList(BEN, ROLE_USER), BasePermission.READ)).isEmpty();
+		assertThat(select(Arrays.asList(new PrincipalSid("joe"), ROLE_USER), BasePermission.READ))
+				.containsExactly(101L);
+	}
+
+	@Test
+	public void getSqlWhenEarlierEntryDeniesThenNotGranted() {
+		insertObjectIdentity(1, 1, 101, null, true);
+		insertEntry(1, 0, 1, BasePermission.READ, false);
+		insertEntry(1, 1, 1, BasePermission.READ, true);
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).isEmpty();
+	}
+
+	@Test
+	public void getSqlWhenNoAuthoritiesThenPrincipalEntriesOnly() {
+		insertObjectIdentity(1, 1, 101, null, true);
+		insertObjectIdentity(2, 1, 102, null, true);
+		insertEntry(1, 0, 1, BasePermission.READ, true);
+		insertEntry(2, 0, 3, BasePermission.READ, true);
+		assertThat(select(Collections.emptyList(), BasePermission.READ)).isEmpty();
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).containsExactly(101L);
+	}
+
+	@Test
+	public void getSqlWhenInheritanceDepthThenParentsConsulted() {
+		insertObjectIdentity(1, 1, 101, null, true);
+		insertObjectIdentity(2, 1, 102, 1L, true);
+		insertObjectIdentity(3, 1, 103, 2L, true);
+		insertObjectIdentity(4, 1, 104, 1L, false);
+		insertObjectIdentity(5, 1, 105, 1L, true);
+		insertEntry(1, 0, 1, BasePermission.READ, true);
+		insertEntry(5, 0, 1, BasePermission.READ, false);
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).containsExactly(101L);
+		this.predicate.setInheritanceDepth(1);
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).containsExactly(101L, 102L);
+		this.predicate.setInheritanceDepth(2);
+		assertThat(select(Arrays.asList(BEN), BasePermission.READ)).containsExactly(101L, 102L, 103L);
+	}
+
+	@Test
+	public void getPredicateWhenDomainTableThenFiltersAndPages() {
+		this.jdbcTemplate.execute("CREATE TABLE document(id BIGINT NOT NULL PRIMARY KEY, title VARCHAR(100))");
+		for (int id = 1; id <= 10; id++) {
+			this.jdbcTemplate.update("INSERT INTO document(id,title) VALUES (?,?)", 100 + id, "title " + id);
+			insertObjectIdentity(id, 1, 100 + id, null, true);
+			insertEntry(id, 0, 1, BasePermission.READ, id % 2 == 0);
+		}
+		String sql = "select title from document where " + this.predicate.getPredicate("document.id")
+				+ " order by id limit 2 offset 1";
+		Map<String, Object> parameters = this.predicate.getParameters(Arrays.asList(BEN), TYPE, BasePermission.READ);
+		List<String> titles = new NamedParameterJdbcTemplate(this.jdbcTemplate).queryForList(sql, parameters,
+				String.class);
+		assertThat(titles).containsExactly("title 4", "title 6");
+	}
+
+	@Test
+	public void getPredicateWhenVarcharIdentifiersThenIdentifierTypeCast() {
+		this.database.shutdown();
+		createDatabase("createAclSchemaWithAclClassIdType.sql");
+		this.jdbcTemplate.execute("CREATE TABLE document(id BIGINT NOT NULL PRIMARY KEY, title VARCHAR(100))");
+		for (int id = 1; id <= 4; id++) {
+			this.jdbcTemplate.update("INSERT INTO document(id,title) VALUES (?,?)", 100 + id, "title " + id);
+			insertObjectIdentity(id, 1, 100 + id, null, true);
+			insertEntry(id, 0, 1, BasePermission.READ, id % 2 == 0);
+		}
+		Map<String, Object> parameters = this.predicate.getParameters(Arrays.asList(BEN), TYPE, BasePermission.READ);
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+		assertThatExceptionOfType(DataAccessException.class).isThrownBy(() -> template.queryForList(
+				"select title from document where " + this.predicate.getPredicate("document.id"), parameters,
+				String.class));
+		this.predicate.setIdentifierType("bigint");
+		String sql = "select title from document where " + this.predicate.getPredicate("document.id") + " order by id";
+		assertThat(template.queryForList(sql, parameters, String.class)).containsExactly("title 2", "title 4");
+	}
+
+	@Test
+	public void setIdentifierTypeWhenEmptyThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.predicate.setIdentifierType(" "));
+	}
+
+	@Test
+	public void getSqlWhenRandomEntriesThenSameAsPermissionEvaluator() {
+		Random random = new Random(42);
+		long entryId = 1;
+		for (int id = 1; id <= 60; id++) {
+			Long parent = (id <= 10) ? null : (long) ((id <= 30) ? 1 + random.nextInt(10) : 11 + random.nextInt(20));
+			insertObjectIdentity(id, 1, 100 + id, parent, random.nextBoolean());
+			int entries = random.nextInt(4);
+			for (int order = 0; order < entries; order++) {
+				this.jdbcTemplate.update(
+						"INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (?,?,?,?,?,?,0,0)",
+						entryId++, id, order, 1 + random.nextInt(4), 1 + random.nextInt(2), random.nextBoolean());
+			}
+		}
+		AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+				new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+		PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger());
+		BasicLookupStrategy lookupStrategy = new BasicLookupStrategy(this.database,
+				new SpringCacheBasedAclCache(new ConcurrentMapCache("acls"), grantingStrategy, authorizationStrategy),
+				authorizationStrategy, grantingStrategy);
+		AclPermissionEvaluator evaluator = new AclPermissionEvaluator(
+				new JdbcAclService(this.database, lookupStrategy));
+		this.predicate.setInheritanceDepth(2);
+		List<Authentication> authentications = Arrays.asList(
+				new TestingAuthenticationToken("ben", "password", "ROLE_USER"),
+				new TestingAuthenticationToken("joe", "password", "ROLE_ADMIN"),
+				new TestingAuthenticationToken("ben", "password"));
+		for (Authentication authentication : authentications) {
+			List<Sid> sids = new SidRetrievalStrategyImpl().getSids(authentication);
+			for (Permission permission : Arrays.asList(BasePermission.READ, BasePermission.WRITE)) {
+				List<Long> expected = new ArrayList<>();
+				for (long id = 101; id <= 160; id++) {
+					if (evaluator.hasPermission(authentication, id, TYPE, permission)) {
+						expected.add(id);
+					}
+				}
+				assertThat(select(sids, permission)).isEqualTo(expected);
+			}
+		}
+	}
+
+	private void createDatabase(String schema) {
+		this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript(schema).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		// @formatter:off
+		this.jdbcTemplate.execute("INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (1,1,'ben');"
+				+ "INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (2,1,'joe');"
+				+ "INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (3,0,'ROLE_USER');"
+				+ "INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (4,0,'ROLE_ADMIN');"
+				+ "INSERT INTO acl_class(ID,CLASS) VALUES (1,'" + TYPE + "');"
+				+ "INSERT INTO acl_class(ID,CLASS) VALUES (2,'java.lang.Object');");
+		// @formatter:on
+	}
+
+	private List<Long> select(List<Sid> sids, Permission permission) {
+		Map<String, Object> parameters = this.predicate.getParameters(sids, TYPE, permission);
+		String sql = this.predicate.getSql() + " order by acl_o0.object_id_identity";
+		return new NamedParameterJdbcTemplate(this.jdbcTemplate).queryForList(sql, parameters, Long.class);
+	}
+
+	private void insertObjectIdentity(long id, long type, long identity, Long parent, boolean entriesInheriting) {
+		this.jdbcTemplate.update(
+				"INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (?,?,?,?,1,?)",
+				id, type, identity, parent, entriesInheriting);
+	}
+
+	private void insertEntry(long objectIdentity, int order, long sid, Permission permission, boolean granting) {
+		this.jdbcTemplate.update(
+				"INSERT INTO acl_entry(ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (?,?,?,?,?,0,0)",
+				objectIdentity, order, sid, permission.getMask(), granting);
+	}
+
+}
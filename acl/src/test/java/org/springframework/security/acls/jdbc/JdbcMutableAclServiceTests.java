@@ -16,8 +16,10 @@
 
 package org.springframework.security.acls.jdbc;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -28,11 +30,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
 import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
 import org.springframework.security.acls.domain.AclImpl;
 import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
 import org.springframework.security.acls.domain.CumulativePermission;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.IndexedPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.model.AccessControlEntry;
@@ -48,6 +57,7 @@ import org.springframework.security.acls.model.Sid;
 import org.springframework.security.acls.sid.CustomSid;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
@@ -56,11 +66,14 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.transaction.BeforeTransaction;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -140,6 +153,7 @@ public class JdbcMutableAclServiceTests {
 	@AfterTransaction
 	public void clearContextAndData() {
 		SecurityContextHolder.clearContext();
+		this.jdbcMutableAclService.setUpdateChangedEntriesOnly(false);
 		this.jdbcTemplate.execute("drop table acl_entry");
 		this.jdbcTemplate.execute("drop table acl_object_identity");
 		this.jdbcTemplate.execute("drop table acl_class");
@@ -447,6 +461,203 @@ public class JdbcMutableAclServiceTests {
 		SecurityContextHolder.clearContext();
 	}
 
+	@Test
+	@Transactional
+	public void createAclsWhenObjectIdentitiesThenAllCreated() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		List<ObjectIdentity> objectIdentities = Arrays.asList(getTopParentOid(), getMiddleParentOid(), getChildOid(),
+				getTopParentOid());
+		Map<ObjectIdentity, MutableAcl> acls = this.jdbcMutableAclService.createAcls(objectIdentities);
+		assertThat(acls).containsOnlyKeys(getTopParentOid(), getMiddleParentOid(), getChildOid());
+		for (MutableAcl acl : acls.values()) {
+			assertThat(acl.getId()).isNotNull();
+			assertThat(acl.getOwner()).isEqualTo(new PrincipalSid(this.auth));
+			assertThat(acl.getEntries()).isEmpty();
+		}
+		assertThat(this.jdbcMutableAclService.readAclById(getChildOid()).getObjectIdentity()).isEqualTo(getChildOid());
+		assertThat(this.jdbcTemplate.queryForList("select * from acl_object_identity")).hasSize(3);
+	}
+
+	@Test
+	@Transactional
+	public void createAclsWhenOneAlreadyExistsThenAlreadyExistsException() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		this.jdbcMutableAclService.createAcl(getMiddleParentOid());
+		assertThatExceptionOfType(AlreadyExistsException.class).isThrownBy(
+				() -> this.jdbcMutableAclService.createAcls(Arrays.asList(getTopParentOid(), getMiddleParentOid())));
+		assertThat(this.jdbcTemplate.queryForList("select * from acl_object_identity")).hasSize(1);
+	}
+
+	@Test
+	@Transactional
+	public void updateAclWhenEntriesAppendedThenExistingRowsKept() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		this.jdbcMutableAclService.setUpdateChangedEntriesOnly(true);
+		MutableAcl acl = this.jdbcMutableAclService.createAcl(getTopParentOid());
+		acl.insertAce(0, BasePermission.READ, new PrincipalSid(this.auth), true);
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		Long firstEntryId = selectEntryId(acl, 0);
+		acl.insertAce(1, BasePermission.WRITE, new GrantedAuthoritySid("ROLE_EDITOR"), true);
+		acl.insertAce(2, BasePermission.DELETE, new GrantedAuthoritySid("ROLE_EDITOR"), false);
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		assertThat(acl.getEntries()).hasSize(3);
+		assertThat(selectEntryId(acl, 0)).isEqualTo(firstEntryId);
+		assertThat(acl.getEntries().get(2).getPermission()).isEqualTo(BasePermission.DELETE);
+		assertThat(acl.getEntries().get(2).isGranting()).isFalse();
+	}
+
+	@Test
+	@Transactional
+	public void updateAclWhenEntriesChangedOrRemovedThenOnlyThoseRowsWritten() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		this.jdbcMutableAclService.setUpdateChangedEntriesOnly(true);
+		MutableAcl acl = this.jdbcMutableAclService.createAcl(getTopParentOid());
+		acl.insertAce(0, BasePermission.READ, new PrincipalSid(this.auth), true);
+		acl.insertAce(1, BasePermission.WRITE, new PrincipalSid(this.auth), true);
+		acl.insertAce(2, BasePermission.DELETE, new PrincipalSid(this.auth), true);
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		Long firstEntryId = selectEntryId(acl, 0);
+		Long secondEntryId = selectEntryId(acl, 1);
+		acl.updateAce(1, BasePermission.CREATE);
+		acl.deleteAce(2);
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		assertThat(acl.getEntries()).hasSize(2);
+		assertThat(acl.getEntries().get(1).getPermission()).isEqualTo(BasePermission.CREATE);
+		assertThat(selectEntryId(acl, 0)).isEqualTo(firstEntryId);
+		assertThat(selectEntryId(acl, 1)).isEqualTo(secondEntryId);
+		assertThat(this.jdbcTemplate.queryForList("select * from acl_entry")).hasSize(2);
+	}
+
+	@Test
+	@Transactional
+	public void updateAclWhenManySidsThenSidsCreatedAtOnce() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		this.jdbcMutableAclService.setUpdateChangedEntriesOnly(true);
+		MutableAcl acl = this.jdbcMutableAclService.createAcl(getTopParentOid());
+		acl.insertAce(0, BasePermission.READ, new GrantedAuthoritySid("ROLE_GROUP_0"), true);
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		for (int i = 1; i < 250; i++) {
+			acl.insertAce(i, BasePermission.READ, new GrantedAuthoritySid("ROLE_GROUP_" + i), true);
+		}
+		acl = this.jdbcMutableAclService.updateAcl(acl);
+		assertThat(acl.getEntries()).hasSize(250);
+		assertThat(
+				this.jdbcTemplate.queryForObject("select count(*) from acl_sid where principal = false", Integer.class))
+						.isEqualTo(250);
+		for (int i = 0; i < 250; i++) {
+			assertThat(acl.getEntries().get(i).getSid()).isEqualTo(new GrantedAuthoritySid("ROLE_GROUP_" + i));
+		}
+	}
+
+	@Test
+	@Transactional
+	public void updateAclWhenDefaultThenEntriesDeletedAndRecreated() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		List<String> calls = new ArrayList<>();
+		JdbcMutableAclService service = new JdbcMutableAclService(this.dataSource, this.lookupStrategy, this.aclCache) {
+			@Override
+			protected void deleteEntries(Long oidPrimaryKey) {
+				calls.add("deleteEntries");
+				super.deleteEntries(oidPrimaryKey);
+			}
+
+			@Override
+			protected void createEntries(MutableAcl acl) {
+				calls.add("createEntries");
+				super.createEntries(acl);
+			}
+		};
+		MutableAcl acl = service.createAcl(getTopParentOid());
+		acl.insertAce(0, BasePermission.READ, new PrincipalSid(this.auth), true);
+		Long entryId = selectEntryId(service.updateAcl(acl), 0);
+		acl = service.updateAcl(acl);
+		assertThat(calls).containsExactly("deleteEntries", "createEntries", "deleteEntries", "createEntries");
+		assertThat(selectEntryId(acl, 0)).isNotEqualTo(entryId);
+	}
+
+	@Test
+	@Transactional
+	public void readAclByIdWhenCompactAclsThenIllegalStateException() {
+		SecurityContextHolder.getContext().setAuthentication(this.auth);
+		this.jdbcMutableAclService.createAcl(getTopParentOid());
+		AclCache aclCache = mock(AclCache.class);
+		BasicLookupStrategy lookupStrategy = new BasicLookupStrategy(this.dataSource, aclCache,
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR")),
+				new IndexedPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		lookupStrategy.setCompactAcls(true);
+		JdbcMutableAclService service = new JdbcMutableAclService(this.dataSource, lookupStrategy, aclCache);
+		assertThatIllegalStateException().isThrownBy(() -> service.readAclById(getTopParentOid()));
+	}
+
+	@Test
+	@Transactional
+	public void createOrRetrieveSidPrimaryKeysWhenSidLookupOverriddenThenOverrideUsed() {
+		JdbcMutableAclService service = new JdbcMutableAclService(this.dataSource, this.lookupStrategy, this.aclCache) {
+			@Override
+			protected Long createOrRetrieveSidPrimaryKey(String sidName, boolean sidIsPrincipal, boolean allowCreate) {
+				return super.createOrRetrieveSidPrimaryKey(sidName.toUpperCase(Locale.ROOT), sidIsPrincipal,
+						allowCreate);
+			}
+		};
+		Sid sid = new GrantedAuthoritySid("role_admin");
+		Map<Sid, Long> sidIds = service.createOrRetrieveSidPrimaryKeys(Arrays.asList(sid), true);
+		assertThat(
+				this.jdbcTemplate.queryForObject("select sid from acl_sid where id = ?", String.class, sidIds.get(sid)))
+						.isEqualTo("ROLE_ADMIN");
+	}
+
+	@Test
+	@Transactional
+	public void createOrRetrieveSidPrimaryKeysWhenDatabaseIgnoresCaseThenExistingRowUsed() {
+		Long sidId = this.jdbcMutableAclService.createOrRetrieveSidPrimaryKey("ROLE_ADMIN", false, true);
+		Sid sid = new GrantedAuthoritySid("role_admin");
+		Map<Sid, Long> sidIds = this.jdbcMutableAclService.createOrRetrieveSidPrimaryKeys(Arrays.asList(sid), true);
+		assertThat(sidIds).containsEntry(sid, sidId).hasSize(1);
+		assertThat(this.jdbcTemplate.queryForList("select * from acl_sid")).hasSize(1);
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void createOrRetrieveSidPrimaryKeyWhenCommittedThenRemembered() {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+				.generateUniqueName(true).addScript("createAclSchema.sql").build();
+		try {
+			JdbcMutableAclService service = new JdbcMutableAclService(database, this.lookupStrategy, this.aclCache);
+			service.setPrimaryKeyCacheSize(100);
+			TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+			Long ben = transaction.execute((status) -> service.createOrRetrieveSidPrimaryKey("ben", true, true));
+			transaction.executeWithoutResult((status) -> {
+				service.createOrRetrieveSidPrimaryKey("joe", true, true);
+				status.setRollbackOnly();
+			});
+			new JdbcTemplate(database).update("update acl_sid set sid = 'renamed' where sid = 'ben'");
+			assertThat(service.createOrRetrieveSidPrimaryKey("ben", true, false)).isEqualTo(ben);
+			assertThat(service.createOrRetrieveSidPrimaryKey("joe", true, false)).isNull();
+			service.clearPrimaryKeyCache();
+			assertThat(service.createOrRetrieveSidPrimaryKey("ben", true, false)).isNull();
+		}
+		finally {
+			database.shutdown();
+		}
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void createOrRetrieveSidPrimaryKeyWhenCacheNotEnabledThenSelectedEachTime() {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+				.generateUniqueName(true).addScript("createAclSchema.sql").build();
+		try {
+			JdbcMutableAclService service = new JdbcMutableAclService(database, this.lookupStrategy, this.aclCache);
+			TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+			transaction.execute((status) -> service.createOrRetrieveSidPrimaryKey("ben", true, true));
+			new JdbcTemplate(database).update("delete from acl_sid");
+			assertThat(service.createOrRetrieveSidPrimaryKey("ben", true, false)).isNull();
+		}
+		finally {
+			database.shutdown();
+		}
+	}
+
 	@Test
 	public void testProcessingCustomSid() {
 		CustomJdbcMutableAclService customJdbcMutableAclService = spy(
@@ -457,6 +668,35 @@ public class JdbcMutableAclServiceTests {
 		assertThat(new Long(1L)).isEqualTo(result);
 	}
 
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void createOrRetrieveSidPrimaryKeyWhenCacheFullThenLeastRecentlyUsedEvicted() {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+				.generateUniqueName(true).addScript("createAclSchema.sql").build();
+		try {
+			JdbcMutableAclService service = new JdbcMutableAclService(database, this.lookupStrategy, this.aclCache);
+			service.setPrimaryKeyCacheSize(2);
+			TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+			Long ben = transaction.execute((status) -> service.createOrRetrieveSidPrimaryKey("ben", true, true));
+			transaction.execute((status) -> service.createOrRetrieveSidPrimaryKey("joe", true, true));
+			service.createOrRetrieveSidPrimaryKey("ben", true, false);
+			transaction.execute((status) -> service.createOrRetrieveSidPrimaryKey("sam", true, true));
+			new JdbcTemplate(database).update("delete from acl_sid");
+			assertThat(service.createOrRetrieveSidPrimaryKey("ben", true, false)).isEqualTo(ben);
+			assertThat(service.createOrRetrieveSidPrimaryKey("sam", true, false)).isNotNull();
+			assertThat(service.createOrRetrieveSidPrimaryKey("joe", true, false)).isNull();
+		}
+		finally {
+			database.shutdown();
+		}
+	}
+
+	private Long selectEntryId(MutableAcl acl, int order) {
+		return this.jdbcTemplate.queryForObject(
+				"select id from acl_entry where acl_object_identity = ? and ace_order = ?", Long.class, acl.getId(),
+				order);
+	}
+
 	protected Authentication getAuth() {
 		return this.auth;
 	}
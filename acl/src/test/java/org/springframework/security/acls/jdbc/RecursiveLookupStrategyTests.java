@@ -0,0 +1,248 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.SpringCacheBasedAclCache;
+import org.springframework.security.acls.domain.TieredAclCache;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AuditableAccessControlEntry;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link RecursiveLookupStrategy}.
+ */
+public class RecursiveLookupStrategyTests {
+
+	private static final String TARGET_CLASS = "org.springframework.security.acls.TargetObject";
+
+	private static final List<Sid> BEN = Arrays.asList(new PrincipalSid("ben"));
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private AtomicInteger queries;
+
+	private SpringCacheBasedAclCache aclCache;
+
+	private RecursiveLookupStrategy strategy;
+
+	@BeforeEach
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("createAclSchema.sql").build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		// @formatter:off
+		this.jdbcTemplate.execute("INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (1,1,'ben');"
+				+ "INSERT INTO acl_class(ID,CLASS) VALUES (2,'" + TARGET_CLASS + "');"
+				+ "INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (1,2,100,null,1,1);"
+				+ "INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (2,2,101,1,1,1);"
+				+ "INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (3,2,102,2,1,1);"
+				+ "INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (4,2,103,1,1,0);"
+				+ "INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (1,1,0,1,1,1,0,0);"
+				+ "INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (2,1,1,1,2,0,1,0);"
+				+ "INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (3,2,0,1,8,1,0,0);"
+				+ "INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (4,3,0,1,8,0,0,1);");
+		// @formatter:on
+		this.queries = new AtomicInteger();
+		AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+				new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+		PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger());
+		this.aclCache = new SpringCacheBasedAclCache(new ConcurrentMapCache("acls"), grantingStrategy,
+				authorizationStrategy);
+		this.strategy = new RecursiveLookupStrategy(new CountingDataSource(this.database, this.queries), this.aclCache,
+				authorizationStrategy, grantingStrategy);
+	}
+
+	@AfterEach
+	public void shutdown() {
+		this.database.shutdown();
+	}
+
+	@Test
+	public void readAclsByIdWhenChildThenAncestorsReadInOneQuery() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(childOid), null);
+		assertThat(this.queries).hasValue(1);
+		assertThat(acls).containsOnlyKeys(topParentOid, middleParentOid, childOid);
+		Acl child = acls.get(childOid);
+		Acl middleParent = child.getParentAcl();
+		Acl topParent = middleParent.getParentAcl();
+		assertThat(middleParent).isSameAs(acls.get(middleParentOid));
+		assertThat(topParent).isSameAs(acls.get(topParentOid));
+		assertThat(topParent.getParentAcl()).isNull();
+		assertThat(topParent.getOwner()).isEqualTo(new PrincipalSid("ben"));
+		assertThat(topParent.getEntries()).extracting((ace) -> ace.getId()).containsExactly(1L, 2L);
+		assertThat(topParent.getEntries().get(0).getPermission()).isEqualTo(BasePermission.READ);
+		assertThat(topParent.getEntries().get(0).isGranting()).isTrue();
+		assertThat(topParent.getEntries().get(1).getPermission()).isEqualTo(BasePermission.WRITE);
+		assertThat(topParent.getEntries().get(1).isGranting()).isFalse();
+		assertThat(((AuditableAccessControlEntry) topParent.getEntries().get(1)).isAuditSuccess()).isTrue();
+		assertThat(child.getEntries()).hasSize(1);
+		assertThat(((AuditableAccessControlEntry) child.getEntries().get(0)).isAuditFailure()).isTrue();
+		assertThat(child.getEntries().get(0).getAcl()).isSameAs(child);
+		assertThat(child.isGranted(Arrays.asList(BasePermission.READ), BEN, true)).isTrue();
+		assertThat(child.isGranted(Arrays.asList(BasePermission.DELETE), BEN, true)).isFalse();
+	}
+
+	@Test
+	public void readAclsByIdWhenParentsFormCycleThenIllegalStateException() {
+		this.jdbcTemplate.execute("UPDATE acl_object_identity SET PARENT_OBJECT = 3 WHERE ID = 1");
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		assertThatIllegalStateException().isThrownBy(() -> this.strategy.readAclsById(Arrays.asList(childOid), null))
+				.withMessageContaining("is its own ancestor");
+	}
+
+	@Test
+	public void readAclsByIdWhenSiblingsThenSharedParentReadOnce() {
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		ObjectIdentity siblingOid = new ObjectIdentityImpl(TARGET_CLASS, 103L);
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(childOid, siblingOid), null);
+		assertThat(this.queries).hasValue(1);
+		assertThat(acls).hasSize(4);
+		Acl topParent = acls.get(childOid).getParentAcl().getParentAcl();
+		assertThat(acls.get(siblingOid).getParentAcl()).isSameAs(topParent);
+		assertThat(acls.get(siblingOid).isEntriesInheriting()).isFalse();
+	}
+
+	@Test
+	public void readAclsByIdWhenCachedThenNoQuery() {
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		this.strategy.readAclsById(Arrays.asList(childOid), null);
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(childOid, topParentOid), null);
+		assertThat(this.queries).hasValue(1);
+		assertThat(acls).containsOnlyKeys(childOid, topParentOid);
+		assertThat(this.aclCache.getFromCache(3L)).isNotNull();
+	}
+
+	@Test
+	public void readAclsByIdWhenBatchSizeThenOneQueryPerBatch() {
+		this.strategy.setBatchSize(1);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		ObjectIdentity siblingOid = new ObjectIdentityImpl(TARGET_CLASS, 103L);
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(childOid, siblingOid), null);
+		assertThat(this.queries).hasValue(2);
+		assertThat(acls).hasSize(4);
+	}
+
+	@Test
+	public void readAclsByIdWhenNotFoundThenEmpty() {
+		ObjectIdentity oid = new ObjectIdentityImpl(TARGET_CLASS, 999L);
+		assertThat(this.strategy.readAclsById(Collections.singletonList(oid), null)).isEmpty();
+	}
+
+	@Test
+	public void readAclsByIdWhenNotFoundThenRememberedByCache() {
+		TieredAclCache cache = new TieredAclCache(100, new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()),
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR")));
+		cache.setNotFoundTimeToLive(Duration.ofMinutes(1));
+		RecursiveLookupStrategy strategy = new RecursiveLookupStrategy(
+				new CountingDataSource(this.database, this.queries), cache,
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR")),
+				new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		ObjectIdentity missingOid = new ObjectIdentityImpl(TARGET_CLASS, 999L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		assertThat(strategy.readAclsById(Arrays.asList(missingOid, childOid), null)).hasSize(3);
+		assertThat(strategy.readAclsById(Arrays.asList(missingOid, childOid), null)).containsOnlyKeys(childOid);
+		assertThat(this.queries).hasValue(1);
+		assertThat(cache.isNotFoundInCache(missingOid)).isTrue();
+		cache.evictFromCache(missingOid);
+		assertThat(strategy.readAclsById(Arrays.asList(missingOid), null)).isEmpty();
+		assertThat(this.queries).hasValue(2);
+	}
+
+	@Test
+	public void readAclsByIdWhenSameResultAsBasicLookupStrategy() {
+		BasicLookupStrategy basic = new BasicLookupStrategy(this.database,
+				new SpringCacheBasedAclCache(new ConcurrentMapCache("basic"),
+						new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()),
+						new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"))),
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR")),
+				new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		List<ObjectIdentity> oids = Arrays.asList(new ObjectIdentityImpl(TARGET_CLASS, 102L),
+				new ObjectIdentityImpl(TARGET_CLASS, 103L));
+		Map<ObjectIdentity, Acl> expected = basic.readAclsById(oids, null);
+		Map<ObjectIdentity, Acl> actual = this.strategy.readAclsById(oids, null);
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	@Test
+	public void setBatchSizeWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.strategy.setBatchSize(0));
+	}
+
+	private static final class CountingDataSource extends DelegatingDataSource {
+
+		private final AtomicInteger queries;
+
+		private CountingDataSource(EmbeddedDatabase database, AtomicInteger queries) {
+			super(database);
+			this.queries = queries;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = super.getConnection();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+					(proxy, method, args) -> {
+						if ("prepareStatement".equals(method.getName())) {
+							this.queries.incrementAndGet();
+						}
+						return method.invoke(connection, args);
+					});
+		}
+
+	}
+
+}
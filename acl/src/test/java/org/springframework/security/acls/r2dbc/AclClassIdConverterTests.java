@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.convert.ConversionService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link AclClassIdConverter}.
+ */
+public class AclClassIdConverterTests {
+
+	private final AclClassIdConverter converter = new AclClassIdConverter();
+
+	@Test
+	public void identifierFromWhenLongThenLong() {
+		assertThat(this.converter.identifierFrom(999L, null)).isEqualTo(999L);
+	}
+
+	@Test
+	public void identifierFromWhenBigIntegerThenLong() {
+		assertThat(this.converter.identifierFrom(new BigInteger("999"), null)).isEqualTo(999L);
+	}
+
+	@Test
+	public void identifierFromWhenNoClassIdTypeThenLong() {
+		assertThat(this.converter.identifierFrom("999", null)).isEqualTo(999L);
+	}
+
+	@Test
+	public void identifierFromWhenClassIdTypeNotFoundThenLong() {
+		assertThat(this.converter.identifierFrom("999", "com.example.UnknownType")).isEqualTo(999L);
+	}
+
+	@Test
+	public void identifierFromWhenUuidClassIdTypeThenUuid() {
+		UUID identifier = UUID.randomUUID();
+		assertThat(this.converter.identifierFrom(identifier.toString(), "java.util.UUID")).isEqualTo(identifier);
+	}
+
+	@Test
+	public void identifierFromWhenStringClassIdTypeThenString() {
+		assertThat(this.converter.identifierFrom("MY_STRING_IDENTIFIER", "java.lang.String"))
+				.isEqualTo("MY_STRING_IDENTIFIER");
+	}
+
+	@Test
+	public void identifierFromWhenConversionServiceCannotConvertToLongThenLong() {
+		ConversionService conversionService = mock(ConversionService.class);
+		given(conversionService.canConvert(String.class, Long.class)).willReturn(false);
+		AclClassIdConverter converter = new AclClassIdConverter(conversionService);
+		assertThat(converter.identifierFrom("999", "java.lang.Long")).isEqualTo(999L);
+	}
+
+	@Test
+	public void constructorWhenNullConversionServiceThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new AclClassIdConverter(null));
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.r2dbc.h2.CloseableConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.TargetObjectWithUUID;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Sid;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link R2dbcAclService}.
+ */
+public class R2dbcAclServiceTests {
+
+	private CloseableConnectionFactory connectionFactory;
+
+	private ReactiveLookupStrategy lookupStrategy;
+
+	private R2dbcAclService aclService;
+
+	@BeforeEach
+	public void setup() {
+		this.connectionFactory = R2dbcLookupStrategyTests.createDatabase();
+		this.lookupStrategy = mock(ReactiveLookupStrategy.class);
+		this.aclService = new R2dbcAclService(DatabaseClient.create(this.connectionFactory), this.lookupStrategy);
+	}
+
+	@AfterEach
+	public void cleanup() {
+		this.connectionFactory.close();
+	}
+
+	@Test
+	public void constructorWhenNullLookupStrategyThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new R2dbcAclService(DatabaseClient.create(this.connectionFactory), null));
+	}
+
+	@Test
+	public void readAclsByIdWhenAllFoundThenAcls() {
+		Acl acl = mock(Acl.class);
+		Map<ObjectIdentity, Acl> acls = Collections.singletonMap(oid(100L), acl);
+		given(this.lookupStrategy.readAclsById(any(), any())).willReturn(Mono.just(acls));
+		StepVerifier.create(this.aclService.readAclsById(Arrays.asList(oid(100L)))).expectNext(acls).verifyComplete();
+		StepVerifier.create(this.aclService.readAclById(oid(100L))).expectNext(acl).verifyComplete();
+	}
+
+	@Test
+	public void readAclsByIdWhenNotFoundThenNotFoundException() {
+		Map<ObjectIdentity, Acl> acls = Collections.singletonMap(oid(100L), mock(Acl.class));
+		given(this.lookupStrategy.readAclsById(any(), any())).willReturn(Mono.just(acls));
+		List<Sid> sids = null;
+		StepVerifier.create(this.aclService.readAclsById(Arrays.asList(oid(100L), oid(999L)), sids))
+				.verifyError(NotFoundException.class);
+		StepVerifier.create(this.aclService.readAclById(oid(999L))).verifyError(NotFoundException.class);
+	}
+
+	@Test
+	public void findAclsByIdWhenNotFoundThenOmitted() {
+		Map<ObjectIdentity, Acl> acls = Collections.singletonMap(oid(100L), mock(Acl.class));
+		given(this.lookupStrategy.readAclsById(any(), any())).willReturn(Mono.just(acls));
+		StepVerifier.create(this.aclService.findAclsById(Arrays.asList(oid(100L), oid(999L)), null)).expectNext(acls)
+				.verifyComplete();
+	}
+
+	@Test
+	public void findChildrenWhenChildrenThenObjectIdentities() {
+		StepVerifier.create(this.aclService.findChildren(oid(100L))).expectNext(oid(101L)).verifyComplete();
+		StepVerifier.create(this.aclService.findChildren(oid(101L))).expectNext(oid(102L)).verifyComplete();
+	}
+
+	@Test
+	public void findChildrenWhenVarcharIdentifiersThenConvertedByClassIdType() {
+		this.connectionFactory.close();
+		this.connectionFactory = R2dbcLookupStrategyTests.createDatabase("createAclSchemaWithAclClassIdType.sql",
+				R2dbcLookupStrategyTests.VARCHAR_ACL_DATA);
+		this.aclService = new R2dbcAclService(DatabaseClient.create(this.connectionFactory), this.lookupStrategy);
+		this.aclService.setAclClassIdSupported(true);
+		ObjectIdentity parent = new ObjectIdentityImpl(TargetObjectWithUUID.class,
+				R2dbcLookupStrategyTests.UUID_PARENT);
+		ObjectIdentity child = new ObjectIdentityImpl(TargetObjectWithUUID.class, R2dbcLookupStrategyTests.UUID_CHILD);
+		StepVerifier.create(this.aclService.findChildren(oid(100L))).expectNext(parent).verifyComplete();
+		StepVerifier.create(this.aclService.findChildren(parent)).expectNext(child).verifyComplete();
+	}
+
+	@Test
+	public void findChildrenWhenNoChildrenThenEmpty() {
+		StepVerifier.create(this.aclService.findChildren(oid(102L))).verifyComplete();
+	}
+
+	private static ObjectIdentity oid(long id) {
+		return new ObjectIdentityImpl(TargetObject.class, id);
+	}
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.r2dbc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import io.r2dbc.h2.CloseableConnectionFactory;
+import io.r2dbc.h2.H2ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.acls.TargetObject;
+import org.springframework.security.acls.TargetObjectWithUUID;
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.TieredAclCache;
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AuditableAccessControlEntry;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link R2dbcLookupStrategy}.
+ */
+public class R2dbcLookupStrategyTests {
+
+	private static final Sid BEN_SID = new PrincipalSid("ben");
+
+	private static final String TARGET_CLASS = TargetObject.class.getName();
+
+	private static final String UUID_TARGET_CLASS = TargetObjectWithUUID.class.getName();
+
+	static final UUID UUID_PARENT = UUID.fromString("cd2aa8ad-53fe-49e3-a6ee-b15e41b73c24");
+
+	static final UUID UUID_CHILD = UUID.fromString("f3b8a1a8-3e21-4b37-a4d6-bc7cfb94e1f0");
+
+	// @formatter:off
+	static final String ACL_DATA = "insert into acl_sid(id,principal,sid) values (1,true,'ben');"
+			+ "insert into acl_class(id,class) values (2,'" + TARGET_CLASS + "');"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (1,2,100,null,1,true);"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (2,2,101,1,1,true);"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (3,2,102,2,1,true);"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (4,2,103,null,1,false);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (1,1,0,1,1,true,true,false);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (2,1,1,1,2,false,false,true);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (3,2,0,1,8,true,false,false);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (4,3,0,1,8,false,false,false);";
+	// @formatter:on
+
+	// @formatter:off
+	static final String VARCHAR_ACL_DATA = "insert into acl_sid(id,principal,sid) values (1,true,'ben');"
+			+ "insert into acl_class(id,class,class_id_type) values (2,'" + TARGET_CLASS + "','java.lang.Long');"
+			+ "insert into acl_class(id,class,class_id_type) values (3,'" + UUID_TARGET_CLASS + "','java.util.UUID');"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (1,2,'100',null,1,true);"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (2,3,'" + UUID_PARENT + "',1,1,true);"
+			+ "insert into acl_object_identity(id,object_id_class,object_id_identity,parent_object,owner_sid,entries_inheriting) values (3,3,'" + UUID_CHILD + "',2,1,true);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (1,1,0,1,1,true,true,false);"
+			+ "insert into acl_entry(id,acl_object_identity,ace_order,sid,mask,granting,audit_success,audit_failure) values (2,3,0,1,8,true,false,false);";
+	// @formatter:on
+
+	private final AclAuthorizationStrategy authorizationStrategy = new AclAuthorizationStrategyImpl(
+			new SimpleGrantedAuthority("ROLE_ADMINISTRATOR"));
+
+	private final PermissionGrantingStrategy grantingStrategy = new DefaultPermissionGrantingStrategy(
+			new ConsoleAuditLogger());
+
+	private CloseableConnectionFactory connectionFactory;
+
+	private DatabaseClient databaseClient;
+
+	private TieredAclCache cache;
+
+	private R2dbcLookupStrategy strategy;
+
+	@BeforeEach
+	public void setup() {
+		this.connectionFactory = createDatabase();
+		this.databaseClient = DatabaseClient.create(this.connectionFactory);
+		this.cache = new TieredAclCache(100, this.grantingStrategy, this.authorizationStrategy);
+		this.cache.setNotFoundTimeToLive(Duration.ofMinutes(1));
+		this.strategy = new R2dbcLookupStrategy(this.databaseClient, this.cache, this.authorizationStrategy,
+				this.grantingStrategy);
+	}
+
+	@AfterEach
+	public void cleanup() {
+		this.connectionFactory.close();
+	}
+
+	static CloseableConnectionFactory createDatabase() {
+		return createDatabase("createAclSchema.sql", ACL_DATA);
+	}
+
+	static CloseableConnectionFactory createDatabase(String schema, String data) {
+		CloseableConnectionFactory connectionFactory = H2ConnectionFactory.inMemory("acl-" + UUID.randomUUID());
+		new ResourceDatabasePopulator(new ClassPathResource(schema),
+				new ByteArrayResource(data.getBytes(StandardCharsets.UTF_8))).populate(connectionFactory).block();
+		return connectionFactory;
+	}
+
+	private R2dbcLookupStrategy createVarcharStrategy() {
+		this.connectionFactory.close();
+		this.connectionFactory = createDatabase("createAclSchemaWithAclClassIdType.sql", VARCHAR_ACL_DATA);
+		return new R2dbcLookupStrategy(DatabaseClient.create(this.connectionFactory), this.cache,
+				this.authorizationStrategy, this.grantingStrategy);
+	}
+
+	@Test
+	public void constructorWhenNullDatabaseClientThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(
+				() -> new R2dbcLookupStrategy(null, this.cache, this.authorizationStrategy, this.grantingStrategy));
+	}
+
+	@Test
+	public void setBatchSizeWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.strategy.setBatchSize(0));
+	}
+
+	@Test
+	public void readAclsByIdWhenHierarchyThenEntriesAndParentsLoaded() {
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(oid(100L), oid(101L), oid(102L)), null)
+				.block();
+		checkEntries(acls);
+	}
+
+	@Test
+	public void readAclsByIdWhenBatchSizeOneThenEntriesAndParentsLoaded() {
+		this.strategy.setBatchSize(1);
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(oid(100L), oid(101L), oid(102L)), null)
+				.block();
+		checkEntries(acls);
+	}
+
+	@Test
+	public void readAclsByIdWhenChildOnlyThenAncestorsLoaded() {
+		Acl child = this.strategy.readAclsById(Arrays.asList(oid(102L)), null).block().get(oid(102L));
+		assertThat(child.getParentAcl().getObjectIdentity()).isEqualTo(oid(101L));
+		assertThat(child.getParentAcl().getParentAcl().getObjectIdentity()).isEqualTo(oid(100L));
+		List<Sid> sids = Arrays.asList(BEN_SID);
+		assertThat(child.isGranted(Arrays.asList(BasePermission.READ), sids, false)).isTrue();
+		assertThat(child.isGranted(Arrays.asList(BasePermission.DELETE), sids, false)).isFalse();
+		assertThat(this.cache.getFromCache(oid(100L))).isSameAs(child.getParentAcl().getParentAcl());
+	}
+
+	@Test
+	public void readAclsByIdWhenNoEntriesThenEmptyAcl() {
+		Acl acl = this.strategy.readAclsById(Arrays.asList(oid(103L)), null).block().get(oid(103L));
+		assertThat(acl.getEntries()).isEmpty();
+		assertThat(acl.isEntriesInheriting()).isFalse();
+		assertThat(acl.getParentAcl()).isNull();
+		assertThat(acl.getOwner()).isEqualTo(BEN_SID);
+	}
+
+	@Test
+	public void readAclsByIdWhenNotFoundThenOmittedAndRememberedByCache() {
+		ObjectIdentity missing = oid(999L);
+		StepVerifier.create(this.strategy.readAclsById(Arrays.asList(missing, oid(100L)), null))
+				.assertNext((acls) -> assertThat(acls).containsKey(oid(100L)).doesNotContainKey(missing))
+				.verifyComplete();
+		assertThat(this.cache.isNotFoundInCache(missing)).isTrue();
+	}
+
+	@Test
+	public void readAclsByIdWhenCachedThenNotReadFromDatabase() {
+		this.strategy.readAclsById(Arrays.asList(oid(102L)), null).block();
+		this.databaseClient.sql("delete from acl_entry").then().block();
+		this.databaseClient.sql("delete from acl_object_identity").then().block();
+		Map<ObjectIdentity, Acl> acls = this.strategy.readAclsById(Arrays.asList(oid(100L), oid(101L), oid(102L)), null)
+				.block();
+		checkEntries(acls);
+	}
+
+	@Test
+	public void readAclsByIdWhenParentCachedThenParentReused() {
+		Acl parent = this.strategy.readAclsById(Arrays.asList(oid(101L)), null).block().get(oid(101L));
+		Acl child = this.strategy.readAclsById(Arrays.asList(oid(102L)), null).block().get(oid(102L));
+		assertThat(child.getParentAcl()).isSameAs(parent);
+	}
+
+	@Test
+	public void readAclsByIdWhenVarcharIdentifiersThenConvertedByClassIdType() {
+		R2dbcLookupStrategy strategy = createVarcharStrategy();
+		strategy.setAclClassIdSupported(true);
+		ObjectIdentity child = new ObjectIdentityImpl(UUID_TARGET_CLASS, UUID_CHILD);
+		Acl acl = strategy.readAclsById(Arrays.asList(child), null).block().get(child);
+		assertThat(acl.getObjectIdentity()).isEqualTo(child);
+		assertThat(acl.getParentAcl().getObjectIdentity())
+				.isEqualTo(new ObjectIdentityImpl(UUID_TARGET_CLASS, UUID_PARENT));
+		assertThat(acl.getParentAcl().getParentAcl().getObjectIdentity()).isEqualTo(oid(100L));
+		List<Sid> sids = Arrays.asList(BEN_SID);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), sids, false)).isTrue();
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.DELETE), sids, false)).isTrue();
+		assertThat(this.cache.isNotFoundInCache(child)).isFalse();
+	}
+
+	@Test
+	public void readAclsByIdWhenVarcharIdentifiersThenLongIdentifiersFound() {
+		R2dbcLookupStrategy strategy = createVarcharStrategy();
+		strategy.setAclClassIdSupported(true);
+		Acl acl = strategy.readAclsById(Arrays.asList(oid(100L)), null).block().get(oid(100L));
+		assertThat(acl.getObjectIdentity()).isEqualTo(oid(100L));
+		assertThat(acl.getEntries()).hasSize(1);
+		assertThat(this.cache.isNotFoundInCache(oid(100L))).isFalse();
+	}
+
+	private void checkEntries(Map<ObjectIdentity, Acl> acls) {
+		assertThat(acls).containsKeys(oid(100L), oid(101L), oid(102L));
+		Acl top = acls.get(oid(100L));
+		Acl middle = acls.get(oid(101L));
+		Acl child = acls.get(oid(102L));
+		assertThat(((MutableAcl) top).getId()).isEqualTo(1L);
+		assertThat(top.getParentAcl()).isNull();
+		assertThat(middle.getParentAcl()).isSameAs(top);
+		assertThat(child.getParentAcl()).isSameAs(middle);
+		assertThat(top.getEntries()).hasSize(2);
+		checkEntry(top.getEntries().get(0), 1L, BasePermission.READ.getMask(), true, true, false);
+		checkEntry(top.getEntries().get(1), 2L, BasePermission.WRITE.getMask(), false, false, true);
+		assertThat(middle.getEntries()).hasSize(1);
+		checkEntry(middle.getEntries().get(0), 3L, BasePermission.DELETE.getMask(), true, false, false);
+		assertThat(child.getEntries()).hasSize(1);
+		checkEntry(child.getEntries().get(0), 4L, BasePermission.DELETE.getMask(), false, false, false);
+	}
+
+	private void checkEntry(AccessControlEntry entry, long id, int mask, boolean granting, boolean auditSuccess,
+			boolean auditFailure) {
+		AuditableAccessControlEntry auditable = (AuditableAccessControlEntry) entry;
+		assertThat(auditable.getId()).isEqualTo(id);
+		assertThat(auditable.getSid()).isEqualTo(BEN_SID);
+		assertThat(auditable.getPermission().getMask()).isEqualTo(mask);
+		assertThat(auditable.isGranting()).isEqualTo(granting);
+		assertThat(auditable.isAuditSuccess()).isEqualTo(auditSuccess);
+		assertThat(auditable.isAuditFailure()).isEqualTo(auditFailure);
+	}
+
+	private static ObjectIdentity oid(long id) {
+		return new ObjectIdentityImpl(TARGET_CLASS, id);
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.spring.gradle.convention
+
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.tasks.JavaExec
+import org.springframework.gradle.propdeps.PropDepsPlugin
+
+/**
+ *
+ * Adds support for JMH benchmarks to java projects.
+ *
+ * <ul>
+ * <li>A new source folder of src/jmh/java is added, which can see the main and test classes</li>
+ * <li>The JMH annotation processor is configured for that source folder</li>
+ * <li>A task to run the benchmarks named jmh is added. It writes a JSON report to
+ * build/reports/jmh/results.json so that results can be compared across versions. The
+ * GC profiler is enabled so that the report includes the allocation per operation. A
+ * subset of benchmarks can be selected with -Pjmh.includes=regex</li>
+ * </ul>
+ *
+ * Benchmarks are not run as part of the build.
+ */
+public class JmhPlugin implements Plugin<Project> {
+
+	@Override
+	public void apply(Project project) {
+		project.plugins.withType(JavaPlugin.class) {
+			applyJava(project)
+		}
+	}
+
+	private applyJava(Project project) {
+		if(!project.file('src/jmh/').exists()) {
+			return
+		}
+		project.sourceSets {
+			jmh {
+				java.srcDir project.file('src/jmh/java')
+				resources.srcDir project.file('src/jmh/resources')
+				compileClasspath += project.sourceSets.main.output + project.sourceSets.test.output
+				runtimeClasspath += project.sourceSets.main.output + project.sourceSets.test.output
+			}
+		}
+
+		project.configurations {
+			jmhImplementation {
+				extendsFrom testImplementation
+			}
+			jmhRuntimeOnly {
+				extendsFrom testRuntimeOnly
+			}
+			jmhCompileClasspath {
+				extendsFrom management
+			}
+			jmhRuntimeClasspath {
+				extendsFrom management
+			}
+			jmhAnnotationProcessor {
+				extendsFrom management
+			}
+		}
+
+		project.plugins.withType(PropDepsPlugin) {
+			project.configurations {
+				jmhImplementation {
+					extendsFrom optional, provided
+				}
+			}
+		}
+
+		project.dependencies {
+			jmhImplementation 'org.openjdk.jmh:jmh-core'
+			jmhAnnotationProcessor 'org.openjdk.jmh:jmh-generator-annprocess'
+		}
+
+		project.tasks.register("jmh", JavaExec) {
+			group = 'Benchmark'
+			description = 'Runs the JMH benchmarks.'
+			classpath = project.sourceSets.jmh.runtimeClasspath
+			mainClass = 'org.openjdk.jmh.Main'
+			def results = project.file("${project.buildDir}/reports/jmh/results.json")
+			outputs.file(results)
+			outputs.upToDateWhen { false }
+			args '-rf', 'json', '-rff', results.absolutePath, '-prof', 'gc'
+			if (project.hasProperty('jmh.includes')) {
+				args project.property('jmh.includes')
+			}
+			doFirst {
+				results.parentFile.mkdirs()
+			}
+		}
+	}
+}
@@ -32,6 +32,7 @@ import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
+import org.springframework.security.web.util.matcher.PathPatternRequestMatcher;
 import org.springframework.security.web.util.matcher.RegexRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.Assert;
@@ -235,6 +236,35 @@ public abstract class AbstractRequestMatcherRegistry<C> {
 		return chainRequestMatchers(RequestMatchers.regexMatchers(regexPatterns));
 	}
 
+	/**
+	 * Maps a {@link List} of {@link PathPatternRequestMatcher} instances. The patterns
+	 * are parsed once and each request path is parsed once, no matter how many of the
+	 * matchers are consulted.
+	 * @param method the {@link HttpMethod} to use or {@code null} for any
+	 * {@link HttpMethod}.
+	 * @param pathPatterns the {@link org.springframework.web.util.pattern.PathPattern}
+	 * patterns to create {@link PathPatternRequestMatcher} from
+	 * @return the object that is chained after creating the {@link RequestMatcher}
+	 * @since 5.8
+	 */
+	public C pathPatternMatchers(@Nullable HttpMethod method, String... pathPatterns) {
+		Assert.state(!this.anyRequestConfigured, "Can't configure pathPatternMatchers after anyRequest");
+		return chainRequestMatchers(RequestMatchers.pathPatternMatchers(method, pathPatterns));
+	}
+
+	/**
+	 * Maps a {@link List} of {@link PathPatternRequestMatcher} instances that do not care
+	 * which {@link HttpMethod} is used.
+	 * @param pathPatterns the {@link org.springframework.web.util.pattern.PathPattern}
+	 * patterns to create {@link PathPatternRequestMatcher} from
+	 * @return the object that is chained after creating the {@link RequestMatcher}
+	 * @since 5.8
+	 */
+	public C pathPatternMatchers(String... pathPatterns) {
+		Assert.state(!this.anyRequestConfigured, "Can't configure pathPatternMatchers after anyRequest");
+		return chainRequestMatchers(RequestMatchers.pathPatternMatchers(null, pathPatterns));
+	}
+
 	/**
 	 * Maps a {@link List} of
 	 * {@link org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher}
@@ -399,6 +429,22 @@ public abstract class AbstractRequestMatcherRegistry<C> {
 			return antMatchers(null, antPatterns);
 		}
 
+		/**
+		 * Create a {@link List} of {@link PathPatternRequestMatcher} instances.
+		 * @param httpMethod the {@link HttpMethod} to use or {@code null} for any
+		 * {@link HttpMethod}.
+		 * @param pathPatterns the patterns to create {@link PathPatternRequestMatcher}
+		 * from
+		 * @return a {@link List} of {@link PathPatternRequestMatcher} instances
+		 */
+		static List<RequestMatcher> pathPatternMatchers(HttpMethod httpMethod, String... pathPatterns) {
+			List<RequestMatcher> matchers = new ArrayList<>();
+			for (String pattern : pathPatterns) {
+				matchers.add(new PathPatternRequestMatcher(pattern, httpMethod));
+			}
+			return matchers;
+		}
+
 		/**
 		 * Create a {@link List} of {@link RegexRequestMatcher} instances.
 		 * @param httpMethod the {@link HttpMethod} to use or {@code null} for any
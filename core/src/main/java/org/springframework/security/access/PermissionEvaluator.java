@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.security.access;
 
 import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collection;
 
 import org.springframework.aop.framework.AopInfrastructureBean;
 import org.springframework.security.core.Authentication;
@@ -54,4 +56,35 @@ public interface PermissionEvaluator extends AopInfrastructureBean {
 	 */
 	boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission);
 
+	/**
+	 * Determines, for each of the given domain objects, whether the user has the
+	 * permission. Used when filtering a collection with an expression such as
+	 * <code>hasPermission(filterObject, 'read')</code>.
+	 * <p>
+	 * The default implementation calls
+	 * {@link #hasPermission(Authentication, Object, Object)} for each domain object.
+	 * Implementations that can check many domain objects at once, for example by loading
+	 * all their permissions together, should override it.
+	 * @param authentication represents the user in question. Should not be null.
+	 * @param targetDomainObjects the domain objects for which permissions should be
+	 * checked. May contain null elements, which are passed to
+	 * {@link #hasPermission(Authentication, Object, Object)} like any other.
+	 * @param permission a representation of the permission object as supplied by the
+	 * expression system. Not null.
+	 * @return a {@link BitSet} in which the bit at index <code>i</code> is set if the
+	 * permission is granted for the <code>i</code>th domain object, in iteration order
+	 * @since 5.8
+	 */
+	default BitSet hasPermissions(Authentication authentication, Collection<?> targetDomainObjects, Object permission) {
+		BitSet granted = new BitSet(targetDomainObjects.size());
+		int index = 0;
+		for (Object targetDomainObject : targetDomainObjects) {
+			if (hasPermission(authentication, targetDomainObject, permission)) {
+				granted.set(index);
+			}
+			index++;
+		}
+		return granted;
+	}
+
 }
@@ -19,6 +19,7 @@ package org.springframework.security.access.expression.method;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,6 +35,11 @@ import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.log.LogMessage;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.security.access.PermissionCacheOptimizer;
 import org.springframework.security.access.expression.AbstractSecurityExpressionHandler;
@@ -144,9 +150,10 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		if (this.permissionCacheOptimizer != null) {
 			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(), filterTarget);
 		}
+		BitSet granted = hasPermissions(filterTarget, filterExpression, rootObject);
+		int index = 0;
 		for (T filterObject : filterTarget) {
-			rootObject.setFilterObject(filterObject);
-			if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
+			if (isRetained(filterObject, index++, granted, filterExpression, ctx, rootObject)) {
 				retain.add(filterObject);
 			}
 		}
@@ -164,10 +171,10 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(),
 					Arrays.asList(filterTarget));
 		}
-		for (Object filterObject : filterTarget) {
-			rootObject.setFilterObject(filterObject);
-			if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
-				retain.add(filterObject);
+		BitSet granted = hasPermissions(Arrays.asList(filterTarget), filterExpression, rootObject);
+		for (int i = 0; i < filterTarget.length; i++) {
+			if (isRetained(filterTarget[i], i, granted, filterExpression, ctx, rootObject)) {
+				retain.add(filterTarget[i]);
 			}
 		}
 		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
@@ -178,6 +185,50 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		return filtered;
 	}
 
+	private boolean isRetained(Object filterObject, int index, BitSet granted, Expression filterExpression,
+			EvaluationContext ctx, MethodSecurityExpressionOperations rootObject) {
+		if (granted != null) {
+			return granted.get(index);
+		}
+		rootObject.setFilterObject(filterObject);
+		return ExpressionUtils.evaluateAsBoolean(filterExpression, ctx);
+	}
+
+	/**
+	 * Checks the permission for all elements at once when the filter expression is of the
+	 * form <code>hasPermission(filterObject, 'permission')</code> with a literal
+	 * permission. The permission evaluator decides whether it can check the elements in
+	 * bulk; evaluators which customize the single-object check fall back to it for each
+	 * element.
+	 * @return the elements that are granted, or {@code null} if the expression has to be
+	 * evaluated for each element
+	 */
+	private BitSet hasPermissions(Collection<?> filterTarget, Expression filterExpression,
+			MethodSecurityExpressionOperations rootObject) {
+		if (!(filterExpression instanceof SpelExpression)
+				|| rootObject.getClass() != MethodSecurityExpressionRoot.class) {
+			return null;
+		}
+		SpelNode ast = ((SpelExpression) filterExpression).getAST();
+		if (!(ast instanceof MethodReference) || !"hasPermission".equals(((MethodReference) ast).getName())
+				|| ast.getChildCount() != 2) {
+			return null;
+		}
+		SpelNode target = ast.getChild(0);
+		SpelNode permission = ast.getChild(1);
+		if (!(target instanceof PropertyOrFieldReference)
+				|| !"filterObject".equals(((PropertyOrFieldReference) target).getName())
+				|| !(permission instanceof Literal)) {
+			return null;
+		}
+		Object permissionValue = ((Literal) permission).getLiteralValue().getValue();
+		if (permissionValue == null) {
+			return null;
+		}
+		this.logger.debug(LogMessage.format("Checking permission '%s' for all elements at once", permissionValue));
+		return getPermissionEvaluator().hasPermissions(rootObject.getAuthentication(), filterTarget, permissionValue);
+	}
+
 	private <K, V> Object filterMap(final Map<K, V> filterTarget, Expression filterExpression, EvaluationContext ctx,
 			MethodSecurityExpressionOperations rootObject) {
 		Map<K, V> retain = new LinkedHashMap<>(filterTarget.size());
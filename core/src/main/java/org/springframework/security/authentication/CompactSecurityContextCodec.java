@@ -0,0 +1,563 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A {@link Serializer} and {@link Deserializer} that writes a {@link SecurityContext} in
+ * a compact, versioned binary format, rather than using Java serialization or the
+ * {@link org.springframework.security.jackson2.SecurityJackson2Modules Jackson modules}.
+ * It can be configured on the repositories that store the {@code SecurityContext} in a
+ * session, for example {@code HttpSessionSecurityContextRepository}.
+ * <p>
+ * The supported types are:
+ * <ul>
+ * <li>a {@link SecurityContextImpl}, with or without an {@link Authentication}</li>
+ * <li>a {@link UsernamePasswordAuthenticationToken},
+ * {@link RememberMeAuthenticationToken} or {@link AnonymousAuthenticationToken}</li>
+ * <li>a {@code String} or {@link User} principal and a {@code String} credential</li>
+ * <li>{@link SimpleGrantedAuthority} authorities</li>
+ * </ul>
+ * Any other principal, credentials or details are written with Java serialization, but
+ * only if the serialized object graph consists of the
+ * {@link #setAllowedSerializedTypes(Collection) allowed serialized types}, which by
+ * default is only {@code WebAuthenticationDetails}. The same types are enforced when
+ * reading, so that the codec cannot be used to deserialize arbitrary classes. Values of
+ * other types, subclasses of the types above and other {@code SecurityContext},
+ * {@code Authentication} and {@code GrantedAuthority} types are rejected with a
+ * {@link NotSerializableException}, and the repositories then store the
+ * {@code SecurityContext} as is. This includes the {@code OAuth2AuthenticationToken} and
+ * {@code Saml2Authentication}, which are defined in modules this codec cannot depend on.
+ * <p>
+ * When reading, all lengths and counts are checked against the remaining input, so that
+ * corrupted or forged input cannot cause large allocations. The input stream is read to
+ * its end.
+ * <p>
+ * Each authority is only written once, even if both the {@code Authentication} and its
+ * {@link User} principal contain it. When reading, the {@link SimpleGrantedAuthority}
+ * instances are shared between the contexts read by the same codec, so that sessions of
+ * users with the same authorities do not each hold a copy of them.
+ *
+ * @since 5.8
+ */
+public final class CompactSecurityContextCodec implements Serializer<SecurityContext>, Deserializer<SecurityContext> {
+
+	private static final int VERSION = 1;
+
+	private static final int MAX_SHARED_AUTHORITIES = 1024;
+
+	private static final int NO_AUTHENTICATION = 0;
+
+	private static final int USERNAME_PASSWORD = 1;
+
+	private static final int REMEMBER_ME = 2;
+
+	private static final int ANONYMOUS = 3;
+
+	private static final int NULL_VALUE = 0;
+
+	private static final int STRING_VALUE = 1;
+
+	private static final int USER_VALUE = 2;
+
+	private static final int SERIALIZED_VALUE = 3;
+
+	private static final int ENABLED = 1;
+
+	private static final int ACCOUNT_NON_EXPIRED = 1 << 1;
+
+	private static final int CREDENTIALS_NON_EXPIRED = 1 << 2;
+
+	private static final int ACCOUNT_NON_LOCKED = 1 << 3;
+
+	private static final Set<String> DEFAULT_ALLOWED_SERIALIZED_TYPES = Collections
+			.singleton("org.springframework.security.web.authentication.WebAuthenticationDetails");
+
+	private static final Constructor<RememberMeAuthenticationToken> REMEMBER_ME_CONSTRUCTOR = keyHashConstructor(
+			RememberMeAuthenticationToken.class);
+
+	private static final Constructor<AnonymousAuthenticationToken> ANONYMOUS_CONSTRUCTOR = keyHashConstructor(
+			AnonymousAuthenticationToken.class);
+
+	private final Map<String, GrantedAuthority> sharedAuthorities = new ConcurrentHashMap<>();
+
+	private final ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+
+	private Set<String> allowedSerializedTypes = DEFAULT_ALLOWED_SERIALIZED_TYPES;
+
+	/**
+	 * Sets the names of the classes that principals, credentials and details of other
+	 * types than the natively supported ones may consist of. They are written with Java
+	 * serialization, and every class in the serialized object graph, including
+	 * superclasses, must be listed. The default is
+	 * {@code org.springframework.security.web.authentication.WebAuthenticationDetails}.
+	 * @param allowedSerializedTypes the fully qualified class names. Cannot be null.
+	 */
+	public void setAllowedSerializedTypes(Collection<String> allowedSerializedTypes) {
+		Assert.notNull(allowedSerializedTypes, "allowedSerializedTypes cannot be null");
+		this.allowedSerializedTypes = Collections.unmodifiableSet(new HashSet<>(allowedSerializedTypes));
+	}
+
+	@Override
+	public void serialize(SecurityContext context, OutputStream outputStream) throws IOException {
+		if (context.getClass() != SecurityContextImpl.class) {
+			throw new NotSerializableException(context.getClass().getName());
+		}
+		DataOutputStream output = new DataOutputStream(outputStream);
+		output.writeByte(VERSION);
+		writeAuthentication(context.getAuthentication(), new Writer(output));
+		output.flush();
+	}
+
+	private void writeAuthentication(Authentication authentication, Writer writer) throws IOException {
+		if (authentication == null) {
+			writer.writeVarInt(NO_AUTHENTICATION);
+			return;
+		}
+		Class<?> type = authentication.getClass();
+		if (type == UsernamePasswordAuthenticationToken.class) {
+			writer.writeVarInt(USERNAME_PASSWORD);
+			writer.output.writeBoolean(authentication.isAuthenticated());
+			writeValue(authentication.getCredentials(), writer);
+		}
+		else if (type == RememberMeAuthenticationToken.class) {
+			writer.writeVarInt(REMEMBER_ME);
+			writer.output.writeBoolean(authentication.isAuthenticated());
+			writer.output.writeInt(((RememberMeAuthenticationToken) authentication).getKeyHash());
+		}
+		else if (type == AnonymousAuthenticationToken.class) {
+			writer.writeVarInt(ANONYMOUS);
+			writer.output.writeBoolean(authentication.isAuthenticated());
+			writer.output.writeInt(((AnonymousAuthenticationToken) authentication).getKeyHash());
+		}
+		else {
+			throw new NotSerializableException(type.getName());
+		}
+		writeValue(authentication.getPrincipal(), writer);
+		writeAuthorities(authentication.getAuthorities(), writer);
+		writeValue(authentication.getDetails(), writer);
+	}
+
+	private void writeValue(Object value, Writer writer) throws IOException {
+		if (value == null) {
+			writer.writeVarInt(NULL_VALUE);
+		}
+		else if (value instanceof String) {
+			writer.writeVarInt(STRING_VALUE);
+			writer.writeString((String) value);
+		}
+		else if (value.getClass() == User.class) {
+			User user = (User) value;
+			writer.writeVarInt(USER_VALUE);
+			writer.writeString(user.getUsername());
+			writer.writeString(user.getPassword());
+			int flags = (user.isEnabled() ? ENABLED : 0) | (user.isAccountNonExpired() ? ACCOUNT_NON_EXPIRED : 0)
+					| (user.isCredentialsNonExpired() ? CREDENTIALS_NON_EXPIRED : 0)
+					| (user.isAccountNonLocked() ? ACCOUNT_NON_LOCKED : 0);
+			writer.output.writeByte(flags);
+			writeAuthorities(user.getAuthorities(), writer);
+		}
+		else if (value instanceof Serializable) {
+			byte[] serialized = serializeAllowedTypes(value);
+			writer.writeVarInt(SERIALIZED_VALUE);
+			writer.writeVarInt(serialized.length);
+			writer.output.write(serialized);
+		}
+		else {
+			throw new NotSerializableException(value.getClass().getName());
+		}
+	}
+
+	private void writeAuthorities(Collection<? extends GrantedAuthority> authorities, Writer writer)
+			throws IOException {
+		writer.writeVarInt(authorities.size());
+		for (GrantedAuthority authority : authorities) {
+			if (authority.getClass() != SimpleGrantedAuthority.class) {
+				throw new NotSerializableException(authority.getClass().getName());
+			}
+			writer.writeAuthority(authority.getAuthority());
+		}
+	}
+
+	private byte[] serializeAllowedTypes(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (ObjectOutputStream output = new AllowedTypesObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public SecurityContext deserialize(InputStream inputStream) throws IOException {
+		ByteArrayInputStream bytes = (inputStream instanceof ByteArrayInputStream) ? (ByteArrayInputStream) inputStream
+				: new ByteArrayInputStream(StreamUtils.copyToByteArray(inputStream));
+		DataInputStream input = new DataInputStream(bytes);
+		int version = input.readUnsignedByte();
+		if (version != VERSION) {
+			throw new StreamCorruptedException("Unsupported format version " + version);
+		}
+		try {
+			return new SecurityContextImpl(readAuthentication(new Reader(bytes, input)));
+		}
+		catch (IllegalArgumentException | ClassCastException ex) {
+			throw new StreamCorruptedException("Invalid SecurityContext: " + ex.getMessage());
+		}
+	}
+
+	private Authentication readAuthentication(Reader reader) throws IOException {
+		int type = reader.readVarInt();
+		if (type == NO_AUTHENTICATION) {
+			return null;
+		}
+		boolean authenticated = reader.input.readBoolean();
+		AbstractAuthenticationToken authentication;
+		if (type == USERNAME_PASSWORD) {
+			Object credentials = readValue(reader);
+			authentication = UsernamePasswordAuthenticationToken.authenticated(readValue(reader), credentials,
+					readAuthorities(reader));
+		}
+		else if (type == REMEMBER_ME) {
+			int keyHash = reader.input.readInt();
+			authentication = newKeyHashToken(REMEMBER_ME_CONSTRUCTOR, keyHash, readValue(reader),
+					readAuthorities(reader));
+		}
+		else if (type == ANONYMOUS) {
+			int keyHash = reader.input.readInt();
+			authentication = newKeyHashToken(ANONYMOUS_CONSTRUCTOR, keyHash, readValue(reader),
+					readAuthorities(reader));
+		}
+		else {
+			throw new StreamCorruptedException("Unknown Authentication type " + type);
+		}
+		if (!authenticated) {
+			authentication.setAuthenticated(false);
+		}
+		authentication.setDetails(readValue(reader));
+		return authentication;
+	}
+
+	private Object readValue(Reader reader) throws IOException {
+		int type = reader.readVarInt();
+		if (type == NULL_VALUE) {
+			return null;
+		}
+		if (type == STRING_VALUE) {
+			return reader.readString();
+		}
+		if (type == USER_VALUE) {
+			String username = reader.readString();
+			String password = reader.readString();
+			int flags = reader.input.readUnsignedByte();
+			User user = new User(username, (password != null) ? password : "", (flags & ENABLED) != 0,
+					(flags & ACCOUNT_NON_EXPIRED) != 0, (flags & CREDENTIALS_NON_EXPIRED) != 0,
+					(flags & ACCOUNT_NON_LOCKED) != 0, readAuthorities(reader));
+			if (password == null) {
+				user.eraseCredentials();
+			}
+			return user;
+		}
+		if (type == SERIALIZED_VALUE) {
+			byte[] serialized = new byte[reader.readLength()];
+			reader.input.readFully(serialized);
+			return deserializeAllowedTypes(serialized);
+		}
+		throw new StreamCorruptedException("Unknown value type " + type);
+	}
+
+	private Object deserializeAllowedTypes(byte[] serialized) throws IOException {
+		try (ObjectInputStream input = new AllowedTypesObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return input.readObject();
+		}
+		catch (ClassNotFoundException ex) {
+			throw new InvalidClassException(ex.getMessage());
+		}
+	}
+
+	private List<GrantedAuthority> readAuthorities(Reader reader) throws IOException {
+		// every authority takes at least one byte
+		int size = reader.readLength();
+		List<GrantedAuthority> authorities = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			authorities.add(reader.readAuthority());
+		}
+		return authorities;
+	}
+
+	private GrantedAuthority sharedAuthority(String role) {
+		GrantedAuthority authority = this.sharedAuthorities.get(role);
+		if (authority != null) {
+			return authority;
+		}
+		authority = new SimpleGrantedAuthority(role);
+		if (this.sharedAuthorities.size() < MAX_SHARED_AUTHORITIES) {
+			GrantedAuthority existing = this.sharedAuthorities.putIfAbsent(role, authority);
+			return (existing != null) ? existing : authority;
+		}
+		return authority;
+	}
+
+	private void checkAllowedSerializedType(String className) throws NotSerializableException {
+		if (!this.allowedSerializedTypes.contains(className)) {
+			throw new NotSerializableException(className + " is not an allowed serialized type");
+		}
+	}
+
+	/**
+	 * The constructors that restore a token from the hash of its key, which are private
+	 * so that they are only used for deserialization, as by the Jackson mixins.
+	 */
+	private static <T extends AbstractAuthenticationToken> Constructor<T> keyHashConstructor(Class<T> type) {
+		try {
+			return ReflectionUtils.accessibleConstructor(type, Integer.class, Object.class, Collection.class);
+		}
+		catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static AbstractAuthenticationToken newKeyHashToken(
+			Constructor<? extends AbstractAuthenticationToken> constructor, int keyHash, Object principal,
+			List<GrantedAuthority> authorities) {
+		try {
+			return constructor.newInstance(keyHash, principal, authorities);
+		}
+		catch (ReflectiveOperationException ex) {
+			if (ex.getCause() instanceof IllegalArgumentException) {
+				throw (IllegalArgumentException) ex.getCause();
+			}
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Only writes the allowed serialized types.
+	 */
+	private final class AllowedTypesObjectOutputStream extends ObjectOutputStream {
+
+		AllowedTypesObjectOutputStream(OutputStream output) throws IOException {
+			super(output);
+		}
+
+		@Override
+		protected void annotateClass(Class<?> type) throws IOException {
+			checkAllowedSerializedType(type.getName());
+		}
+
+		@Override
+		protected void annotateProxyClass(Class<?> type) throws IOException {
+			throw new NotSerializableException(type.getName());
+		}
+
+	}
+
+	/**
+	 * Only reads the allowed serialized types.
+	 */
+	private final class AllowedTypesObjectInputStream extends ConfigurableObjectInputStream {
+
+		AllowedTypesObjectInputStream(InputStream input) throws IOException {
+			super(input, CompactSecurityContextCodec.this.classLoader);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass classDesc) throws IOException, ClassNotFoundException {
+			if (!CompactSecurityContextCodec.this.allowedSerializedTypes.contains(classDesc.getName())) {
+				throw new InvalidClassException(classDesc.getName(), "Not an allowed serialized type");
+			}
+			return super.resolveClass(classDesc);
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("Proxy classes are not allowed");
+		}
+
+	}
+
+	/**
+	 * Writes the primitive values of the format. An authority that was already written is
+	 * replaced by its index in the stream.
+	 */
+	private static final class Writer {
+
+		private final DataOutputStream output;
+
+		private Map<String, Integer> authorityIndexes;
+
+		Writer(DataOutputStream output) {
+			this.output = output;
+		}
+
+		void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				this.output.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.output.writeByte(value);
+		}
+
+		/**
+		 * Writes a {@code String} as its UTF-8 length plus one, followed by its UTF-8
+		 * bytes, so that a length of {@code 0} stands for {@code null}.
+		 */
+		void writeString(String value) throws IOException {
+			if (value == null) {
+				writeVarInt(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			this.output.write(bytes);
+		}
+
+		/**
+		 * Writes {@code 0} followed by the authority when it is written for the first
+		 * time, or its index plus one otherwise.
+		 */
+		void writeAuthority(String authority) throws IOException {
+			if (this.authorityIndexes == null) {
+				this.authorityIndexes = new HashMap<>();
+			}
+			Integer index = this.authorityIndexes.get(authority);
+			if (index != null) {
+				writeVarInt(index + 1);
+				return;
+			}
+			this.authorityIndexes.put(authority, this.authorityIndexes.size());
+			writeVarInt(0);
+			writeString(authority);
+		}
+
+	}
+
+	/**
+	 * Reads the primitive values written by {@link Writer}.
+	 */
+	private final class Reader {
+
+		private final ByteArrayInputStream bytes;
+
+		private final DataInputStream input;
+
+		private final List<GrantedAuthority> authorities = new ArrayList<>();
+
+		Reader(ByteArrayInputStream bytes, DataInputStream input) {
+			this.bytes = bytes;
+			this.input = input;
+		}
+
+		int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = this.input.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					if (value < 0) {
+						break;
+					}
+					return value;
+				}
+			}
+			throw new StreamCorruptedException("Invalid length");
+		}
+
+		/**
+		 * Reads a length or count of items that take at least one byte each, which cannot
+		 * exceed the remaining input.
+		 */
+		int readLength() throws IOException {
+			int length = readVarInt();
+			checkRemaining(length);
+			return length;
+		}
+
+		private void checkRemaining(int length) throws StreamCorruptedException {
+			if (length > this.bytes.available()) {
+				throw new StreamCorruptedException("Invalid length " + length);
+			}
+		}
+
+		String readString() throws IOException {
+			int length = readVarInt();
+			if (length == 0) {
+				return null;
+			}
+			checkRemaining(length - 1);
+			byte[] bytes = new byte[length - 1];
+			this.input.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		GrantedAuthority readAuthority() throws IOException {
+			int index = readVarInt();
+			if (index > this.authorities.size()) {
+				throw new StreamCorruptedException("Invalid authority index " + index);
+			}
+			if (index > 0) {
+				return this.authorities.get(index - 1);
+			}
+			String role = readString();
+			if (role == null) {
+				throw new StreamCorruptedException("Invalid authority");
+			}
+			GrantedAuthority authority = sharedAuthority(role);
+			this.authorities.add(authority);
+			return authority;
+		}
+
+	}
+
+}
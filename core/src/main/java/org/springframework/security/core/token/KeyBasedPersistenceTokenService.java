@@ -138,7 +138,7 @@ public class KeyBasedPersistenceTokenService implements TokenService, Initializi
 	private String generatePseudoRandomNumber() {
 		byte[] randomBytes = new byte[this.pseudoRandomNumberBytes];
 		this.secureRandom.nextBytes(randomBytes);
-		return new String(Hex.encode(randomBytes));
+		return Hex.encodeToString(randomBytes);
 	}
 
 	private String computeServerSecretApplicableAt(long time) {
@@ -73,7 +73,7 @@ public abstract class Sha512DigestUtils {
 	 * @return SHA digest as a hex string
 	 */
 	public static String shaHex(byte[] data) {
-		return new String(Hex.encode(sha(data)));
+		return Hex.encodeToString(sha(data));
 	}
 
 	/**
@@ -82,7 +82,7 @@ public abstract class Sha512DigestUtils {
 	 * @return SHA digest as a hex string
 	 */
 	public static String shaHex(String data) {
-		return new String(Hex.encode(sha(data)));
+		return Hex.encodeToString(sha(data));
 	}
 
 }
@@ -23,7 +23,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.annotation.JacksonAnnotation;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -197,6 +199,9 @@ public final class SecurityJackson2Modules {
 	 * IllegalStateException if the class being looked up is not in the allowlist, does
 	 * not provide an explicit mixin, and is not annotated with Jackson mappings. See
 	 * https://github.com/spring-projects/spring-security/issues/4370
+	 * <p>
+	 * The types that are allowed are remembered by id, so that the class lookup and the
+	 * allowlist checks are only done the first time an id is encountered.
 	 */
 	static class AllowlistTypeIdResolver implements TypeIdResolver {
 
@@ -221,6 +226,8 @@ public final class SecurityJackson2Modules {
 
 		private final TypeIdResolver delegate;
 
+		private final Map<String, JavaType> allowedTypes = new ConcurrentHashMap<>();
+
 		AllowlistTypeIdResolver(TypeIdResolver delegate) {
 			this.delegate = delegate;
 		}
@@ -247,21 +254,16 @@ public final class SecurityJackson2Modules {
 
 		@Override
 		public JavaType typeFromId(DatabindContext context, String id) throws IOException {
-			DeserializationConfig config = (DeserializationConfig) context.getConfig();
-			JavaType result = this.delegate.typeFromId(context, id);
-			String className = result.getRawClass().getName();
-			if (isInAllowlist(className)) {
-				return result;
+			JavaType allowed = this.allowedTypes.get(id);
+			if (allowed != null) {
+				return allowed;
 			}
-			boolean isExplicitMixin = config.findMixInClassFor(result.getRawClass()) != null;
-			if (isExplicitMixin) {
-				return result;
-			}
-			JacksonAnnotation jacksonAnnotation = AnnotationUtils.findAnnotation(result.getRawClass(),
-					JacksonAnnotation.class);
-			if (jacksonAnnotation != null) {
+			JavaType result = this.delegate.typeFromId(context, id);
+			if (isAllowed(context, result)) {
+				this.allowedTypes.put(id, result);
 				return result;
 			}
+			String className = result.getRawClass().getName();
 			throw new IllegalArgumentException("The class with " + id + " and name of " + className
 					+ " is not in the allowlist. "
 					+ "If you believe this class is safe to deserialize, please provide an explicit mapping using Jackson annotations or by providing a Mixin. "
@@ -269,6 +271,20 @@ public final class SecurityJackson2Modules {
 					+ "See https://github.com/spring-projects/spring-security/issues/4370 for details");
 		}
 
+		private boolean isAllowed(DatabindContext context, JavaType type) {
+			if (isInAllowlist(type.getRawClass().getName())) {
+				return true;
+			}
+			DeserializationConfig config = (DeserializationConfig) context.getConfig();
+			boolean isExplicitMixin = config.findMixInClassFor(type.getRawClass()) != null;
+			if (isExplicitMixin) {
+				return true;
+			}
+			JacksonAnnotation jacksonAnnotation = AnnotationUtils.findAnnotation(type.getRawClass(),
+					JacksonAnnotation.class);
+			return jacksonAnnotation != null;
+		}
+
 		private boolean isInAllowlist(String id) {
 			return ALLOWLIST_CLASS_NAMES.contains(id);
 		}
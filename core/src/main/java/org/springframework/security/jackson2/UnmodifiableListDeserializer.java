@@ -23,11 +23,11 @@ import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 /**
  * Custom deserializer for {@link UnmodifiableListDeserializer}.
@@ -36,25 +36,31 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
  * @since 5.0.2
  * @see UnmodifiableListMixin
  */
-class UnmodifiableListDeserializer extends JsonDeserializer<List> {
+class UnmodifiableListDeserializer extends JsonDeserializer<List> implements ResolvableDeserializer {
+
+	private JsonDeserializer<Object> objectDeserializer;
+
+	@Override
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.objectDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+	}
 
 	@Override
 	public List deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode node = mapper.readTree(jp);
 		List<Object> result = new ArrayList<>();
-		if (node != null) {
-			if (node instanceof ArrayNode) {
-				ArrayNode arrayNode = (ArrayNode) node;
-				for (JsonNode elementNode : arrayNode) {
-					result.add(mapper.readValue(elementNode.traverse(mapper), Object.class));
-				}
-			}
-			else {
-				result.add(mapper.readValue(node.traverse(mapper), Object.class));
+		if (jp.isExpectedStartArrayToken()) {
+			while (jp.nextToken() != JsonToken.END_ARRAY) {
+				result.add(readElement(jp, ctxt));
 			}
 		}
+		else {
+			result.add(readElement(jp, ctxt));
+		}
 		return Collections.unmodifiableList(result);
 	}
 
+	private Object readElement(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		return (jp.currentToken() != JsonToken.VALUE_NULL) ? this.objectDeserializer.deserialize(jp, ctxt) : null;
+	}
+
 }
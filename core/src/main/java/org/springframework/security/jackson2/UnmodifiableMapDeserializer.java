@@ -22,10 +22,11 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 /**
  * Custom deserializer for {@link UnmodifiableMapMixin}.
@@ -34,20 +35,26 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * @since 5.7
  * @see UnmodifiableMapMixin
  */
-class UnmodifiableMapDeserializer extends JsonDeserializer<Map<?, ?>> {
+class UnmodifiableMapDeserializer extends JsonDeserializer<Map<?, ?>> implements ResolvableDeserializer {
+
+	private JsonDeserializer<Object> objectDeserializer;
 
 	@Override
-	public Map<?, ?> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode node = mapper.readTree(jp);
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.objectDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+	}
 
+	@Override
+	public Map<?, ?> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
 		Map<String, Object> result = new LinkedHashMap<>();
-		if (node != null && node.isObject()) {
-			Iterable<Map.Entry<String, JsonNode>> fields = node::fields;
-			for (Map.Entry<String, JsonNode> field : fields) {
-				result.put(field.getKey(), mapper.readValue(field.getValue().traverse(mapper), Object.class));
-			}
+		JsonToken current = jp.isExpectedStartObjectToken() ? jp.nextToken() : jp.currentToken();
+		for (; current == JsonToken.FIELD_NAME; current = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			JsonToken value = jp.nextToken();
+			result.put(field, (value != JsonToken.VALUE_NULL) ? this.objectDeserializer.deserialize(jp, ctxt) : null);
 		}
+		// a value that is not an object results in an empty map
+		jp.skipChildren();
 		return Collections.unmodifiableMap(result);
 	}
 
@@ -23,11 +23,11 @@ import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 /**
  * Custom deserializer for {@link UnmodifiableSetMixin}.
@@ -36,25 +36,31 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
  * @since 4.2
  * @see UnmodifiableSetMixin
  */
-class UnmodifiableSetDeserializer extends JsonDeserializer<Set> {
+class UnmodifiableSetDeserializer extends JsonDeserializer<Set> implements ResolvableDeserializer {
+
+	private JsonDeserializer<Object> objectDeserializer;
+
+	@Override
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.objectDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+	}
 
 	@Override
 	public Set deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode node = mapper.readTree(jp);
 		Set<Object> resultSet = new HashSet<>();
-		if (node != null) {
-			if (node instanceof ArrayNode) {
-				ArrayNode arrayNode = (ArrayNode) node;
-				for (JsonNode elementNode : arrayNode) {
-					resultSet.add(mapper.readValue(elementNode.traverse(mapper), Object.class));
-				}
-			}
-			else {
-				resultSet.add(mapper.readValue(node.traverse(mapper), Object.class));
+		if (jp.isExpectedStartArrayToken()) {
+			while (jp.nextToken() != JsonToken.END_ARRAY) {
+				resultSet.add(readElement(jp, ctxt));
 			}
 		}
+		else {
+			resultSet.add(readElement(jp, ctxt));
+		}
 		return Collections.unmodifiableSet(resultSet);
 	}
 
+	private Object readElement(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		return (jp.currentToken() != JsonToken.VALUE_NULL) ? this.objectDeserializer.deserialize(jp, ctxt) : null;
+	}
+
 }
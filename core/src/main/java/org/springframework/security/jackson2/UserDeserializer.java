@@ -21,12 +21,12 @@ import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -40,11 +40,19 @@ import org.springframework.security.core.userdetails.User;
  * @since 4.2
  * @see UserMixin
  */
-class UserDeserializer extends JsonDeserializer<User> {
+class UserDeserializer extends JsonDeserializer<User> implements ResolvableDeserializer {
 
 	private static final TypeReference<Set<SimpleGrantedAuthority>> SIMPLE_GRANTED_AUTHORITY_SET = new TypeReference<Set<SimpleGrantedAuthority>>() {
 	};
 
+	private JsonDeserializer<Object> authoritiesDeserializer;
+
+	@Override
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.authoritiesDeserializer = ctxt
+				.findRootValueDeserializer(ctxt.getTypeFactory().constructType(SIMPLE_GRANTED_AUTHORITY_SET));
+	}
+
 	/**
 	 * This method will create {@link User} object. It will ensure successful object
 	 * creation even if password key is null in serialized json, because credentials may
@@ -58,27 +66,67 @@ class UserDeserializer extends JsonDeserializer<User> {
 	 */
 	@Override
 	public User deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode jsonNode = mapper.readTree(jp);
-		Set<? extends GrantedAuthority> authorities = mapper.convertValue(jsonNode.get("authorities"),
-				SIMPLE_GRANTED_AUTHORITY_SET);
-		JsonNode passwordNode = readJsonNode(jsonNode, "password");
-		String username = readJsonNode(jsonNode, "username").asText();
-		String password = passwordNode.asText("");
-		boolean enabled = readJsonNode(jsonNode, "enabled").asBoolean();
-		boolean accountNonExpired = readJsonNode(jsonNode, "accountNonExpired").asBoolean();
-		boolean credentialsNonExpired = readJsonNode(jsonNode, "credentialsNonExpired").asBoolean();
-		boolean accountNonLocked = readJsonNode(jsonNode, "accountNonLocked").asBoolean();
-		User result = new User(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked,
-				authorities);
-		if (passwordNode.asText(null) == null) {
+		Set<? extends GrantedAuthority> authorities = null;
+		String username = "";
+		String password = null;
+		boolean enabled = false;
+		boolean accountNonExpired = false;
+		boolean credentialsNonExpired = false;
+		boolean accountNonLocked = false;
+		JsonToken current = jp.isExpectedStartObjectToken() ? jp.nextToken() : jp.currentToken();
+		for (; current == JsonToken.FIELD_NAME; current = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			JsonToken value = jp.nextToken();
+			if ("username".equals(field)) {
+				username = readText(jp, value);
+			}
+			else if ("password".equals(field)) {
+				password = (value != JsonToken.VALUE_NULL) ? readText(jp, value) : null;
+			}
+			else if ("enabled".equals(field)) {
+				enabled = jp.getValueAsBoolean();
+			}
+			else if ("accountNonExpired".equals(field)) {
+				accountNonExpired = jp.getValueAsBoolean();
+			}
+			else if ("credentialsNonExpired".equals(field)) {
+				credentialsNonExpired = jp.getValueAsBoolean();
+			}
+			else if ("accountNonLocked".equals(field)) {
+				accountNonLocked = jp.getValueAsBoolean();
+			}
+			else if ("authorities".equals(field)) {
+				authorities = (value != JsonToken.VALUE_NULL) ? readAuthorities(jp, ctxt) : null;
+			}
+			else {
+				jp.skipChildren();
+			}
+		}
+		User result = new User(username, (password != null) ? password : "", enabled, accountNonExpired,
+				credentialsNonExpired, accountNonLocked, authorities);
+		if (password == null) {
 			result.eraseCredentials();
 		}
 		return result;
 	}
 
-	private JsonNode readJsonNode(JsonNode jsonNode, String field) {
-		return jsonNode.has(field) ? jsonNode.get(field) : MissingNode.getInstance();
+	@SuppressWarnings("unchecked")
+	private Set<SimpleGrantedAuthority> readAuthorities(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		try {
+			return (Set<SimpleGrantedAuthority>) this.authoritiesDeserializer.deserialize(jp, ctxt);
+		}
+		catch (JsonMappingException ex) {
+			// invalid authorities are reported like ObjectMapper.convertValue does
+			throw new IllegalArgumentException(ex.getMessage(), ex);
+		}
+	}
+
+	private String readText(JsonParser jp, JsonToken value) throws IOException {
+		if (value.isScalarValue()) {
+			return jp.getText();
+		}
+		jp.skipChildren();
+		return "";
 	}
 
 }
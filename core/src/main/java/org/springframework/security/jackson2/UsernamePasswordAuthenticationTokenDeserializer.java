@@ -19,16 +19,14 @@ package org.springframework.security.jackson2;
 import java.io.IOException;
 import java.util.List;
 
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
@@ -48,17 +46,28 @@ import org.springframework.security.core.GrantedAuthority;
  * @since 4.2
  * @see UsernamePasswordAuthenticationTokenMixin
  */
-class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<UsernamePasswordAuthenticationToken> {
+class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<UsernamePasswordAuthenticationToken>
+		implements ResolvableDeserializer {
 
 	private static final TypeReference<List<GrantedAuthority>> GRANTED_AUTHORITY_LIST = new TypeReference<List<GrantedAuthority>>() {
 	};
 
-	private static final TypeReference<Object> OBJECT = new TypeReference<Object>() {
-	};
+	private JsonDeserializer<Object> objectDeserializer;
+
+	private JsonDeserializer<Object> authoritiesDeserializer;
+
+	@Override
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.objectDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+		this.authoritiesDeserializer = ctxt
+				.findRootValueDeserializer(ctxt.getTypeFactory().constructType(GRANTED_AUTHORITY_LIST));
+	}
 
 	/**
 	 * This method construct {@link UsernamePasswordAuthenticationToken} object from
-	 * serialized json.
+	 * serialized json. The properties are read as they are streamed from the parser
+	 * rather than from an intermediate tree, and the nested values are read with the
+	 * deserializers found when this deserializer was resolved.
 	 * @param jp the JsonParser
 	 * @param ctxt the DeserializationContext
 	 * @return the user
@@ -66,48 +75,64 @@ class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<U
 	 * @throws JsonProcessingException if an error during JSON processing occurs
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public UsernamePasswordAuthenticationToken deserialize(JsonParser jp, DeserializationContext ctxt)
 			throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode jsonNode = mapper.readTree(jp);
-		Boolean authenticated = readJsonNode(jsonNode, "authenticated").asBoolean();
-		JsonNode principalNode = readJsonNode(jsonNode, "principal");
-		Object principal = getPrincipal(mapper, principalNode);
-		JsonNode credentialsNode = readJsonNode(jsonNode, "credentials");
-		Object credentials = getCredentials(credentialsNode);
-		List<GrantedAuthority> authorities = mapper.readValue(readJsonNode(jsonNode, "authorities").traverse(mapper),
-				GRANTED_AUTHORITY_LIST);
+		boolean authenticated = false;
+		Object principal = "";
+		Object credentials = null;
+		List<GrantedAuthority> authorities = null;
+		Object details = null;
+		JsonToken current = jp.isExpectedStartObjectToken() ? jp.nextToken() : jp.currentToken();
+		for (; current == JsonToken.FIELD_NAME; current = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			JsonToken value = jp.nextToken();
+			if ("authenticated".equals(field)) {
+				authenticated = jp.getValueAsBoolean();
+			}
+			else if ("principal".equals(field)) {
+				principal = getPrincipal(jp, ctxt, value);
+			}
+			else if ("credentials".equals(field)) {
+				credentials = getCredentials(jp, value);
+			}
+			else if ("authorities".equals(field)) {
+				authorities = (List<GrantedAuthority>) this.authoritiesDeserializer.deserialize(jp, ctxt);
+			}
+			else if ("details".equals(field)) {
+				details = (value != JsonToken.VALUE_NULL) ? this.objectDeserializer.deserialize(jp, ctxt) : null;
+			}
+			else {
+				jp.skipChildren();
+			}
+		}
 		UsernamePasswordAuthenticationToken token = (!authenticated)
 				? UsernamePasswordAuthenticationToken.unauthenticated(principal, credentials)
 				: UsernamePasswordAuthenticationToken.authenticated(principal, credentials, authorities);
-		JsonNode detailsNode = readJsonNode(jsonNode, "details");
-		if (detailsNode.isNull() || detailsNode.isMissingNode()) {
-			token.setDetails(null);
-		}
-		else {
-			Object details = mapper.readValue(detailsNode.toString(), OBJECT);
-			token.setDetails(details);
-		}
+		token.setDetails(details);
 		return token;
 	}
 
-	private Object getCredentials(JsonNode credentialsNode) {
-		if (credentialsNode.isNull() || credentialsNode.isMissingNode()) {
+	private Object getCredentials(JsonParser jp, JsonToken value) throws IOException {
+		if (value == JsonToken.VALUE_NULL) {
 			return null;
 		}
-		return credentialsNode.asText();
-	}
-
-	private Object getPrincipal(ObjectMapper mapper, JsonNode principalNode)
-			throws IOException, JsonParseException, JsonMappingException {
-		if (principalNode.isObject()) {
-			return mapper.readValue(principalNode.traverse(mapper), Object.class);
+		if (value.isScalarValue()) {
+			return jp.getText();
 		}
-		return principalNode.asText();
+		jp.skipChildren();
+		return "";
 	}
 
-	private JsonNode readJsonNode(JsonNode jsonNode, String field) {
-		return jsonNode.has(field) ? jsonNode.get(field) : MissingNode.getInstance();
+	private Object getPrincipal(JsonParser jp, DeserializationContext ctxt, JsonToken value) throws IOException {
+		if (value == JsonToken.START_OBJECT) {
+			return this.objectDeserializer.deserialize(jp, ctxt);
+		}
+		if (value.isScalarValue()) {
+			return jp.getText();
+		}
+		jp.skipChildren();
+		return "";
 	}
 
 }
@@ -16,6 +16,9 @@
 
 package org.springframework.security.access.expression.method;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +38,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.TypedValue;
+import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.expression.SecurityExpressionRoot;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.core.Authentication;
@@ -43,9 +47,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -172,6 +178,41 @@ public class DefaultMethodSecurityExpressionHandlerTests {
 		verify(upstream).close();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void filterWhenHasPermissionOnFilterObjectThenPermissionsCheckedAtOnce() {
+		setupMocks();
+		PermissionEvaluator permissionEvaluator = mock(PermissionEvaluator.class);
+		BitSet granted = new BitSet();
+		granted.set(1);
+		given(permissionEvaluator.hasPermissions(any(), any(), eq("read"))).willReturn(granted);
+		this.handler.setPermissionEvaluator(permissionEvaluator);
+		Expression expression = this.handler.getExpressionParser()
+				.parseExpression("hasPermission(filterObject, 'read')");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		List<String> list = new ArrayList<>(Arrays.asList("1", "2", "3"));
+		assertThat((List<String>) this.handler.filter(list, expression, context)).containsExactly("2");
+		assertThat((String[]) this.handler.filter(new String[] { "1", "2", "3" }, expression, context))
+				.containsExactly("2");
+		verify(permissionEvaluator, never()).hasPermission(any(), any(), any());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void filterWhenOtherExpressionThenEvaluatedForEachElement() {
+		setupMocks();
+		PermissionEvaluator permissionEvaluator = mock(PermissionEvaluator.class);
+		given(permissionEvaluator.hasPermission(any(), any(), eq("read")))
+				.willAnswer((invocation) -> "2".equals(invocation.getArgument(1)));
+		this.handler.setPermissionEvaluator(permissionEvaluator);
+		Expression expression = this.handler.getExpressionParser()
+				.parseExpression("hasPermission(filterObject, 'read') or filterObject == '3'");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		List<String> list = new ArrayList<>(Arrays.asList("1", "2", "3"));
+		assertThat((List<String>) this.handler.filter(list, expression, context)).containsExactly("2", "3");
+		verify(permissionEvaluator, never()).hasPermissions(any(), any(), any());
+	}
+
 	@Test
 	public void createEvaluationContextSupplierAuthentication() {
 		setupMocks();
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.io.EOFException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.context.TransientSecurityContext;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link CompactSecurityContextCodec}.
+ */
+public class CompactSecurityContextCodecTests {
+
+	private final CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+
+	@Test
+	public void deserializeWhenEmptyContextThenEqual() throws Exception {
+		SecurityContext context = new SecurityContextImpl();
+		assertThat(roundTrip(context)).isEqualTo(context);
+	}
+
+	@Test
+	public void deserializeWhenUsernamePasswordWithUserThenEqual() throws Exception {
+		User user = new User("user", "password", true, false, true, false,
+				AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+		UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(user,
+				"password", user.getAuthorities());
+		authentication.setDetails(new TestDetails("127.0.0.1"));
+		this.codec.setAllowedSerializedTypes(Collections.singleton(TestDetails.class.getName()));
+		SecurityContext context = roundTrip(new SecurityContextImpl(authentication));
+		assertThat(context).isEqualTo(new SecurityContextImpl(authentication));
+		User principal = (User) context.getAuthentication().getPrincipal();
+		assertThat(principal.getPassword()).isEqualTo("password");
+		assertThat(principal.isEnabled()).isTrue();
+		assertThat(principal.isAccountNonExpired()).isFalse();
+		assertThat(principal.isCredentialsNonExpired()).isTrue();
+		assertThat(principal.isAccountNonLocked()).isFalse();
+		assertThat(principal.getAuthorities()).isEqualTo(user.getAuthorities());
+	}
+
+	@Test
+	public void deserializeWhenCredentialsErasedThenErased() throws Exception {
+		User user = new User("user", "password", AuthorityUtils.createAuthorityList("ROLE_USER"));
+		UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(user,
+				"password", user.getAuthorities());
+		authentication.eraseCredentials();
+		Authentication result = roundTrip(new SecurityContextImpl(authentication)).getAuthentication();
+		assertThat(result.getCredentials()).isNull();
+		assertThat(((User) result.getPrincipal()).getPassword()).isNull();
+	}
+
+	@Test
+	public void deserializeWhenUnauthenticatedThenUnauthenticated() throws Exception {
+		Authentication authentication = UsernamePasswordAuthenticationToken.unauthenticated("user", "password");
+		Authentication result = roundTrip(new SecurityContextImpl(authentication)).getAuthentication();
+		assertThat(result).isEqualTo(authentication);
+		assertThat(result.isAuthenticated()).isFalse();
+	}
+
+	@Test
+	public void deserializeWhenRememberMeThenKeyHashRetained() throws Exception {
+		RememberMeAuthenticationToken authentication = new RememberMeAuthenticationToken("key", "user",
+				AuthorityUtils.createAuthorityList("ROLE_USER"));
+		Authentication result = roundTrip(new SecurityContextImpl(authentication)).getAuthentication();
+		assertThat(result).isEqualTo(authentication);
+		assertThat(((RememberMeAuthenticationToken) result).getKeyHash()).isEqualTo("key".hashCode());
+	}
+
+	@Test
+	public void deserializeWhenAnonymousThenKeyHashRetained() throws Exception {
+		AnonymousAuthenticationToken authentication = new AnonymousAuthenticationToken("key", "anonymousUser",
+				AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+		Authentication result = roundTrip(new SecurityContextImpl(authentication)).getAuthentication();
+		assertThat(result).isEqualTo(authentication);
+		assertThat(((AnonymousAuthenticationToken) result).getKeyHash()).isEqualTo("key".hashCode());
+	}
+
+	@Test
+	public void serializeWhenAuthorityRepeatedThenWrittenOnce() throws Exception {
+		User user = new User("user", "password", AuthorityUtils.createAuthorityList("ROLE_USER"));
+		Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(user, null,
+				user.getAuthorities());
+		byte[] serialized = this.codec.serializeToByteArray(new SecurityContextImpl(authentication));
+		String content = new String(serialized, StandardCharsets.ISO_8859_1);
+		assertThat(content.indexOf("ROLE_USER")).isEqualTo(content.lastIndexOf("ROLE_USER"));
+	}
+
+	@Test
+	public void deserializeWhenSameAuthorityThenSharedInstance() throws Exception {
+		Authentication authentication = UsernamePasswordAuthenticationToken.authenticated("user", null,
+				AuthorityUtils.createAuthorityList("ROLE_USER"));
+		byte[] serialized = this.codec.serializeToByteArray(new SecurityContextImpl(authentication));
+		GrantedAuthority first = this.codec.deserializeFromByteArray(serialized).getAuthentication().getAuthorities()
+				.iterator().next();
+		GrantedAuthority second = this.codec.deserializeFromByteArray(serialized).getAuthentication().getAuthorities()
+				.iterator().next();
+		assertThat(first).isSameAs(second);
+	}
+
+	@Test
+	public void serializeWhenSmallerThanJavaSerializationAndJackson() throws Exception {
+		User user = new User("user", "password", AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+		Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(user, null,
+				user.getAuthorities());
+		SecurityContext context = new SecurityContextImpl(authentication);
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.registerModules(SecurityJackson2Modules.getModules(getClass().getClassLoader()));
+		int size = this.codec.serializeToByteArray(context).length;
+		assertThat(size).isLessThan(new DefaultSerializer().serializeToByteArray(context).length / 10);
+		assertThat(size).isLessThan(mapper.writeValueAsBytes(context).length / 5);
+	}
+
+	@Test
+	public void serializeWhenUnsupportedAuthenticationThenNotSerializableException() {
+		SecurityContext context = new SecurityContextImpl(new TestingAuthenticationToken("user", "password"));
+		assertThatExceptionOfType(NotSerializableException.class)
+				.isThrownBy(() -> this.codec.serializeToByteArray(context));
+	}
+
+	@Test
+	public void serializeWhenUnsupportedContextThenNotSerializableException() {
+		SecurityContext context = new TransientSecurityContext();
+		assertThatExceptionOfType(NotSerializableException.class)
+				.isThrownBy(() -> this.codec.serializeToByteArray(context));
+	}
+
+	@Test
+	public void serializeWhenPrincipalNotSerializableThenNotSerializableException() {
+		SecurityContext context = new SecurityContextImpl(
+				UsernamePasswordAuthenticationToken.authenticated(new Object(), null, Collections.emptyList()));
+		assertThatExceptionOfType(NotSerializableException.class)
+				.isThrownBy(() -> this.codec.serializeToByteArray(context));
+	}
+
+	@Test
+	public void serializeWhenDetailsTypeNotAllowedThenNotSerializableException() {
+		UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated("user",
+				null, Collections.emptyList());
+		authentication.setDetails(new TestDetails("127.0.0.1"));
+		SecurityContext context = new SecurityContextImpl(authentication);
+		assertThatExceptionOfType(NotSerializableException.class)
+				.isThrownBy(() -> this.codec.serializeToByteArray(context));
+	}
+
+	@Test
+	public void deserializeWhenSerializedTypeNotAllowedThenInvalidClassException() throws Exception {
+		UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated("user",
+				null, Collections.emptyList());
+		authentication.setDetails(new TestDetails("127.0.0.1"));
+		CompactSecurityContextCodec allowing = new CompactSecurityContextCodec();
+		allowing.setAllowedSerializedTypes(Collections.singleton(TestDetails.class.getName()));
+		byte[] serialized = allowing.serializeToByteArray(new SecurityContextImpl(authentication));
+		assertThatExceptionOfType(InvalidClassException.class)
+				.isThrownBy(() -> this.codec.deserializeFromByteArray(serialized));
+	}
+
+	@Test
+	public void deserializeWhenStringLengthExceedsInputThenStreamCorruptedException() {
+		// username/password, unauthenticated, string credentials of length
+		// Integer.MAX_VALUE
+		byte[] serialized = { 1, 1, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+		assertThatExceptionOfType(StreamCorruptedException.class)
+				.isThrownBy(() -> this.codec.deserializeFromByteArray(serialized));
+	}
+
+	@Test
+	public void deserializeWhenAuthorityCountExceedsInputThenStreamCorruptedException() {
+		// username/password, unauthenticated, null credentials and principal, 2^28
+		// authorities
+		byte[] serialized = { 1, 1, 0, 0, 0, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 };
+		assertThatExceptionOfType(StreamCorruptedException.class)
+				.isThrownBy(() -> this.codec.deserializeFromByteArray(serialized));
+	}
+
+	@Test
+	public void deserializeWhenUnknownVersionThenStreamCorruptedException() throws Exception {
+		byte[] serialized = this.codec.serializeToByteArray(new SecurityContextImpl());
+		serialized[0] = 2;
+		assertThatExceptionOfType(StreamCorruptedException.class)
+				.isThrownBy(() -> this.codec.deserializeFromByteArray(serialized));
+	}
+
+	@Test
+	public void deserializeWhenTruncatedThenEOFException() throws Exception {
+		Authentication authentication = UsernamePasswordAuthenticationToken.authenticated("user", null,
+				AuthorityUtils.createAuthorityList("ROLE_USER"));
+		byte[] serialized = this.codec.serializeToByteArray(new SecurityContextImpl(authentication));
+		byte[] truncated = Arrays.copyOf(serialized, serialized.length - 1);
+		assertThatExceptionOfType(EOFException.class).isThrownBy(() -> this.codec.deserializeFromByteArray(truncated));
+	}
+
+	private SecurityContext roundTrip(SecurityContext context) throws Exception {
+		return this.codec.deserializeFromByteArray(this.codec.serializeToByteArray(context));
+	}
+
+	static final class TestDetails implements Serializable {
+
+		private final String remoteAddress;
+
+		TestDetails(String remoteAddress) {
+			this.remoteAddress = remoteAddress;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TestDetails && ((TestDetails) obj).remoteAddress.equals(this.remoteAddress);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.remoteAddress.hashCode();
+		}
+
+	}
+
+}
@@ -58,6 +58,26 @@ public class SecurityJackson2ModulesTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void readValueWhenNotAllowedReadRepeatedlyThenThrowsExceptionEachTime() {
+		String content = "{\"@class\":\"org.springframework.security.jackson2.SecurityJackson2ModulesTests$NotAllowlisted\",\"property\":\"bar\"}";
+		for (int i = 0; i < 2; i++) {
+			// @formatter:off
+			assertThatExceptionOfType(Exception.class)
+					.isThrownBy(() -> this.mapper.readValue(content, Object.class))
+					.withStackTraceContaining("allowlist");
+			// @formatter:on
+		}
+	}
+
+	@Test
+	public void readValueWhenAllowedReadRepeatedlyThenReadsAsSpecificType() throws Exception {
+		String content = "{\"@class\":\"org.springframework.security.jackson2.SecurityJackson2ModulesTests$NotAllowlistedButAnnotated\",\"property\":\"bar\"}";
+		for (int i = 0; i < 2; i++) {
+			assertThat(this.mapper.readValue(content, Object.class)).isInstanceOf(NotAllowlistedButAnnotated.class);
+		}
+	}
+
 	@Test
 	public void readValueWhenExplicitDefaultTypingAfterSecuritySetupThenReadsAsSpecificType() throws Exception {
 		this.mapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
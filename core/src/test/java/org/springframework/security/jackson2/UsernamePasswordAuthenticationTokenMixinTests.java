@@ -169,6 +169,23 @@ public class UsernamePasswordAuthenticationTokenMixinTests extends AbstractMixin
 		assertThat(token.getDetails()).isExactlyInstanceOf(String.class).isEqualTo("details");
 	}
 
+	@Test
+	public void deserializeAuthenticatedUsernamePasswordAuthenticationTokenWhenPropertiesReorderedThenSameToken()
+			throws IOException {
+		String json = "{"
+				+ "\"@class\": \"org.springframework.security.authentication.UsernamePasswordAuthenticationToken\","
+				+ "\"authorities\": " + SimpleGrantedAuthorityMixinTests.AUTHORITIES_ARRAYLIST_JSON + ", "
+				+ "\"details\": \"details\", " + "\"unknown\": {\"nested\": [1, 2]}, " + "\"authenticated\": true, "
+				+ "\"credentials\": \"1234\", " + "\"principal\": \"admin\"" + "}";
+		UsernamePasswordAuthenticationToken token = this.mapper.readValue(json,
+				UsernamePasswordAuthenticationToken.class);
+		assertThat(token).isEqualTo(this.mapper.readValue(
+				AUTHENTICATED_STRINGDETAILS_JSON.replace(UserDeserializerTests.USER_JSON, "\"admin\""),
+				UsernamePasswordAuthenticationToken.class));
+		assertThat(token.getDetails()).isEqualTo("details");
+		assertThat(token.getCredentials()).isEqualTo("1234");
+	}
+
 	@Test
 	public void serializingThenDeserializingWithNoCredentialsOrDetailsShouldWork() throws IOException {
 		UsernamePasswordAuthenticationToken original = UsernamePasswordAuthenticationToken.unauthenticated("Frodo",
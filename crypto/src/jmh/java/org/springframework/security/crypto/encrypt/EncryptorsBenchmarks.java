@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.encrypt;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+
+/**
+ * Measures encryption and decryption throughput of the {@link BytesEncryptor}
+ * implementations for a range of payload sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncryptorsBenchmarks {
+
+	@Param({ "stronger", "standard", "bouncyCastleGcm", "bouncyCastleCbc" })
+	private String encryptor;
+
+	@Param({ "16", "1024", "65536" })
+	private int payloadLength;
+
+	private BytesEncryptor bytesEncryptor;
+
+	private byte[] payload;
+
+	private byte[] encrypted;
+
+	@Setup
+	public void setup() {
+		String password = "password";
+		String salt = Hex.encodeToString(KeyGenerators.secureRandom().generateKey());
+		if ("stronger".equals(this.encryptor)) {
+			this.bytesEncryptor = Encryptors.stronger(password, salt);
+		}
+		else if ("standard".equals(this.encryptor)) {
+			this.bytesEncryptor = Encryptors.standard(password, salt);
+		}
+		else if ("bouncyCastleGcm".equals(this.encryptor)) {
+			this.bytesEncryptor = new BouncyCastleAesGcmBytesEncryptor(password, salt);
+		}
+		else {
+			this.bytesEncryptor = new BouncyCastleAesCbcBytesEncryptor(password, salt);
+		}
+		this.payload = KeyGenerators.secureRandom(this.payloadLength).generateKey();
+		this.encrypted = this.bytesEncryptor.encrypt(this.payload);
+	}
+
+	@Benchmark
+	public byte[] encrypt() {
+		return this.bytesEncryptor.encrypt(this.payload);
+	}
+
+	@Benchmark
+	public byte[] decrypt() {
+		return this.bytesEncryptor.decrypt(this.encrypted);
+	}
+
+}
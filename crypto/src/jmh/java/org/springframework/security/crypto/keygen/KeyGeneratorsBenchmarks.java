@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.keygen;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of the {@link BytesKeyGenerator}s returned by
+ * {@link KeyGenerators} when a single instance is shared by 64 threads, as is the case
+ * for the salt generator of a password encoder.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class KeyGeneratorsBenchmarks {
+
+	@Param({ "secureRandom", "threadLocalSecureRandom" })
+	private String generator;
+
+	@Param({ "16" })
+	private int keyLength;
+
+	private BytesKeyGenerator keyGenerator;
+
+	@Setup
+	public void setup() {
+		this.keyGenerator = ("secureRandom".equals(this.generator)) ? KeyGenerators.secureRandom(this.keyLength)
+				: KeyGenerators.threadLocalSecureRandom(this.keyLength);
+	}
+
+	@Benchmark
+	public byte[] generateKey() {
+		return this.keyGenerator.generateKey();
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the message digests underlying the legacy password encoders: {@link Md4} and
+ * the iterated {@link Digester}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DigestBenchmarks {
+
+	@Param({ "64", "1024" })
+	private int inputLength;
+
+	private byte[] input;
+
+	private Md4 md4;
+
+	private Digester sha256;
+
+	@Setup
+	public void setup() {
+		this.input = new byte[this.inputLength];
+		for (int i = 0; i < this.input.length; i++) {
+			this.input[i] = (byte) i;
+		}
+		this.md4 = new Md4();
+		this.sha256 = new Digester("SHA-256", 1);
+	}
+
+	@Benchmark
+	public byte[] md4() {
+		this.md4.reset();
+		this.md4.update(this.input, 0, this.input.length);
+		return this.md4.digest();
+	}
+
+	@Benchmark
+	public byte[] digester() {
+		return this.sha256.digest(this.input);
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.security.crypto.argon2;
 
+import java.util.function.Predicate;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
@@ -150,6 +152,27 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 			this.logger.warn("Malformed password hash", ex);
 			return false;
 		}
+		return matches(rawPassword, decoded);
+	}
+
+	@Override
+	public Predicate<CharSequence> matcher(String encodedPassword) {
+		if (encodedPassword == null) {
+			this.logger.warn("password hash is null");
+			return (rawPassword) -> false;
+		}
+		Argon2EncodingUtils.Argon2Hash decoded;
+		try {
+			decoded = Argon2EncodingUtils.decode(encodedPassword);
+		}
+		catch (IllegalArgumentException ex) {
+			this.logger.warn("Malformed password hash", ex);
+			return (rawPassword) -> false;
+		}
+		return (rawPassword) -> matches(rawPassword, decoded);
+	}
+
+	private boolean matches(CharSequence rawPassword, Argon2EncodingUtils.Argon2Hash decoded) {
 		byte[] hashBytes = new byte[decoded.getHash().length];
 		Argon2BytesGenerator generator = new Argon2BytesGenerator();
 		generator.init(decoded.getParameters());
@@ -17,6 +17,7 @@
 package org.springframework.security.crypto.bcrypt;
 
 import java.security.SecureRandom;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -133,6 +134,33 @@ public class BCryptPasswordEncoder implements PasswordEncoder {
 		return BCrypt.checkpw(rawPassword.toString(), encodedPassword);
 	}
 
+	@Override
+	public Predicate<CharSequence> matcher(String encodedPassword) {
+		if (encodedPassword == null || encodedPassword.length() == 0) {
+			this.logger.warn("Empty encoded password");
+			return BCryptPasswordEncoder::rejectNullAndNoMatch;
+		}
+		if (!this.BCRYPT_PATTERN.matcher(encodedPassword).matches()) {
+			this.logger.warn("Encoded password does not look like BCrypt");
+			return BCryptPasswordEncoder::rejectNullAndNoMatch;
+		}
+		// BCrypt.checkpw parses the cost and salt on each verification, only the format
+		// check is done once
+		return (rawPassword) -> {
+			if (rawPassword == null) {
+				throw new IllegalArgumentException("rawPassword cannot be null");
+			}
+			return BCrypt.checkpw(rawPassword.toString(), encodedPassword);
+		};
+	}
+
+	private static boolean rejectNullAndNoMatch(CharSequence rawPassword) {
+		if (rawPassword == null) {
+			throw new IllegalArgumentException("rawPassword cannot be null");
+		}
+		return false;
+	}
+
 	@Override
 	public boolean upgradeEncoding(String encodedPassword) {
 		if (encodedPassword == null || encodedPassword.length() == 0) {
@@ -16,6 +16,10 @@
 
 package org.springframework.security.crypto.codec;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * Hex data encoder. Converts byte arrays (such as those obtained from message digests)
  * into hexadecimal string representation.
@@ -29,38 +33,147 @@ public final class Hex {
 
 	private static final char[] HEX = "0123456789abcdef".toCharArray();
 
+	/**
+	 * Maps every ASCII character to its hexadecimal value, or -1 if it is not a hex
+	 * digit.
+	 */
+	private static final byte[] DIGITS = new byte[128];
+
+	static {
+		Arrays.fill(DIGITS, (byte) -1);
+		for (int i = 0; i < 10; i++) {
+			DIGITS['0' + i] = (byte) i;
+		}
+		for (int i = 0; i < 6; i++) {
+			DIGITS['a' + i] = (byte) (10 + i);
+			DIGITS['A' + i] = (byte) (10 + i);
+		}
+	}
+
 	private Hex() {
 	}
 
 	public static char[] encode(byte[] bytes) {
-		final int nBytes = bytes.length;
-		char[] result = new char[2 * nBytes];
+		char[] result = new char[2 * bytes.length];
+		encode(bytes, 0, bytes.length, result, 0);
+		return result;
+	}
+
+	/**
+	 * Encodes the remaining bytes of the buffer, advancing its position to its limit.
+	 * @param buffer the bytes to encode
+	 * @return the hex characters
+	 * @since 5.8
+	 */
+	public static char[] encode(ByteBuffer buffer) {
+		int length = buffer.remaining();
+		char[] result = new char[2 * length];
+		if (buffer.hasArray()) {
+			encode(buffer.array(), buffer.arrayOffset() + buffer.position(), length, result, 0);
+			buffer.position(buffer.limit());
+			return result;
+		}
 		int j = 0;
-		for (byte aByte : bytes) {
-			// Char for top 4 bits
+		while (buffer.hasRemaining()) {
+			byte aByte = buffer.get();
 			result[j++] = HEX[(0xF0 & aByte) >>> 4];
-			// Bottom 4
 			result[j++] = HEX[(0x0F & aByte)];
 		}
 		return result;
 	}
 
+	/**
+	 * Encodes {@code length} bytes starting at {@code offset} into the caller-supplied
+	 * {@code destination}, which must have room for {@code 2 * length} characters
+	 * starting at {@code destinationOffset}.
+	 * @param bytes the bytes to encode
+	 * @param offset the offset of the first byte to encode
+	 * @param length the number of bytes to encode
+	 * @param destination the array to write the hex characters to
+	 * @param destinationOffset the offset of the first character to write
+	 * @return the number of characters written
+	 * @since 5.8
+	 */
+	public static int encode(byte[] bytes, int offset, int length, char[] destination, int destinationOffset) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException("Cannot encode " + length + " bytes at offset " + offset
+					+ " of an array with length " + bytes.length);
+		}
+		if (destinationOffset < 0 || destinationOffset + 2 * length > destination.length) {
+			throw new IndexOutOfBoundsException("Destination with length " + destination.length + " cannot hold "
+					+ 2 * length + " characters at offset " + destinationOffset);
+		}
+		int j = destinationOffset;
+		for (int i = offset; i < offset + length; i++) {
+			byte aByte = bytes[i];
+			// Char for top 4 bits
+			destination[j++] = HEX[(0xF0 & aByte) >>> 4];
+			// Bottom 4
+			destination[j++] = HEX[(0x0F & aByte)];
+		}
+		return j - destinationOffset;
+	}
+
+	/**
+	 * Encodes the bytes directly into a {@link String}, avoiding the intermediate
+	 * {@code char[]} of {@code new String(Hex.encode(bytes))}.
+	 * @param bytes the bytes to encode
+	 * @return the hex {@link String}
+	 * @since 5.8
+	 */
+	public static String encodeToString(byte[] bytes) {
+		byte[] ascii = new byte[2 * bytes.length];
+		int j = 0;
+		for (byte aByte : bytes) {
+			ascii[j++] = (byte) HEX[(0xF0 & aByte) >>> 4];
+			ascii[j++] = (byte) HEX[(0x0F & aByte)];
+		}
+		return new String(ascii, StandardCharsets.US_ASCII);
+	}
+
 	public static byte[] decode(CharSequence s) {
 		int nChars = s.length();
 		if (nChars % 2 != 0) {
 			throw new IllegalArgumentException("Hex-encoded string must have an even number of characters");
 		}
 		byte[] result = new byte[nChars / 2];
+		decode(s, result, 0);
+		return result;
+	}
+
+	/**
+	 * Decodes the hex characters into the caller-supplied {@code destination}, which must
+	 * have room for {@code s.length() / 2} bytes starting at {@code destinationOffset}.
+	 * @param s the hex characters to decode
+	 * @param destination the array to write the decoded bytes to
+	 * @param destinationOffset the offset of the first byte to write
+	 * @return the number of bytes written
+	 * @since 5.8
+	 */
+	public static int decode(CharSequence s, byte[] destination, int destinationOffset) {
+		int nChars = s.length();
+		if (nChars % 2 != 0) {
+			throw new IllegalArgumentException("Hex-encoded string must have an even number of characters");
+		}
+		if (destinationOffset < 0 || destinationOffset + nChars / 2 > destination.length) {
+			throw new IndexOutOfBoundsException("Destination with length " + destination.length + " cannot hold "
+					+ nChars / 2 + " bytes at offset " + destinationOffset);
+		}
+		int j = destinationOffset;
 		for (int i = 0; i < nChars; i += 2) {
-			int msb = Character.digit(s.charAt(i), 16);
-			int lsb = Character.digit(s.charAt(i + 1), 16);
-			if (msb < 0 || lsb < 0) {
+			int msb = digit(s.charAt(i));
+			int lsb = digit(s.charAt(i + 1));
+			if ((msb | lsb) < 0) {
 				throw new IllegalArgumentException(
 						"Detected a Non-hex character at " + (i + 1) + " or " + (i + 2) + " position");
 			}
-			result[i / 2] = (byte) ((msb << 4) | lsb);
+			destination[j++] = (byte) ((msb << 4) | lsb);
 		}
-		return result;
+		return j - destinationOffset;
+	}
+
+	private static int digit(char c) {
+		return (c < DIGITS.length) ? DIGITS[c] : -1;
 	}
 
 }
@@ -36,7 +36,7 @@ final class HexEncodingTextEncryptor implements TextEncryptor {
 
 	@Override
 	public String encrypt(String text) {
-		return new String(Hex.encode(this.encryptor.encrypt(Utf8.encode(text))));
+		return Hex.encodeToString(this.encryptor.encrypt(Utf8.encode(text)));
 	}
 
 	@Override
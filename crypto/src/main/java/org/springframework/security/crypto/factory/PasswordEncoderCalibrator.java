@@ -0,0 +1,432 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.factory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Benchmarks the current host and chooses cost parameters for the adaptive one-way
+ * functions so that verifying a password takes roughly a target amount of time, without
+ * exceeding a memory budget for the memory-hard functions.
+ *
+ * <p>
+ * The cost of each algorithm is increased geometrically, measuring the time taken by
+ * {@link PasswordEncoder#matches(CharSequence, String)} at each step, and the largest
+ * cost whose median latency does not exceed the target is retained. If even the minimum
+ * cost exceeds the target, the minimum cost is used. Since calibration runs the actual
+ * hash functions, it is intended to be performed once, for example at startup.
+ * </p>
+ *
+ * <p>
+ * The chosen parameters are exposed through {@link Calibration}. The
+ * {@link DelegatingPasswordEncoder} created by {@link #createDelegatingPasswordEncoder()}
+ * encodes with the calibrated BCrypt encoder, which reports
+ * {@link PasswordEncoder#upgradeEncoding(String)} for BCrypt hashes created with fewer
+ * log rounds, while hashes of any other id are always reported for upgrade. Stored hashes
+ * are therefore upgraded towards the calibrated target as users log in.
+ * </p>
+ *
+ * @since 5.8
+ */
+public final class PasswordEncoderCalibrator {
+
+	private static final Duration DEFAULT_TARGET_LATENCY = Duration.ofMillis(500);
+
+	private static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	private static final int DEFAULT_SAMPLES = 3;
+
+	private static final int MIN_BCRYPT_STRENGTH = 4;
+
+	private static final int MAX_BCRYPT_STRENGTH = 31;
+
+	private static final int SCRYPT_MEMORY_COST = 8;
+
+	private static final String SAMPLE_PASSWORD = "calibration-password";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private Duration targetLatency = DEFAULT_TARGET_LATENCY;
+
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	private int samples = DEFAULT_SAMPLES;
+
+	private LatencyMeasurement latencyMeasurement = this::measure;
+
+	/**
+	 * Sets the latency that a single call to
+	 * {@link PasswordEncoder#matches(CharSequence, String)} should approach without
+	 * exceeding. The default is 500 milliseconds.
+	 * @param targetLatency the target latency
+	 */
+	public void setTargetLatency(Duration targetLatency) {
+		if (targetLatency == null || targetLatency.isNegative() || targetLatency.isZero()) {
+			throw new IllegalArgumentException("targetLatency must be positive");
+		}
+		this.targetLatency = targetLatency;
+	}
+
+	/**
+	 * Sets the maximum number of bytes a single hash computation of a memory-hard
+	 * function (SCrypt, Argon2) may use. The default is 64 MiB.
+	 * @param memoryBudget the memory budget in bytes
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		if (memoryBudget < 1024 * 1024) {
+			throw new IllegalArgumentException("memoryBudget must be at least 1 MiB");
+		}
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Sets the number of measurements taken for each candidate cost. The median of the
+	 * measurements is compared against the target latency. The default is 3.
+	 * @param samples the number of samples
+	 */
+	public void setSamples(int samples) {
+		if (samples < 1) {
+			throw new IllegalArgumentException("samples must be >= 1");
+		}
+		this.samples = samples;
+	}
+
+	/**
+	 * Sets how the verify latency of a candidate is determined, instead of timing the
+	 * encoder. Used by tests to calibrate against a deterministic cost function.
+	 * @param latencyMeasurement the {@link LatencyMeasurement} to use
+	 */
+	void setLatencyMeasurement(LatencyMeasurement latencyMeasurement) {
+		if (latencyMeasurement == null) {
+			throw new IllegalArgumentException("latencyMeasurement cannot be null");
+		}
+		this.latencyMeasurement = latencyMeasurement;
+	}
+
+	/**
+	 * Calibrates the log rounds of a {@link BCryptPasswordEncoder}.
+	 * @return the {@link Calibration} containing the calibrated encoder
+	 */
+	public Calibration<BCryptPasswordEncoder> calibrateBCrypt() {
+		IntFunction<BCryptPasswordEncoder> factory = BCryptPasswordEncoder::new;
+		int strength = MIN_BCRYPT_STRENGTH;
+		Duration latency = measureBCrypt(factory, strength);
+		while (strength < MAX_BCRYPT_STRENGTH) {
+			// each additional log round doubles the cost
+			if (latency.multipliedBy(2).compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			Duration next = measureBCrypt(factory, strength + 1);
+			if (next.compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			strength++;
+			latency = next;
+		}
+		return calibration("bcrypt", factory.apply(strength), bcryptParameters(strength), latency);
+	}
+
+	/**
+	 * Calibrates the number of iterations of a {@link Pbkdf2PasswordEncoder} using
+	 * {@link SecretKeyFactoryAlgorithm#PBKDF2WithHmacSHA256}, a salt length of 16 bytes
+	 * and no secret.
+	 * @return the {@link Calibration} containing the calibrated encoder
+	 */
+	public Calibration<Pbkdf2PasswordEncoder> calibratePbkdf2() {
+		IntFunction<Pbkdf2PasswordEncoder> factory = (iterations) -> new Pbkdf2PasswordEncoder("", 16, iterations,
+				SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+		int base = 10000;
+		Duration baseLatency = measurePbkdf2(factory, base);
+		// the cost of PBKDF2 is linear in the number of iterations
+		long scaled = (base * this.targetLatency.toNanos()) / Math.max(1, baseLatency.toNanos());
+		int iterations = (int) Math.max(base, Math.min(Integer.MAX_VALUE, (scaled / 1000) * 1000));
+		Duration latency = measurePbkdf2(factory, iterations);
+		while (iterations > base && latency.compareTo(this.targetLatency) > 0) {
+			iterations = (int) Math.max(base, ((long) iterations * 9 / 10000) * 1000);
+			latency = measurePbkdf2(factory, iterations);
+		}
+		return calibration("pbkdf2", factory.apply(iterations), pbkdf2Parameters(iterations), latency);
+	}
+
+	/**
+	 * Calibrates the cpu cost (N) of a {@link SCryptPasswordEncoder} with a memory cost
+	 * (r) of 8 and parallelization (p) of 1. The cpu cost is additionally bounded so that
+	 * {@code 128 * N * r} does not exceed the memory budget.
+	 * @return the {@link Calibration} containing the calibrated encoder
+	 */
+	public Calibration<SCryptPasswordEncoder> calibrateSCrypt() {
+		int memoryCost = SCRYPT_MEMORY_COST;
+		IntFunction<SCryptPasswordEncoder> factory = (cpuCost) -> new SCryptPasswordEncoder(cpuCost, memoryCost, 1, 32,
+				16);
+		int cpuCost = 1024;
+		Duration latency = measureSCrypt(factory, cpuCost);
+		while (cpuCost < (1 << 24)) {
+			int next = cpuCost << 1;
+			if (128L * next * memoryCost > this.memoryBudget
+					|| latency.multipliedBy(2).compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			Duration nextLatency = measureSCrypt(factory, next);
+			if (nextLatency.compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			cpuCost = next;
+			latency = nextLatency;
+		}
+		return calibration("scrypt", factory.apply(cpuCost), scryptParameters(cpuCost), latency);
+	}
+
+	/**
+	 * Calibrates the memory and iterations of an {@link Argon2PasswordEncoder} with a
+	 * parallelism of 1. The memory is increased first, up to the memory budget, after
+	 * which the number of iterations is increased.
+	 * @return the {@link Calibration} containing the calibrated encoder
+	 */
+	public Calibration<Argon2PasswordEncoder> calibrateArgon2() {
+		long memoryBudgetKb = this.memoryBudget / 1024;
+		int memory = (int) Math.min(1 << 12, memoryBudgetKb);
+		int iterations = 2;
+		Duration latency = measureArgon2(memory, iterations);
+		while (memory < (1 << 22) && (memory << 1) <= memoryBudgetKb
+				&& latency.multipliedBy(2).compareTo(this.targetLatency) <= 0) {
+			Duration next = measureArgon2(memory << 1, iterations);
+			if (next.compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			memory <<= 1;
+			latency = next;
+		}
+		Duration perIteration = latency.dividedBy(iterations);
+		while (iterations < 64 && latency.plus(perIteration).compareTo(this.targetLatency) <= 0) {
+			Duration next = measureArgon2(memory, iterations + 1);
+			if (next.compareTo(this.targetLatency) > 0) {
+				break;
+			}
+			iterations++;
+			latency = next;
+		}
+		return calibration("argon2", argon2(memory, iterations), argon2Parameters(memory, iterations), latency);
+	}
+
+	/**
+	 * Creates a {@link DelegatingPasswordEncoder} with the same mappings as
+	 * {@link PasswordEncoderFactories#createDelegatingPasswordEncoder()}, except that the
+	 * {@code bcrypt}, {@code scrypt@SpringSecurity_v5_8} and
+	 * {@code argon2@SpringSecurity_v5_8} ids are mapped to calibrated encoders, and that
+	 * the calibrated PBKDF2 encoder is added as {@code pbkdf2@calibrated}. BCrypt is used
+	 * for encoding.
+	 *
+	 * <p>
+	 * Unlike the other algorithms, a PBKDF2 hash does not record its number of
+	 * iterations, so {@code pbkdf2@SpringSecurity_v5_8} keeps its default encoder and
+	 * hashes stored as {@code pbkdf2@calibrated} only match as long as calibration
+	 * chooses the same number of iterations.
+	 * </p>
+	 *
+	 * <p>
+	 * Since each encoder is calibrated, this method takes several multiples of the target
+	 * latency to complete.
+	 * </p>
+	 * @return the {@link DelegatingPasswordEncoder} to use
+	 */
+	public DelegatingPasswordEncoder createDelegatingPasswordEncoder() {
+		String encodingId = "bcrypt";
+		Map<String, PasswordEncoder> encoders = PasswordEncoderFactories.createDefaultEncoders();
+		encoders.put(encodingId, calibrateBCrypt().getEncoder());
+		encoders.put("pbkdf2@calibrated", calibratePbkdf2().getEncoder());
+		encoders.put("scrypt@SpringSecurity_v5_8", calibrateSCrypt().getEncoder());
+		encoders.put("argon2@SpringSecurity_v5_8", calibrateArgon2().getEncoder());
+		return new DelegatingPasswordEncoder(encodingId, encoders);
+	}
+
+	private static Argon2PasswordEncoder argon2(int memory, int iterations) {
+		return new Argon2PasswordEncoder(16, 32, 1, memory, iterations);
+	}
+
+	private Duration measureBCrypt(IntFunction<BCryptPasswordEncoder> factory, int strength) {
+		return this.latencyMeasurement.measure("bcrypt", bcryptParameters(strength), () -> factory.apply(strength));
+	}
+
+	private Duration measurePbkdf2(IntFunction<Pbkdf2PasswordEncoder> factory, int iterations) {
+		return this.latencyMeasurement.measure("pbkdf2", pbkdf2Parameters(iterations), () -> factory.apply(iterations));
+	}
+
+	private Duration measureSCrypt(IntFunction<SCryptPasswordEncoder> factory, int cpuCost) {
+		return this.latencyMeasurement.measure("scrypt", scryptParameters(cpuCost), () -> factory.apply(cpuCost));
+	}
+
+	private Duration measureArgon2(int memory, int iterations) {
+		return this.latencyMeasurement.measure("argon2", argon2Parameters(memory, iterations),
+				() -> argon2(memory, iterations));
+	}
+
+	private static Map<String, Integer> bcryptParameters(int strength) {
+		Map<String, Integer> parameters = new LinkedHashMap<>();
+		parameters.put("strength", strength);
+		return parameters;
+	}
+
+	private static Map<String, Integer> pbkdf2Parameters(int iterations) {
+		Map<String, Integer> parameters = new LinkedHashMap<>();
+		parameters.put("iterations", iterations);
+		parameters.put("saltLength", 16);
+		return parameters;
+	}
+
+	private static Map<String, Integer> scryptParameters(int cpuCost) {
+		Map<String, Integer> parameters = new LinkedHashMap<>();
+		parameters.put("cpuCost", cpuCost);
+		parameters.put("memoryCost", SCRYPT_MEMORY_COST);
+		parameters.put("parallelization", 1);
+		parameters.put("keyLength", 32);
+		parameters.put("saltLength", 16);
+		return parameters;
+	}
+
+	private static Map<String, Integer> argon2Parameters(int memory, int iterations) {
+		Map<String, Integer> parameters = new LinkedHashMap<>();
+		parameters.put("memory", memory);
+		parameters.put("iterations", iterations);
+		parameters.put("parallelism", 1);
+		parameters.put("hashLength", 32);
+		parameters.put("saltLength", 16);
+		return parameters;
+	}
+
+	private Duration measure(String algorithm, Map<String, Integer> parameters,
+			Supplier<? extends PasswordEncoder> encoderSupplier) {
+		PasswordEncoder encoder = encoderSupplier.get();
+		String encoded = encoder.encode(SAMPLE_PASSWORD);
+		long[] timings = new long[this.samples];
+		for (int i = 0; i < this.samples; i++) {
+			long start = System.nanoTime();
+			encoder.matches(SAMPLE_PASSWORD, encoded);
+			timings[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(timings);
+		return Duration.ofNanos(timings[this.samples / 2]);
+	}
+
+	private <T extends PasswordEncoder> Calibration<T> calibration(String algorithm, T encoder,
+			Map<String, Integer> parameters, Duration latency) {
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug("Calibrated " + algorithm + " to " + parameters + " with a verify latency of "
+					+ latency.toMillis() + "ms (target " + this.targetLatency.toMillis() + "ms)");
+		}
+		return new Calibration<>(algorithm, encoder, parameters, latency);
+	}
+
+	/**
+	 * Determines the verify latency of an algorithm configured with candidate parameters.
+	 */
+	@FunctionalInterface
+	interface LatencyMeasurement {
+
+		/**
+		 * Returns the verify latency of the given candidate.
+		 * @param algorithm the algorithm name
+		 * @param parameters the candidate parameters
+		 * @param encoder supplies an encoder configured with the candidate parameters
+		 * @return the latency
+		 */
+		Duration measure(String algorithm, Map<String, Integer> parameters,
+				Supplier<? extends PasswordEncoder> encoder);
+
+	}
+
+	/**
+	 * The outcome of calibrating a single algorithm.
+	 *
+	 * @param <T> the type of {@link PasswordEncoder}
+	 */
+	public static final class Calibration<T extends PasswordEncoder> {
+
+		private final String algorithm;
+
+		private final T encoder;
+
+		private final Map<String, Integer> parameters;
+
+		private final Duration latency;
+
+		private Calibration(String algorithm, T encoder, Map<String, Integer> parameters, Duration latency) {
+			this.algorithm = algorithm;
+			this.encoder = encoder;
+			this.parameters = Collections.unmodifiableMap(parameters);
+			this.latency = latency;
+		}
+
+		/**
+		 * Returns the name of the calibrated algorithm (i.e. {@code bcrypt},
+		 * {@code pbkdf2}, {@code scrypt} or {@code argon2}).
+		 * @return the algorithm name
+		 */
+		public String getAlgorithm() {
+			return this.algorithm;
+		}
+
+		/**
+		 * Returns an encoder configured with the chosen parameters.
+		 * @return the calibrated encoder
+		 */
+		public T getEncoder() {
+			return this.encoder;
+		}
+
+		/**
+		 * Returns the chosen parameters, keyed by the name of the corresponding
+		 * constructor argument of the encoder.
+		 * @return the chosen parameters
+		 */
+		public Map<String, Integer> getParameters() {
+			return this.parameters;
+		}
+
+		/**
+		 * Returns the median verify latency measured with the chosen parameters.
+		 * @return the measured latency
+		 */
+		public Duration getLatency() {
+			return this.latency;
+		}
+
+		@Override
+		public String toString() {
+			return "Calibration [algorithm=" + this.algorithm + ", parameters=" + this.parameters + ", latency="
+					+ this.latency + "]";
+		}
+
+	}
+
+}
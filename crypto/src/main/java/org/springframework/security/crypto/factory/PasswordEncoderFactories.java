@@ -68,11 +68,19 @@ public final class PasswordEncoderFactories {
 	 * </ul>
 	 * @return the {@link PasswordEncoder} to use
 	 */
-	@SuppressWarnings("deprecation")
 	public static PasswordEncoder createDelegatingPasswordEncoder() {
-		String encodingId = "bcrypt";
+		return new DelegatingPasswordEncoder("bcrypt", createDefaultEncoders());
+	}
+
+	/**
+	 * Creates the default mappings described in
+	 * {@link #createDelegatingPasswordEncoder()}.
+	 * @return a new, mutable {@link Map} of id to {@link PasswordEncoder}
+	 */
+	@SuppressWarnings("deprecation")
+	static Map<String, PasswordEncoder> createDefaultEncoders() {
 		Map<String, PasswordEncoder> encoders = new HashMap<>();
-		encoders.put(encodingId, new BCryptPasswordEncoder());
+		encoders.put("bcrypt", new BCryptPasswordEncoder());
 		encoders.put("ldap", new org.springframework.security.crypto.password.LdapShaPasswordEncoder());
 		encoders.put("MD4", new org.springframework.security.crypto.password.Md4PasswordEncoder());
 		encoders.put("MD5", new org.springframework.security.crypto.password.MessageDigestPasswordEncoder("MD5"));
@@ -87,7 +95,7 @@ public final class PasswordEncoderFactories {
 		encoders.put("sha256", new org.springframework.security.crypto.password.StandardPasswordEncoder());
 		encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_2());
 		encoders.put("argon2@SpringSecurity_v5_8", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
-		return new DelegatingPasswordEncoder(encodingId, encoders);
+		return encoders;
 	}
 
 }
@@ -34,7 +34,7 @@ final class HexEncodingStringKeyGenerator implements StringKeyGenerator {
 
 	@Override
 	public String generateKey() {
-		return new String(Hex.encode(this.keyGenerator.generateKey()));
+		return Hex.encodeToString(this.keyGenerator.generateKey());
 	}
 
 }
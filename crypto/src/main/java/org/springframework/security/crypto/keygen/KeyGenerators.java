@@ -46,6 +46,27 @@ public final class KeyGenerators {
 		return new SecureRandomBytesKeyGenerator(keyLength);
 	}
 
+	/**
+	 * Create a {@link BytesKeyGenerator} that uses a {@link SecureRandom} per thread to
+	 * generate keys of 8 bytes in length. Prefer this over {@link #secureRandom()} when
+	 * keys are generated by many threads concurrently.
+	 * @since 5.8
+	 */
+	public static BytesKeyGenerator threadLocalSecureRandom() {
+		return new ThreadLocalSecureRandomBytesKeyGenerator();
+	}
+
+	/**
+	 * Create a {@link BytesKeyGenerator} that uses a {@link SecureRandom} per thread to
+	 * generate keys of a custom length. Prefer this over {@link #secureRandom(int)} when
+	 * keys are generated by many threads concurrently.
+	 * @param keyLength the key length in bytes, e.g. 16, for a 16 byte key.
+	 * @since 5.8
+	 */
+	public static BytesKeyGenerator threadLocalSecureRandom(int keyLength) {
+		return new ThreadLocalSecureRandomBytesKeyGenerator(keyLength);
+	}
+
 	/**
 	 * Create a {@link BytesKeyGenerator} that returns a single, shared
 	 * {@link SecureRandom} key of a custom length.
@@ -63,4 +84,15 @@ public final class KeyGenerators {
 		return new HexEncodingStringKeyGenerator(secureRandom());
 	}
 
+	/**
+	 * Creates a {@link StringKeyGenerator} that hex-encodes the keys of the provided
+	 * {@link BytesKeyGenerator}. The hex-encoded string is keyLength * 2 characters in
+	 * length.
+	 * @param keyGenerator the {@link BytesKeyGenerator} to encode the keys of
+	 * @since 5.8
+	 */
+	public static StringKeyGenerator string(BytesKeyGenerator keyGenerator) {
+		return new HexEncodingStringKeyGenerator(keyGenerator);
+	}
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.keygen;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * A KeyGenerator that uses a {@link SecureRandom} per thread to generate byte array-based
+ * keys, so that concurrent callers do not contend on the lock of a single shared
+ * {@link SecureRandom}.
+ * <p>
+ * The {@code DRBG} algorithm is used when the platform provides it, otherwise the
+ * platform default. Each thread's {@link SecureRandom} is reseeded from a shared
+ * {@link SecureRandom} after it has produced {@value #RESEED_INTERVAL} bytes.
+ * <p>
+ * The thread-local state belongs to the generator instance and holds only JDK types, so
+ * that threads of a pooled container do not keep this class loader reachable once the
+ * generator is discarded.
+ *
+ * @since 5.8
+ */
+final class ThreadLocalSecureRandomBytesKeyGenerator implements BytesKeyGenerator {
+
+	private static final int DEFAULT_KEY_LENGTH = 8;
+
+	private static final int RESEED_INTERVAL = 1 << 20;
+
+	private static final int SEED_LENGTH = 32;
+
+	private final SecureRandom seedSource = new SecureRandom();
+
+	private final ThreadLocal<SecureRandom> random = ThreadLocal
+			.withInitial(ThreadLocalSecureRandomBytesKeyGenerator::createSecureRandom);
+
+	/**
+	 * The number of bytes each thread's {@link SecureRandom} may still produce before it
+	 * is reseeded
+	 */
+	private final ThreadLocal<int[]> remaining = ThreadLocal.withInitial(() -> new int[] { RESEED_INTERVAL });
+
+	private final int keyLength;
+
+	/**
+	 * Creates a thread local secure random key generator using the defaults.
+	 */
+	ThreadLocalSecureRandomBytesKeyGenerator() {
+		this(DEFAULT_KEY_LENGTH);
+	}
+
+	/**
+	 * Creates a thread local secure random key generator with a custom key length.
+	 */
+	ThreadLocalSecureRandomBytesKeyGenerator(int keyLength) {
+		this.keyLength = keyLength;
+	}
+
+	@Override
+	public int getKeyLength() {
+		return this.keyLength;
+	}
+
+	@Override
+	public byte[] generateKey() {
+		SecureRandom random = this.random.get();
+		int[] remaining = this.remaining.get();
+		remaining[0] -= this.keyLength;
+		if (remaining[0] <= 0) {
+			byte[] seed = new byte[SEED_LENGTH];
+			this.seedSource.nextBytes(seed);
+			// supplements, rather than replaces, the existing seed
+			random.setSeed(seed);
+			remaining[0] = RESEED_INTERVAL;
+		}
+		byte[] bytes = new byte[this.keyLength];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	private static SecureRandom createSecureRandom() {
+		try {
+			return SecureRandom.getInstance("DRBG");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			return new SecureRandom();
+		}
+	}
+
+}
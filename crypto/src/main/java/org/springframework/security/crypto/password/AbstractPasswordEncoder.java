@@ -40,7 +40,7 @@ public abstract class AbstractPasswordEncoder implements PasswordEncoder {
 	public String encode(CharSequence rawPassword) {
 		byte[] salt = this.saltGenerator.generateKey();
 		byte[] encoded = encodeAndConcatenate(rawPassword, salt);
-		return String.valueOf(Hex.encode(encoded));
+		return Hex.encodeToString(encoded);
 	}
 
 	@Override
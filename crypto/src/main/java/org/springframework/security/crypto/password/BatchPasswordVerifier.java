@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Verifies a stream of raw and encoded password pairs with a {@link PasswordEncoder}, for
+ * example to audit stored password hashes against a list of breached passwords.
+ * <p>
+ * Verifications are spread across {@link #setParallelism(int) parallelism} threads and
+ * each {@link Result} is handed to the caller as soon as it is available, so results are
+ * not necessarily delivered in the order of the {@link Candidate}s. The encoded password
+ * is prepared with {@link PasswordEncoder#matcher(String)} once for each run of
+ * consecutive {@link Candidate}s that share it, so sorting the stream by encoded password
+ * means that each encoded password is prepared once.
+ * <p>
+ * Only a bounded number of {@link Candidate}s is read ahead of the results, so the stream
+ * may be arbitrarily large.
+ *
+ * @since 5.8
+ * @see PasswordEncoder#matcher(String)
+ */
+public final class BatchPasswordVerifier {
+
+	private final PasswordEncoder passwordEncoder;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Creates a new instance
+	 * @param passwordEncoder the {@link PasswordEncoder} used to verify passwords, for
+	 * example the one returned by
+	 * {@link org.springframework.security.crypto.factory.PasswordEncoderFactories#createDelegatingPasswordEncoder()}
+	 */
+	public BatchPasswordVerifier(PasswordEncoder passwordEncoder) {
+		if (passwordEncoder == null) {
+			throw new IllegalArgumentException("passwordEncoder cannot be null");
+		}
+		this.passwordEncoder = passwordEncoder;
+	}
+
+	/**
+	 * Sets the number of threads used to verify passwords. The default is the number of
+	 * available processors.
+	 * @param parallelism the number of threads, at least 1
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be greater than 0");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Verifies each {@link Candidate} and passes its {@link Result} to the given
+	 * {@link Consumer} on the calling thread. This method returns once all
+	 * {@link Candidate}s have been verified. If a verification fails, the remaining
+	 * verifications are cancelled and the exception is rethrown.
+	 * @param candidates the raw and encoded password pairs to verify
+	 * @param results the {@link Consumer} that the {@link Result}s are delivered to
+	 */
+	public void verify(Stream<Candidate> candidates, Consumer<? super Result> results) {
+		if (candidates == null) {
+			throw new IllegalArgumentException("candidates cannot be null");
+		}
+		if (results == null) {
+			throw new IllegalArgumentException("results cannot be null");
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, new VerifierThreadFactory());
+		try {
+			CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+			int maxPending = this.parallelism * 2;
+			int pending = 0;
+			boolean prepared = false;
+			String encodedPassword = null;
+			Predicate<CharSequence> matcher = null;
+			Iterator<Candidate> iterator = candidates.iterator();
+			while (iterator.hasNext()) {
+				Candidate candidate = iterator.next();
+				if (!prepared || !Objects.equals(encodedPassword, candidate.getEncodedPassword())) {
+					encodedPassword = candidate.getEncodedPassword();
+					matcher = this.passwordEncoder.matcher(encodedPassword);
+					prepared = true;
+				}
+				Predicate<CharSequence> candidateMatcher = matcher;
+				completionService
+						.submit(() -> new Result(candidate, candidateMatcher.test(candidate.getRawPassword())));
+				pending++;
+				if (pending == maxPending) {
+					results.accept(get(completionService.take()));
+					pending--;
+				}
+				Future<Result> completed;
+				while ((completed = completionService.poll()) != null) {
+					results.accept(get(completed));
+					pending--;
+				}
+			}
+			while (pending > 0) {
+				results.accept(get(completionService.take()));
+				pending--;
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while verifying passwords", ex);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Result get(Future<Result> future) throws InterruptedException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Could not verify password", cause);
+		}
+	}
+
+	/**
+	 * A raw password to verify against an encoded password.
+	 */
+	public static final class Candidate {
+
+		private final CharSequence rawPassword;
+
+		private final String encodedPassword;
+
+		/**
+		 * Creates a new instance
+		 * @param rawPassword the raw password to verify
+		 * @param encodedPassword the encoded password from storage to compare with
+		 */
+		public Candidate(CharSequence rawPassword, String encodedPassword) {
+			this.rawPassword = rawPassword;
+			this.encodedPassword = encodedPassword;
+		}
+
+		public CharSequence getRawPassword() {
+			return this.rawPassword;
+		}
+
+		public String getEncodedPassword() {
+			return this.encodedPassword;
+		}
+
+	}
+
+	/**
+	 * The outcome of verifying a {@link Candidate}.
+	 */
+	public static final class Result {
+
+		private final Candidate candidate;
+
+		private final boolean match;
+
+		Result(Candidate candidate, boolean match) {
+			this.candidate = candidate;
+			this.match = match;
+		}
+
+		public Candidate getCandidate() {
+			return this.candidate;
+		}
+
+		/**
+		 * Returns true if the raw password of the {@link Candidate}, after encoding,
+		 * matches its encoded password.
+		 * @return true if the passwords match, false if they do not
+		 */
+		public boolean isMatch() {
+			return this.match;
+		}
+
+	}
+
+	private static final class VerifierThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "password-verifier-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.security.crypto.password;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * A password encoder that delegates to another PasswordEncoder based upon a prefixed
@@ -240,6 +241,20 @@ public class DelegatingPasswordEncoder implements PasswordEncoder {
 		return delegate.matches(rawPassword, encodedPassword);
 	}
 
+	@Override
+	public Predicate<CharSequence> matcher(String prefixEncodedPassword) {
+		if (prefixEncodedPassword == null) {
+			return PasswordEncoder.super.matcher(null);
+		}
+		String id = extractId(prefixEncodedPassword);
+		PasswordEncoder delegate = this.idToPasswordEncoder.get(id);
+		if (delegate == null) {
+			return this.defaultPasswordEncoderForMatches.matcher(prefixEncodedPassword);
+		}
+		String encodedPassword = extractEncodedPassword(prefixEncodedPassword);
+		return delegate.matcher(encodedPassword);
+	}
+
 	private String extractId(String prefixEncodedPassword) {
 		if (prefixEncodedPassword == null) {
 			return null;
@@ -122,7 +122,7 @@ public class Md4PasswordEncoder implements PasswordEncoder {
 		if (this.encodeHashAsBase64) {
 			return Utf8.decode(Base64.getEncoder().encode(digest));
 		}
-		return new String(Hex.encode(digest));
+		return Hex.encodeToString(digest);
 	}
 
 	/**
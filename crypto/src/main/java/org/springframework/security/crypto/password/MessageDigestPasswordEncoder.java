@@ -132,7 +132,7 @@ public class MessageDigestPasswordEncoder implements PasswordEncoder {
 		if (this.encodeHashAsBase64) {
 			return Utf8.decode(Base64.getEncoder().encode(digest));
 		}
-		return new String(Hex.encode(digest));
+		return Hex.encodeToString(digest);
 	}
 
 	/**
@@ -16,6 +16,8 @@
 
 package org.springframework.security.crypto.password;
 
+import java.util.function.Predicate;
+
 /**
  * Service interface for encoding passwords.
  *
@@ -53,4 +55,21 @@ public interface PasswordEncoder {
 		return false;
 	}
 
+	/**
+	 * Returns a {@link Predicate} that verifies raw passwords against the given encoded
+	 * password. This is useful when many raw passwords are verified against the same
+	 * encoded password, since implementations may parse the salt and parameters of the
+	 * encoded password once rather than on every verification. The returned
+	 * {@link Predicate} must be safe to use from multiple threads. The default
+	 * implementation delegates to {@link #matches(CharSequence, String)}.
+	 * @param encodedPassword the encoded password from storage to compare with
+	 * @return a {@link Predicate} that returns true if a raw password, after encoding,
+	 * matches the encoded password from storage
+	 * @since 5.8
+	 * @see BatchPasswordVerifier
+	 */
+	default Predicate<CharSequence> matcher(String encodedPassword) {
+		return (rawPassword) -> matches(rawPassword, encodedPassword);
+	}
+
 }
@@ -20,6 +20,7 @@ import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.function.Predicate;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -256,7 +257,7 @@ public class Pbkdf2PasswordEncoder implements PasswordEncoder {
 		if (this.encodeHashAsBase64) {
 			return Base64.getEncoder().encodeToString(bytes);
 		}
-		return String.valueOf(Hex.encode(bytes));
+		return Hex.encodeToString(bytes);
 	}
 
 	@Override
@@ -266,6 +267,21 @@ public class Pbkdf2PasswordEncoder implements PasswordEncoder {
 		return MessageDigest.isEqual(digested, encode(rawPassword, salt));
 	}
 
+	@Override
+	public Predicate<CharSequence> matcher(String encodedPassword) {
+		byte[] digested;
+		byte[] salt;
+		try {
+			digested = decode(encodedPassword);
+			salt = EncodingUtils.subArray(digested, 0, this.saltGenerator.getKeyLength());
+		}
+		catch (RuntimeException ex) {
+			// fail on each verification, the way matches does
+			return (rawPassword) -> matches(rawPassword, encodedPassword);
+		}
+		return (rawPassword) -> MessageDigest.isEqual(digested, encode(rawPassword, salt));
+	}
+
 	private byte[] decode(String encodedBytes) {
 		if (this.encodeHashAsBase64) {
 			return Base64.getDecoder().decode(encodedBytes);
@@ -94,7 +94,7 @@ public final class StandardPasswordEncoder implements PasswordEncoder {
 
 	private String encode(CharSequence rawPassword, byte[] salt) {
 		byte[] digest = digest(rawPassword, salt);
-		return new String(Hex.encode(digest));
+		return Hex.encodeToString(digest);
 	}
 
 	private byte[] digest(CharSequence rawPassword, byte[] salt) {
@@ -18,6 +18,7 @@ package org.springframework.security.crypto.scrypt;
 
 import java.security.MessageDigest;
 import java.util.Base64;
+import java.util.function.Predicate;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -162,11 +163,26 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 
 	@Override
 	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return matcher(encodedPassword).test(rawPassword);
+	}
+
+	@Override
+	public Predicate<CharSequence> matcher(String encodedPassword) {
 		if (encodedPassword == null || encodedPassword.length() < this.keyLength) {
 			this.logger.warn("Empty encoded password");
-			return false;
+			return (rawPassword) -> false;
+		}
+		String[] parts = encodedPassword.split("\\$");
+		if (parts.length != 4) {
+			return (rawPassword) -> false;
 		}
-		return decodeAndCheckMatches(rawPassword, encodedPassword);
+		long params = Long.parseLong(parts[1], 16);
+		byte[] salt = decodePart(parts[2]);
+		byte[] derived = decodePart(parts[3]);
+		int cpuCost = (int) Math.pow(2, params >> 16 & 0xffff);
+		int memoryCost = (int) params >> 8 & 0xff;
+		int parallelization = (int) params & 0xff;
+		return (rawPassword) -> matches(rawPassword, salt, derived, cpuCost, memoryCost, parallelization);
 	}
 
 	@Override
@@ -185,17 +201,8 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 		return cpuCost < this.cpuCost || memoryCost < this.memoryCost || parallelization < this.parallelization;
 	}
 
-	private boolean decodeAndCheckMatches(CharSequence rawPassword, String encodedPassword) {
-		String[] parts = encodedPassword.split("\\$");
-		if (parts.length != 4) {
-			return false;
-		}
-		long params = Long.parseLong(parts[1], 16);
-		byte[] salt = decodePart(parts[2]);
-		byte[] derived = decodePart(parts[3]);
-		int cpuCost = (int) Math.pow(2, params >> 16 & 0xffff);
-		int memoryCost = (int) params >> 8 & 0xff;
-		int parallelization = (int) params & 0xff;
+	private boolean matches(CharSequence rawPassword, byte[] salt, byte[] derived, int cpuCost, int memoryCost,
+			int parallelization) {
 		byte[] generated = SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization,
 				this.keyLength);
 		return MessageDigest.isEqual(derived, generated);
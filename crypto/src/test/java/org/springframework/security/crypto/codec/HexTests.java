@@ -16,9 +16,12 @@
 
 package org.springframework.security.crypto.codec;
 
+import java.nio.ByteBuffer;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -73,4 +76,57 @@ public class HexTests {
 				.withMessage("Detected a Non-hex character at 5 or 6 position");
 	}
 
+	@Test
+	public void encodeToString() {
+		assertThat(Hex.encodeToString(new byte[] { (byte) 'A', (byte) 0xFF, (byte) 0x00 })).isEqualTo("41ff00");
+	}
+
+	@Test
+	public void encodeIntoDestination() {
+		char[] destination = new char[] { '*', '*', '*', '*', '*', '*' };
+		int written = Hex.encode(new byte[] { (byte) 'A', (byte) 'B', (byte) 'C' }, 1, 2, destination, 1);
+		assertThat(written).isEqualTo(4);
+		assertThat(destination).isEqualTo(new char[] { '*', '4', '2', '4', '3', '*' });
+	}
+
+	@Test
+	public void encodeIntoDestinationWhenTooSmallThenIndexOutOfBounds() {
+		assertThatExceptionOfType(IndexOutOfBoundsException.class)
+				.isThrownBy(() -> Hex.encode(new byte[] { 1, 2 }, 0, 2, new char[3], 0));
+	}
+
+	@Test
+	public void encodeHeapByteBuffer() {
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[] { (byte) 'A', (byte) 'B', (byte) 'C' });
+		buffer.get();
+		assertThat(Hex.encode(buffer)).isEqualTo(new char[] { '4', '2', '4', '3' });
+		assertThat(buffer.hasRemaining()).isFalse();
+	}
+
+	@Test
+	public void encodeDirectByteBuffer() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(2);
+		buffer.put((byte) 0xAB).put((byte) 0x01).flip();
+		assertThat(Hex.encode(buffer)).isEqualTo(new char[] { 'a', 'b', '0', '1' });
+	}
+
+	@Test
+	public void decodeUpperCase() {
+		assertThat(Hex.decode("ABCDEF")).isEqualTo(new byte[] { (byte) 0xAB, (byte) 0xCD, (byte) 0xEF });
+	}
+
+	@Test
+	public void decodeIntoDestination() {
+		byte[] destination = new byte[4];
+		int written = Hex.decode("4142", destination, 1);
+		assertThat(written).isEqualTo(2);
+		assertThat(destination).isEqualTo(new byte[] { 0, (byte) 'A', (byte) 'B', 0 });
+	}
+
+	@Test
+	public void decodeExistNonAsciiChar() {
+		assertThatIllegalArgumentException().isThrownBy(() -> Hex.decode("41\u0661\u0662"))
+				.withMessage("Detected a Non-hex character at 3 or 4 position");
+	}
+
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.factory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderCalibrator.Calibration;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PasswordEncoderCalibrator}.
+ */
+public class PasswordEncoderCalibratorTests {
+
+	private PasswordEncoderCalibrator calibrator;
+
+	@BeforeEach
+	public void setup() {
+		this.calibrator = new PasswordEncoderCalibrator();
+		this.calibrator.setTargetLatency(Duration.ofMillis(20));
+		this.calibrator.setMemoryBudget(2 * 1024 * 1024);
+		this.calibrator.setLatencyMeasurement(PasswordEncoderCalibratorTests::cost);
+	}
+
+	@Test
+	public void setTargetLatencyWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.calibrator.setTargetLatency(Duration.ZERO));
+	}
+
+	@Test
+	public void setMemoryBudgetWhenTooSmallThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.calibrator.setMemoryBudget(1024));
+	}
+
+	@Test
+	public void setSamplesWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.calibrator.setSamples(0));
+	}
+
+	@Test
+	public void setLatencyMeasurementWhenNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.calibrator.setLatencyMeasurement(null));
+	}
+
+	@Test
+	public void calibrateBCryptThenLargestStrengthWithinTarget() {
+		Calibration<BCryptPasswordEncoder> calibration = this.calibrator.calibrateBCrypt();
+		assertThat(calibration.getAlgorithm()).isEqualTo("bcrypt");
+		assertThat(calibration.getParameters()).containsEntry("strength", 8);
+		assertThat(calibration.getLatency()).isEqualTo(Duration.ofMillis(16));
+		String encoded = calibration.getEncoder().encode("password");
+		assertThat(encoded).startsWith("$2a$08$");
+		assertThat(calibration.getEncoder().matches("password", encoded)).isTrue();
+	}
+
+	@Test
+	public void calibrateBCryptWhenMinimumStrengthExceedsTargetThenMinimumStrength() {
+		this.calibrator.setLatencyMeasurement((algorithm, parameters, encoder) -> Duration.ofSeconds(1));
+		Calibration<BCryptPasswordEncoder> calibration = this.calibrator.calibrateBCrypt();
+		assertThat(calibration.getParameters()).containsEntry("strength", 4);
+	}
+
+	@Test
+	public void calibratePbkdf2ThenIterationsScaledToTarget() {
+		Calibration<Pbkdf2PasswordEncoder> calibration = this.calibrator.calibratePbkdf2();
+		assertThat(calibration.getParameters()).containsEntry("iterations", 20000);
+		assertThat(calibration.getLatency()).isEqualTo(Duration.ofMillis(20));
+		String encoded = calibration.getEncoder().encode("password");
+		assertThat(calibration.getEncoder().matches("password", encoded)).isTrue();
+	}
+
+	@Test
+	public void calibratePbkdf2WhenScaledExceedsTargetThenReduced() {
+		// the cost per iteration grows with the number of iterations
+		this.calibrator.setLatencyMeasurement((algorithm, parameters, encoder) -> {
+			long iterations = parameters.get("iterations");
+			return Duration.ofNanos(iterations * iterations / 10);
+		});
+		Calibration<Pbkdf2PasswordEncoder> calibration = this.calibrator.calibratePbkdf2();
+		assertThat(calibration.getParameters().get("iterations")).isBetween(10000, 19999);
+		assertThat(calibration.getLatency()).isLessThanOrEqualTo(Duration.ofMillis(20));
+	}
+
+	@Test
+	public void calibrateSCryptThenBoundedByMemoryBudget() {
+		Calibration<SCryptPasswordEncoder> calibration = this.calibrator.calibrateSCrypt();
+		assertThat(calibration.getParameters()).containsEntry("cpuCost", 2048).containsEntry("memoryCost", 8);
+		String encoded = calibration.getEncoder().encode("password");
+		assertThat(calibration.getEncoder().matches("password", encoded)).isTrue();
+	}
+
+	@Test
+	public void calibrateSCryptWhenMemoryBudgetLargeThenBoundedByTarget() {
+		this.calibrator.setMemoryBudget(64 * 1024 * 1024);
+		Calibration<SCryptPasswordEncoder> calibration = this.calibrator.calibrateSCrypt();
+		assertThat(calibration.getParameters()).containsEntry("cpuCost", 16384);
+	}
+
+	@Test
+	public void calibrateArgon2ThenMemoryBoundedByBudgetAndIterationsByTarget() {
+		Calibration<Argon2PasswordEncoder> calibration = this.calibrator.calibrateArgon2();
+		assertThat(calibration.getParameters()).containsEntry("memory", 2048).containsEntry("iterations", 10);
+		assertThat(calibration.getLatency()).isEqualTo(Duration.ofMillis(20));
+		String encoded = calibration.getEncoder().encode("password");
+		assertThat(calibration.getEncoder().matches("password", encoded)).isTrue();
+	}
+
+	@Test
+	public void createDelegatingPasswordEncoderWhenNotCalibratedIdThenUpgradeEncoding() {
+		DelegatingPasswordEncoder encoder = this.calibrator.createDelegatingPasswordEncoder();
+		String encoded = encoder.encode("password");
+		assertThat(encoded).startsWith("{bcrypt}");
+		assertThat(encoder.matches("password", encoded)).isTrue();
+		assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+		assertThat(encoder.upgradeEncoding("{ldap}{SSHA}igvD9lOiTXm16dmOw0YWRb9OjK2ThZvdQku2EQ==")).isTrue();
+	}
+
+	@Test
+	public void createDelegatingPasswordEncoderWhenPbkdf2SpringSecurityV58ThenMatchesWithDefaults() {
+		DelegatingPasswordEncoder encoder = this.calibrator.createDelegatingPasswordEncoder();
+		String encoded = "{pbkdf2@SpringSecurity_v5_8}"
+				+ Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8().encode("password");
+		assertThat(encoder.matches("password", encoded)).isTrue();
+	}
+
+	@Test
+	public void createDelegatingPasswordEncoderWhenPbkdf2CalibratedThenMatchesWithCalibratedIterations() {
+		DelegatingPasswordEncoder encoder = this.calibrator.createDelegatingPasswordEncoder();
+		String encoded = "{pbkdf2@calibrated}" + this.calibrator.calibratePbkdf2().getEncoder().encode("password");
+		assertThat(encoder.matches("password", encoded)).isTrue();
+		assertThat(encoder.upgradeEncoding(encoded)).isTrue();
+	}
+
+	/**
+	 * A deterministic cost model: BCrypt doubles per log round starting at 1ms, PBKDF2
+	 * takes 1ms per 1000 iterations, SCrypt 1ms per 1024 cpu cost, and Argon2 1ms per MiB
+	 * and iteration.
+	 */
+	private static Duration cost(String algorithm, Map<String, Integer> parameters,
+			Supplier<? extends PasswordEncoder> encoder) {
+		switch (algorithm) {
+			case "bcrypt":
+				return Duration.ofMillis(1L << (parameters.get("strength") - 4));
+			case "pbkdf2":
+				return Duration.ofMillis(parameters.get("iterations") / 1000);
+			case "scrypt":
+				return Duration.ofMillis(parameters.get("cpuCost") / 1024);
+			default:
+				return Duration.ofMillis((parameters.get("memory") / 1024) * parameters.get("iterations"));
+		}
+	}
+
+}
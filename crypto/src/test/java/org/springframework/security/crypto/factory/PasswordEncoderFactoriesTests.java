@@ -16,6 +16,9 @@
 
 package org.springframework.security.crypto.factory;
 
+import java.util.Map;
+import java.util.function.Predicate;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -123,4 +126,15 @@ public class PasswordEncoderFactoriesTests {
 		assertThat(this.encoder.matches(this.rawPassword, encodedPassword)).isTrue();
 	}
 
+	@Test
+	public void matcherWhenEachDefaultEncoderThenWorks() {
+		for (Map.Entry<String, PasswordEncoder> entry : PasswordEncoderFactories.createDefaultEncoders().entrySet()) {
+			String encodedPassword = "{" + entry.getKey() + "}" + entry.getValue().encode(this.rawPassword);
+			Predicate<CharSequence> matcher = this.encoder.matcher(encodedPassword);
+			assertThat(matcher.test(this.rawPassword)).as(entry.getKey()).isTrue();
+			assertThat(matcher.test("wrong")).as(entry.getKey()).isFalse();
+			assertThat(matcher.test(this.rawPassword)).as(entry.getKey()).isTrue();
+		}
+	}
+
 }
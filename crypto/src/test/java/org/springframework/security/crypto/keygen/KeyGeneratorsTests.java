@@ -17,6 +17,14 @@
 package org.springframework.security.crypto.keygen;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -46,6 +54,55 @@ public class KeyGeneratorsTests {
 		assertThat(Arrays.equals(key, key2)).isFalse();
 	}
 
+	@Test
+	public void threadLocalSecureRandom() {
+		BytesKeyGenerator keyGenerator = KeyGenerators.threadLocalSecureRandom();
+		assertThat(keyGenerator.getKeyLength()).isEqualTo(8);
+		byte[] key = keyGenerator.generateKey();
+		assertThat(key).hasSize(8);
+		byte[] key2 = keyGenerator.generateKey();
+		assertThat(Arrays.equals(key, key2)).isFalse();
+	}
+
+	@Test
+	public void threadLocalSecureRandomCustomLength() {
+		BytesKeyGenerator keyGenerator = KeyGenerators.threadLocalSecureRandom(21);
+		assertThat(keyGenerator.getKeyLength()).isEqualTo(21);
+		byte[] key = keyGenerator.generateKey();
+		assertThat(key).hasSize(21);
+		byte[] key2 = keyGenerator.generateKey();
+		assertThat(Arrays.equals(key, key2)).isFalse();
+	}
+
+	@Test
+	public void threadLocalSecureRandomWhenConcurrentThenUniqueKeys() throws Exception {
+		BytesKeyGenerator keyGenerator = KeyGenerators.threadLocalSecureRandom(16);
+		Set<String> keys = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = IntStream.range(0, 4)
+					.mapToObj((i) -> executor.submit(() -> IntStream.range(0, 1000)
+							.forEach((j) -> keys.add(Hex.encodeToString(keyGenerator.generateKey())))))
+					.collect(Collectors.toList());
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(keys).hasSize(4000);
+	}
+
+	@Test
+	public void threadLocalSecureRandomWhenReseededThenUniqueKeys() {
+		BytesKeyGenerator keyGenerator = KeyGenerators.threadLocalSecureRandom(8192);
+		// reseeding happens every 1MiB per thread, so this crosses a reseed
+		Set<String> keys = IntStream.range(0, 160).mapToObj((i) -> Hex.encodeToString(keyGenerator.generateKey()))
+				.collect(Collectors.toSet());
+		assertThat(keys).hasSize(160);
+	}
+
 	@Test
 	public void shared() {
 		BytesKeyGenerator keyGenerator = KeyGenerators.shared(21);
@@ -66,4 +123,12 @@ public class KeyGeneratorsTests {
 		assertThat(hexStringKey.equals(hexStringKey2)).isFalse();
 	}
 
+	@Test
+	public void stringWhenBytesKeyGeneratorThenHexEncoded() {
+		StringKeyGenerator keyGenerator = KeyGenerators.string(KeyGenerators.threadLocalSecureRandom(16));
+		String hexStringKey = keyGenerator.generateKey();
+		assertThat(hexStringKey.length()).isEqualTo(32);
+		assertThat(Hex.decode(hexStringKey)).hasSize(16);
+	}
+
 }
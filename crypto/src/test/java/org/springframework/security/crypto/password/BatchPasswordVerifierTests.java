@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.BatchPasswordVerifier.Candidate;
+import org.springframework.security.crypto.password.BatchPasswordVerifier.Result;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BatchPasswordVerifier}.
+ */
+public class BatchPasswordVerifierTests {
+
+	private final PasswordEncoder encoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+
+	@Test
+	public void constructorWhenNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new BatchPasswordVerifier(null));
+	}
+
+	@Test
+	public void setParallelismWhenZeroThenIllegalArgumentException() {
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(this.encoder);
+		assertThatIllegalArgumentException().isThrownBy(() -> verifier.setParallelism(0));
+	}
+
+	@Test
+	public void verifyWhenMixedEncodersThenEachCandidateVerified() {
+		String bcrypt = this.encoder.encode("password");
+		String sha256 = "{sha256}97cde38028ad898ebc02e690819fa220e88c62e0699403e94fff291cfffaf8410849f27605abcbc0";
+		String noop = "{noop}password";
+		List<Candidate> candidates = new ArrayList<>();
+		for (String encodedPassword : new String[] { bcrypt, sha256, noop }) {
+			candidates.add(new Candidate("password", encodedPassword));
+			candidates.add(new Candidate("123456", encodedPassword));
+			candidates.add(new Candidate("qwerty", encodedPassword));
+		}
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(this.encoder);
+		verifier.setParallelism(3);
+		List<Result> results = new ArrayList<>();
+		verifier.verify(candidates.stream(), results::add);
+		assertThat(results).extracting(Result::getCandidate).containsExactlyInAnyOrderElementsOf(candidates);
+		assertThat(
+				results.stream().filter(Result::isMatch).map(Result::getCandidate).map(Candidate::getEncodedPassword))
+						.containsExactlyInAnyOrder(bcrypt, sha256, noop);
+	}
+
+	@Test
+	public void verifyWhenSameEncodedPasswordThenPreparedOnce() {
+		AtomicInteger prepared = new AtomicInteger();
+		PasswordEncoder counting = new PasswordEncoder() {
+
+			@Override
+			public String encode(CharSequence rawPassword) {
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return rawPassword.toString().equals(encodedPassword);
+			}
+
+			@Override
+			public Predicate<CharSequence> matcher(String encodedPassword) {
+				prepared.incrementAndGet();
+				return PasswordEncoder.super.matcher(encodedPassword);
+			}
+
+		};
+		Stream<Candidate> candidates = IntStream.range(0, 100)
+				.mapToObj((i) -> new Candidate(String.valueOf(i), (i < 50) ? "7" : "77"));
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(counting);
+		verifier.setParallelism(2);
+		List<Result> results = new ArrayList<>();
+		verifier.verify(candidates, results::add);
+		assertThat(prepared).hasValue(2);
+		assertThat(results).hasSize(100);
+		assertThat(results.stream().filter(Result::isMatch).map((result) -> result.getCandidate().getRawPassword())
+				.collect(Collectors.toList())).containsExactlyInAnyOrder("7", "77");
+	}
+
+	@Test
+	public void verifyWhenLargeStreamThenResultsDeliveredBeforeStreamConsumed() {
+		AtomicInteger read = new AtomicInteger();
+		AtomicInteger maxAhead = new AtomicInteger();
+		AtomicInteger delivered = new AtomicInteger();
+		Stream<Candidate> candidates = IntStream.range(0, 1000).mapToObj((i) -> {
+			maxAhead.accumulateAndGet(read.incrementAndGet() - delivered.get(), Math::max);
+			return new Candidate("password", "{noop}password");
+		});
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(this.encoder);
+		verifier.setParallelism(2);
+		verifier.verify(candidates, (result) -> delivered.incrementAndGet());
+		assertThat(delivered).hasValue(1000);
+		assertThat(maxAhead.get()).isLessThanOrEqualTo(5);
+	}
+
+	@Test
+	public void verifyWhenUnmappedIdThenIllegalArgumentException() {
+		Stream<Candidate> candidates = Stream.of(new Candidate("password", "{noop}password"),
+				new Candidate("password", "{unmapped}password"));
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(this.encoder);
+		assertThatIllegalArgumentException().isThrownBy(() -> verifier.verify(candidates, (result) -> {
+		})).withMessageContaining("unmapped");
+	}
+
+	@Test
+	public void verifyWhenInterruptedThenIllegalStateException() {
+		Stream<Candidate> candidates = Stream.of(new Candidate("password", this.encoder.encode("password")));
+		BatchPasswordVerifier verifier = new BatchPasswordVerifier(this.encoder);
+		Thread.currentThread().interrupt();
+		try {
+			assertThatIllegalStateException().isThrownBy(() -> verifier.verify(candidates, (result) -> {
+			}));
+			assertThat(Thread.currentThread().isInterrupted()).isTrue();
+		}
+		finally {
+			Thread.interrupted();
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.security.crypto.password;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -290,4 +291,25 @@ public class DelegatingPasswordEncoderTests {
 		verifyNoMoreInteractions(this.bcrypt);
 	}
 
+	@Test
+	public void matcherWhenIdThenDelegatesToEncoderMatcher() {
+		Predicate<CharSequence> matcher = (rawPassword) -> true;
+		given(this.bcrypt.matcher(this.encodedPassword)).willReturn(matcher);
+		assertThat(this.passwordEncoder.matcher(this.bcryptEncodedPassword)).isSameAs(matcher);
+		verifyNoMoreInteractions(this.noop);
+	}
+
+	@Test
+	public void matcherWhenIdIsNotMappedThenIllegalArgumentExceptionOnTest() {
+		Predicate<CharSequence> matcher = this.passwordEncoder.matcher("{unmapped}" + this.encodedPassword);
+		assertThatIllegalArgumentException().isThrownBy(() -> matcher.test(this.rawPassword))
+				.withMessage("There is no PasswordEncoder mapped for the id \"unmapped\"");
+	}
+
+	@Test
+	public void matcherWhenNullEncodedPasswordThenMatchesNullRawPassword() {
+		Predicate<CharSequence> matcher = this.passwordEncoder.matcher(null);
+		assertThat(matcher.test(null)).isTrue();
+	}
+
 }
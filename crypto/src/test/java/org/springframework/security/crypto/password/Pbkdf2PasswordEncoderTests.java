@@ -17,6 +17,7 @@
 package org.springframework.security.crypto.password;
 
 import java.util.Arrays;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.Test;
 
@@ -24,6 +25,7 @@ import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.keygen.KeyGenerators;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 
 public class Pbkdf2PasswordEncoderTests {
@@ -206,6 +208,21 @@ public class Pbkdf2PasswordEncoderTests {
 		assertThat(encoder.matches(rawPassword, encodedPassword)).isTrue();
 	}
 
+	@Test
+	public void matcherWhenSameEncodedPasswordThenMatchesLikeMatches() {
+		String encodedPassword = this.encoder.encode("password");
+		Predicate<CharSequence> matcher = this.encoder.matcher(encodedPassword);
+		assertThat(matcher.test("password")).isTrue();
+		assertThat(matcher.test("wrong")).isFalse();
+	}
+
+	@Test
+	public void matcherWhenMalformedThenFailsOnVerificationLikeMatches() {
+		Predicate<CharSequence> matcher = this.encoder.matcher("abc");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.encoder.matches("password", "abc"));
+		assertThatIllegalArgumentException().isThrownBy(() -> matcher.test("password"));
+	}
+
 	/**
 	 * Used to find the iteration count that takes .5 seconds.
 	 */
@@ -16,6 +16,12 @@
 
 package org.springframework.security.data.repository.query;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.data.spel.spi.EvaluationContextExtension;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.expression.DenyAllPermissionEvaluator;
@@ -25,6 +31,7 @@ import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
@@ -103,6 +110,8 @@ public class SecurityEvaluationContextExtension implements EvaluationContextExte
 
 	private String defaultRolePrefix = "ROLE_";
 
+	private volatile AclProperties aclProperties;
+
 	/**
 	 * Creates a new instance that uses the current {@link Authentication} found on the
 	 * {@link org.springframework.security.core.context.SecurityContextHolder}.
@@ -135,6 +144,26 @@ public class SecurityEvaluationContextExtension implements EvaluationContextExte
 		return root;
 	}
 
+	/**
+	 * Exposes the name of the principal as <code>aclPrincipal</code> and its reachable
+	 * authorities as <code>aclAuthorities</code>, matching the security identities of the
+	 * ACL module. They can be bound in queries that check ACL permissions, such as the
+	 * <code>AclPermissionPredicate</code> of <code>spring-security-acl</code>, for
+	 * example <code>:#{aclPrincipal}</code>. The reachable authorities are computed once
+	 * for each {@link Authentication}, rather than for each evaluation.
+	 * @since 5.8
+	 */
+	@Override
+	public Map<String, Object> getProperties() {
+		Authentication authentication = getAuthentication();
+		AclProperties aclProperties = this.aclProperties;
+		if (aclProperties == null || aclProperties.authentication != authentication) {
+			aclProperties = new AclProperties(authentication, this.roleHierarchy);
+			this.aclProperties = aclProperties;
+		}
+		return aclProperties.properties;
+	}
+
 	/**
 	 * Sets the {@link SecurityContextHolderStrategy} to use. The default action is to use
 	 * the {@link SecurityContextHolderStrategy} stored in {@link SecurityContextHolder}.
@@ -174,6 +203,7 @@ public class SecurityEvaluationContextExtension implements EvaluationContextExte
 	public void setRoleHierarchy(RoleHierarchy roleHierarchy) {
 		Assert.notNull(roleHierarchy, "roleHierarchy cannot be null");
 		this.roleHierarchy = roleHierarchy;
+		this.aclProperties = null;
 	}
 
 	/**
@@ -202,4 +232,29 @@ public class SecurityEvaluationContextExtension implements EvaluationContextExte
 		this.defaultRolePrefix = defaultRolePrefix;
 	}
 
+	private static final class AclProperties {
+
+		private final Authentication authentication;
+
+		private final Map<String, Object> properties;
+
+		private AclProperties(Authentication authentication, RoleHierarchy roleHierarchy) {
+			this.authentication = authentication;
+			Map<String, Object> properties = new HashMap<>();
+			properties.put("aclPrincipal", (authentication != null) ? authentication.getName() : null);
+			List<String> authorities = new ArrayList<>();
+			if (authentication != null) {
+				for (GrantedAuthority authority : roleHierarchy
+						.getReachableGrantedAuthorities(authentication.getAuthorities())) {
+					authorities.add(authority.getAuthority());
+				}
+			}
+			// "in ()" is not valid SQL, so bind an authority that never matches instead
+			properties.put("aclAuthorities", (!authorities.isEmpty()) ? Collections.unmodifiableList(authorities)
+					: Collections.singletonList(""));
+			this.properties = Collections.unmodifiableMap(properties);
+		}
+
+	}
+
 }
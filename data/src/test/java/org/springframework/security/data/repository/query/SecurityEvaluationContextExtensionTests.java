@@ -16,6 +16,11 @@
 
 package org.springframework.security.data.repository.query;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,6 +33,7 @@ import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
 import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
 import org.springframework.security.core.context.SecurityContextImpl;
@@ -161,6 +167,49 @@ public class SecurityEvaluationContextExtensionTests {
 		assertThat(root).extracting("defaultRolePrefix").isEqualTo("ROLE_");
 	}
 
+	@Test
+	public void getPropertiesWhenAuthenticationThenAclPrincipalAndReachableAuthorities() {
+		TestingAuthenticationToken authentication = new TestingAuthenticationToken("user", "password", "ROLE_ADMIN");
+		SecurityContextHolder.getContext().setAuthentication(authentication);
+		this.securityExtension
+				.setRoleHierarchy((authorities) -> AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER"));
+		Map<String, Object> properties = this.securityExtension.getProperties();
+		assertThat(properties).containsEntry("aclPrincipal", "user").containsEntry("aclAuthorities",
+				Arrays.asList("ROLE_ADMIN", "ROLE_USER"));
+	}
+
+	@Test
+	public void getPropertiesWhenNoAuthoritiesThenAclAuthoritiesNeverMatch() {
+		this.securityExtension = new SecurityEvaluationContextExtension(
+				new TestingAuthenticationToken("user", "password"));
+		Map<String, Object> properties = this.securityExtension.getProperties();
+		assertThat(properties).containsEntry("aclPrincipal", "user").containsEntry("aclAuthorities",
+				Collections.singletonList(""));
+	}
+
+	@Test
+	public void getPropertiesWhenSameAuthenticationThenReachableAuthoritiesComputedOnce() {
+		TestingAuthenticationToken authentication = new TestingAuthenticationToken("user", "password", "ROLE_ADMIN");
+		SecurityContextHolder.getContext().setAuthentication(authentication);
+		AtomicInteger computations = new AtomicInteger();
+		this.securityExtension.setRoleHierarchy((authorities) -> {
+			computations.incrementAndGet();
+			return authorities;
+		});
+		Map<String, Object> properties = this.securityExtension.getProperties();
+		assertThat(this.securityExtension.getProperties()).isSameAs(properties);
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("admin", "password", "ROLE_ADMIN"));
+		assertThat(this.securityExtension.getProperties()).containsEntry("aclPrincipal", "admin");
+		assertThat(computations).hasValue(2);
+	}
+
+	@Test
+	public void getPropertiesWhenAuthenticationNullThenAclPrincipalNull() {
+		Map<String, Object> properties = this.securityExtension.getProperties();
+		assertThat(properties).containsEntry("aclPrincipal", null);
+	}
+
 	private SecurityExpressionRoot getRoot() {
 		return this.securityExtension.getRootObject();
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,18 @@
 package org.springframework.security.oauth2.client.jackson2;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdConverter;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.core.AuthenticationMethod;
@@ -38,42 +43,140 @@ import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
  * @see ClientRegistration
  * @see ClientRegistrationMixin
  */
-final class ClientRegistrationDeserializer extends JsonDeserializer<ClientRegistration> {
+final class ClientRegistrationDeserializer extends JsonDeserializer<ClientRegistration>
+		implements ResolvableDeserializer {
 
-	private static final StdConverter<JsonNode, ClientAuthenticationMethod> CLIENT_AUTHENTICATION_METHOD_CONVERTER = new StdConverters.ClientAuthenticationMethodConverter();
+	private JsonDeserializer<Object> stringSetDeserializer;
 
-	private static final StdConverter<JsonNode, AuthorizationGrantType> AUTHORIZATION_GRANT_TYPE_CONVERTER = new StdConverters.AuthorizationGrantTypeConverter();
+	private JsonDeserializer<Object> stringObjectMapDeserializer;
 
-	private static final StdConverter<JsonNode, AuthenticationMethod> AUTHENTICATION_METHOD_CONVERTER = new StdConverters.AuthenticationMethodConverter();
+	@Override
+	public void resolve(DeserializationContext context) throws JsonMappingException {
+		this.stringSetDeserializer = context
+				.findRootValueDeserializer(context.getTypeFactory().constructType(JsonNodeUtils.STRING_SET));
+		this.stringObjectMapDeserializer = context
+				.findRootValueDeserializer(context.getTypeFactory().constructType(JsonNodeUtils.STRING_OBJECT_MAP));
+	}
 
 	@Override
 	public ClientRegistration deserialize(JsonParser parser, DeserializationContext context) throws IOException {
-		ObjectMapper mapper = (ObjectMapper) parser.getCodec();
-		JsonNode clientRegistrationNode = mapper.readTree(parser);
-		JsonNode providerDetailsNode = JsonNodeUtils.findObjectNode(clientRegistrationNode, "providerDetails");
-		JsonNode userInfoEndpointNode = JsonNodeUtils.findObjectNode(providerDetailsNode, "userInfoEndpoint");
-		return ClientRegistration
-				.withRegistrationId(JsonNodeUtils.findStringValue(clientRegistrationNode, "registrationId"))
-				.clientId(JsonNodeUtils.findStringValue(clientRegistrationNode, "clientId"))
-				.clientSecret(JsonNodeUtils.findStringValue(clientRegistrationNode, "clientSecret"))
-				.clientAuthenticationMethod(CLIENT_AUTHENTICATION_METHOD_CONVERTER
-						.convert(JsonNodeUtils.findObjectNode(clientRegistrationNode, "clientAuthenticationMethod")))
-				.authorizationGrantType(AUTHORIZATION_GRANT_TYPE_CONVERTER
-						.convert(JsonNodeUtils.findObjectNode(clientRegistrationNode, "authorizationGrantType")))
-				.redirectUri(JsonNodeUtils.findStringValue(clientRegistrationNode, "redirectUri"))
-				.scope(JsonNodeUtils.findValue(clientRegistrationNode, "scopes", JsonNodeUtils.STRING_SET, mapper))
-				.clientName(JsonNodeUtils.findStringValue(clientRegistrationNode, "clientName"))
-				.authorizationUri(JsonNodeUtils.findStringValue(providerDetailsNode, "authorizationUri"))
-				.tokenUri(JsonNodeUtils.findStringValue(providerDetailsNode, "tokenUri"))
-				.userInfoUri(JsonNodeUtils.findStringValue(userInfoEndpointNode, "uri"))
-				.userInfoAuthenticationMethod(AUTHENTICATION_METHOD_CONVERTER
-						.convert(JsonNodeUtils.findObjectNode(userInfoEndpointNode, "authenticationMethod")))
-				.userNameAttributeName(JsonNodeUtils.findStringValue(userInfoEndpointNode, "userNameAttributeName"))
-				.jwkSetUri(JsonNodeUtils.findStringValue(providerDetailsNode, "jwkSetUri"))
-				.issuerUri(JsonNodeUtils.findStringValue(providerDetailsNode, "issuerUri"))
-				.providerConfigurationMetadata(JsonNodeUtils.findValue(providerDetailsNode, "configurationMetadata",
-						JsonNodeUtils.STRING_OBJECT_MAP, mapper))
-				.build();
+		// the registration id is required to create the builder, but may be read last
+		String registrationId = null;
+		List<Consumer<ClientRegistration.Builder>> settings = new ArrayList<>();
+		JsonToken current = JsonParserUtils.firstField(parser);
+		for (; current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("registrationId".equals(field)) {
+				registrationId = JsonParserUtils.readString(parser, value);
+			}
+			else if ("clientId".equals(field)) {
+				String clientId = JsonParserUtils.readString(parser, value);
+				settings.add((builder) -> builder.clientId(clientId));
+			}
+			else if ("clientSecret".equals(field)) {
+				String clientSecret = JsonParserUtils.readString(parser, value);
+				settings.add((builder) -> builder.clientSecret(clientSecret));
+			}
+			else if ("clientAuthenticationMethod".equals(field)) {
+				ClientAuthenticationMethod clientAuthenticationMethod = StdConverters.ClientAuthenticationMethodConverter
+						.fromValue(JsonParserUtils.readValueField(parser, value));
+				settings.add((builder) -> builder.clientAuthenticationMethod(clientAuthenticationMethod));
+			}
+			else if ("authorizationGrantType".equals(field)) {
+				AuthorizationGrantType authorizationGrantType = StdConverters.AuthorizationGrantTypeConverter
+						.fromValue(JsonParserUtils.readValueField(parser, value));
+				settings.add((builder) -> builder.authorizationGrantType(authorizationGrantType));
+			}
+			else if ("redirectUri".equals(field)) {
+				String redirectUri = JsonParserUtils.readString(parser, value);
+				settings.add((builder) -> builder.redirectUri(redirectUri));
+			}
+			else if ("scopes".equals(field)) {
+				Set<String> scopes = JsonParserUtils.readContainer(parser, value, this.stringSetDeserializer, context);
+				settings.add((builder) -> builder.scope(scopes));
+			}
+			else if ("clientName".equals(field)) {
+				String clientName = JsonParserUtils.readString(parser, value);
+				settings.add((builder) -> builder.clientName(clientName));
+			}
+			else if ("providerDetails".equals(field)) {
+				readProviderDetails(parser, value, context, settings);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		ClientRegistration.Builder builder = ClientRegistration.withRegistrationId(registrationId);
+		settings.forEach((setting) -> setting.accept(builder));
+		return builder.build();
+	}
+
+	private void readProviderDetails(JsonParser parser, JsonToken value, DeserializationContext context,
+			List<Consumer<ClientRegistration.Builder>> settings) throws IOException {
+		if (value != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		for (JsonToken current = parser.nextToken(); current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String field = parser.getCurrentName();
+			JsonToken fieldValue = parser.nextToken();
+			if ("authorizationUri".equals(field)) {
+				String authorizationUri = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.authorizationUri(authorizationUri));
+			}
+			else if ("tokenUri".equals(field)) {
+				String tokenUri = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.tokenUri(tokenUri));
+			}
+			else if ("userInfoEndpoint".equals(field)) {
+				readUserInfoEndpoint(parser, fieldValue, settings);
+			}
+			else if ("jwkSetUri".equals(field)) {
+				String jwkSetUri = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.jwkSetUri(jwkSetUri));
+			}
+			else if ("issuerUri".equals(field)) {
+				String issuerUri = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.issuerUri(issuerUri));
+			}
+			else if ("configurationMetadata".equals(field)) {
+				Map<String, Object> configurationMetadata = JsonParserUtils.readContainer(parser, fieldValue,
+						this.stringObjectMapDeserializer, context);
+				settings.add((builder) -> builder.providerConfigurationMetadata(configurationMetadata));
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private void readUserInfoEndpoint(JsonParser parser, JsonToken value,
+			List<Consumer<ClientRegistration.Builder>> settings) throws IOException {
+		if (value != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+		for (JsonToken current = parser.nextToken(); current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String field = parser.getCurrentName();
+			JsonToken fieldValue = parser.nextToken();
+			if ("uri".equals(field)) {
+				String userInfoUri = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.userInfoUri(userInfoUri));
+			}
+			else if ("authenticationMethod".equals(field)) {
+				AuthenticationMethod userInfoAuthenticationMethod = StdConverters.AuthenticationMethodConverter
+						.fromValue(JsonParserUtils.readValueField(parser, fieldValue));
+				settings.add((builder) -> builder.userInfoAuthenticationMethod(userInfoAuthenticationMethod));
+			}
+			else if ("userNameAttributeName".equals(field)) {
+				String userNameAttributeName = JsonParserUtils.readString(parser, fieldValue);
+				settings.add((builder) -> builder.userNameAttributeName(userNameAttributeName));
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
 	}
 
 }
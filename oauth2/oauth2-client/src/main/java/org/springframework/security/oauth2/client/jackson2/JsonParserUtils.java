@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.jackson2;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Utility class for reading values from a {@code JsonParser} without first reading them
+ * into a {@code JsonNode}. Values of an unexpected type are skipped and read as
+ * {@code null}, as {@link JsonNodeUtils} does.
+ *
+ * @since 5.8
+ */
+abstract class JsonParserUtils {
+
+	/**
+	 * Returns the first field name token of the current object. A type deserializer may
+	 * already have consumed the start of the object.
+	 */
+	static JsonToken firstField(JsonParser parser) throws IOException {
+		return parser.isExpectedStartObjectToken() ? parser.nextToken() : parser.currentToken();
+	}
+
+	static String readString(JsonParser parser, JsonToken value) throws IOException {
+		if (value == JsonToken.VALUE_STRING) {
+			return parser.getText();
+		}
+		parser.skipChildren();
+		return null;
+	}
+
+	/**
+	 * Reads the {@code value} field of an object such as a serialized
+	 * {@code AuthorizationGrantType}.
+	 */
+	static String readValueField(JsonParser parser, JsonToken value) throws IOException {
+		if (value != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return null;
+		}
+		String result = null;
+		for (JsonToken current = parser.nextToken(); current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String field = parser.getCurrentName();
+			JsonToken fieldValue = parser.nextToken();
+			if ("value".equals(field)) {
+				result = readString(parser, fieldValue);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T readContainer(JsonParser parser, JsonToken value, JsonDeserializer<Object> deserializer,
+			DeserializationContext context) throws IOException {
+		if (value != JsonToken.START_OBJECT && value != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return null;
+		}
+		try {
+			return (T) deserializer.deserialize(parser, context);
+		}
+		catch (JsonMappingException ex) {
+			// invalid values are reported like ObjectMapper.convertValue does
+			throw new IllegalArgumentException(ex.getMessage(), ex);
+		}
+	}
+
+}
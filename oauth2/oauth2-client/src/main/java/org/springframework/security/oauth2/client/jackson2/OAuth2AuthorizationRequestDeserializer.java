@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,14 +17,16 @@
 package org.springframework.security.oauth2.client.jackson2;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdConverter;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
@@ -38,32 +40,79 @@ import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequ
  * @see OAuth2AuthorizationRequest
  * @see OAuth2AuthorizationRequestMixin
  */
-final class OAuth2AuthorizationRequestDeserializer extends JsonDeserializer<OAuth2AuthorizationRequest> {
+final class OAuth2AuthorizationRequestDeserializer extends JsonDeserializer<OAuth2AuthorizationRequest>
+		implements ResolvableDeserializer {
 
-	private static final StdConverter<JsonNode, AuthorizationGrantType> AUTHORIZATION_GRANT_TYPE_CONVERTER = new StdConverters.AuthorizationGrantTypeConverter();
+	private JsonDeserializer<Object> stringSetDeserializer;
+
+	private JsonDeserializer<Object> stringObjectMapDeserializer;
 
 	@Override
-	public OAuth2AuthorizationRequest deserialize(JsonParser parser, DeserializationContext context)
-			throws IOException {
-		ObjectMapper mapper = (ObjectMapper) parser.getCodec();
-		JsonNode root = mapper.readTree(parser);
-		return deserialize(parser, mapper, root);
+	public void resolve(DeserializationContext context) throws JsonMappingException {
+		this.stringSetDeserializer = context
+				.findRootValueDeserializer(context.getTypeFactory().constructType(JsonNodeUtils.STRING_SET));
+		this.stringObjectMapDeserializer = context
+				.findRootValueDeserializer(context.getTypeFactory().constructType(JsonNodeUtils.STRING_OBJECT_MAP));
 	}
 
-	private OAuth2AuthorizationRequest deserialize(JsonParser parser, ObjectMapper mapper, JsonNode root)
-			throws JsonParseException {
-		AuthorizationGrantType authorizationGrantType = AUTHORIZATION_GRANT_TYPE_CONVERTER
-				.convert(JsonNodeUtils.findObjectNode(root, "authorizationGrantType"));
-		Builder builder = getBuilder(parser, authorizationGrantType);
-		builder.authorizationUri(JsonNodeUtils.findStringValue(root, "authorizationUri"));
-		builder.clientId(JsonNodeUtils.findStringValue(root, "clientId"));
-		builder.redirectUri(JsonNodeUtils.findStringValue(root, "redirectUri"));
-		builder.scopes(JsonNodeUtils.findValue(root, "scopes", JsonNodeUtils.STRING_SET, mapper));
-		builder.state(JsonNodeUtils.findStringValue(root, "state"));
-		builder.additionalParameters(
-				JsonNodeUtils.findValue(root, "additionalParameters", JsonNodeUtils.STRING_OBJECT_MAP, mapper));
-		builder.authorizationRequestUri(JsonNodeUtils.findStringValue(root, "authorizationRequestUri"));
-		builder.attributes(JsonNodeUtils.findValue(root, "attributes", JsonNodeUtils.STRING_OBJECT_MAP, mapper));
+	@Override
+	public OAuth2AuthorizationRequest deserialize(JsonParser parser, DeserializationContext context)
+			throws IOException {
+		String authorizationGrantType = null;
+		String authorizationUri = null;
+		String clientId = null;
+		String redirectUri = null;
+		Set<String> scopes = null;
+		String state = null;
+		Map<String, Object> additionalParameters = null;
+		String authorizationRequestUri = null;
+		Map<String, Object> attributes = null;
+		JsonToken current = JsonParserUtils.firstField(parser);
+		for (; current == JsonToken.FIELD_NAME; current = parser.nextToken()) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("authorizationGrantType".equals(field)) {
+				authorizationGrantType = JsonParserUtils.readValueField(parser, value);
+			}
+			else if ("authorizationUri".equals(field)) {
+				authorizationUri = JsonParserUtils.readString(parser, value);
+			}
+			else if ("clientId".equals(field)) {
+				clientId = JsonParserUtils.readString(parser, value);
+			}
+			else if ("redirectUri".equals(field)) {
+				redirectUri = JsonParserUtils.readString(parser, value);
+			}
+			else if ("scopes".equals(field)) {
+				scopes = JsonParserUtils.readContainer(parser, value, this.stringSetDeserializer, context);
+			}
+			else if ("state".equals(field)) {
+				state = JsonParserUtils.readString(parser, value);
+			}
+			else if ("additionalParameters".equals(field)) {
+				additionalParameters = JsonParserUtils.readContainer(parser, value, this.stringObjectMapDeserializer,
+						context);
+			}
+			else if ("authorizationRequestUri".equals(field)) {
+				authorizationRequestUri = JsonParserUtils.readString(parser, value);
+			}
+			else if ("attributes".equals(field)) {
+				attributes = JsonParserUtils.readContainer(parser, value, this.stringObjectMapDeserializer, context);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		Builder builder = getBuilder(parser,
+				StdConverters.AuthorizationGrantTypeConverter.fromValue(authorizationGrantType));
+		builder.authorizationUri(authorizationUri);
+		builder.clientId(clientId);
+		builder.redirectUri(redirectUri);
+		builder.scopes(scopes);
+		builder.state(state);
+		builder.additionalParameters(additionalParameters);
+		builder.authorizationRequestUri(authorizationRequestUri);
+		builder.attributes(attributes);
 		return builder.build();
 	}
 
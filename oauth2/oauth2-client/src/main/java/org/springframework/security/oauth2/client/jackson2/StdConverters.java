@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,7 +49,10 @@ abstract class StdConverters {
 
 		@Override
 		public ClientAuthenticationMethod convert(JsonNode jsonNode) {
-			String value = JsonNodeUtils.findStringValue(jsonNode, "value");
+			return fromValue(JsonNodeUtils.findStringValue(jsonNode, "value"));
+		}
+
+		static ClientAuthenticationMethod fromValue(String value) {
 			if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue().equalsIgnoreCase(value)
 					|| ClientAuthenticationMethod.BASIC.getValue().equalsIgnoreCase(value)) {
 				return ClientAuthenticationMethod.CLIENT_SECRET_BASIC;
@@ -70,7 +73,10 @@ abstract class StdConverters {
 
 		@Override
 		public AuthorizationGrantType convert(JsonNode jsonNode) {
-			String value = JsonNodeUtils.findStringValue(jsonNode, "value");
+			return fromValue(JsonNodeUtils.findStringValue(jsonNode, "value"));
+		}
+
+		static AuthorizationGrantType fromValue(String value) {
 			if (AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equalsIgnoreCase(value)) {
 				return AuthorizationGrantType.AUTHORIZATION_CODE;
 			}
@@ -92,7 +98,10 @@ abstract class StdConverters {
 
 		@Override
 		public AuthenticationMethod convert(JsonNode jsonNode) {
-			String value = JsonNodeUtils.findStringValue(jsonNode, "value");
+			return fromValue(JsonNodeUtils.findStringValue(jsonNode, "value"));
+		}
+
+		static AuthenticationMethod fromValue(String value) {
 			if (AuthenticationMethod.HEADER.getValue().equalsIgnoreCase(value)) {
 				return AuthenticationMethod.HEADER;
 			}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -165,6 +165,26 @@ public class OAuth2AuthorizedClientMixinTests {
 		assertThat(refreshToken.getExpiresAt()).isEqualTo(expectedRefreshToken.getExpiresAt());
 	}
 
+	@Test
+	public void deserializeWhenRegistrationIdLastThenDeserializes() throws Exception {
+		ClientRegistration expectedClientRegistration = this.clientRegistrationBuilder.build();
+		OAuth2AuthorizedClient expectedAuthorizedClient = new OAuth2AuthorizedClient(expectedClientRegistration,
+				this.principalName, this.accessToken);
+		String registrationId = "\"registrationId\": \"" + expectedClientRegistration.getRegistrationId() + "\"";
+		String clientName = "\"clientName\": \"" + expectedClientRegistration.getClientName() + "\"";
+		String json = asJson(expectedAuthorizedClient).replace(registrationId + ",", "").replace(clientName,
+				clientName + ", " + registrationId);
+		OAuth2AuthorizedClient authorizedClient = this.mapper.readValue(json, OAuth2AuthorizedClient.class);
+		ClientRegistration clientRegistration = authorizedClient.getClientRegistration();
+		assertThat(clientRegistration.getRegistrationId()).isEqualTo(expectedClientRegistration.getRegistrationId());
+		assertThat(clientRegistration.getClientId()).isEqualTo(expectedClientRegistration.getClientId());
+		assertThat(clientRegistration.getScopes()).isEqualTo(expectedClientRegistration.getScopes());
+		assertThat(clientRegistration.getProviderDetails().getConfigurationMetadata())
+				.containsExactlyEntriesOf(expectedClientRegistration.getProviderDetails().getConfigurationMetadata());
+		assertThat(clientRegistration.getProviderDetails().getUserInfoEndpoint().getAuthenticationMethod()).isEqualTo(
+				expectedClientRegistration.getProviderDetails().getUserInfoEndpoint().getAuthenticationMethod());
+	}
+
 	@Test
 	public void deserializeWhenRequiredAttributesOnlyThenDeserializes() throws Exception {
 		// @formatter:off
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Measures the throughput of {@link NimbusJwtDecoder#decode(String)} for tokens signed
+ * with a key of a JWK Set, which is retrieved once and then cached, and that carry a
+ * number of custom claims besides the registered ones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NimbusJwtDecoderBenchmarks {
+
+	private static final String JWK_SET_URI = "https://issuer.example.org/.well-known/jwks.json";
+
+	@Param({ "RS256", "ES256" })
+	private String algorithm;
+
+	@Param({ "0", "50" })
+	private int customClaims;
+
+	private NimbusJwtDecoder decoder;
+
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		RSAKey rsaKey = new RSAKeyGenerator(2048).keyID("rsa").generate();
+		ECKey ecKey = new ECKeyGenerator(Curve.P_256).keyID("ec").generate();
+		RSAKey otherKey = new RSAKeyGenerator(2048).keyID("other").generate();
+		String jwkSet = new JWKSet(Arrays.asList(rsaKey, ecKey, otherKey)).toString(true);
+		RestTemplate restOperations = new RestTemplate() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> ResponseEntity<T> exchange(RequestEntity<?> requestEntity, Class<T> responseType) {
+				return new ResponseEntity<>((T) jwkSet, HttpStatus.OK);
+			}
+
+		};
+		this.decoder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI).jwsAlgorithm(SignatureAlgorithm.RS256)
+				.jwsAlgorithm(SignatureAlgorithm.ES256).restOperations(restOperations).build();
+		JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(this.algorithm);
+		JWSSigner signer = JWSAlgorithm.RS256.equals(jwsAlgorithm) ? new RSASSASigner(rsaKey) : new ECDSASigner(ecKey);
+		String keyId = JWSAlgorithm.RS256.equals(jwsAlgorithm) ? rsaKey.getKeyID() : ecKey.getKeyID();
+		Instant now = Instant.now();
+		JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder().subject("user").issueTime(Date.from(now))
+				.expirationTime(Date.from(now.plusSeconds(3600))).claim("scope", "read write");
+		for (int i = 0; i < this.customClaims; i++) {
+			claims.claim("custom-" + i, "value-" + i);
+		}
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(jwsAlgorithm).keyID(keyId).build(), claims.build());
+		jwt.sign(signer);
+		this.token = jwt.serialize();
+	}
+
+	@Benchmark
+	public Jwt decode() {
+		return this.decoder.decode(this.token);
+	}
+
+}
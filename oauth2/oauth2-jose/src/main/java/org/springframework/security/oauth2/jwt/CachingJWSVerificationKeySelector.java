@@ -0,0 +1,258 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.crypto.SecretKey;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * A {@link JWSVerificationKeySelector} that converts each {@link JWK} of a JWK Set only
+ * once, and that, through its {@link #getJWSVerifierFactory() verifier factory}, reuses
+ * the {@link JWSVerifier}s created for the converted keys.
+ * <p>
+ * The {@link JWKSource} is expected to return the same {@link JWK} instances for as long
+ * as it caches a JWK Set, as a {@link com.nimbusds.jose.jwk.source.RemoteJWKSet} does,
+ * and to {@link #refresh(JWKSet) refresh} this selector whenever it retrieves a new JWK
+ * Set. All keys of the new JWK Set are then converted and their verifiers created at
+ * once, while keys with the same {@code kid} and thumbprint as before the refresh keep
+ * their verifiers. A {@link JWK} that was not seen before is converted when it is first
+ * selected.
+ *
+ * @param <C> the {@link SecurityContext} type
+ * @since 5.8
+ */
+final class CachingJWSVerificationKeySelector<C extends SecurityContext> extends JWSVerificationKeySelector<C> {
+
+	private final Set<JWSAlgorithm> jwsAlgorithms;
+
+	private final JWSVerifierFactory delegate = new DefaultJWSVerifierFactory();
+
+	private final JWSVerifierFactory jwsVerifierFactory = new CachingJWSVerifierFactory();
+
+	private volatile Keys keys = new Keys();
+
+	CachingJWSVerificationKeySelector(Set<JWSAlgorithm> jwsAlgorithms, JWKSource<C> jwkSource) {
+		super(jwsAlgorithms, jwkSource);
+		this.jwsAlgorithms = jwsAlgorithms;
+	}
+
+	/**
+	 * Returns the {@link JWSVerifierFactory} that reuses the {@link JWSVerifier}s created
+	 * for the keys selected by this selector
+	 * @return the {@link JWSVerifierFactory}
+	 */
+	JWSVerifierFactory getJWSVerifierFactory() {
+		return this.jwsVerifierFactory;
+	}
+
+	@Override
+	public List<Key> selectJWSKeys(JWSHeader header, C context) throws KeySourceException {
+		JWKMatcher matcher = createJWKMatcher(header);
+		if (matcher == null) {
+			return Collections.emptyList();
+		}
+		List<JWK> jwks = getJWKSource().get(new JWKSelector(matcher), context);
+		List<Key> candidates = new ArrayList<>(jwks.size());
+		for (JWK jwk : jwks) {
+			Entry entry = entry(jwk);
+			if (entry.key != null) {
+				candidates.add(entry.key);
+			}
+		}
+		return candidates;
+	}
+
+	private Entry entry(JWK jwk) {
+		Entry entry = this.keys.byJwk.get(jwk);
+		if (entry != null) {
+			return entry;
+		}
+		synchronized (this) {
+			Keys keys = this.keys;
+			entry = keys.byJwk.get(jwk);
+			if (entry != null) {
+				return entry;
+			}
+			List<JWK> jwks = new ArrayList<>(keys.byJwk.keySet());
+			jwks.add(jwk);
+			keys = new Keys(jwks, keys, this::convert);
+			this.keys = keys;
+			return keys.byJwk.get(jwk);
+		}
+	}
+
+	/**
+	 * Converts the keys of a JWK Set that was just retrieved, and creates their
+	 * verifiers, so that the first tokens signed with them do not have to
+	 * @param jwkSet the JWK Set
+	 */
+	synchronized void refresh(JWKSet jwkSet) {
+		this.keys = new Keys(jwkSet.getKeys(), this.keys, this::convert);
+	}
+
+	private Entry convert(JWK jwk) {
+		List<Key> converted = KeyConverter.toJavaKeys(Collections.singletonList(jwk));
+		for (Key key : converted) {
+			// skip asymmetric private keys
+			if (key instanceof PublicKey || key instanceof SecretKey) {
+				Entry entry = new Entry(key);
+				for (JWSAlgorithm jwsAlgorithm : this.jwsAlgorithms) {
+					entry.prewarm(jwsAlgorithm, this.delegate);
+				}
+				return entry;
+			}
+		}
+		return new Entry(null);
+	}
+
+	private static String id(JWK jwk) {
+		try {
+			return jwk.getKeyID() + "#" + jwk.computeThumbprint();
+		}
+		catch (JOSEException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * The converted keys of the current JWK Set, looked up by the identity of their
+	 * {@link JWK} and {@link Key}, and by the {@code kid} and thumbprint of their
+	 * {@link JWK}
+	 */
+	private static final class Keys {
+
+		private final Map<JWK, Entry> byJwk;
+
+		private final Map<Key, Entry> byKey;
+
+		private final Map<String, Entry> byId;
+
+		Keys() {
+			this.byJwk = Collections.emptyMap();
+			this.byKey = Collections.emptyMap();
+			this.byId = Collections.emptyMap();
+		}
+
+		Keys(List<JWK> jwks, Keys previous, Function<JWK, Entry> converter) {
+			this.byJwk = new IdentityHashMap<>();
+			this.byKey = new IdentityHashMap<>();
+			this.byId = new HashMap<>();
+			for (JWK jwk : jwks) {
+				String id = id(jwk);
+				Entry entry = (id != null) ? previous.byId.get(id) : null;
+				if (entry == null) {
+					entry = converter.apply(jwk);
+				}
+				this.byJwk.put(jwk, entry);
+				if (entry.key != null) {
+					this.byKey.put(entry.key, entry);
+				}
+				if (id != null) {
+					this.byId.put(id, entry);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A converted key and the {@link JWSVerifier}s created for it, by algorithm
+	 */
+	private static final class Entry {
+
+		private final Key key;
+
+		private final ConcurrentMap<JWSAlgorithm, JWSVerifier> verifiers = new ConcurrentHashMap<>();
+
+		Entry(Key key) {
+			this.key = key;
+		}
+
+		void prewarm(JWSAlgorithm jwsAlgorithm, JWSVerifierFactory factory) {
+			try {
+				this.verifiers.put(jwsAlgorithm, factory.createJWSVerifier(new JWSHeader(jwsAlgorithm), this.key));
+			}
+			catch (JOSEException ex) {
+				// the key cannot be used with this algorithm
+			}
+		}
+
+		JWSVerifier verifier(JWSHeader header, JWSVerifierFactory factory) throws JOSEException {
+			JWSVerifier verifier = this.verifiers.get(header.getAlgorithm());
+			if (verifier != null) {
+				return verifier;
+			}
+			verifier = factory.createJWSVerifier(header, this.key);
+			JWSVerifier existing = this.verifiers.putIfAbsent(header.getAlgorithm(), verifier);
+			return (existing != null) ? existing : verifier;
+		}
+
+	}
+
+	private final class CachingJWSVerifierFactory implements JWSVerifierFactory {
+
+		@Override
+		public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+			Entry entry = CachingJWSVerificationKeySelector.this.keys.byKey.get(key);
+			if (entry == null) {
+				return CachingJWSVerificationKeySelector.this.delegate.createJWSVerifier(header, key);
+			}
+			return entry.verifier(header, CachingJWSVerificationKeySelector.this.delegate);
+		}
+
+		@Override
+		public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+			return CachingJWSVerificationKeySelector.this.delegate.supportedJWSAlgorithms();
+		}
+
+		@Override
+		public JCAContext getJCAContext() {
+			return CachingJWSVerificationKeySelector.this.delegate.getJCAContext();
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -88,6 +88,19 @@ public class Jwt extends AbstractOAuth2Token implements JwtClaimAccessor {
 		return this.claims;
 	}
 
+	/**
+	 * Returns the {@code iat} or {@code exp} claim value, which the claim set converter
+	 * has already turned into an {@link Instant}.
+	 * @param timestamp the claim value, may be {@code null}
+	 * @return the {@link Instant}, or {@code null} if the claim is absent
+	 */
+	static Instant toInstant(Object timestamp) {
+		if (timestamp != null) {
+			Assert.isInstanceOf(Instant.class, timestamp, "timestamps must be of type Instant");
+		}
+		return (Instant) timestamp;
+	}
+
 	/**
 	 * Return a {@link Jwt.Builder}
 	 * @return A {@link Jwt.Builder}
@@ -248,13 +261,6 @@ public class Jwt extends AbstractOAuth2Token implements JwtClaimAccessor {
 			return new Jwt(this.tokenValue, iat, exp, this.headers, this.claims);
 		}
 
-		private Instant toInstant(Object timestamp) {
-			if (timestamp != null) {
-				Assert.isInstanceOf(Instant.class, timestamp, "timestamps must be of type Instant");
-			}
-			return (Instant) timestamp;
-		}
-
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -153,9 +153,13 @@ public final class MappedJwtClaimSetConverter implements Converter<Map<String, O
 			String claimName = entry.getKey();
 			Converter<Object, ?> converter = entry.getValue();
 			if (converter != null) {
-				Object claim = claims.get(claimName);
-				Object mappedClaim = converter.convert(claim);
-				mappedClaims.compute(claimName, (key, value) -> mappedClaim);
+				Object mappedClaim = converter.convert(claims.get(claimName));
+				if (mappedClaim != null) {
+					mappedClaims.put(claimName, mappedClaim);
+				}
+				else {
+					mappedClaims.remove(claimName);
+				}
 			}
 		}
 		Instant issuedAt = (Instant) mappedClaims.get(JwtClaimNames.IAT);
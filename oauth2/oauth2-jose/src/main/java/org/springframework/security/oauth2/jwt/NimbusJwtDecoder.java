@@ -21,13 +21,14 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
 import javax.crypto.SecretKey;
@@ -36,11 +37,11 @@ import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.RemoteKeySourceException;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.DefaultJWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.JWSKeySelector;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.proc.SingleKeyJWSKeySelector;
 import com.nimbusds.jose.util.Resource;
@@ -152,14 +153,12 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		try {
 			// Verify the signature
 			JWTClaimsSet jwtClaimsSet = this.jwtProcessor.process(parsedJwt, null);
-			Map<String, Object> headers = new LinkedHashMap<>(parsedJwt.getHeader().toJSONObject());
+			Map<String, Object> headers = parsedJwt.getHeader().toJSONObject();
 			Map<String, Object> claims = this.claimSetConverter.convert(jwtClaimsSet.getClaims());
-			// @formatter:off
-			return Jwt.withTokenValue(token)
-					.headers((h) -> h.putAll(headers))
-					.claims((c) -> c.putAll(claims))
-					.build();
-			// @formatter:on
+			// the Jwt copies the headers and claims, there is no need to copy them into a
+			// Jwt.Builder first
+			return new Jwt(token, Jwt.toInstant(claims.get(JwtClaimNames.IAT)),
+					Jwt.toInstant(claims.get(JwtClaimNames.EXP)), headers, claims);
 		}
 		catch (RemoteKeySourceException ex) {
 			this.logger.trace("Failed to retrieve JWK set", ex);
@@ -243,6 +242,10 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		private Cache cache;
 
+		private Duration jwkSetLifespan;
+
+		private ScheduledExecutorService jwkSetRefreshScheduler;
+
 		private Consumer<ConfigurableJWTProcessor<SecurityContext>> jwtProcessorCustomizer;
 
 		private JwkSetUriJwtDecoderBuilder(String jwkSetUri) {
@@ -307,6 +310,43 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background before it is older than the given lifespan.
+		 * <p>
+		 * Once the JWK Set is older than half of its lifespan, a scheduled task retrieves
+		 * it again without holding up requests, which keep using the current JWK Set
+		 * until the new one is retrieved. Concurrent requests share a single retrieval,
+		 * and the JWK Set is retrieved for an unknown {@code kid} at most every 30
+		 * seconds.
+		 * @param lifespan the time after which the JWK Set is no longer used
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 * @see #jwkSetRefreshScheduler(ScheduledExecutorService)
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetLifespan(Duration lifespan) {
+			Assert.notNull(lifespan, "lifespan cannot be null");
+			Assert.isTrue(!lifespan.isNegative() && !lifespan.isZero(), "lifespan must be positive");
+			this.jwkSetLifespan = lifespan;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link ScheduledExecutorService} to refresh the
+		 * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> in the
+		 * background, once a {@link #jwkSetLifespan(Duration) lifespan} is configured.
+		 * The caller remains responsible for shutting it down. Defaults to a single
+		 * daemon thread shared by all decoders.
+		 * @param scheduler the {@link ScheduledExecutorService} to use
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshScheduler(ScheduledExecutorService scheduler) {
+			Assert.notNull(scheduler, "scheduler cannot be null");
+			this.jwkSetRefreshScheduler = scheduler;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Consumer} to customize the {@link JWTProcessor
 		 * ConfigurableJWTProcessor} before passing it to the build
@@ -322,31 +362,49 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
-		JWSKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
+		CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
-				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
+				return new CachingJWSVerificationKeySelector<>(Collections.singleton(JWSAlgorithm.RS256), jwkSource);
 			}
 			Set<JWSAlgorithm> jwsAlgorithms = new HashSet<>();
 			for (SignatureAlgorithm signatureAlgorithm : this.signatureAlgorithms) {
 				JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(signatureAlgorithm.getName());
 				jwsAlgorithms.add(jwsAlgorithm);
 			}
-			return new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
+			return new CachingJWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
 		}
 
 		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever) {
+			return jwkSource(jwkSetRetriever, jwkSetCache());
+		}
+
+		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever, JWKSetCache jwkSetCache) {
+			if (this.jwkSetLifespan == null) {
+				return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever, jwkSetCache);
+			}
+			ScheduledExecutorService scheduler = (this.jwkSetRefreshScheduler != null) ? this.jwkSetRefreshScheduler
+					: RefreshAheadJWKSource.defaultScheduler();
+			return new RefreshAheadJWKSource<>(toURL(this.jwkSetUri), jwkSetRetriever, jwkSetCache, this.jwkSetLifespan,
+					scheduler);
+		}
+
+		private JWKSetCache jwkSetCache() {
 			if (this.cache == null) {
-				return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever);
+				return new DefaultJWKSetCache();
 			}
-			JWKSetCache jwkSetCache = new SpringJWKSetCache(this.jwkSetUri, this.cache);
-			return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever, jwkSetCache);
+			return new SpringJWKSetCache(this.jwkSetUri, this.cache);
 		}
 
 		JWTProcessor<SecurityContext> processor() {
 			ResourceRetriever jwkSetRetriever = new RestOperationsResourceRetriever(this.restOperations);
-			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever);
+			RefreshingJWKSetCache jwkSetCache = new RefreshingJWKSetCache(jwkSetCache());
+			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever, jwkSetCache);
 			ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
-			jwtProcessor.setJWSKeySelector(jwsKeySelector(jwkSource));
+			CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
+			// keys are converted and verifiers created once per JWK Set, not per token
+			jwkSetCache.setJwsKeySelector(jwsKeySelector);
+			jwtProcessor.setJWSKeySelector(jwsKeySelector);
+			jwtProcessor.setJWSVerifierFactory(jwsKeySelector.getJWSVerifierFactory());
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
 			});
@@ -397,7 +455,8 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 				}
 			}
 
-			// Note: Only called from inside a synchronized block in RemoteJWKSet.
+			// Note: Only called by one retrieval at a time, see RemoteJWKSet and
+			// RefreshAheadJWKSource.
 			@Override
 			public void put(JWKSet jwkSet) {
 				this.jwkSet = jwkSet;
@@ -417,6 +476,46 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		}
 
+		/**
+		 * Refreshes a {@link CachingJWSVerificationKeySelector} whenever a new JWK Set is
+		 * retrieved
+		 */
+		private static final class RefreshingJWKSetCache implements JWKSetCache {
+
+			private final JWKSetCache delegate;
+
+			private CachingJWSVerificationKeySelector<?> jwsKeySelector;
+
+			RefreshingJWKSetCache(JWKSetCache delegate) {
+				this.delegate = delegate;
+			}
+
+			void setJwsKeySelector(CachingJWSVerificationKeySelector<?> jwsKeySelector) {
+				this.jwsKeySelector = jwsKeySelector;
+			}
+
+			// Note: Only called by one retrieval at a time, see RemoteJWKSet and
+			// RefreshAheadJWKSource.
+			@Override
+			public void put(JWKSet jwkSet) {
+				this.delegate.put(jwkSet);
+				if (this.jwsKeySelector != null) {
+					this.jwsKeySelector.refresh(jwkSet);
+				}
+			}
+
+			@Override
+			public JWKSet get() {
+				return this.delegate.get();
+			}
+
+			@Override
+			public boolean requiresRefresh() {
+				return this.delegate.requiresRefresh();
+			}
+
+		}
+
 		private static class RestOperationsResourceRetriever implements ResourceRetriever {
 
 			private static final MediaType APPLICATION_JWK_SET_JSON = new MediaType("application", "jwk-set+json");
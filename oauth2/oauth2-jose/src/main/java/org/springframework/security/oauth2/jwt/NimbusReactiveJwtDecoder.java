@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,6 @@ import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiFunction;
@@ -180,10 +179,12 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 	private Jwt createJwt(JWT parsedJwt, JWTClaimsSet jwtClaimsSet) {
 		try {
-			Map<String, Object> headers = new LinkedHashMap<>(parsedJwt.getHeader().toJSONObject());
+			Map<String, Object> headers = parsedJwt.getHeader().toJSONObject();
 			Map<String, Object> claims = this.claimSetConverter.convert(jwtClaimsSet.getClaims());
-			return Jwt.withTokenValue(parsedJwt.getParsedString()).headers((h) -> h.putAll(headers))
-					.claims((c) -> c.putAll(claims)).build();
+			// the Jwt copies the headers and claims, there is no need to copy them into a
+			// Jwt.Builder first
+			return new Jwt(parsedJwt.getParsedString(), Jwt.toInstant(claims.get(JwtClaimNames.IAT)),
+					Jwt.toInstant(claims.get(JwtClaimNames.EXP)), headers, claims);
 		}
 		catch (Exception ex) {
 			throw new BadJwtException("An error occurred while attempting to decode the Jwt: " + ex.getMessage(), ex);
@@ -284,6 +285,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		private WebClient webClient = WebClient.create();
 
+		private Duration jwkSetLifespan;
+
 		private BiFunction<ReactiveRemoteJWKSource, ConfigurableJWTProcessor<JWKSecurityContext>, Mono<ConfigurableJWTProcessor<JWKSecurityContext>>> jwtProcessorCustomizer;
 
 		private JwkSetUriReactiveJwtDecoderBuilder(String jwkSetUri) {
@@ -334,6 +337,26 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background before it is older than the given lifespan.
+		 * <p>
+		 * Once the JWK Set is half of its lifespan old, it is retrieved again on
+		 * {@link reactor.core.scheduler.Schedulers#parallel()}, also when no tokens are
+		 * decoded, while requests keep using the current JWK Set until the new one is
+		 * retrieved. A failed refresh is retried after 30 seconds, and the JWK Set is
+		 * retrieved for an unknown {@code kid} at most every 30 seconds.
+		 * @param lifespan the time after which the JWK Set is no longer used
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetLifespan(Duration lifespan) {
+			Assert.notNull(lifespan, "lifespan cannot be null");
+			Assert.isTrue(!lifespan.isNegative() && !lifespan.isZero(), "lifespan must be positive");
+			this.jwkSetLifespan = lifespan;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Consumer} to customize the {@link JWTProcessor
 		 * ConfigurableJWTProcessor} before passing it to the build
@@ -388,6 +411,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			});
 			ReactiveRemoteJWKSource source = new ReactiveRemoteJWKSource(this.jwkSetUri);
 			source.setWebClient(this.webClient);
+			source.setLifespan(this.jwkSetLifespan);
 			Function<JWSAlgorithm, Boolean> expectedJwsAlgorithms = getExpectedJwsAlgorithms(jwsKeySelector);
 			Mono<ConfigurableJWTProcessor<JWKSecurityContext>> jwtProcessorMono = this.jwtProcessorCustomizer
 					.apply(source, jwtProcessor)
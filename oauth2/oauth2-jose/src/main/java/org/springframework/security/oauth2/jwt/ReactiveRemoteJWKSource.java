@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,11 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.lang.ref.WeakReference;
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -27,7 +31,11 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.JWKSet;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -38,15 +46,32 @@ import org.springframework.web.reactive.function.client.WebClient;
  */
 class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 
+	private final Log logger = LogFactory.getLog(getClass());
+
 	/**
 	 * The cached JWK set.
 	 */
-	private final AtomicReference<Mono<JWKSet>> cachedJWKSet = new AtomicReference<>(Mono.empty());
+	private final AtomicReference<Retrieved> cachedJWKSet = new AtomicReference<>();
+
+	/**
+	 * The retrieval of the JWK set that is in progress, shared by concurrent requests.
+	 */
+	private final AtomicReference<Mono<JWKSet>> retrieval = new AtomicReference<>();
+
+	private final AtomicReference<Disposable> scheduledRefresh = new AtomicReference<>();
 
 	private WebClient webClient = WebClient.create();
 
 	private final String jwkSetURL;
 
+	private Duration lifespan;
+
+	private Duration minRefreshInterval = Duration.ofSeconds(30);
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Instant nextKeyIdRefresh = Instant.MIN;
+
 	ReactiveRemoteJWKSource(String jwkSetURL) {
 		Assert.hasText(jwkSetURL, "jwkSetURL cannot be empty");
 		this.jwkSetURL = jwkSetURL;
@@ -55,15 +80,38 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	@Override
 	public Mono<List<JWK>> get(JWKSelector jwkSelector) {
 		// @formatter:off
-		return this.cachedJWKSet.get()
-				.switchIfEmpty(Mono.defer(() -> getJWKSet()))
+		return Mono.defer(() -> current())
 				.flatMap((jwkSet) -> get(jwkSelector, jwkSet))
-				.switchIfEmpty(Mono.defer(() -> getJWKSet()
-						.map((jwkSet) -> jwkSelector.select(jwkSet)))
-				);
+				.switchIfEmpty(Mono.defer(() -> refresh(jwkSelector)));
 		// @formatter:on
 	}
 
+	private Mono<JWKSet> current() {
+		Retrieved retrieved = this.cachedJWKSet.get();
+		if (retrieved == null) {
+			return getJWKSet();
+		}
+		if (this.lifespan == null) {
+			return Mono.just(retrieved.jwkSet);
+		}
+		if (!this.clock.instant().isBefore(retrieved.retrievedAt.plus(this.lifespan))) {
+			return getJWKSet();
+		}
+		return Mono.just(retrieved.jwkSet);
+	}
+
+	private Mono<List<JWK>> refresh(JWKSelector jwkSelector) {
+		if (this.lifespan != null) {
+			// a token is not allowed to force a retrieval each time
+			Instant now = this.clock.instant();
+			if (now.isBefore(this.nextKeyIdRefresh)) {
+				return Mono.just(Collections.emptyList());
+			}
+			this.nextKeyIdRefresh = now.plus(this.minRefreshInterval);
+		}
+		return getJWKSet().map((jwkSet) -> jwkSelector.select(jwkSet));
+	}
+
 	private Mono<List<JWK>> get(JWKSelector jwkSelector, JWKSet jwkSet) {
 		return Mono.defer(() -> {
 			// Run the selector on the JWK set
@@ -89,22 +137,60 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	}
 
 	/**
-	 * Updates the cached JWK set from the configured URL.
+	 * Updates the cached JWK set from the configured URL, unless an update is already in
+	 * progress.
 	 * @return The updated JWK set.
 	 * @throws RemoteKeySourceException If JWK retrieval failed.
 	 */
 	private Mono<JWKSet> getJWKSet() {
+		Mono<JWKSet> retrieval = this.retrieval.get();
+		if (retrieval != null) {
+			return retrieval;
+		}
 		// @formatter:off
-		return this.webClient.get()
+		Mono<JWKSet> started = this.webClient.get()
 				.uri(this.jwkSetURL)
 				.retrieve()
 				.bodyToMono(String.class)
 				.map(this::parse)
-				.doOnNext((jwkSet) -> this.cachedJWKSet
-						.set(Mono.just(jwkSet))
-				)
+				.doOnSuccess((jwkSet) -> {
+					if (jwkSet != null) {
+						this.cachedJWKSet.set(new Retrieved(jwkSet, this.clock.instant()));
+					}
+					this.retrieval.set(null);
+					if (this.lifespan != null) {
+						scheduleRefresh(this.lifespan.dividedBy(2));
+					}
+				})
+				.doOnError((ex) -> {
+					this.retrieval.set(null);
+					if (this.lifespan != null && this.cachedJWKSet.get() != null) {
+						// requests keep using the current JWK set until it expires
+						scheduleRefresh(this.minRefreshInterval);
+					}
+				})
+				.doOnCancel(() -> this.retrieval.set(null))
 				.cache();
 		// @formatter:on
+		if (this.retrieval.compareAndSet(null, started)) {
+			return started;
+		}
+		retrieval = this.retrieval.get();
+		return (retrieval != null) ? retrieval : started;
+	}
+
+	private void scheduleRefresh(Duration delay) {
+		WeakReference<ReactiveRemoteJWKSource> source = new WeakReference<>(this);
+		Disposable scheduled = Mono.delay(delay, Schedulers.parallel()).subscribe((tick) -> {
+			ReactiveRemoteJWKSource refreshed = source.get();
+			if (refreshed != null) {
+				refreshed.getJWKSet().subscribe(null, (ex) -> refreshed.logger.debug("Failed to retrieve JWK Set", ex));
+			}
+		});
+		Disposable previous = this.scheduledRefresh.getAndSet(scheduled);
+		if (previous != null) {
+			previous.dispose();
+		}
 	}
 
 	private JWKSet parse(String body) {
@@ -138,4 +224,41 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 		this.webClient = webClient;
 	}
 
+	/**
+	 * Sets the time after which the JWK set is retrieved again before it is used. Each
+	 * time the JWK set was retrieved, a refresh is scheduled on
+	 * {@link Schedulers#parallel()} for when half of it passed, and a failed refresh is
+	 * retried after the minimum refresh interval, while the cached JWK set is still used.
+	 * A JWK set that does not contain a key ID is retrieved again at most once per
+	 * minimum refresh interval. The scheduled refreshes only hold a weak reference to
+	 * this source. Defaults to using the JWK set until a key ID is not found.
+	 * @param lifespan the lifespan of the JWK set
+	 */
+	void setLifespan(Duration lifespan) {
+		this.lifespan = lifespan;
+	}
+
+	void setMinRefreshInterval(Duration minRefreshInterval) {
+		Assert.notNull(minRefreshInterval, "minRefreshInterval cannot be null");
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class Retrieved {
+
+		private final JWKSet jwkSet;
+
+		private final Instant retrievedAt;
+
+		Retrieved(JWKSet jwkSet, Instant retrievedAt) {
+			this.jwkSet = jwkSet;
+			this.retrievedAt = retrievedAt;
+		}
+
+	}
+
 }
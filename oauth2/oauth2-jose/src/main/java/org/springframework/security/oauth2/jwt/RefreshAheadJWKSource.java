@@ -0,0 +1,312 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSetCache;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link JWKSource} that retrieves a JWK Set from a URL and refreshes it in the
+ * background before it expires.
+ * <p>
+ * Once a JWK Set was retrieved, a refresh is scheduled with the
+ * {@link ScheduledExecutorService} for when it is half of its lifespan old. Requests keep
+ * using the current JWK Set until the new one is retrieved, and a failed refresh is
+ * retried after the minimum refresh interval. Only when there is no JWK Set yet, or when
+ * it expired, are requests waiting for the retrieval. Concurrent requests share a single
+ * retrieval, and a JWK Set that does not contain the {@code kid} of a token is retrieved
+ * again at most once per minimum refresh interval.
+ * <p>
+ * Every retrieved JWK Set is {@link JWKSetCache#put(JWKSet) put} into the given
+ * {@link JWKSetCache}, which also provides the JWK Set to start with, if any. Since a
+ * {@link JWKSetCache} does not tell when its JWK Set was retrieved, that JWK Set is
+ * assumed to be half of its lifespan old: it is used right away, refreshed immediately,
+ * and expires after half of the lifespan if it cannot be refreshed.
+ * <p>
+ * The scheduled refreshes only hold a weak reference to this source, so that a decoder
+ * that is no longer used does not keep being refreshed. By default a single daemon thread
+ * shared by all sources runs the refreshes.
+ *
+ * @param <C> the {@link SecurityContext} type
+ * @since 5.8
+ */
+final class RefreshAheadJWKSource<C extends SecurityContext> implements JWKSource<C> {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final URL jwkSetUrl;
+
+	private final ResourceRetriever jwkSetRetriever;
+
+	private final JWKSetCache jwkSetCache;
+
+	private final Duration lifespan;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final AtomicReference<CompletableFuture<Retrieved>> retrieval = new AtomicReference<>();
+
+	private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+
+	private Duration minRefreshInterval = Duration.ofSeconds(30);
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Retrieved retrieved;
+
+	private volatile Instant nextKeyIdRefresh = Instant.MIN;
+
+	RefreshAheadJWKSource(URL jwkSetUrl, ResourceRetriever jwkSetRetriever, JWKSetCache jwkSetCache, Duration lifespan,
+			ScheduledExecutorService scheduler) {
+		Assert.notNull(jwkSetUrl, "jwkSetUrl cannot be null");
+		Assert.notNull(jwkSetRetriever, "jwkSetRetriever cannot be null");
+		Assert.notNull(jwkSetCache, "jwkSetCache cannot be null");
+		Assert.isTrue(lifespan != null && !lifespan.isNegative() && !lifespan.isZero(), "lifespan must be positive");
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		this.jwkSetUrl = jwkSetUrl;
+		this.jwkSetRetriever = jwkSetRetriever;
+		this.jwkSetCache = jwkSetCache;
+		this.lifespan = lifespan;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns the scheduler used when none is configured, a single daemon thread that is
+	 * shared by all sources and created on first use.
+	 * @return the default scheduler
+	 */
+	static ScheduledExecutorService defaultScheduler() {
+		return DefaultScheduler.INSTANCE;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, C context) throws KeySourceException {
+		JWKSet jwkSet = current();
+		List<JWK> matches = jwkSelector.select(jwkSet);
+		if (!matches.isEmpty()) {
+			return matches;
+		}
+		String keyId = getFirstSpecifiedKeyID(jwkSelector);
+		if (keyId == null || jwkSet.getKeyByKeyId(keyId) != null) {
+			return matches;
+		}
+		// the JWK Set may have been rotated, but a token is not allowed to force a
+		// retrieval each time
+		Instant now = this.clock.instant();
+		if (now.isBefore(this.nextKeyIdRefresh)) {
+			return Collections.emptyList();
+		}
+		this.nextKeyIdRefresh = now.plus(this.minRefreshInterval);
+		return jwkSelector.select(await(retrieve()).jwkSet);
+	}
+
+	private JWKSet current() throws KeySourceException {
+		Retrieved retrieved = this.retrieved;
+		if (retrieved == null) {
+			retrieved = fromJwkSetCache();
+		}
+		if (retrieved == null || !this.clock.instant().isBefore(retrieved.retrievedAt.plus(this.lifespan))) {
+			return await(retrieve()).jwkSet;
+		}
+		return retrieved.jwkSet;
+	}
+
+	private synchronized Retrieved fromJwkSetCache() {
+		if (this.retrieved != null) {
+			return this.retrieved;
+		}
+		JWKSet cached = this.jwkSetCache.get();
+		if (cached == null) {
+			return null;
+		}
+		// when the JWK Set was retrieved is unknown, so it is refreshed right away
+		Retrieved retrieved = new Retrieved(cached, this.clock.instant().minus(this.lifespan.dividedBy(2)));
+		this.retrieved = retrieved;
+		scheduleRefresh(Duration.ZERO);
+		return retrieved;
+	}
+
+	/**
+	 * Retrieves the JWK Set in the calling thread, unless a retrieval is already in
+	 * progress
+	 * @return the retrieval
+	 */
+	private CompletableFuture<Retrieved> retrieve() {
+		CompletableFuture<Retrieved> started = new CompletableFuture<>();
+		while (!this.retrieval.compareAndSet(null, started)) {
+			CompletableFuture<Retrieved> retrieval = this.retrieval.get();
+			if (retrieval != null) {
+				return retrieval;
+			}
+		}
+		try {
+			JWKSet jwkSet = retrieveJWKSet();
+			this.jwkSetCache.put(jwkSet);
+			Retrieved retrieved = new Retrieved(jwkSet, this.clock.instant());
+			this.retrieved = retrieved;
+			this.retrieval.set(null);
+			started.complete(retrieved);
+			scheduleRefresh(this.lifespan.dividedBy(2));
+		}
+		catch (Exception ex) {
+			this.logger.debug("Failed to retrieve JWK Set", ex);
+			this.retrieval.set(null);
+			started.completeExceptionally(ex);
+			if (this.retrieved != null) {
+				// requests keep using the current JWK Set until it expires
+				scheduleRefresh(this.minRefreshInterval);
+			}
+		}
+		return started;
+	}
+
+	private void scheduleRefresh(Duration delay) {
+		WeakReference<RefreshAheadJWKSource<C>> source = new WeakReference<>(this);
+		ScheduledFuture<?> scheduled = this.scheduler.schedule(() -> {
+			RefreshAheadJWKSource<C> refreshed = source.get();
+			if (refreshed != null) {
+				refreshed.retrieve();
+			}
+		}, delay.toMillis(), TimeUnit.MILLISECONDS);
+		ScheduledFuture<?> previous = this.scheduledRefresh.getAndSet(scheduled);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+	}
+
+	private JWKSet retrieveJWKSet() throws RemoteKeySourceException {
+		Resource resource;
+		try {
+			resource = this.jwkSetRetriever.retrieveResource(this.jwkSetUrl);
+		}
+		catch (IOException ex) {
+			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + ex.getMessage(), ex);
+		}
+		try {
+			return JWKSet.parse(resource.getContent());
+		}
+		catch (ParseException ex) {
+			throw new RemoteKeySourceException("Couldn't parse remote JWK set: " + ex.getMessage(), ex);
+		}
+	}
+
+	private static Retrieved await(CompletableFuture<Retrieved> retrieval) throws KeySourceException {
+		try {
+			return retrieval.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new KeySourceException("Interrupted while retrieving the JWK set", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof KeySourceException) {
+				throw (KeySourceException) ex.getCause();
+			}
+			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + ex.getCause().getMessage(),
+					ex.getCause());
+		}
+	}
+
+	private static String getFirstSpecifiedKeyID(JWKSelector jwkSelector) {
+		Set<String> keyIds = jwkSelector.getMatcher().getKeyIDs();
+		if (keyIds == null) {
+			return null;
+		}
+		for (String keyId : keyIds) {
+			if (keyId != null) {
+				return keyId;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the minimum time between two retrievals for a {@code kid} that is not in the
+	 * JWK Set, and before a failed background retrieval is retried. Defaults to 30
+	 * seconds.
+	 * @param minRefreshInterval the minimum refresh interval
+	 */
+	void setMinRefreshInterval(Duration minRefreshInterval) {
+		Assert.notNull(minRefreshInterval, "minRefreshInterval cannot be null");
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class DefaultScheduler {
+
+		private static final ScheduledExecutorService INSTANCE = create();
+
+		private static ScheduledExecutorService create() {
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, (runnable) -> {
+				Thread thread = new Thread(runnable, "jwk-set-refresh");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+			return scheduler;
+		}
+
+	}
+
+	private static final class Retrieved {
+
+		private final JWKSet jwkSet;
+
+		private final Instant retrievedAt;
+
+		Retrieved(JWKSet jwkSet, Instant retrievedAt) {
+			this.jwkSet = jwkSet;
+			this.retrievedAt = retrievedAt;
+		}
+
+	}
+
+}
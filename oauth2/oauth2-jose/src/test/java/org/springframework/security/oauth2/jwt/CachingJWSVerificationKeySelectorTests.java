@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.jose.TestJwks;
+import org.springframework.security.oauth2.jose.TestKeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link CachingJWSVerificationKeySelector}.
+ */
+public class CachingJWSVerificationKeySelectorTests {
+
+	private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(
+			new JWKSet(Arrays.asList(TestJwks.DEFAULT_RSA_JWK, TestJwks.DEFAULT_EC_JWK)));
+
+	private final CachingJWSVerificationKeySelector<SecurityContext> selector = new CachingJWSVerificationKeySelector<>(
+			new HashSet<>(Arrays.asList(JWSAlgorithm.RS256, JWSAlgorithm.ES256)),
+			(jwkSelector, context) -> jwkSelector.select(this.jwkSet.get()));
+
+	@Test
+	public void selectJWSKeysWhenAlgorithmNotAllowedThenEmpty() throws Exception {
+		assertThat(this.selector.selectJWSKeys(header(JWSAlgorithm.RS512, null), null)).isEmpty();
+	}
+
+	@Test
+	public void selectJWSKeysWhenSelectedAgainThenSameKeyAndVerifier() throws Exception {
+		JWSHeader header = header(JWSAlgorithm.RS256, TestJwks.DEFAULT_RSA_JWK.getKeyID());
+		List<Key> keys = this.selector.selectJWSKeys(header, null);
+		assertThat(keys).hasSize(1);
+		assertThat(keys.get(0)).isEqualTo(TestKeys.DEFAULT_PUBLIC_KEY);
+		assertThat(this.selector.selectJWSKeys(header, null)).containsExactly(keys.get(0));
+		assertThat(this.selector.getJWSVerifierFactory().createJWSVerifier(header, keys.get(0)))
+				.isSameAs(this.selector.getJWSVerifierFactory().createJWSVerifier(header, keys.get(0)));
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetRefreshedWithSameKeysThenSameKey() throws Exception {
+		JWSHeader header = header(JWSAlgorithm.ES256, TestJwks.DEFAULT_EC_JWK.getKeyID());
+		Key key = this.selector.selectJWSKeys(header, null).get(0);
+		this.jwkSet.set(JWKSet.parse(this.jwkSet.get().toString(false)));
+		this.selector.refresh(this.jwkSet.get());
+		assertThat(this.selector.selectJWSKeys(header, null)).containsExactly(key);
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetChangedWithoutRefreshThenSameKey() throws Exception {
+		JWSHeader header = header(JWSAlgorithm.ES256, TestJwks.DEFAULT_EC_JWK.getKeyID());
+		Key key = this.selector.selectJWSKeys(header, null).get(0);
+		this.jwkSet.set(JWKSet.parse(this.jwkSet.get().toString(false)));
+		assertThat(this.selector.selectJWSKeys(header, null)).containsExactly(key);
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetRotatedThenNewKeyUsed() throws Exception {
+		RSAKey rotated = new RSAKeyGenerator(2048).keyID("rotated").generate();
+		process(sign(TestJwks.DEFAULT_RSA_JWK, new RSASSASigner(TestJwks.DEFAULT_RSA_JWK)));
+		this.jwkSet.set(new JWKSet(rotated));
+		this.selector.refresh(this.jwkSet.get());
+		SignedJWT jwt = sign(rotated, new RSASSASigner(rotated));
+		assertThat(process(jwt).getSubject()).isEqualTo("subject");
+		assertThat(this.selector.selectJWSKeys(jwt.getHeader(), null)).containsExactly(rotated.toPublicKey());
+	}
+
+	@Test
+	public void processWhenRs256AndEs256ThenVerified() throws Exception {
+		SignedJWT rs256 = sign(TestJwks.DEFAULT_RSA_JWK, new RSASSASigner(TestJwks.DEFAULT_RSA_JWK));
+		SignedJWT es256 = sign(TestJwks.DEFAULT_EC_JWK, new ECDSASigner(TestJwks.DEFAULT_EC_JWK));
+		assertThat(process(rs256).getSubject()).isEqualTo("subject");
+		assertThat(process(es256).getSubject()).isEqualTo("subject");
+	}
+
+	@Test
+	public void processWhenSignedWithOtherKeyThenFails() throws Exception {
+		RSAKey other = new RSAKeyGenerator(2048).keyID(TestJwks.DEFAULT_RSA_JWK.getKeyID()).generate();
+		SignedJWT jwt = sign(other, new RSASSASigner(other));
+		assertThatExceptionOfType(Exception.class).isThrownBy(() -> process(jwt));
+	}
+
+	@Test
+	public void createJWSVerifierWhenKeyNotSelectedThenCreatesVerifier() throws Exception {
+		JWSHeader header = header(JWSAlgorithm.RS256, null);
+		assertThat(this.selector.getJWSVerifierFactory().createJWSVerifier(header, TestKeys.DEFAULT_PUBLIC_KEY))
+				.isNotSameAs(
+						this.selector.getJWSVerifierFactory().createJWSVerifier(header, TestKeys.DEFAULT_PUBLIC_KEY));
+	}
+
+	private JWTClaimsSet process(SignedJWT jwt) throws Exception {
+		DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+		processor.setJWSKeySelector(this.selector);
+		processor.setJWSVerifierFactory(this.selector.getJWSVerifierFactory());
+		processor.setJWTClaimsSetVerifier((claims, context) -> {
+		});
+		return processor.process(SignedJWT.parse(jwt.serialize()), null);
+	}
+
+	private static SignedJWT sign(JWK jwk, JWSSigner signer) throws Exception {
+		JWSAlgorithm algorithm = (jwk instanceof RSAKey) ? JWSAlgorithm.RS256 : JWSAlgorithm.ES256;
+		SignedJWT jwt = new SignedJWT(header(algorithm, jwk.getKeyID()),
+				new JWTClaimsSet.Builder().subject("subject").build());
+		jwt.sign(signer);
+		return jwt;
+	}
+
+	private static JWSHeader header(JWSAlgorithm algorithm, String keyId) {
+		return new JWSHeader.Builder(algorithm).keyID(keyId).build();
+	}
+
+}
@@ -262,6 +262,19 @@ public class NimbusJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void decodeWhenClaimSetConverterReturnsNonInstantExpirationThenBadJwtException() {
+		Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = mock(Converter.class);
+		this.jwtDecoder.setClaimSetConverter(claimSetConverter);
+		given(claimSetConverter.convert(any(Map.class)))
+				.willReturn(Collections.singletonMap(JwtClaimNames.EXP, 1564524800L));
+		// @formatter:off
+		assertThatExceptionOfType(BadJwtException.class)
+				.isThrownBy(() -> this.jwtDecoder.decode(SIGNED_JWT))
+				.withMessageContaining("timestamps must be of type Instant");
+		// @formatter:on
+	}
+
 	@Test
 	public void decodeWhenSignedThenOk() {
 		NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(withSigning(JWK_SET));
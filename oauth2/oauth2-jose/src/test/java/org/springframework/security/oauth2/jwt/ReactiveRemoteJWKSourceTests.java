@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,13 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
@@ -31,6 +36,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,6 +49,10 @@ import static org.mockito.BDDMockito.given;
 @ExtendWith(MockitoExtension.class)
 public class ReactiveRemoteJWKSourceTests {
 
+	private static final Instant NOW = Instant.parse("2022-10-01T10:00:00Z");
+
+	private static final String KEY_ID = "1923397381d9574bb873202a90c32b7ceeaed027";
+
 	@Mock
 	private JWKMatcher matcher;
 
@@ -156,4 +166,61 @@ public class ReactiveRemoteJWKSourceTests {
 		assertThat(this.source.get(this.selector).block()).isEmpty();
 	}
 
+	@Test
+	public void getWhenConcurrentRequestsThenSingleRetrieval() {
+		Mono.zip(this.source.get(selector(KEY_ID)), this.source.get(selector(KEY_ID))).block();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenHalfOfLifespanPassedThenRefreshedWithoutRequest() throws Exception {
+		this.source.setLifespan(Duration.ofSeconds(1));
+		enqueueKeys2();
+		this.source.get(selector(KEY_ID)).block();
+		assertThat(this.server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(this.server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+		List<JWK> keys = this.source.get(selector("rotated")).block();
+		assertThat(keys).hasSize(1);
+		assertThat(keys.get(0).getKeyID()).isEqualTo("rotated");
+	}
+
+	@Test
+	public void getWhenScheduledRefreshFailsThenRetriedAfterMinRefreshInterval() throws Exception {
+		this.source.setLifespan(Duration.ofSeconds(1));
+		this.source.setMinRefreshInterval(Duration.ofMillis(100));
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		enqueueKeys2();
+		this.source.get(selector(KEY_ID)).block();
+		for (int i = 0; i < 3; i++) {
+			assertThat(this.server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+		}
+		assertThat(this.source.get(selector("rotated")).block()).hasSize(1);
+	}
+
+	@Test
+	public void getWhenLifespanAndKeyIdNotMatchThenRefreshedAtMostOncePerInterval() {
+		this.source.setLifespan(Duration.ofMinutes(5));
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.server.enqueue(new MockResponse().setBody(this.keys));
+		this.server.enqueue(new MockResponse().setBody(this.keys2));
+		this.source.get(selector(KEY_ID)).block();
+		assertThat(this.source.get(selector("rotated")).block()).isEmpty();
+		assertThat(this.source.get(selector("rotated")).block()).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofSeconds(30)), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("rotated")).block()).hasSize(1);
+		assertThat(this.server.getRequestCount()).isEqualTo(3);
+	}
+
+	private void enqueueKeys2() {
+		// also answers the refreshes scheduled after the last retrieval of a test
+		for (int i = 0; i < 5; i++) {
+			this.server.enqueue(new MockResponse().setBody(this.keys2));
+		}
+	}
+
+	private static JWKSelector selector(String keyId) {
+		return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+	}
+
 }
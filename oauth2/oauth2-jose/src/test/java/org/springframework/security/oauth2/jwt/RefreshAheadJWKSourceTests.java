@@ -0,0 +1,245 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.DefaultJWKSetCache;
+import com.nimbusds.jose.jwk.source.JWKSetCache;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RefreshAheadJWKSource}.
+ */
+public class RefreshAheadJWKSourceTests {
+
+	private static final Instant NOW = Instant.parse("2022-10-01T10:00:00Z");
+
+	private static final Duration LIFESPAN = Duration.ofMinutes(5);
+
+	private static JWK key;
+
+	private static JWK rotatedKey;
+
+	private MockWebServer server;
+
+	private final List<Runnable> scheduledTasks = new ArrayList<>();
+
+	private final List<Long> scheduledDelays = new ArrayList<>();
+
+	private final List<ScheduledFuture<?>> scheduledFutures = new ArrayList<>();
+
+	private final JWKSetCache jwkSetCache = new DefaultJWKSetCache();
+
+	private RefreshAheadJWKSource<SecurityContext> source;
+
+	@BeforeAll
+	public static void keys() throws Exception {
+		key = new RSAKeyGenerator(2048).keyID("one").generate().toPublicJWK();
+		rotatedKey = new RSAKeyGenerator(2048).keyID("two").generate().toPublicJWK();
+	}
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		willAnswer((invocation) -> {
+			this.scheduledTasks.add(invocation.getArgument(0));
+			this.scheduledDelays.add(invocation.getArgument(1));
+			ScheduledFuture<?> future = mock(ScheduledFuture.class);
+			this.scheduledFutures.add(future);
+			return future;
+		}).given(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+		this.source = new RefreshAheadJWKSource<>(this.server.url("/jwks").url(), new DefaultResourceRetriever(),
+				this.jwkSetCache, LIFESPAN, scheduler);
+		this.source.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@AfterEach
+	public void cleanup() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void getWhenRetrievedThenCachedAndPutIntoJwkSetCache() throws Exception {
+		enqueue(key);
+		assertThat(this.source.get(selector("one"), null)).containsExactly(key);
+		assertThat(this.source.get(selector("one"), null)).containsExactly(key);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+		assertThat(this.jwkSetCache.get().getKeys()).containsExactly(key);
+		assertThat(this.scheduledDelays).containsExactly(LIFESPAN.dividedBy(2).toMillis());
+	}
+
+	@Test
+	public void getWhenJwkSetCacheHasJwkSetThenUsedAndRefreshedRightAway() throws Exception {
+		this.jwkSetCache.put(new JWKSet(key));
+		assertThat(this.source.get(selector("one"), null)).containsExactly(key);
+		assertThat(this.server.getRequestCount()).isZero();
+		assertThat(this.scheduledDelays).containsExactly(0L);
+		enqueue(key, rotatedKey);
+		this.scheduledTasks.get(0).run();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+		assertThat(this.source.get(selector("two"), null)).containsExactly(rotatedKey);
+	}
+
+	@Test
+	public void getWhenJwkSetFromJwkSetCacheNotRefreshedThenExpiresAfterHalfOfLifespan() throws Exception {
+		this.jwkSetCache.put(new JWKSet(key));
+		this.source.get(selector("one"), null);
+		enqueue(rotatedKey);
+		this.source.setClock(Clock.fixed(NOW.plus(LIFESPAN.dividedBy(2)), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("two"), null)).containsExactly(rotatedKey);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenScheduledRefreshRunsThenRetrievedInBackground() throws Exception {
+		enqueue(key);
+		this.source.get(selector("one"), null);
+		enqueue(key, rotatedKey);
+		assertThat(this.scheduledTasks).hasSize(1);
+		this.scheduledTasks.get(0).run();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		assertThat(this.source.get(selector("two"), null)).containsExactly(rotatedKey);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		assertThat(this.scheduledDelays).containsExactly(LIFESPAN.dividedBy(2).toMillis(),
+				LIFESPAN.dividedBy(2).toMillis());
+	}
+
+	@Test
+	public void getWhenScheduledRefreshFailsThenCurrentJwkSetUsedAndRetriedAfterInterval() throws Exception {
+		enqueue(key);
+		this.source.get(selector("one"), null);
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		this.scheduledTasks.get(0).run();
+		assertThat(this.source.get(selector("one"), null)).containsExactly(key);
+		assertThat(this.scheduledDelays).containsExactly(LIFESPAN.dividedBy(2).toMillis(),
+				Duration.ofSeconds(30).toMillis());
+	}
+
+	@Test
+	public void getWhenRetrievedAgainThenPreviousRefreshCancelled() throws Exception {
+		enqueue(key);
+		enqueue(key, rotatedKey);
+		this.source.get(selector("one"), null);
+		this.source.get(selector("two"), null);
+		assertThat(this.scheduledFutures).hasSize(2);
+		verify(this.scheduledFutures.get(0)).cancel(false);
+	}
+
+	@Test
+	public void getWhenExpiredThenRetrievedOnRequest() throws Exception {
+		enqueue(key);
+		this.source.get(selector("one"), null);
+		enqueue(rotatedKey);
+		this.source.setClock(Clock.fixed(NOW.plus(LIFESPAN), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("two"), null)).containsExactly(rotatedKey);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenExpiredAndRetrievalFailsThenRemoteKeySourceException() throws Exception {
+		this.server.enqueue(new MockResponse().setBody("malformed"));
+		assertThatExceptionOfType(RemoteKeySourceException.class)
+				.isThrownBy(() -> this.source.get(selector("one"), null))
+				.withMessageContaining("Couldn't parse remote JWK set");
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdThenRetrievedAtMostOncePerInterval() throws Exception {
+		enqueue(key);
+		enqueue(key);
+		enqueue(key, rotatedKey);
+		this.source.get(selector("one"), null);
+		assertThat(this.source.get(selector("two"), null)).isEmpty();
+		assertThat(this.source.get(selector("two"), null)).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+		this.source.setClock(Clock.fixed(NOW.plus(Duration.ofSeconds(30)), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("two"), null)).containsExactly(rotatedKey);
+		assertThat(this.server.getRequestCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void getWhenConcurrentRequestsThenSingleRetrieval() throws Exception {
+		this.server.enqueue(
+				new MockResponse().setBody(new JWKSet(key).toString()).setBodyDelay(200, TimeUnit.MILLISECONDS));
+		int requests = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(requests);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<List<JWK>>> results = new ArrayList<>();
+			for (int i = 0; i < requests; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return this.source.get(selector("one"), null);
+				}));
+			}
+			start.countDown();
+			for (Future<List<JWK>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly(key);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	private void enqueue(JWK... keys) {
+		this.server.enqueue(new MockResponse().setBody(new JWKSet(Arrays.asList(keys)).toString()));
+	}
+
+	private static JWKSelector selector(String keyId) {
+		return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+	}
+
+}
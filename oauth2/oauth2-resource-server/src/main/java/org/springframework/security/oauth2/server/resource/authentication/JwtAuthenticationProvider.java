@@ -68,6 +68,8 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
 
 	private Converter<Jwt, ? extends AbstractAuthenticationToken> jwtAuthenticationConverter = new JwtAuthenticationConverter();
 
+	private JwtAuthenticationTokenCache jwtAuthenticationTokenCache;
+
 	public JwtAuthenticationProvider(JwtDecoder jwtDecoder) {
 		Assert.notNull(jwtDecoder, "jwtDecoder cannot be null");
 		this.jwtDecoder = jwtDecoder;
@@ -84,8 +86,15 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
 	@Override
 	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
 		BearerTokenAuthenticationToken bearer = (BearerTokenAuthenticationToken) authentication;
-		Jwt jwt = getJwt(bearer);
-		AbstractAuthenticationToken token = this.jwtAuthenticationConverter.convert(jwt);
+		AbstractAuthenticationToken token = (this.jwtAuthenticationTokenCache != null)
+				? this.jwtAuthenticationTokenCache.get(bearer.getToken()) : null;
+		if (token == null) {
+			Jwt jwt = getJwt(bearer);
+			token = this.jwtAuthenticationConverter.convert(jwt);
+			if (this.jwtAuthenticationTokenCache != null) {
+				this.jwtAuthenticationTokenCache.put(bearer.getToken(), token);
+			}
+		}
 		token.setDetails(bearer.getDetails());
 		this.logger.debug("Authenticated token");
 		return token;
@@ -115,4 +124,18 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
 		this.jwtAuthenticationConverter = jwtAuthenticationConverter;
 	}
 
+	/**
+	 * Use the given {@link JwtAuthenticationTokenCache} to authenticate tokens that were
+	 * already decoded and converted without decoding them again. By default no cache is
+	 * used. The cache cannot be shared with other providers, since it does not know which
+	 * decoder verified a token.
+	 * @param jwtAuthenticationTokenCache the cache to use
+	 * @since 5.8
+	 */
+	public void setJwtAuthenticationTokenCache(JwtAuthenticationTokenCache jwtAuthenticationTokenCache) {
+		Assert.notNull(jwtAuthenticationTokenCache, "jwtAuthenticationTokenCache cannot be null");
+		jwtAuthenticationTokenCache.setOwner(this);
+		this.jwtAuthenticationTokenCache = jwtAuthenticationTokenCache;
+	}
+
 }
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.authentication;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.util.Assert;
+
+/**
+ * A cache of the {@link JwtAuthenticationToken}s created from bearer tokens that were
+ * already decoded and verified, so that a client sending the same token again is
+ * authenticated without verifying its signature and converting its claims again.
+ * <p>
+ * Tokens are looked up by their SHA-256 hash, and only tokens with an {@code exp} claim
+ * are cached, until they expire or their {@link #setTimeToLive(Duration) time to live}
+ * ends, whichever comes first. On every hit the cached {@link Jwt} is checked with the
+ * {@link #setValidator(OAuth2TokenValidator) validator}, by default a
+ * {@link JwtTimestampValidator}, and an entry that is no longer valid is removed so that
+ * the token is decoded again and rejected by the
+ * {@link org.springframework.security.oauth2.jwt.JwtDecoder}. As the validator only sees
+ * the {@link Jwt}, it should be limited to cheap checks, such as the ones on timestamps.
+ * <p>
+ * Since tokens are not verified again until they expire, a cache should only be used when
+ * an issuer does not need to revoke tokens before they expire. A hit also skips the
+ * {@code jwtAuthenticationConverter}, so the authorities are the ones it returned when
+ * the token was first seen. A converter that looks up authorities elsewhere should be
+ * paired with a short time to live. Only {@link JwtAuthenticationToken}s are cached; the
+ * result of a converter that returns another type of authentication, including a subclass
+ * of {@link JwtAuthenticationToken}, is not, since a hit could not recreate it.
+ * <p>
+ * As the key does not identify the decoder that verified a token, a cache belongs to the
+ * first {@link JwtAuthenticationProvider} or {@link JwtReactiveAuthenticationManager} it
+ * is set on, and setting it on another one fails. Otherwise a token accepted by one
+ * decoder would be accepted by every provider that shares the cache, whatever their
+ * issuers, audiences or converters.
+ *
+ * @since 5.8
+ * @see JwtAuthenticationProvider#setJwtAuthenticationTokenCache(JwtAuthenticationTokenCache)
+ * @see JwtReactiveAuthenticationManager#setJwtAuthenticationTokenCache(JwtAuthenticationTokenCache)
+ * @see #getStatistics()
+ */
+public final class JwtAuthenticationTokenCache {
+
+	private static final Duration PURGE_INTERVAL = Duration.ofSeconds(1);
+
+	private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicReference<Object> owner = new AtomicReference<>();
+
+	private final int maximumSize;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder expirations = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private OAuth2TokenValidator<Jwt> validator = new JwtTimestampValidator();
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Instant nextPurge = Instant.MIN;
+
+	/**
+	 * Creates a cache of at most 10000 tokens
+	 */
+	public JwtAuthenticationTokenCache() {
+		this(10000);
+	}
+
+	/**
+	 * Creates a cache
+	 * @param maximumSize the maximum number of tokens kept
+	 */
+	public JwtAuthenticationTokenCache(int maximumSize) {
+		Assert.isTrue(maximumSize >= 1, "maximumSize must be greater than 0");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Sets the {@link OAuth2TokenValidator} that the cached {@link Jwt} is checked with
+	 * on every hit. Defaults to a {@link JwtTimestampValidator}.
+	 * @param validator the validator
+	 */
+	public void setValidator(OAuth2TokenValidator<Jwt> validator) {
+		Assert.notNull(validator, "validator cannot be null");
+		this.validator = validator;
+	}
+
+	/**
+	 * Sets how long a token is cached at most, even if it expires later. This bounds how
+	 * long authorities that changed since the token was converted are still granted.
+	 * Defaults to 5 minutes.
+	 * @param timeToLive the time to live, must be positive
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached tokens. Defaults to
+	 * {@link Clock#systemUTC()}.
+	 * @param clock the clock
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns a new {@link JwtAuthenticationToken} with the same {@link Jwt}, authorities
+	 * and name as the one cached for the token, so that the caller can set its details.
+	 * @param token the bearer token
+	 * @return the authentication, or {@code null} if the token is not cached or no longer
+	 * valid
+	 */
+	JwtAuthenticationToken get(String token) {
+		ByteBuffer key = hash(token);
+		Entry cached = this.entries.get(key);
+		if (cached == null) {
+			this.misses.increment();
+			return null;
+		}
+		Jwt jwt = cached.authentication.getToken();
+		if (!this.clock.instant().isBefore(cached.expiresAt)) {
+			this.entries.remove(key, cached);
+			this.expirations.increment();
+			this.misses.increment();
+			return null;
+		}
+		if (this.validator.validate(jwt).hasErrors()) {
+			this.entries.remove(key, cached);
+			this.invalidations.increment();
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return new JwtAuthenticationToken(jwt, cached.authentication.getAuthorities(), cached.authentication.getName());
+	}
+
+	/**
+	 * Caches the authentication created for the token, if it is exactly a
+	 * {@link JwtAuthenticationToken} for a {@link Jwt} that expires.
+	 * @param token the bearer token
+	 * @param authentication the authentication created for the token
+	 */
+	void put(String token, Object authentication) {
+		if (authentication == null || authentication.getClass() != JwtAuthenticationToken.class) {
+			return;
+		}
+		JwtAuthenticationToken jwtAuthentication = (JwtAuthenticationToken) authentication;
+		Instant expiresAt = jwtAuthentication.getToken().getExpiresAt();
+		Instant now = this.clock.instant();
+		if (expiresAt == null || !now.isBefore(expiresAt)) {
+			return;
+		}
+		Instant endOfLife = now.plus(this.timeToLive);
+		if (endOfLife.isBefore(expiresAt)) {
+			expiresAt = endOfLife;
+		}
+		if (this.entries.size() >= this.maximumSize) {
+			makeRoom();
+		}
+		this.entries.put(hash(token), new Entry(jwtAuthentication, expiresAt));
+	}
+
+	/**
+	 * Binds this cache to the provider it is set on.
+	 * @param owner the {@link JwtAuthenticationProvider} or
+	 * {@link JwtReactiveAuthenticationManager}
+	 */
+	void setOwner(Object owner) {
+		Assert.isTrue(this.owner.compareAndSet(null, owner) || this.owner.get() == owner,
+				"A JwtAuthenticationTokenCache cannot be shared, since its entries are not scoped by JwtDecoder");
+	}
+
+	private void makeRoom() {
+		Instant now = this.clock.instant();
+		if (now.isAfter(this.nextPurge)) {
+			this.nextPurge = now.plus(PURGE_INTERVAL);
+			// removing the expired tokens is preferred, but at most once per interval
+			this.entries.values().removeIf((cached) -> {
+				if (now.isBefore(cached.expiresAt)) {
+					return false;
+				}
+				this.expirations.increment();
+				return true;
+			});
+		}
+		Iterator<ByteBuffer> keys = this.entries.keySet().iterator();
+		while (this.entries.size() >= this.maximumSize && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+			this.evictions.increment();
+		}
+	}
+
+	/**
+	 * Removes all cached tokens, for example after the keys of an issuer were revoked
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Returns a snapshot of the hit, miss and removal counts of this cache
+	 * @return the statistics
+	 */
+	public Statistics getStatistics() {
+		return new Statistics(this.hits.sum(), this.misses.sum(), this.expirations.sum(), this.invalidations.sum(),
+				this.evictions.sum(), this.entries.size());
+	}
+
+	private static ByteBuffer hash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static final class Entry {
+
+		private final JwtAuthenticationToken authentication;
+
+		private final Instant expiresAt;
+
+		private Entry(JwtAuthenticationToken authentication, Instant expiresAt) {
+			this.authentication = authentication;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	/**
+	 * The hit, miss and removal counts of a {@link JwtAuthenticationTokenCache}.
+	 */
+	public static final class Statistics {
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long expirationCount;
+
+		private final long invalidationCount;
+
+		private final long evictionCount;
+
+		private final int size;
+
+		Statistics(long hitCount, long missCount, long expirationCount, long invalidationCount, long evictionCount,
+				int size) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.expirationCount = expirationCount;
+			this.invalidationCount = invalidationCount;
+			this.evictionCount = evictionCount;
+			this.size = size;
+		}
+
+		/**
+		 * Returns the number of tokens authenticated from the cache
+		 * @return the hit count
+		 */
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		/**
+		 * Returns the number of tokens that had to be decoded, including the ones whose
+		 * entry expired or was no longer valid
+		 * @return the miss count
+		 */
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		/**
+		 * Returns the number of entries removed because their token expired or their time
+		 * to live ended
+		 * @return the expiration count
+		 */
+		public long getExpirationCount() {
+			return this.expirationCount;
+		}
+
+		/**
+		 * Returns the number of entries removed because the validator rejected their
+		 * token
+		 * @return the invalidation count
+		 */
+		public long getInvalidationCount() {
+			return this.invalidationCount;
+		}
+
+		/**
+		 * Returns the number of entries removed to respect the maximum size
+		 * @return the eviction count
+		 */
+		public long getEvictionCount() {
+			return this.evictionCount;
+		}
+
+		/**
+		 * Returns the number of cached tokens
+		 * @return the size
+		 */
+		public int getSize() {
+			return this.size;
+		}
+
+		@Override
+		public String toString() {
+			return "JwtAuthenticationTokenCache.Statistics[hits=" + this.hitCount + ", misses=" + this.missCount
+					+ ", expirations=" + this.expirationCount + ", invalidations=" + this.invalidationCount
+					+ ", evictions=" + this.evictionCount + ", size=" + this.size + "]";
+		}
+
+	}
+
+}
@@ -44,6 +44,8 @@ public final class JwtReactiveAuthenticationManager implements ReactiveAuthentic
 	private Converter<Jwt, ? extends Mono<? extends AbstractAuthenticationToken>> jwtAuthenticationConverter = new ReactiveJwtAuthenticationConverterAdapter(
 			new JwtAuthenticationConverter());
 
+	private JwtAuthenticationTokenCache jwtAuthenticationTokenCache;
+
 	public JwtReactiveAuthenticationManager(ReactiveJwtDecoder jwtDecoder) {
 		Assert.notNull(jwtDecoder, "jwtDecoder cannot be null");
 		this.jwtDecoder = jwtDecoder;
@@ -56,13 +58,28 @@ public final class JwtReactiveAuthenticationManager implements ReactiveAuthentic
 				.filter((a) -> a instanceof BearerTokenAuthenticationToken)
 				.cast(BearerTokenAuthenticationToken.class)
 				.map(BearerTokenAuthenticationToken::getToken)
-				.flatMap(this.jwtDecoder::decode)
-				.flatMap(this.jwtAuthenticationConverter::convert)
+				.flatMap(this::authenticate)
 				.cast(Authentication.class)
 				.onErrorMap(JwtException.class, this::onError);
 		// @formatter:on
 	}
 
+	private Mono<AbstractAuthenticationToken> authenticate(String token) {
+		JwtAuthenticationTokenCache cache = this.jwtAuthenticationTokenCache;
+		if (cache == null) {
+			return decode(token);
+		}
+		// @formatter:off
+		return Mono.<AbstractAuthenticationToken>fromSupplier(() -> cache.get(token))
+				.switchIfEmpty(Mono.defer(() -> decode(token)
+						.doOnNext((authentication) -> cache.put(token, authentication))));
+		// @formatter:on
+	}
+
+	private Mono<AbstractAuthenticationToken> decode(String token) {
+		return this.jwtDecoder.decode(token).flatMap(this.jwtAuthenticationConverter::convert);
+	}
+
 	/**
 	 * Use the given {@link Converter} for converting a {@link Jwt} into an
 	 * {@link AbstractAuthenticationToken}.
@@ -74,6 +91,20 @@ public final class JwtReactiveAuthenticationManager implements ReactiveAuthentic
 		this.jwtAuthenticationConverter = jwtAuthenticationConverter;
 	}
 
+	/**
+	 * Use the given {@link JwtAuthenticationTokenCache} to authenticate tokens that were
+	 * already decoded and converted without decoding them again. By default no cache is
+	 * used. The cache cannot be shared with other providers, since it does not know which
+	 * decoder verified a token.
+	 * @param jwtAuthenticationTokenCache the cache to use
+	 * @since 5.8
+	 */
+	public void setJwtAuthenticationTokenCache(JwtAuthenticationTokenCache jwtAuthenticationTokenCache) {
+		Assert.notNull(jwtAuthenticationTokenCache, "jwtAuthenticationTokenCache cannot be null");
+		jwtAuthenticationTokenCache.setOwner(this);
+		this.jwtAuthenticationTokenCache = jwtAuthenticationTokenCache;
+	}
+
 	private AuthenticationException onError(JwtException ex) {
 		if (ex instanceof BadJwtException) {
 			return new InvalidBearerTokenException(ex.getMessage(), ex);
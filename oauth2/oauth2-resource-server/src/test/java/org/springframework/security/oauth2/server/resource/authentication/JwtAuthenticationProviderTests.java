@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,7 +25,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -36,8 +38,11 @@ import org.springframework.security.oauth2.server.resource.BearerTokenErrorCodes
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link JwtAuthenticationProvider}
@@ -126,6 +131,45 @@ public class JwtAuthenticationProviderTests {
 		assertThat(this.provider.supports(BearerTokenAuthenticationToken.class)).isTrue();
 	}
 
+	@Test
+	public void authenticateWhenCachedThenDecodesOnceAndSetsDetailsPerRequest() {
+		this.provider.setJwtAuthenticationTokenCache(new JwtAuthenticationTokenCache());
+		Jwt jwt = TestJwts.jwt().build();
+		given(this.jwtDecoder.decode("token")).willReturn(jwt);
+		given(this.jwtAuthenticationConverter.convert(jwt)).willReturn(new JwtAuthenticationToken(jwt));
+		BearerTokenAuthenticationToken first = this.authentication();
+		first.setDetails("first");
+		BearerTokenAuthenticationToken second = this.authentication();
+		second.setDetails("second");
+		Authentication firstAuthentication = this.provider.authenticate(first);
+		Authentication secondAuthentication = this.provider.authenticate(second);
+		assertThat(secondAuthentication).isNotSameAs(firstAuthentication);
+		assertThat(((JwtAuthenticationToken) secondAuthentication).getToken()).isSameAs(jwt);
+		assertThat(firstAuthentication.getDetails()).isEqualTo("first");
+		assertThat(secondAuthentication.getDetails()).isEqualTo("second");
+		verify(this.jwtDecoder, times(1)).decode("token");
+	}
+
+	@Test
+	public void authenticateWhenCachedAndConverterReturnsSubclassThenConvertsEachTime() {
+		this.provider.setJwtAuthenticationTokenCache(new JwtAuthenticationTokenCache());
+		Jwt jwt = TestJwts.jwt().build();
+		given(this.jwtDecoder.decode("token")).willReturn(jwt);
+		given(this.jwtAuthenticationConverter.convert(jwt)).willReturn(new CustomJwtAuthenticationToken(jwt));
+		assertThat(this.provider.authenticate(this.authentication())).isInstanceOf(CustomJwtAuthenticationToken.class);
+		assertThat(this.provider.authenticate(this.authentication())).isInstanceOf(CustomJwtAuthenticationToken.class);
+		verify(this.jwtAuthenticationConverter, times(2)).convert(jwt);
+	}
+
+	@Test
+	public void setJwtAuthenticationTokenCacheWhenSetOnAnotherProviderThenIllegalArgumentException() {
+		JwtAuthenticationTokenCache cache = new JwtAuthenticationTokenCache();
+		this.provider.setJwtAuthenticationTokenCache(cache);
+		this.provider.setJwtAuthenticationTokenCache(cache);
+		JwtAuthenticationProvider other = new JwtAuthenticationProvider(this.jwtDecoder);
+		assertThatIllegalArgumentException().isThrownBy(() -> other.setJwtAuthenticationTokenCache(cache));
+	}
+
 	private BearerTokenAuthenticationToken authentication() {
 		return new BearerTokenAuthenticationToken("token");
 	}
@@ -134,4 +178,12 @@ public class JwtAuthenticationProviderTests {
 		return (failed) -> ((OAuth2AuthenticationException) failed).getError().getErrorCode() == errorCode;
 	}
 
+	static final class CustomJwtAuthenticationToken extends JwtAuthenticationToken {
+
+		CustomJwtAuthenticationToken(Jwt jwt) {
+			super(jwt, AuthorityUtils.NO_AUTHORITIES);
+		}
+
+	}
+
 }
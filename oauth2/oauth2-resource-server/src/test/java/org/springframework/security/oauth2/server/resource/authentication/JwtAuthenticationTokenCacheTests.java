@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.authentication;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.TestJwts;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link JwtAuthenticationTokenCache}.
+ */
+public class JwtAuthenticationTokenCacheTests {
+
+	// the default JwtTimestampValidator checks the cached tokens against the system clock
+	private static final Instant NOW = Instant.now();
+
+	private JwtAuthenticationTokenCache cache = new JwtAuthenticationTokenCache();
+
+	@BeforeEach
+	public void setup() {
+		this.cache.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenMaximumSizeZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new JwtAuthenticationTokenCache(0));
+	}
+
+	@Test
+	public void getWhenNotCachedThenNull() {
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.getStatistics().getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenCachedThenCopyOfAuthentication() {
+		JwtAuthenticationToken authentication = authentication(NOW.plusSeconds(60));
+		authentication.setDetails("details");
+		this.cache.put("token", authentication);
+		JwtAuthenticationToken cached = this.cache.get("token");
+		assertThat(cached).isNotSameAs(authentication);
+		assertThat(cached.getToken()).isSameAs(authentication.getToken());
+		assertThat(cached.getAuthorities()).isEqualTo(authentication.getAuthorities());
+		assertThat(cached.getName()).isEqualTo("user");
+		assertThat(cached.isAuthenticated()).isTrue();
+		assertThat(cached.getDetails()).isNull();
+		assertThat(this.cache.get("other")).isNull();
+		assertThat(this.cache.getStatistics().getHitCount()).isEqualTo(1);
+		assertThat(this.cache.getStatistics().getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenExpiredThenNullAndRemoved() {
+		this.cache.put("token", authentication(NOW.plusSeconds(60)));
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.getStatistics().getExpirationCount()).isEqualTo(1);
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void getWhenTimeToLiveEndedBeforeExpiryThenNullAndRemoved() {
+		this.cache.setTimeToLive(Duration.ofSeconds(30));
+		this.cache.put("token", authentication(NOW.plusSeconds(60)));
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(29), ZoneOffset.UTC));
+		assertThat(this.cache.get("token")).isNotNull();
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.getStatistics().getExpirationCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void setTimeToLiveWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setTimeToLive(Duration.ZERO));
+	}
+
+	@Test
+	public void setOwnerWhenOtherOwnerThenIllegalArgumentException() {
+		Object owner = new Object();
+		this.cache.setOwner(owner);
+		this.cache.setOwner(owner);
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setOwner(new Object()));
+	}
+
+	@Test
+	public void getWhenValidatorFailsThenNullAndRemoved() {
+		this.cache.put("token", authentication(NOW.plusSeconds(60)));
+		this.cache.setValidator((jwt) -> OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token")));
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.getStatistics().getInvalidationCount()).isEqualTo(1);
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void putWhenNotJwtAuthenticationTokenThenNotCached() {
+		this.cache.put("token", new TestingAuthenticationToken("user", null));
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void putWhenSubclassOfJwtAuthenticationTokenThenNotCached() {
+		Jwt jwt = TestJwts.jwt().expiresAt(NOW.plusSeconds(60)).build();
+		this.cache.put("token", new JwtAuthenticationToken(jwt, AuthorityUtils.NO_AUTHORITIES) {
+		});
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void putWhenNoExpiryThenNotCached() {
+		Jwt jwt = TestJwts.jwt().claims((claims) -> claims.remove("exp")).build();
+		this.cache.put("token", new JwtAuthenticationToken(jwt, AuthorityUtils.NO_AUTHORITIES));
+		assertThat(this.cache.getStatistics().getSize()).isZero();
+	}
+
+	@Test
+	public void putWhenFullThenExpiredEntriesRemovedFirst() {
+		this.cache = new JwtAuthenticationTokenCache(2);
+		this.cache.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.cache.put("expiring", authentication(NOW.plusSeconds(10)));
+		this.cache.put("token", authentication(NOW.plusSeconds(60)));
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(10), ZoneOffset.UTC));
+		this.cache.put("other", authentication(NOW.plusSeconds(60)));
+		assertThat(this.cache.get("token")).isNotNull();
+		assertThat(this.cache.get("other")).isNotNull();
+		assertThat(this.cache.getStatistics().getExpirationCount()).isEqualTo(1);
+		assertThat(this.cache.getStatistics().getEvictionCount()).isZero();
+	}
+
+	@Test
+	public void putWhenFullOfValidTokensThenEvicts() {
+		this.cache = new JwtAuthenticationTokenCache(2);
+		this.cache.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		for (int i = 0; i < 5; i++) {
+			this.cache.put("token-" + i, authentication(NOW.plusSeconds(60)));
+		}
+		assertThat(this.cache.get("token-4")).isNotNull();
+		assertThat(this.cache.getStatistics().getSize()).isEqualTo(2);
+		assertThat(this.cache.getStatistics().getEvictionCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void clearWhenCachedThenRemoved() {
+		this.cache.put("token", authentication(NOW.plusSeconds(60)));
+		this.cache.clear();
+		assertThat(this.cache.get("token")).isNull();
+	}
+
+	private static JwtAuthenticationToken authentication(Instant expiresAt) {
+		Jwt jwt = TestJwts.jwt().issuedAt(NOW).expiresAt(expiresAt).build();
+		return new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("SCOPE_read"), "user");
+	}
+
+}
@@ -39,6 +39,8 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Rob Winch
@@ -144,4 +146,24 @@ public class JwtReactiveAuthenticationManagerTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void authenticateWhenCachedThenDecodesOnce() {
+		this.manager.setJwtAuthenticationTokenCache(new JwtAuthenticationTokenCache());
+		BearerTokenAuthenticationToken token = new BearerTokenAuthenticationToken("token-1");
+		given(this.jwtDecoder.decode(token.getToken())).willReturn(Mono.just(this.jwt));
+		Authentication first = this.manager.authenticate(token).block();
+		Authentication second = this.manager.authenticate(token).block();
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+		verify(this.jwtDecoder, times(1)).decode(token.getToken());
+	}
+
+	@Test
+	public void setJwtAuthenticationTokenCacheWhenSetOnAnotherManagerThenIllegalArgumentException() {
+		JwtAuthenticationTokenCache cache = new JwtAuthenticationTokenCache();
+		this.manager.setJwtAuthenticationTokenCache(cache);
+		JwtReactiveAuthenticationManager other = new JwtReactiveAuthenticationManager(this.jwtDecoder);
+		assertThatIllegalArgumentException().isThrownBy(() -> other.setJwtAuthenticationTokenCache(cache));
+	}
+
 }
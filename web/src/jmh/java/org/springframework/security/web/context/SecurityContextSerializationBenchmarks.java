@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.context;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.security.authentication.CompactSecurityContextCodec;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/**
+ * Compares {@link CompactSecurityContextCodec} with Java serialization and the
+ * {@link SecurityJackson2Modules Jackson modules} when writing and reading the
+ * {@link SecurityContext} of a user that logged in with a username and password,
+ * including the {@link WebAuthenticationDetails} of the login request. The
+ * {@code serialize:serializedBytes} counter reports the size of the serialized context,
+ * summed over the measurement iterations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityContextSerializationBenchmarks {
+
+	@Param({ "compact", "java", "jackson" })
+	private String format;
+
+	private final CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private SecurityContext context;
+
+	private byte[] serialized;
+
+	@Setup
+	public void setup() throws Exception {
+		this.mapper.registerModules(SecurityJackson2Modules.getModules(getClass().getClassLoader()));
+		User user = new User("user@example.com", "password", true, true, true, true,
+				AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN", "SCOPE_read", "SCOPE_write"));
+		UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(user,
+				null, user.getAuthorities());
+		authentication.setDetails(new WebAuthenticationDetails("192.168.1.10", "5F3A1C7E2B9D4A6081C3E5F7A9B1D3E5"));
+		authentication.eraseCredentials();
+		this.context = new SecurityContextImpl(authentication);
+		this.serialized = write();
+	}
+
+	@Benchmark
+	public byte[] serialize(SerializedSize size) throws Exception {
+		byte[] serialized = write();
+		size.serializedBytes = serialized.length;
+		return serialized;
+	}
+
+	@Benchmark
+	public SecurityContext deserialize() throws Exception {
+		if ("compact".equals(this.format)) {
+			return this.codec.deserializeFromByteArray(this.serialized);
+		}
+		if ("java".equals(this.format)) {
+			return (SecurityContext) new DefaultDeserializer().deserializeFromByteArray(this.serialized);
+		}
+		return this.mapper.readValue(this.serialized, SecurityContext.class);
+	}
+
+	private byte[] write() throws Exception {
+		if ("compact".equals(this.format)) {
+			return this.codec.serializeToByteArray(this.context);
+		}
+		if ("java".equals(this.format)) {
+			return new DefaultSerializer().serializeToByteArray(this.context);
+		}
+		return this.mapper.writeValueAsBytes(this.context);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class SerializedSize {
+
+		public long serializedBytes;
+
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Compares {@link AntPathRequestMatcher} and {@link PathPatternRequestMatcher} when a
+ * request is checked against a list of {@value #MATCHERS} matchers, the way a filter
+ * chain or an authorization rule list is consulted, and only the last one matches. The
+ * score is the time per consulted matcher, including its share of computing the
+ * {@link RequestMatchingContext} once per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestMatcherBenchmarks {
+
+	private static final int MATCHERS = 50;
+
+	@Param({ "ant", "pathPattern" })
+	private String matcher;
+
+	@Param({ "literal", "variable", "wildcard" })
+	private String patternType;
+
+	private List<RequestMatcher> matchers;
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		this.matchers = new ArrayList<>(MATCHERS);
+		for (int i = 0; i < MATCHERS; i++) {
+			String pattern = pattern(i);
+			this.matchers.add("ant".equals(this.matcher) ? new AntPathRequestMatcher(pattern)
+					: new PathPatternRequestMatcher(pattern));
+		}
+		this.request = new MockHttpServletRequest("GET", "");
+		this.request.setServletPath("/api/resource" + (MATCHERS - 1) + "/42/details");
+	}
+
+	private String pattern(int i) {
+		if ("variable".equals(this.patternType)) {
+			return "/api/resource" + i + "/{id}/details";
+		}
+		if ("wildcard".equals(this.patternType)) {
+			return "/api/resource" + i + "/*/det*";
+		}
+		return "/api/resource" + i + "/42/details";
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MATCHERS)
+	public RequestMatcher firstMatch() {
+		// every invocation stands for a new request
+		this.request.removeAttribute(RequestMatchingContext.ATTRIBUTE);
+		for (RequestMatcher matcher : this.matchers) {
+			if (matcher.matches(this.request)) {
+				return matcher;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StringUtils;
+
+/**
+ * Compares reading the values that {@link RequestMatcher}s match on from the
+ * {@link RequestMatchingContext} with computing them from the request, as the matchers
+ * did before, when a request is consulted by {@value #LOOKUPS} matchers. The score is the
+ * time per lookup, including its share of creating the context once per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestMatchingContextBenchmarks {
+
+	private static final int LOOKUPS = 20;
+
+	@Param({ "", "/info" })
+	private String pathInfo;
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		this.request = new MockHttpServletRequest("GET", "");
+		this.request.setServletPath("/api/resource/42/details");
+		this.request.setPathInfo(StringUtils.hasLength(this.pathInfo) ? this.pathInfo : null);
+		this.request.setRemoteAddr("192.168.1.10");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void pathAndMethodFromContext(Blackhole blackhole) {
+		this.request.removeAttribute(RequestMatchingContext.ATTRIBUTE);
+		for (int i = 0; i < LOOKUPS; i++) {
+			RequestMatchingContext context = RequestMatchingContext.get(this.request);
+			blackhole.consume(context.getMethod());
+			blackhole.consume(context.getPath());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void pathAndMethodFromRequest(Blackhole blackhole) {
+		for (int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(HttpMethod.resolve(this.request.getMethod()));
+			blackhole.consume(path(this.request));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void lowerCasePathFromContext(Blackhole blackhole) {
+		this.request.removeAttribute(RequestMatchingContext.ATTRIBUTE);
+		for (int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(RequestMatchingContext.get(this.request).getLowerCasePath());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void lowerCasePathFromRequest(Blackhole blackhole) {
+		for (int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(path(this.request).toLowerCase());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void remoteAddressFromContext(Blackhole blackhole) {
+		this.request.removeAttribute(RequestMatchingContext.ATTRIBUTE);
+		for (int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(RequestMatchingContext.get(this.request).getRemoteAddress());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void remoteAddressFromRequest(Blackhole blackhole) {
+		for (int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(RequestMatchingContext.parseAddress(this.request.getRemoteAddr()));
+		}
+	}
+
+	private static String path(MockHttpServletRequest request) {
+		String url = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		if (pathInfo != null) {
+			url = StringUtils.hasLength(url) ? url + pathInfo : pathInfo;
+		}
+		return url;
+	}
+
+}
@@ -183,7 +183,7 @@ public class TokenBasedRememberMeServices extends AbstractRememberMeServices {
 		String data = username + ":" + tokenExpiryTime + ":" + password + ":" + getKey();
 		try {
 			MessageDigest digest = MessageDigest.getInstance(this.encodingAlgorithm.getDigestAlgorithm());
-			return new String(Hex.encode(digest.digest(data.getBytes())));
+			return Hex.encodeToString(digest.digest(data.getBytes()));
 		}
 		catch (NoSuchAlgorithmException ex) {
 			throw new IllegalStateException("No " + this.encodingAlgorithm.name() + " algorithm available!");
@@ -199,7 +199,7 @@ public class TokenBasedRememberMeServices extends AbstractRememberMeServices {
 		String data = username + ":" + tokenExpiryTime + ":" + password + ":" + getKey();
 		try {
 			MessageDigest digest = MessageDigest.getInstance(algorithm.getDigestAlgorithm());
-			return new String(Hex.encode(digest.digest(data.getBytes())));
+			return Hex.encodeToString(digest.digest(data.getBytes()));
 		}
 		catch (NoSuchAlgorithmException ex) {
 			throw new IllegalStateException("No " + algorithm.name() + " algorithm available!");
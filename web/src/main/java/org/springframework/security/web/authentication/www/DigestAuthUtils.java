@@ -178,7 +178,7 @@ final class DigestAuthUtils {
 	static String md5Hex(String data) {
 		try {
 			MessageDigest digest = MessageDigest.getInstance("MD5");
-			return new String(Hex.encode(digest.digest(data.getBytes())));
+			return Hex.encodeToString(digest.digest(data.getBytes()));
 		}
 		catch (NoSuchAlgorithmException ex) {
 			throw new IllegalStateException("No MD5 algorithm available!");
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.log.LogMessage;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.CompactSecurityContextCodec;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.Transient;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * A {@link SecurityContextRepository} that stores the {@link SecurityContext} in an
+ * encrypted cookie instead of the {@code HttpSession}, so that no server side state is
+ * needed to restore the context on a later request.
+ * <p>
+ * The context is serialized with a {@link CompactSecurityContextCodec} by default and
+ * then encrypted with a {@link BytesEncryptor}. The encryptor must authenticate what it
+ * decrypts, as an AES/GCM encryptor created with
+ * {@link Encryptors#stronger(CharSequence, CharSequence)} does, since a cookie that was
+ * tampered with must not be deserialized. Encryptors that decrypt a modified ciphertext,
+ * such as the AES/CBC encryptor of
+ * {@link Encryptors#standard(CharSequence, CharSequence)}, are rejected.
+ * </p>
+ * <p>
+ * Keys are rotated by passing several encryptors. The first one encrypts new cookies, all
+ * of them are tried when decrypting, and a cookie that was encrypted with an older one is
+ * encrypted again with the first one the next time the context is saved.
+ * </p>
+ * <p>
+ * Each cookie expires after {@link #setMaxInactiveInterval(Duration)
+ * maxInactiveInterval}. The expiry is part of the encrypted value, and it is renewed when
+ * the context is saved and more than half of the interval has passed, so that a cookie is
+ * not encrypted again on every request. This requires the context to be saved at the end
+ * of requests, as {@link SecurityContextPersistenceFilter} does. However often it is
+ * renewed, a cookie expires {@link #setMaxAge(Duration) maxAge} after the
+ * {@code Authentication} was first stored in it. A context that is empty, anonymous or
+ * larger than {@link #setMaxCookieSize(int) maxCookieSize} removes the cookie instead.
+ * </p>
+ * <p>
+ * There is no server side revocation. Removing the cookie on logout only affects the
+ * client that logs out, and a copy of the cookie remains valid until it expires, even if
+ * the user is disabled or its authorities change in the meantime. Lower
+ * {@code maxInactiveInterval} and {@code maxAge} to shorten that window, or rotate the
+ * keys to invalidate all cookies at once.
+ * </p>
+ *
+ * @since 5.8
+ * @see org.springframework.security.web.server.context.CookieServerSecurityContextRepository
+ */
+public final class CookieSecurityContextRepository implements SecurityContextRepository {
+
+	/**
+	 * The default name of the cookie that the {@link SecurityContext} is stored in.
+	 */
+	public static final String DEFAULT_COOKIE_NAME = "SPRING_SECURITY_CONTEXT";
+
+	private static final String STATE_ATTRIBUTE_NAME = CookieSecurityContextRepository.class.getName().concat(".STATE");
+
+	private static final CookieState NO_COOKIE = new CookieState(null, null, null, false, false);
+
+	private static final CookieState INVALID_COOKIE = new CookieState(null, null, null, true, false);
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final List<BytesEncryptor> encryptors;
+
+	private SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder
+			.getContextHolderStrategy();
+
+	private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+	private Serializer<SecurityContext> contextSerializer;
+
+	private Deserializer<SecurityContext> contextDeserializer;
+
+	private String cookieName = DEFAULT_COOKIE_NAME;
+
+	private String cookiePath;
+
+	private String cookieDomain;
+
+	private Boolean secure;
+
+	private Duration maxInactiveInterval = Duration.ofMinutes(30);
+
+	private Duration maxAge = Duration.ofHours(12);
+
+	private int maxCookieSize = 4096;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Creates a new instance that encrypts the cookie with the given encryptor.
+	 * @param encryptor the {@link BytesEncryptor} to use. Cannot be null, and must
+	 * authenticate what it decrypts.
+	 */
+	public CookieSecurityContextRepository(BytesEncryptor encryptor) {
+		this(Collections.singletonList(encryptor));
+	}
+
+	/**
+	 * Creates a new instance that encrypts the cookie with the first of the given
+	 * encryptors and decrypts it with any of them.
+	 * @param encryptors the {@link BytesEncryptor}s to use, the current one first. Cannot
+	 * be null or empty, and each must authenticate what it decrypts.
+	 */
+	public CookieSecurityContextRepository(List<BytesEncryptor> encryptors) {
+		Assert.notEmpty(encryptors, "encryptors cannot be null or empty");
+		Assert.noNullElements(encryptors, "encryptors cannot contain null elements");
+		encryptors.forEach(CookieSecurityContextRepository::assertAuthenticatedEncryption);
+		this.encryptors = new ArrayList<>(encryptors);
+		CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+		this.contextSerializer = codec;
+		this.contextDeserializer = codec;
+	}
+
+	@Override
+	public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+		HttpServletRequest request = requestResponseHolder.getRequest();
+		HttpServletResponse response = requestResponseHolder.getResponse();
+		SecurityContext context = getState(request).context;
+		if (context == null) {
+			context = this.securityContextHolderStrategy.createEmptyContext();
+		}
+		if (response != null) {
+			SaveToCookieResponseWrapper wrappedResponse = new SaveToCookieResponseWrapper(response, request);
+			wrappedResponse.setSecurityContextHolderStrategy(this.securityContextHolderStrategy);
+			requestResponseHolder.setResponse(wrappedResponse);
+			requestResponseHolder.setRequest(new SaveToCookieRequestWrapper(request, wrappedResponse));
+		}
+		return context;
+	}
+
+	@Override
+	public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+		Supplier<SecurityContext> supplier = () -> getState(request).context;
+		return new SupplierDeferredSecurityContext(supplier, this.securityContextHolderStrategy);
+	}
+
+	@Override
+	public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+		if (isTransient(context) || isTransient(context.getAuthentication())) {
+			return;
+		}
+		CookieState state = getState(request);
+		Authentication authentication = context.getAuthentication();
+		if (authentication == null || this.trustResolver.isAnonymous(authentication)) {
+			if (state.cookiePresent) {
+				removeCookie(request, response);
+			}
+			return;
+		}
+		Instant now = this.clock.instant();
+		Instant issuedAt = state.hasAuthentication(authentication) ? state.issuedAt : now;
+		Instant expiresAt = expiresAt(issuedAt, now);
+		if (!state.isRenewalRequired(authentication, expiresAt, this.maxInactiveInterval, this.maxAge)) {
+			return;
+		}
+		String value = encode(context, issuedAt, expiresAt);
+		if (value == null) {
+			if (state.cookiePresent) {
+				removeCookie(request, response);
+			}
+			return;
+		}
+		response.addCookie(createCookie(request, value, -1));
+		request.setAttribute(STATE_ATTRIBUTE_NAME, new CookieState(context, issuedAt, expiresAt, true, true));
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug(LogMessage.format("Stored %s to cookie %s", context, this.cookieName));
+		}
+	}
+
+	@Override
+	public boolean containsContext(HttpServletRequest request) {
+		return getState(request).context != null;
+	}
+
+	/**
+	 * The cookie expires after {@code maxInactiveInterval}, but no later than
+	 * {@code maxAge} after the {@code Authentication} was first stored.
+	 */
+	private Instant expiresAt(Instant issuedAt, Instant now) {
+		Instant inactive = now.plus(this.maxInactiveInterval);
+		Instant maxAge = issuedAt.plus(this.maxAge);
+		return inactive.isBefore(maxAge) ? inactive : maxAge;
+	}
+
+	private CookieState getState(HttpServletRequest request) {
+		Object state = request.getAttribute(STATE_ATTRIBUTE_NAME);
+		if (state instanceof CookieState) {
+			return (CookieState) state;
+		}
+		CookieState cookieState = readCookie(request);
+		request.setAttribute(STATE_ATTRIBUTE_NAME, cookieState);
+		return cookieState;
+	}
+
+	private CookieState readCookie(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, this.cookieName);
+		if (cookie == null || !StringUtils.hasLength(cookie.getValue())) {
+			return NO_COOKIE;
+		}
+		String value = cookie.getValue();
+		if (value.length() > this.maxCookieSize) {
+			this.logger.debug("Ignoring security context cookie that exceeds maxCookieSize");
+			return INVALID_COOKIE;
+		}
+		byte[] encrypted;
+		try {
+			encrypted = Base64.getUrlDecoder().decode(value);
+		}
+		catch (IllegalArgumentException ex) {
+			this.logger.debug("Ignoring security context cookie that is not Base64 encoded");
+			return INVALID_COOKIE;
+		}
+		for (int i = 0; i < this.encryptors.size(); i++) {
+			byte[] decrypted = decrypt(this.encryptors.get(i), encrypted);
+			if (decrypted != null) {
+				return decode(decrypted, i == 0);
+			}
+		}
+		this.logger.debug("Ignoring security context cookie that cannot be decrypted");
+		return INVALID_COOKIE;
+	}
+
+	private byte[] decrypt(BytesEncryptor encryptor, byte[] encrypted) {
+		try {
+			return encryptor.decrypt(encrypted);
+		}
+		catch (RuntimeException ex) {
+			// a forged value, for example one shorter than the IV, may fail in any way
+			return null;
+		}
+	}
+
+	private CookieState decode(byte[] decrypted, boolean currentKey) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(decrypted));
+			Instant expiresAt = Instant.ofEpochSecond(in.readLong());
+			Instant issuedAt = Instant.ofEpochSecond(in.readLong());
+			Instant now = this.clock.instant();
+			if (!now.isBefore(expiresAt) || !now.isBefore(issuedAt.plus(this.maxAge))) {
+				this.logger.debug("Ignoring security context cookie that expired");
+				return INVALID_COOKIE;
+			}
+			SecurityContext context = this.contextDeserializer.deserialize(in);
+			if (this.logger.isTraceEnabled()) {
+				this.logger.trace(LogMessage.format("Retrieved %s from cookie %s", context, this.cookieName));
+			}
+			return new CookieState(context, issuedAt, expiresAt, true, currentKey);
+		}
+		catch (IOException ex) {
+			this.logger.warn("Failed to deserialize security context cookie, ignoring it", ex);
+			return INVALID_COOKIE;
+		}
+	}
+
+	private String encode(SecurityContext context, Instant issuedAt, Instant expiresAt) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try {
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeLong(expiresAt.getEpochSecond());
+			out.writeLong(issuedAt.getEpochSecond());
+			this.contextSerializer.serialize(context, out);
+			out.flush();
+		}
+		catch (IOException ex) {
+			this.logger.warn(LogMessage.format("Failed to serialize %s, not storing it in a cookie", context), ex);
+			return null;
+		}
+		String value = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(this.encryptors.get(0).encrypt(bytes.toByteArray()));
+		if (value.length() > this.maxCookieSize) {
+			this.logger.warn(LogMessage.format("Not storing %s in a cookie since it would exceed %s characters",
+					context, this.maxCookieSize));
+			return null;
+		}
+		return value;
+	}
+
+	private void removeCookie(HttpServletRequest request, HttpServletResponse response) {
+		response.addCookie(createCookie(request, "", 0));
+		request.setAttribute(STATE_ATTRIBUTE_NAME, NO_COOKIE);
+	}
+
+	private Cookie createCookie(HttpServletRequest request, String value, int maxAge) {
+		Cookie cookie = new Cookie(this.cookieName, value);
+		cookie.setSecure((this.secure != null) ? this.secure : request.isSecure());
+		cookie.setPath(StringUtils.hasLength(this.cookiePath) ? this.cookiePath : getRequestContext(request));
+		cookie.setMaxAge(maxAge);
+		cookie.setHttpOnly(true);
+		if (StringUtils.hasLength(this.cookieDomain)) {
+			cookie.setDomain(this.cookieDomain);
+		}
+		return cookie;
+	}
+
+	private String getRequestContext(HttpServletRequest request) {
+		String contextPath = request.getContextPath();
+		return (contextPath.length() > 0) ? contextPath : "/";
+	}
+
+	/**
+	 * Rejects encryptors that decrypt a modified ciphertext, since the cookie is
+	 * deserialized after it was decrypted.
+	 */
+	private static void assertAuthenticatedEncryption(BytesEncryptor encryptor) {
+		byte[] encrypted = encryptor.encrypt(new byte[32]);
+		encrypted[0] ^= 1;
+		try {
+			encryptor.decrypt(encrypted);
+		}
+		catch (IllegalArgumentException | IllegalStateException ex) {
+			return;
+		}
+		throw new IllegalArgumentException("encryptors must authenticate what they decrypt, but " + encryptor
+				+ " decrypted a modified ciphertext. Use an AES/GCM encryptor such as Encryptors.stronger");
+	}
+
+	private boolean isTransient(Object object) {
+		if (object == null) {
+			return false;
+		}
+		return AnnotationUtils.getAnnotation(object.getClass(), Transient.class) != null;
+	}
+
+	/**
+	 * Sets the {@link SecurityContextHolderStrategy} to use. The default action is to use
+	 * the {@link SecurityContextHolderStrategy} stored in {@link SecurityContextHolder}.
+	 * @param securityContextHolderStrategy the {@link SecurityContextHolderStrategy} to
+	 * use. Cannot be null.
+	 */
+	public void setSecurityContextHolderStrategy(SecurityContextHolderStrategy securityContextHolderStrategy) {
+		Assert.notNull(securityContextHolderStrategy, "securityContextHolderStrategy cannot be null");
+		this.securityContextHolderStrategy = securityContextHolderStrategy;
+	}
+
+	/**
+	 * Sets the {@link AuthenticationTrustResolver} used to recognize anonymous users,
+	 * whose context is not stored. The default is
+	 * {@link AuthenticationTrustResolverImpl}.
+	 * @param trustResolver the {@link AuthenticationTrustResolver} to use. Cannot be
+	 * null.
+	 */
+	public void setTrustResolver(AuthenticationTrustResolver trustResolver) {
+		Assert.notNull(trustResolver, "trustResolver cannot be null");
+		this.trustResolver = trustResolver;
+	}
+
+	/**
+	 * Sets the {@link Serializer} used to convert the {@link SecurityContext} to bytes
+	 * before it is encrypted. The default is a {@link CompactSecurityContextCodec}.
+	 * @param contextSerializer the {@link Serializer} to use. Cannot be null.
+	 */
+	public void setContextSerializer(Serializer<SecurityContext> contextSerializer) {
+		Assert.notNull(contextSerializer, "contextSerializer cannot be null");
+		this.contextSerializer = contextSerializer;
+	}
+
+	/**
+	 * Sets the {@link Deserializer} used to read the {@link SecurityContext} from the
+	 * decrypted cookie. It must accept what the {@link #setContextSerializer(Serializer)
+	 * contextSerializer} writes. The default is a {@link CompactSecurityContextCodec}.
+	 * @param contextDeserializer the {@link Deserializer} to use. Cannot be null.
+	 */
+	public void setContextDeserializer(Deserializer<SecurityContext> contextDeserializer) {
+		Assert.notNull(contextDeserializer, "contextDeserializer cannot be null");
+		this.contextDeserializer = contextDeserializer;
+	}
+
+	/**
+	 * Sets the name of the cookie that the {@link SecurityContext} is stored in. The
+	 * default is {@link #DEFAULT_COOKIE_NAME}.
+	 * @param cookieName the name of the cookie. Cannot be null or empty.
+	 */
+	public void setCookieName(String cookieName) {
+		Assert.hasText(cookieName, "cookieName cannot be null or empty");
+		this.cookieName = cookieName;
+	}
+
+	/**
+	 * Sets the path of the cookie. By default the context path of the request is used.
+	 * @param cookiePath the path to use
+	 */
+	public void setCookiePath(String cookiePath) {
+		this.cookiePath = cookiePath;
+	}
+
+	/**
+	 * Sets the domain of the cookie.
+	 * @param cookieDomain the domain to use
+	 */
+	public void setCookieDomain(String cookieDomain) {
+		this.cookieDomain = cookieDomain;
+	}
+
+	/**
+	 * Sets the secure flag of the cookie. By default the secure flag depends on
+	 * {@link ServletRequest#isSecure()}.
+	 * @param secure the secure flag of the cookie
+	 */
+	public void setSecure(Boolean secure) {
+		this.secure = secure;
+	}
+
+	/**
+	 * Sets how long a cookie remains valid after the context was last stored in it. The
+	 * default is 30 minutes.
+	 * @param maxInactiveInterval the interval to use. Must be positive.
+	 */
+	public void setMaxInactiveInterval(Duration maxInactiveInterval) {
+		Assert.notNull(maxInactiveInterval, "maxInactiveInterval cannot be null");
+		Assert.isTrue(!maxInactiveInterval.isNegative() && !maxInactiveInterval.isZero(),
+				"maxInactiveInterval must be positive");
+		this.maxInactiveInterval = maxInactiveInterval;
+	}
+
+	/**
+	 * Sets how long a cookie remains valid after the {@code Authentication} was first
+	 * stored in it, however often it is renewed. Authenticating again starts a new
+	 * period. The default is 12 hours.
+	 * @param maxAge the maximum age to use. Must be positive.
+	 */
+	public void setMaxAge(Duration maxAge) {
+		Assert.notNull(maxAge, "maxAge cannot be null");
+		Assert.isTrue(!maxAge.isNegative() && !maxAge.isZero(), "maxAge must be positive");
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Sets the maximum length of the encoded cookie value. A context that does not fit is
+	 * not stored, and a longer cookie is ignored without decrypting it. The default is
+	 * 4096, the size that browsers are required to support.
+	 * @param maxCookieSize the maximum number of characters. Must be positive.
+	 */
+	public void setMaxCookieSize(int maxCookieSize) {
+		Assert.isTrue(maxCookieSize > 0, "maxCookieSize must be positive");
+		this.maxCookieSize = maxCookieSize;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to compute and check the expiry of the cookie.
+	 * @param clock the {@link Clock} to use. Cannot be null.
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * What is known about the cookie for the current request, stored as a request
+	 * attribute so that the cookie is decrypted at most once.
+	 */
+	private static final class CookieState {
+
+		private final SecurityContext context;
+
+		private final Instant issuedAt;
+
+		private final Instant expiresAt;
+
+		private final boolean cookiePresent;
+
+		private final boolean currentKey;
+
+		private CookieState(SecurityContext context, Instant issuedAt, Instant expiresAt, boolean cookiePresent,
+				boolean currentKey) {
+			this.context = context;
+			this.issuedAt = issuedAt;
+			this.expiresAt = expiresAt;
+			this.cookiePresent = cookiePresent;
+			this.currentKey = currentKey;
+		}
+
+		private boolean hasAuthentication(Authentication authentication) {
+			return this.context != null && authentication.equals(this.context.getAuthentication());
+		}
+
+		/**
+		 * A cookie is renewed once it would extend the expiry by more than half of the
+		 * interval, or when the expiry reached its maximum age.
+		 */
+		private boolean isRenewalRequired(Authentication authentication, Instant expiresAt,
+				Duration maxInactiveInterval, Duration maxAge) {
+			if (!this.currentKey || !hasAuthentication(authentication)) {
+				return true;
+			}
+			if (!expiresAt.isAfter(this.expiresAt)) {
+				return false;
+			}
+			return expiresAt.isAfter(this.expiresAt.plus(maxInactiveInterval.dividedBy(2)))
+					|| expiresAt.equals(this.issuedAt.plus(maxAge));
+		}
+
+	}
+
+	private static class SaveToCookieRequestWrapper extends HttpServletRequestWrapper {
+
+		private final SaveContextOnUpdateOrErrorResponseWrapper response;
+
+		SaveToCookieRequestWrapper(HttpServletRequest request, SaveContextOnUpdateOrErrorResponseWrapper response) {
+			super(request);
+			this.response = response;
+		}
+
+		@Override
+		public AsyncContext startAsync() {
+			this.response.disableSaveOnResponseCommitted();
+			return super.startAsync();
+		}
+
+		@Override
+		public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+				throws IllegalStateException {
+			this.response.disableSaveOnResponseCommitted();
+			return super.startAsync(servletRequest, servletResponse);
+		}
+
+	}
+
+	/**
+	 * Stores the {@link SecurityContext} in the cookie before the response is committed,
+	 * since a cookie cannot be added afterwards.
+	 */
+	final class SaveToCookieResponseWrapper extends SaveContextOnUpdateOrErrorResponseWrapper {
+
+		private final HttpServletRequest request;
+
+		SaveToCookieResponseWrapper(HttpServletResponse response, HttpServletRequest request) {
+			super(response, false);
+			this.request = request;
+		}
+
+		@Override
+		protected void saveContext(SecurityContext context) {
+			CookieSecurityContextRepository.this.saveContext(context, this.request,
+					(HttpServletResponse) getResponse());
+		}
+
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.security.web.context;
 
+import java.io.IOException;
 import java.util.function.Supplier;
 
 import javax.servlet.AsyncContext;
@@ -31,6 +32,8 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.log.LogMessage;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
 import org.springframework.security.core.Authentication;
@@ -80,6 +83,15 @@ import org.springframework.web.util.WebUtils;
  * need to conserve server memory and ensure all classes using the
  * {@code SecurityContextHolder} are designed to have no persistence of the
  * {@code SecurityContext} between web requests.
+ * <p>
+ * When the session is kept in a remote store, for example with Spring Session, every
+ * <tt>setAttribute</tt> is a write of the serialized context to that store. In this case
+ * {@link #setSkipUnchangedAuthentication(boolean) skipUnchangedAuthentication} can be
+ * enabled so that the context is only written when its {@code Authentication} differs
+ * from the one already in the session, and a {@link #setContextSerializer(Serializer)
+ * contextSerializer} and {@link #setContextDeserializer(Deserializer)
+ * contextDeserializer} can be configured to store the context in a more compact form than
+ * Java serialization.
  *
  * @author Luke Taylor
  * @since 3.0
@@ -91,6 +103,9 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 	 */
 	public static final String SPRING_SECURITY_CONTEXT_KEY = "SPRING_SECURITY_CONTEXT";
 
+	private static final String SAVED_AUTHENTICATION_ATTR = HttpSessionSecurityContextRepository.class.getName()
+			.concat(".SAVED_AUTHENTICATION");
+
 	protected final Log logger = LogFactory.getLog(this.getClass());
 
 	private SecurityContextHolderStrategy securityContextHolderStrategy = SecurityContextHolder
@@ -110,6 +125,12 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 
 	private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
 
+	private boolean skipUnchangedAuthentication;
+
+	private Serializer<SecurityContext> contextSerializer;
+
+	private Deserializer<SecurityContext> contextDeserializer;
+
 	/**
 	 * Gets the security context for the current request (if available) and returns it.
 	 * <p>
@@ -119,6 +140,7 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 	 */
 	@Override
 	public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+		assertContextSerializationConfigured();
 		HttpServletRequest request = requestResponseHolder.getRequest();
 		HttpServletResponse response = requestResponseHolder.getResponse();
 		HttpSession httpSession = request.getSession(false);
@@ -141,20 +163,53 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 
 	@Override
 	public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
-		Supplier<SecurityContext> supplier = () -> readSecurityContextFromSession(request.getSession(false));
+		assertContextSerializationConfigured();
+		Supplier<SecurityContext> supplier = () -> {
+			SecurityContext context = readSecurityContextFromSession(request.getSession(false));
+			if (this.skipUnchangedAuthentication) {
+				// Remember what was loaded, so that saveContext does not read it again
+				Authentication authentication = (context != null) ? context.getAuthentication() : null;
+				request.setAttribute(SAVED_AUTHENTICATION_ATTR, new AuthenticationSnapshot(authentication));
+			}
+			return context;
+		};
 		return new SupplierDeferredSecurityContext(supplier, this.securityContextHolderStrategy);
 	}
 
 	@Override
 	public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+		assertContextSerializationConfigured();
 		SaveContextOnUpdateOrErrorResponseWrapper responseWrapper = WebUtils.getNativeResponse(response,
 				SaveContextOnUpdateOrErrorResponseWrapper.class);
-		if (responseWrapper == null) {
-			boolean httpSessionExists = request.getSession(false) != null;
-			SecurityContext initialContext = this.securityContextHolderStrategy.createEmptyContext();
-			responseWrapper = new SaveToSessionResponseWrapper(response, request, httpSessionExists, initialContext);
+		if (responseWrapper != null) {
+			responseWrapper.saveContext(context);
+			return;
+		}
+		// The wrapper only looks up the session when it writes to it, which is still
+		// within this call, so the session cannot have been invalidated in between
+		SecurityContext initialContext = this.securityContextHolderStrategy.createEmptyContext();
+		SaveToSessionResponseWrapper wrapper = new SaveToSessionResponseWrapper(response, request, false,
+				initialContext);
+		if (!this.skipUnchangedAuthentication) {
+			wrapper.saveContext(context);
+			return;
+		}
+		// Compare with the Authentication loaded or saved earlier in this request, and
+		// only read the session, and possibly deserialize the context, if there is none
+		// and the context is to be stored
+		Object snapshot = request.getAttribute(SAVED_AUTHENTICATION_ATTR);
+		Authentication authentication = context.getAuthentication();
+		if (snapshot instanceof AuthenticationSnapshot) {
+			wrapper.setSavedAuthenticationSnapshot((AuthenticationSnapshot) snapshot);
+		}
+		else if (authentication != null && !this.trustResolver.isAnonymous(authentication)) {
+			SecurityContext contextInSession = readSecurityContextFromSession(request.getSession(false));
+			if (contextInSession != null) {
+				wrapper.setSavedAuthentication(contextInSession.getAuthentication());
+			}
 		}
-		responseWrapper.saveContext(context);
+		wrapper.saveContext(context);
+		request.setAttribute(SAVED_AUTHENTICATION_ATTR, wrapper.getSavedAuthenticationSnapshot());
 	}
 
 	@Override
@@ -183,6 +238,15 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 			}
 			return null;
 		}
+		if (contextFromSession instanceof byte[]) {
+			Assert.state(this.contextDeserializer != null,
+					() -> "The HttpSession attribute '" + this.springSecurityContextKey
+							+ "' contains a serialized SecurityContext, but no contextDeserializer is configured");
+			contextFromSession = deserializeContext((byte[]) contextFromSession);
+			if (contextFromSession == null) {
+				return null;
+			}
+		}
 
 		// We now have the security context object from the session.
 		if (!(contextFromSession instanceof SecurityContext)) {
@@ -205,6 +269,35 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 		return (SecurityContext) contextFromSession;
 	}
 
+	private SecurityContext deserializeContext(byte[] serializedContext) {
+		try {
+			return this.contextDeserializer.deserializeFromByteArray(serializedContext);
+		}
+		catch (IOException ex) {
+			this.logger.warn(LogMessage.format("Failed to deserialize the SecurityContext stored in %s",
+					this.springSecurityContextKey), ex);
+			return null;
+		}
+	}
+
+	private void assertContextSerializationConfigured() {
+		Assert.state((this.contextSerializer == null) == (this.contextDeserializer == null),
+				"contextSerializer and contextDeserializer must be configured together");
+	}
+
+	private Object toSessionAttribute(SecurityContext context) {
+		if (this.contextSerializer == null) {
+			return context;
+		}
+		try {
+			return this.contextSerializer.serializeToByteArray(context);
+		}
+		catch (IOException ex) {
+			this.logger.debug(LogMessage.format("Failed to serialize %s, storing it as is", context), ex);
+			return context;
+		}
+	}
+
 	/**
 	 * By default, calls {@link SecurityContextHolder#createEmptyContext()} to obtain a
 	 * new context (there should be no context present in the holder when this method is
@@ -261,6 +354,67 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 		this.contextObject = this.securityContextHolderStrategy.createEmptyContext();
 	}
 
+	/**
+	 * If set to true, the security context is only stored in the session when its
+	 * {@code Authentication} is not equal to the one the session already contains, rather
+	 * than whenever the context or {@code Authentication} instance changed during the
+	 * request. The {@code Authentication} is also stored again when its hash code
+	 * changed, so that changes made to the instance loaded from the session are not lost.
+	 * Defaults to false.
+	 * <p>
+	 * This avoids needless writes when the session is kept in a remote store and the same
+	 * {@code Authentication} is set again on every request, for example by a filter that
+	 * re-authenticates the user.
+	 * @param skipUnchangedAuthentication whether to skip storing an unchanged
+	 * {@code Authentication}
+	 * @since 5.8
+	 */
+	public void setSkipUnchangedAuthentication(boolean skipUnchangedAuthentication) {
+		this.skipUnchangedAuthentication = skipUnchangedAuthentication;
+	}
+
+	/**
+	 * Sets the {@link Serializer} used to convert the security context to the
+	 * {@code byte[]} that is stored in the session. By default the
+	 * {@code SecurityContext} itself is stored, leaving its serialization to the session
+	 * store. If the serializer fails with an {@link IOException}, for example because it
+	 * does not support the {@code Authentication} type, the {@code SecurityContext} is
+	 * stored as is.
+	 * <p>
+	 * A matching {@link #setContextDeserializer(Deserializer) contextDeserializer} must
+	 * be configured as well, otherwise loading and saving the context fails with an
+	 * {@link IllegalStateException}.
+	 * <p>
+	 * Note that the {@code byte[]} stored under the
+	 * {@link #setSpringSecurityContextKey(String) springSecurityContextKey} can only be
+	 * read by this repository. Anything else that reads the {@code SecurityContext} from
+	 * the session attribute no longer finds it, for example the principal name indexing
+	 * of Spring Session's {@code FindByIndexNameSessionRepository}, which then can no
+	 * longer find the sessions of a user.
+	 * @param contextSerializer the {@link Serializer} to use. Cannot be null.
+	 * @since 5.8
+	 */
+	public void setContextSerializer(Serializer<SecurityContext> contextSerializer) {
+		Assert.notNull(contextSerializer, "contextSerializer cannot be null");
+		this.contextSerializer = contextSerializer;
+	}
+
+	/**
+	 * Sets the {@link Deserializer} used to read a security context that was stored in
+	 * the session as a {@code byte[]} by the configured
+	 * {@link #setContextSerializer(Serializer) contextSerializer}. A
+	 * {@code SecurityContext} stored as is can always be read. A matching
+	 * {@link #setContextSerializer(Serializer) contextSerializer} must be configured as
+	 * well. Without a deserializer, finding a {@code byte[]} in the session fails with an
+	 * {@link IllegalStateException}, rather than treating the session as unauthenticated.
+	 * @param contextDeserializer the {@link Deserializer} to use. Cannot be null.
+	 * @since 5.8
+	 */
+	public void setContextDeserializer(Deserializer<SecurityContext> contextDeserializer) {
+		Assert.notNull(contextDeserializer, "contextDeserializer cannot be null");
+		this.contextDeserializer = contextDeserializer;
+	}
+
 	private boolean isTransient(Object object) {
 		if (object == null) {
 			return false;
@@ -325,6 +479,8 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 
 		private boolean isSaveContextInvoked;
 
+		private AuthenticationSnapshot savedAuthentication;
+
 		/**
 		 * Takes the parameters required to call <code>saveContext()</code> successfully
 		 * in addition to the request and the response object we are wrapping.
@@ -343,6 +499,28 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 			this.httpSessionExistedAtStartOfRequest = httpSessionExistedAtStartOfRequest;
 			this.contextBeforeExecution = context;
 			this.authBeforeExecution = context.getAuthentication();
+			setSavedAuthentication(this.authBeforeExecution);
+		}
+
+		/**
+		 * Records the {@code Authentication} that is known to be stored in the session,
+		 * if {@link #setSkipUnchangedAuthentication(boolean) skipUnchangedAuthentication}
+		 * is enabled.
+		 * @param authentication the stored {@code Authentication}, or {@code null}
+		 */
+		void setSavedAuthentication(Authentication authentication) {
+			if (!HttpSessionSecurityContextRepository.this.skipUnchangedAuthentication) {
+				return;
+			}
+			this.savedAuthentication = new AuthenticationSnapshot(authentication);
+		}
+
+		void setSavedAuthenticationSnapshot(AuthenticationSnapshot savedAuthentication) {
+			this.savedAuthentication = savedAuthentication;
+		}
+
+		AuthenticationSnapshot getSavedAuthenticationSnapshot() {
+			return this.savedAuthentication;
 		}
 
 		/**
@@ -365,16 +543,18 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 			if (isTransient(authentication)) {
 				return;
 			}
-			HttpSession httpSession = this.request.getSession(false);
 			String springSecurityContextKey = HttpSessionSecurityContextRepository.this.springSecurityContextKey;
 			// See SEC-776
 			if (authentication == null
 					|| HttpSessionSecurityContextRepository.this.trustResolver.isAnonymous(authentication)) {
-				if (httpSession != null && this.authBeforeExecution != null) {
+				// Only look up the session if there is something to remove from it
+				HttpSession httpSession = (this.authBeforeExecution != null) ? this.request.getSession(false) : null;
+				if (httpSession != null) {
 					// SEC-1587 A non-anonymous context may still be in the session
 					// SEC-1735 remove if the contextBeforeExecution was not anonymous
 					httpSession.removeAttribute(springSecurityContextKey);
 					this.isSaveContextInvoked = true;
+					setSavedAuthentication(null);
 				}
 				if (this.logger.isDebugEnabled()) {
 					if (authentication == null) {
@@ -386,6 +566,7 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 				}
 				return;
 			}
+			HttpSession httpSession = this.request.getSession(false);
 			httpSession = (httpSession != null) ? httpSession : createNewSessionIfAllowed(context);
 			// If HttpSession exists, store current SecurityContext but only if it has
 			// actually changed in this thread (see SEC-37, SEC-1307, SEC-1528)
@@ -393,8 +574,9 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 				// We may have a new session, so check also whether the context attribute
 				// is set SEC-1561
 				if (contextChanged(context) || httpSession.getAttribute(springSecurityContextKey) == null) {
-					httpSession.setAttribute(springSecurityContextKey, context);
+					httpSession.setAttribute(springSecurityContextKey, toSessionAttribute(context));
 					this.isSaveContextInvoked = true;
+					setSavedAuthentication(authentication);
 					if (this.logger.isDebugEnabled()) {
 						this.logger.debug(LogMessage.format("Stored %s to HttpSession [%s]", context, httpSession));
 					}
@@ -403,10 +585,17 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 		}
 
 		private boolean contextChanged(SecurityContext context) {
+			if (HttpSessionSecurityContextRepository.this.skipUnchangedAuthentication) {
+				return authenticationChanged(context.getAuthentication());
+			}
 			return this.isSaveContextInvoked || context != this.contextBeforeExecution
 					|| context.getAuthentication() != this.authBeforeExecution;
 		}
 
+		private boolean authenticationChanged(Authentication authentication) {
+			return this.savedAuthentication == null || this.savedAuthentication.changed(authentication);
+		}
+
 		private HttpSession createNewSessionIfAllowed(SecurityContext context) {
 			if (this.httpSessionExistedAtStartOfRequest) {
 				this.logger.debug("HttpSession is now null, but was not null at start of request; "
@@ -445,4 +634,26 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 
 	}
 
+	/**
+	 * The {@code Authentication} stored in the session, with its hash code at the time it
+	 * was loaded or stored, so that changes made to the instance are detected.
+	 */
+	private static final class AuthenticationSnapshot {
+
+		private final Authentication authentication;
+
+		private final int hashCode;
+
+		AuthenticationSnapshot(Authentication authentication) {
+			this.authentication = authentication;
+			this.hashCode = (authentication != null) ? authentication.hashCode() : 0;
+		}
+
+		boolean changed(Authentication authentication) {
+			return this.authentication == null || this.hashCode != authentication.hashCode()
+					|| !this.authentication.equals(authentication);
+		}
+
+	}
+
 }
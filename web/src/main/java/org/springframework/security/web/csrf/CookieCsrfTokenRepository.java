@@ -23,6 +23,8 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.crypto.keygen.StringKeyGenerator;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.WebUtils;
@@ -51,6 +53,8 @@ public final class CookieCsrfTokenRepository implements CsrfTokenRepository {
 
 	private String headerName = DEFAULT_CSRF_HEADER_NAME;
 
+	private StringKeyGenerator tokenValueGenerator = () -> UUID.randomUUID().toString();
+
 	private String cookieName = DEFAULT_CSRF_COOKIE_NAME;
 
 	private boolean cookieHttpOnly = true;
@@ -169,8 +173,23 @@ public final class CookieCsrfTokenRepository implements CsrfTokenRepository {
 		return result;
 	}
 
+	/**
+	 * Sets the {@link StringKeyGenerator} used to create new CSRF token values. The
+	 * default is to use {@link UUID#randomUUID()}, which draws from a single
+	 * {@link java.security.SecureRandom} shared by the JVM. Applications that create
+	 * tokens from many threads concurrently may prefer
+	 * {@code KeyGenerators.string(KeyGenerators.threadLocalSecureRandom(16))}.
+	 * @param tokenValueGenerator the {@link StringKeyGenerator} to use
+	 * @since 5.8
+	 * @see KeyGenerators#threadLocalSecureRandom(int)
+	 */
+	public void setTokenValueGenerator(StringKeyGenerator tokenValueGenerator) {
+		Assert.notNull(tokenValueGenerator, "tokenValueGenerator cannot be null");
+		this.tokenValueGenerator = tokenValueGenerator;
+	}
+
 	private String createNewToken() {
-		return UUID.randomUUID().toString();
+		return this.tokenValueGenerator.generateKey();
 	}
 
 	/**
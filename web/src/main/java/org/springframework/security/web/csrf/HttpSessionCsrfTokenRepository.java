@@ -22,6 +22,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.crypto.keygen.StringKeyGenerator;
 import org.springframework.util.Assert;
 
 /**
@@ -44,6 +46,8 @@ public final class HttpSessionCsrfTokenRepository implements CsrfTokenRepository
 
 	private String headerName = DEFAULT_CSRF_HEADER_NAME;
 
+	private StringKeyGenerator tokenValueGenerator = () -> UUID.randomUUID().toString();
+
 	private String sessionAttributeName = DEFAULT_CSRF_TOKEN_ATTR_NAME;
 
 	@Override
@@ -103,8 +107,20 @@ public final class HttpSessionCsrfTokenRepository implements CsrfTokenRepository
 		this.sessionAttributeName = sessionAttributeName;
 	}
 
+	/**
+	 * Sets the {@link StringKeyGenerator} used to create the value of new tokens.
+	 * Defaults to {@link UUID#randomUUID()}.
+	 * @param tokenValueGenerator the {@link StringKeyGenerator} to use
+	 * @since 5.8
+	 * @see KeyGenerators#threadLocalSecureRandom(int)
+	 */
+	public void setTokenValueGenerator(StringKeyGenerator tokenValueGenerator) {
+		Assert.notNull(tokenValueGenerator, "tokenValueGenerator cannot be null");
+		this.tokenValueGenerator = tokenValueGenerator;
+	}
+
 	private String createNewToken() {
-		return UUID.randomUUID().toString();
+		return this.tokenValueGenerator.generateKey();
 	}
 
 }
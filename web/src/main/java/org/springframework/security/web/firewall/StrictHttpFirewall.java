@@ -25,7 +25,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -124,11 +123,9 @@ public class StrictHttpFirewall implements HttpFirewall {
 
 	private Predicate<String> allowedHostnames = (hostname) -> true;
 
-	private static final Pattern ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN = Pattern
-			.compile("[\\p{IsAssigned}&&[^\\p{IsControl}]]*");
+	private static final Predicate<String> ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE = StrictHttpFirewall::isAssignedAndNotIsoControl;
 
-	private static final Predicate<String> ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE = (
-			s) -> ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN.matcher(s).matches();
+	private static final Predicate<String> ALLOW_ANY_PARAMETER_VALUE = (value) -> true;
 
 	private Predicate<String> allowedHeaderNames = ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE;
 
@@ -136,7 +133,9 @@ public class StrictHttpFirewall implements HttpFirewall {
 
 	private Predicate<String> allowedParameterNames = ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE;
 
-	private Predicate<String> allowedParameterValues = (value) -> true;
+	private Predicate<String> allowedParameterValues = ALLOW_ANY_PARAMETER_VALUE;
+
+	private boolean eagerParameterValidation;
 
 	public StrictHttpFirewall() {
 		urlBlocklistsAddAll(FORBIDDEN_SEMICOLON);
@@ -489,6 +488,26 @@ public class StrictHttpFirewall implements HttpFirewall {
 		this.allowedHostnames = allowedHostnames;
 	}
 
+	/**
+	 * <p>
+	 * Determines if all parameter names and values should be validated once, when the
+	 * request enters the firewall, rather than as they are accessed. The default is
+	 * false.
+	 * </p>
+	 * <p>
+	 * This is useful for requests with a large number of parameters, such as big forms,
+	 * that are read many times further down the filter chain. Note that this causes the
+	 * parameters, and so the body of form submissions, to be parsed before any filter has
+	 * had the chance to read the request body.
+	 * </p>
+	 * @param eagerParameterValidation true if parameters should be validated when the
+	 * request is firewalled
+	 * @since 5.8
+	 */
+	public void setEagerParameterValidation(boolean eagerParameterValidation) {
+		this.eagerParameterValidation = eagerParameterValidation;
+	}
+
 	private void urlBlocklistsAddAll(Collection<String> values) {
 		this.encodedUrlBlocklist.addAll(values);
 		this.decodedUrlBlocklist.addAll(values);
@@ -508,7 +527,11 @@ public class StrictHttpFirewall implements HttpFirewall {
 			throw new RequestRejectedException("The request was rejected because the URL was not normalized.");
 		}
 		rejectNonPrintableAsciiCharactersInFieldName(request.getRequestURI(), "requestURI");
-		return new StrictFirewalledRequest(request);
+		StrictFirewalledRequest firewalledRequest = new StrictFirewalledRequest(request);
+		if (this.eagerParameterValidation) {
+			firewalledRequest.getParameterMap();
+		}
+		return firewalledRequest;
 	}
 
 	private void rejectNonPrintableAsciiCharactersInFieldName(String toCheck, String propertyName) {
@@ -618,6 +641,24 @@ public class StrictHttpFirewall implements HttpFirewall {
 		return true;
 	}
 
+	private static boolean isAssignedAndNotIsoControl(String value) {
+		int length = value.length();
+		int i = 0;
+		while (i < length) {
+			char ch = value.charAt(i);
+			if (ch >= '\u0020' && ch <= '\u007e') {
+				i++;
+				continue;
+			}
+			int codePoint = value.codePointAt(i);
+			if (!Character.isDefined(codePoint) || Character.isISOControl(codePoint)) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return true;
+	}
+
 	private static boolean valueContains(String value, String contains) {
 		return value != null && value.contains(contains);
 	}
@@ -686,6 +727,23 @@ public class StrictHttpFirewall implements HttpFirewall {
 	 */
 	private class StrictFirewalledRequest extends FirewalledRequest {
 
+		/**
+		 * The last parameter map returned by the wrapped request that was validated. As
+		 * the map is immutable, it does not need to be validated again when the wrapped
+		 * request returns the same instance.
+		 */
+		private Map<String, String[]> validatedParameterMap;
+
+		/*
+		 * Parameter names and values that have already passed validation for this
+		 * request, so that the parameters validated eagerly are not tested again. The
+		 * sets are only created once something has been validated. Headers are not
+		 * memoized, as the default header predicate costs no more than a set lookup.
+		 */
+		private Set<String> validatedParameterNames;
+
+		private Set<String> validatedParameterValues;
+
 		StrictFirewalledRequest(HttpServletRequest request) {
 			super(request);
 		}
@@ -776,6 +834,9 @@ public class StrictHttpFirewall implements HttpFirewall {
 		@Override
 		public Map<String, String[]> getParameterMap() {
 			Map<String, String[]> parameterMap = super.getParameterMap();
+			if (parameterMap == this.validatedParameterMap) {
+				return parameterMap;
+			}
 			for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
 				String name = entry.getKey();
 				String[] values = entry.getValue();
@@ -784,6 +845,7 @@ public class StrictHttpFirewall implements HttpFirewall {
 					validateAllowedParameterValue(value);
 				}
 			}
+			this.validatedParameterMap = parameterMap;
 			return parameterMap;
 		}
 
@@ -836,17 +898,36 @@ public class StrictHttpFirewall implements HttpFirewall {
 		}
 
 		private void validateAllowedParameterName(String name) {
+			if (contains(this.validatedParameterNames, name)) {
+				return;
+			}
 			if (!StrictHttpFirewall.this.allowedParameterNames.test(name)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the parameter name \"" + name + "\" is not allowed.");
 			}
+			this.validatedParameterNames = add(this.validatedParameterNames, name);
 		}
 
 		private void validateAllowedParameterValue(String value) {
-			if (!StrictHttpFirewall.this.allowedParameterValues.test(value)) {
+			Predicate<String> allowedParameterValues = StrictHttpFirewall.this.allowedParameterValues;
+			if (allowedParameterValues == ALLOW_ANY_PARAMETER_VALUE || contains(this.validatedParameterValues, value)) {
+				return;
+			}
+			if (!allowedParameterValues.test(value)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the parameter value \"" + value + "\" is not allowed.");
 			}
+			this.validatedParameterValues = add(this.validatedParameterValues, value);
+		}
+
+		private boolean contains(Set<String> validated, String value) {
+			return validated != null && validated.contains(value);
+		}
+
+		private Set<String> add(Set<String> validated, String value) {
+			Set<String> result = (validated != null) ? validated : new HashSet<>();
+			result.add(value);
+			return result;
 		}
 
 		@Override
@@ -66,19 +66,14 @@ class SavedRequestAwareWrapper extends HttpServletRequestWrapper {
 	/**
 	 * The set of SimpleDateFormat formats to use in getDateHeader(). Notice that because
 	 * SimpleDateFormat is not thread-safe, we can't declare formats[] as a static
-	 * variable.
+	 * variable. The formats are only created the first time a date header has to be
+	 * parsed, since most wrapped requests never read one.
 	 */
-	protected final SimpleDateFormat[] formats = new SimpleDateFormat[3];
+	protected SimpleDateFormat[] formats;
 
 	SavedRequestAwareWrapper(SavedRequest saved, HttpServletRequest request) {
 		super(request);
 		this.savedRequest = saved;
-		this.formats[0] = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
-		this.formats[1] = new SimpleDateFormat("EEEEEE, dd-MMM-yy HH:mm:ss zzz", Locale.US);
-		this.formats[2] = new SimpleDateFormat("EEE MMMM d HH:mm:ss yyyy", Locale.US);
-		this.formats[0].setTimeZone(GMT_ZONE);
-		this.formats[1].setTimeZone(GMT_ZONE);
-		this.formats[2].setTimeZone(GMT_ZONE);
 	}
 
 	@Override
@@ -88,13 +83,27 @@ class SavedRequestAwareWrapper extends HttpServletRequestWrapper {
 			return -1L;
 		}
 		// Attempt to convert the date header in a variety of formats
-		long result = FastHttpDateFormat.parseDate(value, this.formats);
+		long result = FastHttpDateFormat.parseDate(value, getFormats());
 		if (result != -1L) {
 			return result;
 		}
 		throw new IllegalArgumentException(value);
 	}
 
+	private SimpleDateFormat[] getFormats() {
+		if (this.formats == null) {
+			SimpleDateFormat[] formats = new SimpleDateFormat[3];
+			formats[0] = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+			formats[1] = new SimpleDateFormat("EEEEEE, dd-MMM-yy HH:mm:ss zzz", Locale.US);
+			formats[2] = new SimpleDateFormat("EEE MMMM d HH:mm:ss yyyy", Locale.US);
+			formats[0].setTimeZone(GMT_ZONE);
+			formats[1].setTimeZone(GMT_ZONE);
+			formats[2].setTimeZone(GMT_ZONE);
+			this.formats = formats;
+		}
+		return this.formats;
+	}
+
 	@Override
 	public String getHeader(String name) {
 		List<String> values = this.savedRequest.getHeaderValues(name);
@@ -168,6 +177,11 @@ class SavedRequestAwareWrapper extends HttpServletRequestWrapper {
 	@Override
 	@SuppressWarnings("unchecked")
 	public Map getParameterMap() {
+		Map<String, String[]> savedParameterMap = this.savedRequest.getParameterMap();
+		if (savedParameterMap.isEmpty()) {
+			// Nothing to merge, so the wrapped request's map can be used as it is
+			return super.getParameterMap();
+		}
 		Set<String> names = getCombinedParameterNames();
 		Map<String, String[]> parameterMap = new HashMap<>(names.size());
 		for (String name : names) {
@@ -187,6 +201,9 @@ class SavedRequestAwareWrapper extends HttpServletRequestWrapper {
 	@Override
 	@SuppressWarnings("unchecked")
 	public Enumeration getParameterNames() {
+		if (this.savedRequest.getParameterMap().isEmpty()) {
+			return super.getParameterNames();
+		}
 		return new Enumerator(getCombinedParameterNames());
 	}
 
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.server.context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.CompactSecurityContextCodec;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A {@link ServerSecurityContextRepository} that stores the {@link SecurityContext} in an
+ * encrypted cookie instead of the {@code WebSession}, so that no server side state is
+ * needed to restore the context on a later request.
+ * <p>
+ * The context is serialized with a {@link CompactSecurityContextCodec} by default and
+ * then encrypted with a {@link BytesEncryptor}. The encryptor must authenticate what it
+ * decrypts, as an AES/GCM encryptor created with
+ * {@link Encryptors#stronger(CharSequence, CharSequence)} does, since a cookie that was
+ * tampered with must not be deserialized. The constructors reject encryptors that decrypt
+ * a modified ciphertext, such as the AES/CBC encryptor of
+ * {@link Encryptors#standard(CharSequence, CharSequence)}.
+ * </p>
+ * <p>
+ * Keys are rotated by passing several encryptors. The first one encrypts new cookies, and
+ * all of them are tried when decrypting. Each cookie expires after
+ * {@link #setMaxInactiveInterval(Duration) maxInactiveInterval}. When a cookie is loaded
+ * after more than half of the interval has passed, or was encrypted with an older key, a
+ * renewed cookie is added to the response before it is committed. Renewals never extend a
+ * cookie beyond {@link #setMaxAge(Duration) maxAge} after the {@code Authentication} was
+ * first saved.
+ * </p>
+ * <p>
+ * Cookies cannot be revoked on the server. Saving an empty context removes the cookie
+ * from the client that sent the request, but copies of it remain valid until they expire,
+ * whatever happens to the user in the meantime. Shorter intervals narrow that window, and
+ * rotating the keys invalidates every cookie.
+ * </p>
+ *
+ * @since 5.8
+ * @see org.springframework.security.web.context.CookieSecurityContextRepository
+ */
+public final class CookieServerSecurityContextRepository implements ServerSecurityContextRepository {
+
+	/**
+	 * The default name of the cookie that the {@link SecurityContext} is stored in.
+	 */
+	public static final String DEFAULT_COOKIE_NAME = "SPRING_SECURITY_CONTEXT";
+
+	private static final String STATE_ATTRIBUTE_NAME = CookieServerSecurityContextRepository.class.getName()
+			.concat(".STATE");
+
+	private static final CookieState NO_CONTEXT = new CookieState(null, null, null, false);
+
+	private static final Log logger = LogFactory.getLog(CookieServerSecurityContextRepository.class);
+
+	private final List<BytesEncryptor> encryptors;
+
+	private Serializer<SecurityContext> contextSerializer;
+
+	private Deserializer<SecurityContext> contextDeserializer;
+
+	private String cookieName = DEFAULT_COOKIE_NAME;
+
+	private String cookiePath;
+
+	private String cookieDomain;
+
+	private Boolean secure;
+
+	private Duration maxInactiveInterval = Duration.ofMinutes(30);
+
+	private Duration maxAge = Duration.ofHours(12);
+
+	private int maxCookieSize = 4096;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Creates a new instance that encrypts the cookie with the given encryptor.
+	 * @param encryptor the {@link BytesEncryptor} to use. Cannot be null, and must
+	 * authenticate what it decrypts.
+	 */
+	public CookieServerSecurityContextRepository(BytesEncryptor encryptor) {
+		this(Collections.singletonList(encryptor));
+	}
+
+	/**
+	 * Creates a new instance that encrypts the cookie with the first of the given
+	 * encryptors and decrypts it with any of them.
+	 * @param encryptors the {@link BytesEncryptor}s to use, the current one first. Cannot
+	 * be null or empty, and each must authenticate what it decrypts.
+	 */
+	public CookieServerSecurityContextRepository(List<BytesEncryptor> encryptors) {
+		Assert.notEmpty(encryptors, "encryptors cannot be null or empty");
+		Assert.noNullElements(encryptors, "encryptors cannot contain null elements");
+		encryptors.forEach(CookieServerSecurityContextRepository::assertAuthenticatedEncryption);
+		this.encryptors = new ArrayList<>(encryptors);
+		CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+		this.contextSerializer = codec;
+		this.contextDeserializer = codec;
+	}
+
+	@Override
+	public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+		return Mono.fromRunnable(() -> {
+			if (context == null || context.getAuthentication() == null) {
+				exchange.getAttributes().put(STATE_ATTRIBUTE_NAME, NO_CONTEXT);
+				exchange.getResponse().addCookie(createCookie(exchange, "", Duration.ZERO));
+				logger.debug("Removed SecurityContext cookie");
+				return;
+			}
+			Instant now = this.clock.instant();
+			CookieState state = exchange.getAttribute(STATE_ATTRIBUTE_NAME);
+			Instant issuedAt = (state != null && state.hasAuthentication(context)) ? state.issuedAt : now;
+			Instant expiresAt = expiresAt(issuedAt, now);
+			String value = encode(context, issuedAt, expiresAt);
+			if (value == null) {
+				exchange.getAttributes().put(STATE_ATTRIBUTE_NAME, NO_CONTEXT);
+				exchange.getResponse().addCookie(createCookie(exchange, "", Duration.ZERO));
+				return;
+			}
+			exchange.getAttributes().put(STATE_ATTRIBUTE_NAME, new CookieState(context, issuedAt, expiresAt, true));
+			exchange.getResponse().addCookie(createCookie(exchange, value, Duration.ofSeconds(-1)));
+			logger.debug(LogMessage.format("Saved SecurityContext '%s' in cookie %s", context, this.cookieName));
+		});
+	}
+
+	@Override
+	public Mono<SecurityContext> load(ServerWebExchange exchange) {
+		return Mono.fromSupplier(() -> getState(exchange).context);
+	}
+
+	private CookieState getState(ServerWebExchange exchange) {
+		CookieState state = exchange.getAttribute(STATE_ATTRIBUTE_NAME);
+		if (state != null) {
+			return state;
+		}
+		CookieState cookieState = readCookie(exchange.getRequest());
+		exchange.getAttributes().put(STATE_ATTRIBUTE_NAME, cookieState);
+		if (cookieState.context != null && cookieState.isRenewalRequired(
+				expiresAt(cookieState.issuedAt, this.clock.instant()), this.maxInactiveInterval, this.maxAge)) {
+			exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> renew(exchange, cookieState)));
+		}
+		return cookieState;
+	}
+
+	private void renew(ServerWebExchange exchange, CookieState loaded) {
+		// the context was saved or removed since it was loaded
+		if (exchange.getAttribute(STATE_ATTRIBUTE_NAME) != loaded) {
+			return;
+		}
+		Instant expiresAt = expiresAt(loaded.issuedAt, this.clock.instant());
+		String value = encode(loaded.context, loaded.issuedAt, expiresAt);
+		if (value != null) {
+			exchange.getAttributes().put(STATE_ATTRIBUTE_NAME,
+					new CookieState(loaded.context, loaded.issuedAt, expiresAt, true));
+			exchange.getResponse().addCookie(createCookie(exchange, value, Duration.ofSeconds(-1)));
+		}
+	}
+
+	private Instant expiresAt(Instant issuedAt, Instant now) {
+		Instant inactive = now.plus(this.maxInactiveInterval);
+		Instant maxAge = issuedAt.plus(this.maxAge);
+		return inactive.isBefore(maxAge) ? inactive : maxAge;
+	}
+
+	private CookieState readCookie(ServerHttpRequest request) {
+		HttpCookie cookie = request.getCookies().getFirst(this.cookieName);
+		if (cookie == null || !StringUtils.hasLength(cookie.getValue())) {
+			return NO_CONTEXT;
+		}
+		String value = cookie.getValue();
+		if (value.length() > this.maxCookieSize) {
+			logger.debug("Ignoring SecurityContext cookie that exceeds maxCookieSize");
+			return NO_CONTEXT;
+		}
+		byte[] encrypted;
+		try {
+			encrypted = Base64.getUrlDecoder().decode(value);
+		}
+		catch (IllegalArgumentException ex) {
+			logger.debug("Ignoring SecurityContext cookie that is not Base64 encoded");
+			return NO_CONTEXT;
+		}
+		for (int i = 0; i < this.encryptors.size(); i++) {
+			byte[] decrypted = decrypt(this.encryptors.get(i), encrypted);
+			if (decrypted != null) {
+				return decode(decrypted, i == 0);
+			}
+		}
+		logger.debug("Ignoring SecurityContext cookie that cannot be decrypted");
+		return NO_CONTEXT;
+	}
+
+	private byte[] decrypt(BytesEncryptor encryptor, byte[] encrypted) {
+		try {
+			return encryptor.decrypt(encrypted);
+		}
+		catch (RuntimeException ex) {
+			// a forged value, for example one shorter than the IV, may fail in any way
+			return null;
+		}
+	}
+
+	private CookieState decode(byte[] decrypted, boolean currentKey) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(decrypted));
+			Instant expiresAt = Instant.ofEpochSecond(in.readLong());
+			Instant issuedAt = Instant.ofEpochSecond(in.readLong());
+			Instant now = this.clock.instant();
+			if (!now.isBefore(expiresAt) || !now.isBefore(issuedAt.plus(this.maxAge))) {
+				logger.debug("Ignoring SecurityContext cookie that expired");
+				return NO_CONTEXT;
+			}
+			SecurityContext context = this.contextDeserializer.deserialize(in);
+			logger.debug(LogMessage.format("Found SecurityContext '%s' in cookie %s", context, this.cookieName));
+			return new CookieState(context, issuedAt, expiresAt, currentKey);
+		}
+		catch (IOException ex) {
+			logger.warn("Failed to deserialize SecurityContext cookie, ignoring it", ex);
+			return NO_CONTEXT;
+		}
+	}
+
+	private String encode(SecurityContext context, Instant issuedAt, Instant expiresAt) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try {
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeLong(expiresAt.getEpochSecond());
+			out.writeLong(issuedAt.getEpochSecond());
+			this.contextSerializer.serialize(context, out);
+			out.flush();
+		}
+		catch (IOException ex) {
+			logger.warn(
+					LogMessage.format("Failed to serialize SecurityContext '%s', not storing it in a cookie", context),
+					ex);
+			return null;
+		}
+		String value = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(this.encryptors.get(0).encrypt(bytes.toByteArray()));
+		if (value.length() > this.maxCookieSize) {
+			logger.warn(LogMessage.format(
+					"Not storing SecurityContext '%s' in a cookie since it would exceed %s " + "characters", context,
+					this.maxCookieSize));
+			return null;
+		}
+		return value;
+	}
+
+	private ResponseCookie createCookie(ServerWebExchange exchange, String value, Duration maxAge) {
+		ServerHttpRequest request = exchange.getRequest();
+		// @formatter:off
+		return ResponseCookie.from(this.cookieName, value)
+				.domain(this.cookieDomain)
+				.httpOnly(true)
+				.maxAge(maxAge)
+				.path((this.cookiePath != null) ? this.cookiePath : getRequestContext(request))
+				.secure((this.secure != null) ? this.secure : (request.getSslInfo() != null))
+				.build();
+		// @formatter:on
+	}
+
+	private static void assertAuthenticatedEncryption(BytesEncryptor encryptor) {
+		byte[] encrypted = encryptor.encrypt(new byte[32]);
+		encrypted[0] ^= 1;
+		try {
+			encryptor.decrypt(encrypted);
+		}
+		catch (IllegalArgumentException | IllegalStateException ex) {
+			return;
+		}
+		throw new IllegalArgumentException("encryptors must authenticate what they decrypt, but " + encryptor
+				+ " decrypted a modified ciphertext. Use an AES/GCM encryptor such as Encryptors.stronger");
+	}
+
+	private String getRequestContext(ServerHttpRequest request) {
+		String contextPath = request.getPath().contextPath().value();
+		return StringUtils.hasText(contextPath) ? contextPath : "/";
+	}
+
+	/**
+	 * Sets the {@link Serializer} used to convert the {@link SecurityContext} to bytes
+	 * before it is encrypted. The default is a {@link CompactSecurityContextCodec}.
+	 * @param contextSerializer the {@link Serializer} to use. Cannot be null.
+	 */
+	public void setContextSerializer(Serializer<SecurityContext> contextSerializer) {
+		Assert.notNull(contextSerializer, "contextSerializer cannot be null");
+		this.contextSerializer = contextSerializer;
+	}
+
+	/**
+	 * Sets the {@link Deserializer} used to read the {@link SecurityContext} from the
+	 * decrypted cookie. It must accept what the {@link #setContextSerializer(Serializer)
+	 * contextSerializer} writes. The default is a {@link CompactSecurityContextCodec}.
+	 * @param contextDeserializer the {@link Deserializer} to use. Cannot be null.
+	 */
+	public void setContextDeserializer(Deserializer<SecurityContext> contextDeserializer) {
+		Assert.notNull(contextDeserializer, "contextDeserializer cannot be null");
+		this.contextDeserializer = contextDeserializer;
+	}
+
+	/**
+	 * Sets the name of the cookie that the {@link SecurityContext} is stored in. The
+	 * default is {@link #DEFAULT_COOKIE_NAME}.
+	 * @param cookieName the name of the cookie. Cannot be null or empty.
+	 */
+	public void setCookieName(String cookieName) {
+		Assert.hasText(cookieName, "cookieName cannot be null or empty");
+		this.cookieName = cookieName;
+	}
+
+	/**
+	 * Sets the path of the cookie. By default the context path of the request is used.
+	 * @param cookiePath the path to use
+	 */
+	public void setCookiePath(String cookiePath) {
+		this.cookiePath = cookiePath;
+	}
+
+	/**
+	 * Sets the domain of the cookie.
+	 * @param cookieDomain the domain to use
+	 */
+	public void setCookieDomain(String cookieDomain) {
+		this.cookieDomain = cookieDomain;
+	}
+
+	/**
+	 * Sets the secure flag of the cookie. By default the secure flag depends on whether
+	 * the request was received over SSL.
+	 * @param secure the secure flag of the cookie
+	 */
+	public void setSecure(Boolean secure) {
+		this.secure = secure;
+	}
+
+	/**
+	 * Sets how long a cookie remains valid after the context was last stored in it. The
+	 * default is 30 minutes.
+	 * @param maxInactiveInterval the interval to use. Must be positive.
+	 */
+	public void setMaxInactiveInterval(Duration maxInactiveInterval) {
+		Assert.notNull(maxInactiveInterval, "maxInactiveInterval cannot be null");
+		Assert.isTrue(!maxInactiveInterval.isNegative() && !maxInactiveInterval.isZero(),
+				"maxInactiveInterval must be positive");
+		this.maxInactiveInterval = maxInactiveInterval;
+	}
+
+	/**
+	 * Sets how long a cookie remains valid after the {@code Authentication} was first
+	 * saved in it, however often it is renewed. Saving a different {@code Authentication}
+	 * starts a new period. The default is 12 hours.
+	 * @param maxAge the maximum age to use. Must be positive.
+	 */
+	public void setMaxAge(Duration maxAge) {
+		Assert.notNull(maxAge, "maxAge cannot be null");
+		Assert.isTrue(!maxAge.isNegative() && !maxAge.isZero(), "maxAge must be positive");
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Sets the maximum length of the encoded cookie value. A context that does not fit is
+	 * not stored, and a longer cookie is ignored without decrypting it. The default is
+	 * 4096, the size that browsers are required to support.
+	 * @param maxCookieSize the maximum number of characters. Must be positive.
+	 */
+	public void setMaxCookieSize(int maxCookieSize) {
+		Assert.isTrue(maxCookieSize > 0, "maxCookieSize must be positive");
+		this.maxCookieSize = maxCookieSize;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to compute and check the expiry of the cookie.
+	 * @param clock the {@link Clock} to use. Cannot be null.
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class CookieState {
+
+		private final SecurityContext context;
+
+		private final Instant issuedAt;
+
+		private final Instant expiresAt;
+
+		private final boolean currentKey;
+
+		private CookieState(SecurityContext context, Instant issuedAt, Instant expiresAt, boolean currentKey) {
+			this.context = context;
+			this.issuedAt = issuedAt;
+			this.expiresAt = expiresAt;
+			this.currentKey = currentKey;
+		}
+
+		private boolean hasAuthentication(SecurityContext context) {
+			return this.context != null && context.getAuthentication().equals(this.context.getAuthentication());
+		}
+
+		/**
+		 * A cookie is renewed once it would extend the expiry by more than half of the
+		 * interval, or when the expiry reached its maximum age.
+		 */
+		private boolean isRenewalRequired(Instant expiresAt, Duration maxInactiveInterval, Duration maxAge) {
+			if (!this.currentKey) {
+				return true;
+			}
+			if (!expiresAt.isAfter(this.expiresAt)) {
+				return false;
+			}
+			return expiresAt.isAfter(this.expiresAt.plus(maxInactiveInterval.dividedBy(2)))
+					|| expiresAt.equals(this.issuedAt.plus(maxAge));
+		}
+
+	}
+
+}
@@ -16,11 +16,15 @@
 
 package org.springframework.security.web.server.context;
 
+import java.io.IOException;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
 import org.springframework.core.log.LogMessage;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
@@ -48,6 +52,10 @@ public class WebSessionServerSecurityContextRepository implements ServerSecurity
 
 	private boolean cacheSecurityContext;
 
+	private Serializer<SecurityContext> contextSerializer;
+
+	private Deserializer<SecurityContext> contextDeserializer;
+
 	/**
 	 * Sets the session attribute name used to save and load the {@link SecurityContext}
 	 * @param springSecurityContextAttrName the session attribute name to use to save and
@@ -68,6 +76,35 @@ public class WebSessionServerSecurityContextRepository implements ServerSecurity
 		this.cacheSecurityContext = cacheSecurityContext;
 	}
 
+	/**
+	 * Sets the {@link Serializer} used to convert the {@link SecurityContext} to the
+	 * {@code byte[]} that is stored in the session. By default the
+	 * {@link SecurityContext} itself is stored. If the serializer fails with an
+	 * {@link IOException}, for example because it does not support the
+	 * {@code Authentication} type, the {@link SecurityContext} is stored as is.
+	 * <p>
+	 * A matching {@link #setContextDeserializer(Deserializer) contextDeserializer} must
+	 * be configured as well.
+	 * @param contextSerializer the {@link Serializer} to use. Cannot be null.
+	 * @since 5.8
+	 */
+	public void setContextSerializer(Serializer<SecurityContext> contextSerializer) {
+		Assert.notNull(contextSerializer, "contextSerializer cannot be null");
+		this.contextSerializer = contextSerializer;
+	}
+
+	/**
+	 * Sets the {@link Deserializer} used to read a {@link SecurityContext} that was
+	 * stored in the session as a {@code byte[]} by the configured
+	 * {@link #setContextSerializer(Serializer) contextSerializer}.
+	 * @param contextDeserializer the {@link Deserializer} to use. Cannot be null.
+	 * @since 5.8
+	 */
+	public void setContextDeserializer(Deserializer<SecurityContext> contextDeserializer) {
+		Assert.notNull(contextDeserializer, "contextDeserializer cannot be null");
+		this.contextDeserializer = contextDeserializer;
+	}
+
 	@Override
 	public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
 		return exchange.getSession().doOnNext((session) -> {
@@ -76,7 +113,7 @@ public class WebSessionServerSecurityContextRepository implements ServerSecurity
 				logger.debug(LogMessage.format("Removed SecurityContext stored in WebSession: '%s'", session));
 			}
 			else {
-				session.getAttributes().put(this.springSecurityContextAttrName, context);
+				session.getAttributes().put(this.springSecurityContextAttrName, toSessionAttribute(context));
 				logger.debug(LogMessage.format("Saved SecurityContext '%s' in WebSession: '%s'", context, session));
 			}
 		}).flatMap(WebSession::changeSessionId);
@@ -85,7 +122,7 @@ public class WebSessionServerSecurityContextRepository implements ServerSecurity
 	@Override
 	public Mono<SecurityContext> load(ServerWebExchange exchange) {
 		Mono<SecurityContext> result = exchange.getSession().flatMap((session) -> {
-			SecurityContext context = (SecurityContext) session.getAttribute(this.springSecurityContextAttrName);
+			SecurityContext context = fromSessionAttribute(session.getAttribute(this.springSecurityContextAttrName));
 			logger.debug((context != null)
 					? LogMessage.format("Found SecurityContext '%s' in WebSession: '%s'", context, session)
 					: LogMessage.format("No SecurityContext found in WebSession: '%s'", session));
@@ -94,4 +131,41 @@ public class WebSessionServerSecurityContextRepository implements ServerSecurity
 		return (this.cacheSecurityContext) ? result.cache() : result;
 	}
 
+	private Object toSessionAttribute(SecurityContext context) {
+		assertContextSerializationConfigured();
+		if (this.contextSerializer == null) {
+			return context;
+		}
+		try {
+			return this.contextSerializer.serializeToByteArray(context);
+		}
+		catch (IOException ex) {
+			logger.debug(LogMessage.format("Failed to serialize SecurityContext '%s', storing it as is", context), ex);
+			return context;
+		}
+	}
+
+	private SecurityContext fromSessionAttribute(Object attribute) {
+		assertContextSerializationConfigured();
+		if (!(attribute instanceof byte[])) {
+			return (SecurityContext) attribute;
+		}
+		if (this.contextDeserializer == null) {
+			throw new IllegalStateException("The WebSession attribute '" + this.springSecurityContextAttrName
+					+ "' contains a serialized SecurityContext, but no contextDeserializer is configured");
+		}
+		try {
+			return this.contextDeserializer.deserializeFromByteArray((byte[]) attribute);
+		}
+		catch (IOException ex) {
+			logger.warn("Failed to deserialize the SecurityContext stored in WebSession", ex);
+			return null;
+		}
+	}
+
+	private void assertContextSerializationConfigured() {
+		Assert.state((this.contextSerializer == null) == (this.contextDeserializer == null),
+				"contextSerializer and contextDeserializer must be configured together");
+	}
+
 }
@@ -186,6 +186,10 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 		if (this.pattern.equals(MATCH_ALL)) {
 			return true;
 		}
+		if (this.urlPathHelper == null && !this.caseSensitive && this.matcher instanceof SubpathMatcher) {
+			return ((SubpathMatcher) this.matcher)
+					.matchesLowerCase(RequestMatchingContext.get(request).getLowerCasePath());
+		}
 		String url = getRequestPath(request);
 		return this.matcher.matches(url);
 	}
@@ -212,12 +216,10 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 		if (this.urlPathHelper != null) {
 			return this.urlPathHelper.getPathWithinApplication(request);
 		}
-		String url = request.getServletPath();
-		String pathInfo = request.getPathInfo();
-		if (pathInfo != null) {
-			url = StringUtils.hasLength(url) ? url + pathInfo : pathInfo;
+		if (request.getPathInfo() == null) {
+			return request.getServletPath();
 		}
-		return url;
+		return RequestMatchingContext.get(request).getPath();
 	}
 
 	public String getPattern() {
@@ -311,9 +313,14 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 
 		@Override
 		public boolean matches(String path) {
-			if (!this.caseSensitive) {
-				path = path.toLowerCase();
-			}
+			return matchesLowerCase(this.caseSensitive ? path : path.toLowerCase());
+		}
+
+		/**
+		 * Matches a path that has already been converted to lower case if this matcher is
+		 * case insensitive.
+		 */
+		private boolean matchesLowerCase(String path) {
 			return path.startsWith(this.subpath) && (path.length() == this.length || path.charAt(this.length) == '/');
 		}
 
@@ -17,7 +17,6 @@
 package org.springframework.security.web.util.matcher;
 
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -55,18 +54,21 @@ public final class IpAddressMatcher implements RequestMatcher {
 		else {
 			this.nMaskBits = -1;
 		}
-		this.requiredAddress = parseAddress(ipAddress);
+		this.requiredAddress = RequestMatchingContext.parseAddress(ipAddress);
 		Assert.isTrue(this.requiredAddress.getAddress().length * 8 >= this.nMaskBits,
 				String.format("IP address %s is too short for bitmask of length %d", ipAddress, this.nMaskBits));
 	}
 
 	@Override
 	public boolean matches(HttpServletRequest request) {
-		return matches(request.getRemoteAddr());
+		return matches(RequestMatchingContext.get(request).getRemoteAddress());
 	}
 
 	public boolean matches(String address) {
-		InetAddress remoteAddress = parseAddress(address);
+		return matches(RequestMatchingContext.parseAddress(address));
+	}
+
+	private boolean matches(InetAddress remoteAddress) {
 		if (!this.requiredAddress.getClass().equals(remoteAddress.getClass())) {
 			return false;
 		}
@@ -88,13 +90,4 @@ public final class IpAddressMatcher implements RequestMatcher {
 		return true;
 	}
 
-	private InetAddress parseAddress(String address) {
-		try {
-			return InetAddress.getByName(address);
-		}
-		catch (UnknownHostException ex) {
-			throw new IllegalArgumentException("Failed to parse address" + address, ex);
-		}
-	}
-
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Matches if the {@link PathPattern} matches the URL ({@code servletPath + pathInfo}) of
+ * an {@code HttpServletRequest}. The servlet counterpart of
+ * {@link org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher}.
+ * <p>
+ * Unlike {@link AntPathRequestMatcher}, the pattern is parsed once, when the matcher is
+ * created. The request path is also only parsed once per request: the resulting
+ * {@link org.springframework.http.server.PathContainer} is kept in the
+ * {@link RequestMatchingContext} of the request and shared by every
+ * {@link PathPatternRequestMatcher} that is consulted for the same request.
+ * </p>
+ * <p>
+ * See {@link PathPattern} for the supported syntax. Note that, unlike ant patterns, a
+ * {@code **} wildcard is only allowed at the end of a pattern.
+ * </p>
+ *
+ * @since 5.8
+ * @see PathPattern
+ */
+public final class PathPatternRequestMatcher implements RequestMatcher {
+
+	private static final PathPatternParser DEFAULT_PATTERN_PARSER = new PathPatternParser();
+
+	private static final String MATCH_ALL = "/**";
+
+	private final PathPattern pattern;
+
+	private final HttpMethod method;
+
+	private final boolean matchAll;
+
+	/**
+	 * Creates a matcher with the specific pattern which will match all HTTP methods.
+	 * @param pattern the pattern to use for matching
+	 */
+	public PathPatternRequestMatcher(String pattern) {
+		this(pattern, null);
+	}
+
+	/**
+	 * Creates a matcher with the supplied pattern and HTTP method.
+	 * @param pattern the pattern to use for matching
+	 * @param method the HTTP method or {@code null} to match all HTTP methods. The
+	 * {@code matches} method will return false if the incoming request doesn't have the
+	 * same method.
+	 */
+	public PathPatternRequestMatcher(String pattern, HttpMethod method) {
+		this(parse(pattern), method);
+	}
+
+	/**
+	 * Creates a matcher with an already parsed pattern and HTTP method. This allows the
+	 * pattern to be parsed with a customized {@link PathPatternParser}, for example one
+	 * that is not case-sensitive.
+	 * @param pattern the pattern to use for matching
+	 * @param method the HTTP method or {@code null} to match all HTTP methods
+	 */
+	public PathPatternRequestMatcher(PathPattern pattern, HttpMethod method) {
+		Assert.notNull(pattern, "pattern cannot be null");
+		this.pattern = pattern;
+		this.method = method;
+		this.matchAll = MATCH_ALL.equals(pattern.getPatternString());
+	}
+
+	private static PathPattern parse(String pattern) {
+		Assert.hasText(pattern, "pattern cannot be empty");
+		return DEFAULT_PATTERN_PARSER.parse(pattern);
+	}
+
+	/**
+	 * Returns true if the configured pattern (and HTTP method) match those of the
+	 * supplied request.
+	 * @param request the request to match against. The pattern will be matched against
+	 * the {@code servletPath} + {@code pathInfo} of the request.
+	 */
+	@Override
+	public boolean matches(HttpServletRequest request) {
+		if (!matchesMethod(request)) {
+			return false;
+		}
+		return this.matchAll || this.pattern.matches(RequestMatchingContext.get(request).getPathContainer());
+	}
+
+	@Override
+	public MatchResult matcher(HttpServletRequest request) {
+		if (!matchesMethod(request)) {
+			return MatchResult.notMatch();
+		}
+		if (this.matchAll) {
+			return MatchResult.match();
+		}
+		PathPattern.PathMatchInfo info = this.pattern
+				.matchAndExtract(RequestMatchingContext.get(request).getPathContainer());
+		return (info != null) ? MatchResult.match(info.getUriVariables()) : MatchResult.notMatch();
+	}
+
+	private boolean matchesMethod(HttpServletRequest request) {
+		return this.method == null || !StringUtils.hasText(request.getMethod())
+				|| this.method == HttpMethod.resolve(request.getMethod());
+	}
+
+	public String getPattern() {
+		return this.pattern.getPatternString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof PathPatternRequestMatcher)) {
+			return false;
+		}
+		PathPatternRequestMatcher other = (PathPatternRequestMatcher) obj;
+		return this.pattern.equals(other.pattern) && this.method == other.method;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.pattern, this.method);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("PathPattern [pattern='").append(this.pattern.getPatternString()).append("'");
+		if (this.method != null) {
+			sb.append(", ").append(this.method);
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+
+}
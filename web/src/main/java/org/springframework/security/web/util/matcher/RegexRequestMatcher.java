@@ -121,17 +121,8 @@ public final class RegexRequestMatcher implements RequestMatcher {
 			return false;
 		}
 		String url = request.getServletPath();
-		String pathInfo = request.getPathInfo();
-		String query = request.getQueryString();
-		if (pathInfo != null || query != null) {
-			StringBuilder sb = new StringBuilder(url);
-			if (pathInfo != null) {
-				sb.append(pathInfo);
-			}
-			if (query != null) {
-				sb.append('?').append(query);
-			}
-			url = sb.toString();
+		if (request.getPathInfo() != null || request.getQueryString() != null) {
+			url = RequestMatchingContext.get(request).getPathAndQuery();
 		}
 		logger.debug(LogMessage.format("Checking match of request : '%s'; against '%s'", url, this.pattern));
 		return this.pattern.matcher(url).matches();
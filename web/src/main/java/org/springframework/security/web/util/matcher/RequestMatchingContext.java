@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StringUtils;
+
+/**
+ * The parts of an {@link HttpServletRequest} that {@link RequestMatcher}s match on,
+ * computed once per request and shared by all matchers.
+ * <p>
+ * A request typically goes through many matchers: the ones selecting the filter chain,
+ * the CSRF, logout and login matchers, the header writers and the authorization rules.
+ * Rather than each of them concatenating the servlet path and path info or parsing the
+ * remote address again, they use the context returned by
+ * {@link #get(HttpServletRequest)}, which is stored as a request attribute. The more
+ * expensive values are only computed when a matcher first needs them.
+ * </p>
+ * <p>
+ * Looking up the context and checking that it still reflects the request costs more than
+ * reading a single value from the request. The built-in matchers therefore read the
+ * method, and the servlet path of a request without path info, directly from the request,
+ * and only use the context for values that have to be derived, such as the lower case
+ * path, the parsed path or the parsed remote address.
+ * </p>
+ * <p>
+ * The stored context is only reused while the servlet path, path info, query string,
+ * method and remote address of the request are unchanged, so forwarding the request or
+ * wrapping it with a different view of these values results in a new context.
+ * </p>
+ *
+ * @since 5.8
+ */
+public final class RequestMatchingContext {
+
+	static final String ATTRIBUTE = RequestMatchingContext.class.getName();
+
+	private static final PathContainer.Options PATH_OPTIONS = PathContainer.Options.create('/', false);
+
+	private final String servletPath;
+
+	private final String pathInfo;
+
+	private final String queryString;
+
+	private final String methodName;
+
+	private final String remoteAddr;
+
+	private final String path;
+
+	private final HttpMethod method;
+
+	private String lowerCasePath;
+
+	private String pathAndQuery;
+
+	private PathContainer pathContainer;
+
+	private InetAddress remoteAddress;
+
+	private RequestMatchingContext(HttpServletRequest request) {
+		this.servletPath = request.getServletPath();
+		this.pathInfo = request.getPathInfo();
+		this.queryString = request.getQueryString();
+		this.methodName = request.getMethod();
+		this.remoteAddr = request.getRemoteAddr();
+		String path = this.servletPath;
+		if (this.pathInfo != null) {
+			path = StringUtils.hasLength(path) ? path + this.pathInfo : this.pathInfo;
+		}
+		this.path = path;
+		this.method = HttpMethod.resolve(this.methodName);
+	}
+
+	/**
+	 * Returns the context for the request, creating it and storing it in the request if
+	 * there is none yet or if the stored one no longer reflects the request.
+	 * @param request the request
+	 * @return the context for the request
+	 */
+	public static RequestMatchingContext get(HttpServletRequest request) {
+		Object attribute = request.getAttribute(ATTRIBUTE);
+		if (attribute instanceof RequestMatchingContext) {
+			RequestMatchingContext context = (RequestMatchingContext) attribute;
+			if (context.isFor(request)) {
+				return context;
+			}
+		}
+		RequestMatchingContext context = new RequestMatchingContext(request);
+		request.setAttribute(ATTRIBUTE, context);
+		return context;
+	}
+
+	private boolean isFor(HttpServletRequest request) {
+		return Objects.equals(this.servletPath, request.getServletPath())
+				&& Objects.equals(this.pathInfo, request.getPathInfo())
+				&& Objects.equals(this.queryString, request.getQueryString())
+				&& Objects.equals(this.methodName, request.getMethod())
+				&& Objects.equals(this.remoteAddr, request.getRemoteAddr());
+	}
+
+	/**
+	 * Returns the {@code servletPath + pathInfo} of the request.
+	 * @return the path, possibly {@code null} if the request has no servlet path
+	 */
+	public String getPath() {
+		return this.path;
+	}
+
+	/**
+	 * Returns the {@code servletPath + pathInfo} of the request, converted with
+	 * {@link String#toLowerCase()}.
+	 * @return the lower case path, possibly {@code null} if the request has no servlet
+	 * path
+	 */
+	public String getLowerCasePath() {
+		if (this.lowerCasePath == null && this.path != null) {
+			this.lowerCasePath = this.path.toLowerCase();
+		}
+		return this.lowerCasePath;
+	}
+
+	/**
+	 * Returns the {@code servletPath + pathInfo + queryString} of the request. If the
+	 * query string is present, a question mark is prepended to it.
+	 * @return the path and query string
+	 */
+	public String getPathAndQuery() {
+		if (this.pathAndQuery == null) {
+			this.pathAndQuery = (this.queryString != null) ? this.path + "?" + this.queryString : this.path;
+		}
+		return this.pathAndQuery;
+	}
+
+	/**
+	 * Returns the {@code servletPath + pathInfo} of the request parsed into a
+	 * {@link PathContainer}. As the servlet path and path info are already decoded, the
+	 * segments are not decoded again.
+	 * @return the parsed path
+	 */
+	public PathContainer getPathContainer() {
+		if (this.pathContainer == null) {
+			this.pathContainer = PathContainer.parsePath(StringUtils.hasLength(this.path) ? this.path : "",
+					PATH_OPTIONS);
+		}
+		return this.pathContainer;
+	}
+
+	/**
+	 * Returns the HTTP method of the request.
+	 * @return the {@link HttpMethod}, or {@code null} if the request has no method or an
+	 * unknown one
+	 */
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Returns the parsed remote address of the request.
+	 * @return the remote address
+	 * @throws IllegalArgumentException if the remote address cannot be parsed
+	 */
+	public InetAddress getRemoteAddress() {
+		if (this.remoteAddress == null) {
+			this.remoteAddress = parseAddress(this.remoteAddr);
+		}
+		return this.remoteAddress;
+	}
+
+	static InetAddress parseAddress(String address) {
+		try {
+			return InetAddress.getByName(address);
+		}
+		catch (UnknownHostException ex) {
+			throw new IllegalArgumentException("Failed to parse address" + address, ex);
+		}
+	}
+
+}
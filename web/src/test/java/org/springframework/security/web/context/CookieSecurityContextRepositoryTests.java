@@ -0,0 +1,276 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.context;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CookieSecurityContextRepository}.
+ */
+public class CookieSecurityContextRepositoryTests {
+
+	private static final BytesEncryptor ENCRYPTOR = Encryptors.stronger("password", "5c0744940b5c369b");
+
+	private static final BytesEncryptor OLD_ENCRYPTOR = Encryptors.stronger("old-password", "5c0744940b5c369b");
+
+	private static final Instant NOW = Instant.parse("2022-10-01T10:00:00Z");
+
+	private final CookieSecurityContextRepository repository = new CookieSecurityContextRepository(ENCRYPTOR);
+
+	@Test
+	public void constructorWhenNoEncryptorsThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new CookieSecurityContextRepository(Collections.emptyList()));
+	}
+
+	@Test
+	public void constructorWhenEncryptorNotAuthenticatedThenIllegalArgumentException() {
+		BytesEncryptor cbc = Encryptors.standard("password", "5c0744940b5c369b");
+		assertThatIllegalArgumentException().isThrownBy(() -> new CookieSecurityContextRepository(cbc));
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new CookieSecurityContextRepository(Arrays.asList(ENCRYPTOR, cbc)));
+	}
+
+	@Test
+	public void loadDeferredContextWhenNoCookieThenEmptyContext() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+		assertThat(this.repository.containsContext(request)).isFalse();
+	}
+
+	@Test
+	public void saveContextWhenAuthenticatedThenLoadedFromCookie() {
+		SecurityContext context = authenticatedContext();
+		Cookie cookie = save(this.repository, context);
+		assertThat(cookie.getName()).isEqualTo(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(cookie.isHttpOnly()).isTrue();
+		assertThat(cookie.getPath()).isEqualTo("/");
+		assertThat(cookie.getMaxAge()).isEqualTo(-1);
+		MockHttpServletRequest request = requestWith(cookie);
+		assertThat(this.repository.containsContext(request)).isTrue();
+		assertThat(this.repository.loadDeferredContext(request).get()).isEqualTo(context);
+	}
+
+	@Test
+	public void loadDeferredContextWhenCookieTamperedThenEmptyContext() {
+		Cookie cookie = save(this.repository, authenticatedContext());
+		char[] value = cookie.getValue().toCharArray();
+		value[value.length / 2] = (value[value.length / 2] != 'A') ? 'A' : 'B';
+		MockHttpServletRequest request = requestWith(new Cookie(cookie.getName(), new String(value)));
+		assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void loadDeferredContextWhenCiphertextModifiedThenEmptyContext() {
+		Cookie cookie = save(this.repository, authenticatedContext());
+		byte[] encrypted = Base64.getUrlDecoder().decode(cookie.getValue());
+		for (int i : new int[] { 0, encrypted.length / 2, encrypted.length - 1 }) {
+			byte[] modified = encrypted.clone();
+			modified[i] ^= 1;
+			String value = Base64.getUrlEncoder().withoutPadding().encodeToString(modified);
+			MockHttpServletRequest request = requestWith(new Cookie(cookie.getName(), value));
+			assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+		}
+	}
+
+	@Test
+	public void loadDeferredContextWhenCookieShorterThanIvThenEmptyContext() {
+		for (int length = 1; length < 16; length++) {
+			String value = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[length]);
+			MockHttpServletRequest request = requestWith(
+					new Cookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME, value));
+			assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+		}
+	}
+
+	@Test
+	public void loadDeferredContextWhenCookieNotBase64ThenEmptyContext() {
+		MockHttpServletRequest request = requestWith(
+				new Cookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME, "not*base64"));
+		assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void loadDeferredContextWhenExpiredThenEmptyContext() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		Cookie cookie = save(this.repository, authenticatedContext());
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(30)), ZoneOffset.UTC));
+		MockHttpServletRequest request = requestWith(cookie);
+		assertThat(this.repository.loadDeferredContext(request).get().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void saveContextWhenUnchangedThenCookieNotWrittenAgain() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		SecurityContext context = authenticatedContext();
+		MockHttpServletRequest request = requestWith(save(this.repository, context));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		this.repository.saveContext(this.repository.loadDeferredContext(request).get(), request, response);
+		assertThat(response.getCookies()).isEmpty();
+	}
+
+	@Test
+	public void saveContextWhenMoreThanHalfOfIntervalPassedThenExpiryRenewed() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		SecurityContext context = authenticatedContext();
+		MockHttpServletRequest request = requestWith(save(this.repository, context));
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(20)), ZoneOffset.UTC));
+		Cookie renewed = save(this.repository, this.repository.loadDeferredContext(request).get(), request);
+		assertThat(renewed).isNotNull();
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(45)), ZoneOffset.UTC));
+		assertThat(this.repository.loadDeferredContext(requestWith(renewed)).get()).isEqualTo(context);
+	}
+
+	@Test
+	public void loadDeferredContextWhenRenewedPastMaxAgeThenEmptyContext() {
+		this.repository.setMaxAge(Duration.ofMinutes(40));
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		SecurityContext context = authenticatedContext();
+		MockHttpServletRequest request = requestWith(save(this.repository, context));
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(25)), ZoneOffset.UTC));
+		Cookie renewed = save(this.repository, this.repository.loadDeferredContext(request).get(), request);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(39)), ZoneOffset.UTC));
+		assertThat(this.repository.loadDeferredContext(requestWith(renewed)).get()).isEqualTo(context);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(40)), ZoneOffset.UTC));
+		assertThat(this.repository.loadDeferredContext(requestWith(renewed)).get().getAuthentication()).isNull();
+	}
+
+	@Test
+	public void saveContextWhenAuthenticationChangedThenCookieWritten() {
+		MockHttpServletRequest request = requestWith(save(this.repository, authenticatedContext()));
+		SecurityContext context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("admin",
+				null, AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+		Cookie cookie = save(this.repository, context, request);
+		assertThat(this.repository.loadDeferredContext(requestWith(cookie)).get()).isEqualTo(context);
+	}
+
+	@Test
+	public void loadDeferredContextWhenEncryptedWithOldKeyThenLoadedAndReencryptedOnSave() {
+		CookieSecurityContextRepository old = new CookieSecurityContextRepository(OLD_ENCRYPTOR);
+		CookieSecurityContextRepository rotated = new CookieSecurityContextRepository(
+				Arrays.asList(ENCRYPTOR, OLD_ENCRYPTOR));
+		SecurityContext context = authenticatedContext();
+		MockHttpServletRequest request = requestWith(save(old, context));
+		assertThat(rotated.loadDeferredContext(request).get()).isEqualTo(context);
+		Cookie reencrypted = save(rotated, context, request);
+		assertThat(reencrypted).isNotNull();
+		assertThat(this.repository.loadDeferredContext(requestWith(reencrypted)).get()).isEqualTo(context);
+	}
+
+	@Test
+	public void saveContextWhenAnonymousAndCookiePresentThenCookieRemoved() {
+		MockHttpServletRequest request = requestWith(save(this.repository, authenticatedContext()));
+		SecurityContext anonymous = new SecurityContextImpl(new AnonymousAuthenticationToken("key", "anonymousUser",
+				AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+		Cookie removed = save(this.repository, anonymous, request);
+		assertThat(removed.getValue()).isEmpty();
+		assertThat(removed.getMaxAge()).isZero();
+		assertThat(this.repository.containsContext(request)).isFalse();
+	}
+
+	@Test
+	public void saveContextWhenEmptyAndNoCookieThenNoCookie() {
+		assertThat(save(this.repository, new SecurityContextImpl())).isNull();
+	}
+
+	@Test
+	public void saveContextWhenLargerThanMaxCookieSizeThenNotStored() {
+		this.repository.setMaxCookieSize(64);
+		assertThat(save(this.repository, authenticatedContext())).isNull();
+	}
+
+	@Test
+	public void saveContextWhenCookieAttributesSetThenUsed() {
+		this.repository.setCookieName("CONTEXT");
+		this.repository.setCookiePath("/app");
+		this.repository.setCookieDomain("example.com");
+		this.repository.setSecure(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.repository.saveContext(authenticatedContext(), new MockHttpServletRequest(), response);
+		Cookie cookie = response.getCookie("CONTEXT");
+		assertThat(cookie.getName()).isEqualTo("CONTEXT");
+		assertThat(cookie.getPath()).isEqualTo("/app");
+		assertThat(cookie.getDomain()).isEqualTo("example.com");
+		assertThat(cookie.getSecure()).isTrue();
+	}
+
+	@Test
+	public void loadContextWhenResponseCommittedThenCookieWritten() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, response);
+		this.repository.loadContext(holder);
+		SecurityContext context = authenticatedContext();
+		SecurityContextHolder.setContext(context);
+		try {
+			holder.getResponse().sendRedirect("/");
+		}
+		finally {
+			SecurityContextHolder.clearContext();
+		}
+		Cookie cookie = response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(this.repository.loadDeferredContext(requestWith(cookie)).get()).isEqualTo(context);
+	}
+
+	private static SecurityContext authenticatedContext() {
+		return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("user", null,
+				AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+	private static Cookie save(CookieSecurityContextRepository repository, SecurityContext context) {
+		return save(repository, context, new MockHttpServletRequest());
+	}
+
+	private static Cookie save(CookieSecurityContextRepository repository, SecurityContext context,
+			MockHttpServletRequest request) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		repository.saveContext(context, request, response);
+		return response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+	}
+
+	private static MockHttpServletRequest requestWith(Cookie cookie) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setCookies(cookie);
+		return request;
+	}
+
+}
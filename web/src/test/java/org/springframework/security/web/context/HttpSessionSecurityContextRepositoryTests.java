@@ -17,11 +17,14 @@
 package org.springframework.security.web.context;
 
 import java.io.IOException;
+import java.io.NotSerializableException;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.Filter;
 import javax.servlet.ServletException;
@@ -36,6 +39,8 @@ import javax.servlet.http.HttpSession;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -58,11 +63,16 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -763,6 +773,224 @@ public class HttpSessionSecurityContextRepositoryTests {
 		assertThat(session).isNull();
 	}
 
+	@Test
+	public void saveContextWhenSkipUnchangedAuthenticationAndEqualAuthenticationThenNotStored() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSkipUnchangedAuthentication(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		SecurityContext ctxInSession = new SecurityContextImpl(this.testToken);
+		request.getSession().setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+				ctxInSession);
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		repo.loadContext(holder);
+		TestingAuthenticationToken equalToken = new TestingAuthenticationToken("someone", "passwd", "ROLE_A");
+		repo.saveContext(new SecurityContextImpl(equalToken), holder.getRequest(), holder.getResponse());
+		assertThat(request.getSession().getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.isSameAs(ctxInSession);
+	}
+
+	@Test
+	public void saveContextWhenSkipUnchangedAuthenticationAndDifferentAuthenticationThenStored() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSkipUnchangedAuthentication(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.getSession().setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+				new SecurityContextImpl(this.testToken));
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		repo.loadContext(holder);
+		SecurityContext context = new SecurityContextImpl(
+				new TestingAuthenticationToken("someone", "passwd", "ROLE_A", "ROLE_B"));
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		assertThat(request.getSession().getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.isSameAs(context);
+	}
+
+	@Test
+	public void saveContextWhenSkipUnchangedAuthenticationAndAuthenticationModifiedThenStored() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSkipUnchangedAuthentication(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		TestingAuthenticationToken token = new TestingAuthenticationToken("someone", "passwd", "ROLE_A");
+		SecurityContext ctxInSession = new SecurityContextImpl(token);
+		MockHttpSession session = mock(MockHttpSession.class);
+		given(session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.willReturn(ctxInSession);
+		request.setSession(session);
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		SecurityContext context = repo.loadContext(holder);
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		verify(session, never()).setAttribute(anyString(), any());
+		token.setDetails("details");
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		verify(session).setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+	}
+
+	@Test
+	public void saveContextWhenSkipUnchangedAuthenticationAndSavedTwiceThenStoredOnce() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSkipUnchangedAuthentication(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpSession session = spy(new MockHttpSession());
+		request.setSession(session);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		SecurityContext context = new SecurityContextImpl(this.testToken);
+		repo.saveContext(context, request, response);
+		repo.saveContext(new SecurityContextImpl(this.testToken), request, response);
+		verify(session).setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+		verify(session).setAttribute(anyString(), any());
+	}
+
+	@Test
+	public void saveContextWhenExplicitAndEmptyOrAnonymousThenSessionNotLookedUp() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		HttpSessionSecurityContextRepository skipping = new HttpSessionSecurityContextRepository();
+		skipping.setSkipUnchangedAuthentication(true);
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		SecurityContext anonymous = new SecurityContextImpl(
+				new AnonymousAuthenticationToken("key", "anon", AuthorityUtils.createAuthorityList("ANON")));
+		for (HttpSessionSecurityContextRepository repository : Arrays.asList(repo, skipping)) {
+			repository.saveContext(new SecurityContextImpl(), request, new MockHttpServletResponse());
+			repository.saveContext(anonymous, request, new MockHttpServletResponse());
+		}
+		verify(request, never()).getSession(anyBoolean());
+		verify(request, never()).getSession();
+	}
+
+	@Test
+	public void saveContextWhenAnonymousAndNoAuthenticationBeforeThenSessionNotLookedUp() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		SecurityContext context = repo.loadContext(holder);
+		reset(request);
+		context.setAuthentication(
+				new AnonymousAuthenticationToken("key", "anon", AuthorityUtils.createAuthorityList("ANON")));
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		verify(request, never()).getSession(anyBoolean());
+		verify(request, never()).getSession();
+	}
+
+	@Test
+	public void saveContextWhenContextSerializerThenSerializedContextStoredAndLoaded() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setContextSerializer(new DefaultSerializer()::serialize);
+		repo.setContextDeserializer(
+				(inputStream) -> (SecurityContext) new DefaultDeserializer().deserialize(inputStream));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		SecurityContext context = repo.loadContext(holder);
+		context.setAuthentication(this.testToken);
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		assertThat(request.getSession().getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.isInstanceOf(byte[].class);
+		MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+		nextRequest.setSession(request.getSession());
+		SecurityContext loaded = repo
+				.loadContext(new HttpRequestResponseHolder(nextRequest, new MockHttpServletResponse()));
+		assertThat(loaded).isEqualTo(context);
+		assertThat(repo.loadDeferredContext(nextRequest).get()).isEqualTo(context);
+	}
+
+	@Test
+	public void saveContextWhenContextSerializerFailsThenContextStored() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setContextSerializer((context, outputStream) -> {
+			throw new NotSerializableException(context.getClass().getName());
+		});
+		repo.setContextDeserializer(
+				(inputStream) -> (SecurityContext) new DefaultDeserializer().deserialize(inputStream));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		SecurityContext context = repo.loadContext(holder);
+		context.setAuthentication(this.testToken);
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		assertThat(request.getSession().getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.isSameAs(context);
+	}
+
+	@Test
+	public void loadContextWhenSerializedContextCannotBeReadThenNewContext() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setContextSerializer(new DefaultSerializer()::serialize);
+		repo.setContextDeserializer((inputStream) -> {
+			throw new IOException("Unsupported version");
+		});
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.getSession().setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+				new byte[] { 1 });
+		SecurityContext context = repo
+				.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse()));
+		assertThat(context.getAuthentication()).isNull();
+	}
+
+	@Test
+	public void loadContextWhenContextSerializerWithoutDeserializerThenIllegalStateException() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setContextSerializer(new DefaultSerializer()::serialize);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		assertThatIllegalStateException().isThrownBy(
+				() -> repo.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse())));
+		assertThatIllegalStateException().isThrownBy(() -> repo.loadDeferredContext(request));
+	}
+
+	@Test
+	public void loadContextWhenSerializedContextAndNoContextDeserializerThenIllegalStateException() throws Exception {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.getSession().setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+				new DefaultSerializer().serializeToByteArray(new SecurityContextImpl(this.testToken)));
+		assertThatIllegalStateException()
+				.isThrownBy(
+						() -> repo.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse())))
+				.withMessageContaining("no contextDeserializer is configured");
+		assertThatIllegalStateException().isThrownBy(() -> repo.loadDeferredContext(request).get())
+				.withMessageContaining("no contextDeserializer is configured");
+	}
+
+	@Test
+	public void saveContextWhenContextDeserializerWithoutSerializerThenIllegalStateException() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setContextDeserializer(
+				(inputStream) -> (SecurityContext) new DefaultDeserializer().deserialize(inputStream));
+		assertThatIllegalStateException().isThrownBy(() -> repo.saveContext(new SecurityContextImpl(this.testToken),
+				new MockHttpServletRequest(), new MockHttpServletResponse()));
+	}
+
+	@Test
+	public void saveContextWhenSkipUnchangedAuthenticationAndDeferredContextThenNotDeserializedAgain() {
+		AtomicInteger deserialized = new AtomicInteger();
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSkipUnchangedAuthentication(true);
+		repo.setContextSerializer(new DefaultSerializer()::serialize);
+		repo.setContextDeserializer((inputStream) -> {
+			deserialized.incrementAndGet();
+			return (SecurityContext) new DefaultDeserializer().deserialize(inputStream);
+		});
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		repo.saveContext(new SecurityContextImpl(this.testToken), request, response);
+		MockHttpSession session = spy((MockHttpSession) request.getSession());
+		MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+		nextRequest.setSession(session);
+		SecurityContext context = repo.loadDeferredContext(nextRequest).get();
+		repo.saveContext(context, nextRequest, response);
+		repo.saveContext(new SecurityContextImpl(this.testToken), nextRequest, response);
+		assertThat(deserialized).hasValue(1);
+		verify(session, never()).setAttribute(anyString(), any());
+		context.setAuthentication(new TestingAuthenticationToken("other", "passwd", "ROLE_A"));
+		repo.saveContext(context, nextRequest, response);
+		verify(session).setAttribute(eq(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY),
+				any(byte[].class));
+		assertThat(deserialized).hasValue(1);
+	}
+
+	@Test
+	public void setContextSerializerWhenNullThenIllegalArgumentException() {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		assertThatIllegalArgumentException().isThrownBy(() -> repo.setContextSerializer(null));
+		assertThatIllegalArgumentException().isThrownBy(() -> repo.setContextDeserializer(null));
+	}
+
 	private SecurityContext createSecurityContext(UserDetails userDetails) {
 		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.authenticated(userDetails,
 				userDetails.getPassword(), userDetails.getAuthorities());
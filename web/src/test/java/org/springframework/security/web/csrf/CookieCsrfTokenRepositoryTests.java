@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.keygen.KeyGenerators;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -320,4 +321,16 @@ public class CookieCsrfTokenRepositoryTests {
 		assertThatIllegalArgumentException().isThrownBy(() -> this.repository.setCookieMaxAge(0));
 	}
 
+	@Test
+	public void generateTokenWhenTokenValueGeneratorThenUsed() {
+		this.repository.setTokenValueGenerator(KeyGenerators.string(KeyGenerators.threadLocalSecureRandom(16)));
+		CsrfToken token = this.repository.generateToken(this.request);
+		assertThat(token.getToken()).hasSize(32).matches("[0-9a-f]+");
+	}
+
+	@Test
+	public void setTokenValueGeneratorNull() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.repository.setTokenValueGenerator(null));
+	}
+
 }
@@ -21,6 +21,7 @@ import org.junit.jupiter.api.Test;
 
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.keygen.KeyGenerators;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -158,4 +159,16 @@ public class HttpSessionCsrfTokenRepositoryTests {
 		assertThatIllegalArgumentException().isThrownBy(() -> this.repo.setParameterName(null));
 	}
 
+	@Test
+	public void generateTokenWhenTokenValueGeneratorThenUsed() {
+		this.repo.setTokenValueGenerator(KeyGenerators.string(KeyGenerators.threadLocalSecureRandom(16)));
+		CsrfToken token = this.repo.generateToken(this.request);
+		assertThat(token.getToken()).hasSize(32).matches("[0-9a-f]+");
+	}
+
+	@Test
+	public void setTokenValueGeneratorNull() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.repo.setTokenValueGenerator(null));
+	}
+
 }
@@ -17,9 +17,13 @@
 package org.springframework.security.web.firewall;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.junit.jupiter.api.Test;
 
@@ -811,6 +815,104 @@ public class StrictHttpFirewallTests {
 		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(request::getParameterMap);
 	}
 
+	@Test
+	public void getFirewalledRequestGetParameterMapWhenSameMapThenValidatedOnce() {
+		AtomicInteger validations = new AtomicInteger();
+		this.firewall.setAllowedParameterValues((value) -> validations.incrementAndGet() > 0);
+		this.request.addParameter("Something", "some value");
+		Map<String, String[]> parameterMap = Collections.unmodifiableMap(this.request.getParameterMap());
+		HttpServletRequest request = this.firewall.getFirewalledRequest(new HttpServletRequestWrapper(this.request) {
+
+			@Override
+			public Map<String, String[]> getParameterMap() {
+				return parameterMap;
+			}
+
+		});
+		assertThat(request.getParameterMap()).isSameAs(parameterMap);
+		assertThat(request.getParameterMap()).isSameAs(parameterMap);
+		assertThat(validations).hasValue(1);
+	}
+
+	@Test
+	public void getFirewalledRequestGetParameterMapWhenNewMapThenValidatedAgain() {
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getParameterMap()).isEmpty();
+		this.request.addParameter("Bad\0Name", "some value");
+		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(request::getParameterMap);
+	}
+
+	@Test
+	public void getFirewalledRequestGetHeaderWhenReadRepeatedlyThenValidatedEachTime() {
+		AtomicInteger names = new AtomicInteger();
+		AtomicInteger values = new AtomicInteger();
+		this.firewall.setAllowedHeaderNames((name) -> names.incrementAndGet() > 0);
+		this.firewall.setAllowedHeaderValues((value) -> values.incrementAndGet() > 0);
+		this.request.addHeader("Something", "some value");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		for (int i = 0; i < 3; i++) {
+			assertThat(request.getHeader("Something")).isEqualTo("some value");
+		}
+		assertThat(names).hasValue(3);
+		assertThat(values).hasValue(3);
+	}
+
+	@Test
+	public void getFirewalledRequestGetParameterWhenReadRepeatedlyThenValidatedOnce() {
+		AtomicInteger names = new AtomicInteger();
+		AtomicInteger values = new AtomicInteger();
+		this.firewall.setAllowedParameterNames((name) -> names.incrementAndGet() > 0);
+		this.firewall.setAllowedParameterValues((value) -> values.incrementAndGet() > 0);
+		this.request.addParameter("Something", "some value");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		for (int i = 0; i < 3; i++) {
+			assertThat(request.getParameter("Something")).isEqualTo("some value");
+			assertThat(request.getParameterValues("Something")).containsExactly("some value");
+			assertThat(request.getParameterMap()).containsKey("Something");
+		}
+		assertThat(names).hasValue(1);
+		assertThat(values).hasValue(1);
+	}
+
+	@Test
+	public void getFirewalledRequestGetParameterWhenDifferentValueThenValidated() {
+		this.firewall.setAllowedParameterValues((value) -> !value.equals("bad value"));
+		this.request.addParameter("Something", "some value");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getParameter("Something")).isEqualTo("some value");
+		this.request.setParameter("Something", "bad value");
+		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(() -> request.getParameter("Something"));
+	}
+
+	@Test
+	public void getFirewalledRequestWhenEagerParameterValidationAndNotAllowedParameterThenException() {
+		this.firewall.setEagerParameterValidation(true);
+		this.request.addParameter("Bad\0Name", "some value");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request));
+	}
+
+	@Test
+	public void getFirewalledRequestWhenEagerParameterValidationThenParametersNotValidatedAgain() {
+		AtomicInteger names = new AtomicInteger();
+		this.firewall.setEagerParameterValidation(true);
+		this.firewall.setAllowedParameterNames((name) -> names.incrementAndGet() > 0);
+		this.request.addParameter("Something", "some value");
+		this.request.addParameter("Other", "other value");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(names).hasValue(2);
+		assertThat(request.getParameter("Something")).isEqualTo("some value");
+		assertThat(Collections.list(request.getParameterNames())).containsExactlyInAnyOrder("Something", "Other");
+		assertThat(names).hasValue(2);
+	}
+
+	@Test
+	public void getFirewalledRequestGetHeaderWhenSupplementaryCharacterThenAllowed() {
+		this.request.addHeader("Something", "\uD83D\uDE00");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getHeader("Something")).isEqualTo("\uD83D\uDE00");
+	}
+
 	@Test
 	public void getFirewalledRequestGetParameterNamesWhenControlCharacterInParameterNameThenException() {
 		this.request.addParameter("Bad\0Name", "some value");
@@ -17,11 +17,14 @@
 package org.springframework.security.web.savedrequest;
 
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.junit.jupiter.api.Test;
 
@@ -133,6 +136,25 @@ public class SavedRequestAwareWrapperTests {
 		assertThat(valuesFromMap[0]).isEqualTo("bar");
 	}
 
+	@Test
+	public void getParameterMapWhenSavedRequestHasNoParametersThenWrappedRequestMap() {
+		MockHttpServletRequest wrappedRequest = new MockHttpServletRequest();
+		wrappedRequest.setParameter("action", "bar");
+		Map<String, String[]> parameterMap = Collections.unmodifiableMap(wrappedRequest.getParameterMap());
+		HttpServletRequestWrapper request = new HttpServletRequestWrapper(wrappedRequest) {
+
+			@Override
+			public Map<String, String[]> getParameterMap() {
+				return parameterMap;
+			}
+
+		};
+		DefaultSavedRequest saved = new DefaultSavedRequest(new MockHttpServletRequest(), new PortResolverImpl());
+		SavedRequestAwareWrapper wrapper = new SavedRequestAwareWrapper(saved, request);
+		assertThat(wrapper.getParameterMap()).isSameAs(parameterMap);
+		assertThat(Collections.list(wrapper.getParameterNames())).containsExactly("action");
+	}
+
 	@Test
 	public void expecteDateHeaderIsReturnedFromSavedRequest() throws Exception {
 		SimpleDateFormat formatter = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
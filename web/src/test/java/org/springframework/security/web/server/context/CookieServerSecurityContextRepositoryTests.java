@@ -0,0 +1,220 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.server.context;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpCookie;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CookieServerSecurityContextRepository}.
+ */
+public class CookieServerSecurityContextRepositoryTests {
+
+	private static final BytesEncryptor ENCRYPTOR = Encryptors.stronger("password", "5c0744940b5c369b");
+
+	private static final BytesEncryptor OLD_ENCRYPTOR = Encryptors.stronger("old-password", "5c0744940b5c369b");
+
+	private static final Instant NOW = Instant.parse("2022-10-01T10:00:00Z");
+
+	private final CookieServerSecurityContextRepository repository = new CookieServerSecurityContextRepository(
+			ENCRYPTOR);
+
+	@Test
+	public void constructorWhenEncryptorNotAuthenticatedThenIllegalArgumentException() {
+		BytesEncryptor cbc = Encryptors.standard("password", "5c0744940b5c369b");
+		assertThatIllegalArgumentException().isThrownBy(() -> new CookieServerSecurityContextRepository(cbc));
+	}
+
+	@Test
+	public void loadWhenNoCookieThenEmpty() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+		assertThat(this.repository.load(exchange).block()).isNull();
+	}
+
+	@Test
+	public void saveWhenAuthenticatedThenLoadedFromCookie() {
+		SecurityContext context = authenticatedContext();
+		ResponseCookie cookie = save(this.repository, context);
+		assertThat(cookie.getName()).isEqualTo(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(cookie.isHttpOnly()).isTrue();
+		assertThat(cookie.getPath()).isEqualTo("/");
+		assertThat(this.repository.load(exchangeWith(cookie)).block()).isEqualTo(context);
+	}
+
+	@Test
+	public void saveWhenNullThenCookieRemoved() {
+		ResponseCookie cookie = save(this.repository, null);
+		assertThat(cookie.getValue()).isEmpty();
+		assertThat(cookie.getMaxAge()).isEqualTo(Duration.ZERO);
+	}
+
+	@Test
+	public void loadWhenCookieTamperedThenEmpty() {
+		ResponseCookie cookie = save(this.repository, authenticatedContext());
+		char[] value = cookie.getValue().toCharArray();
+		value[value.length / 2] = (value[value.length / 2] != 'A') ? 'A' : 'B';
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").cookie(new HttpCookie(cookie.getName(), new String(value))));
+		assertThat(this.repository.load(exchange).block()).isNull();
+	}
+
+	@Test
+	public void loadWhenCiphertextModifiedThenEmpty() {
+		ResponseCookie cookie = save(this.repository, authenticatedContext());
+		byte[] encrypted = Base64.getUrlDecoder().decode(cookie.getValue());
+		for (int i : new int[] { 0, encrypted.length / 2, encrypted.length - 1 }) {
+			byte[] modified = encrypted.clone();
+			modified[i] ^= 1;
+			String value = Base64.getUrlEncoder().withoutPadding().encodeToString(modified);
+			MockServerWebExchange exchange = MockServerWebExchange
+					.from(MockServerHttpRequest.get("/").cookie(new HttpCookie(cookie.getName(), value)));
+			assertThat(this.repository.load(exchange).block()).isNull();
+		}
+	}
+
+	@Test
+	public void loadWhenCookieShorterThanIvThenEmpty() {
+		for (int length = 1; length < 16; length++) {
+			String value = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[length]);
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+					.cookie(new HttpCookie(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME, value)));
+			assertThat(this.repository.load(exchange).block()).isNull();
+		}
+	}
+
+	@Test
+	public void loadWhenExpiredThenEmpty() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		ResponseCookie cookie = save(this.repository, authenticatedContext());
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(30)), ZoneOffset.UTC));
+		assertThat(this.repository.load(exchangeWith(cookie)).block()).isNull();
+	}
+
+	@Test
+	public void loadWhenLessThanHalfOfIntervalPassedThenCookieNotRenewed() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		ResponseCookie cookie = save(this.repository, authenticatedContext());
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		MockServerWebExchange exchange = exchangeWith(cookie);
+		this.repository.load(exchange).block();
+		exchange.getResponse().setComplete().block();
+		assertThat(exchange.getResponse().getCookies()).isEmpty();
+	}
+
+	@Test
+	public void loadWhenMoreThanHalfOfIntervalPassedThenCookieRenewedOnCommit() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		SecurityContext context = authenticatedContext();
+		ResponseCookie cookie = save(this.repository, context);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(20)), ZoneOffset.UTC));
+		MockServerWebExchange exchange = exchangeWith(cookie);
+		assertThat(this.repository.load(exchange).block()).isEqualTo(context);
+		exchange.getResponse().setComplete().block();
+		ResponseCookie renewed = exchange.getResponse().getCookies()
+				.getFirst(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(45)), ZoneOffset.UTC));
+		assertThat(this.repository.load(exchangeWith(renewed)).block()).isEqualTo(context);
+	}
+
+	@Test
+	public void loadWhenRenewedPastMaxAgeThenEmpty() {
+		this.repository.setMaxAge(Duration.ofMinutes(40));
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		SecurityContext context = authenticatedContext();
+		ResponseCookie cookie = save(this.repository, context);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(25)), ZoneOffset.UTC));
+		MockServerWebExchange exchange = exchangeWith(cookie);
+		this.repository.load(exchange).block();
+		exchange.getResponse().setComplete().block();
+		ResponseCookie renewed = exchange.getResponse().getCookies()
+				.getFirst(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(39)), ZoneOffset.UTC));
+		assertThat(this.repository.load(exchangeWith(renewed)).block()).isEqualTo(context);
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(40)), ZoneOffset.UTC));
+		assertThat(this.repository.load(exchangeWith(renewed)).block()).isNull();
+	}
+
+	@Test
+	public void loadWhenRenewalRequiredAndContextRemovedThenCookieNotRenewed() {
+		this.repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		ResponseCookie cookie = save(this.repository, authenticatedContext());
+		this.repository.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(20)), ZoneOffset.UTC));
+		MockServerWebExchange exchange = exchangeWith(cookie);
+		this.repository.load(exchange).block();
+		this.repository.save(exchange, null).block();
+		exchange.getResponse().setComplete().block();
+		assertThat(exchange.getResponse().getCookies().get(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME))
+				.extracting(ResponseCookie::getValue).containsExactly("");
+	}
+
+	@Test
+	public void loadWhenEncryptedWithOldKeyThenLoadedAndReencryptedOnCommit() {
+		CookieServerSecurityContextRepository old = new CookieServerSecurityContextRepository(OLD_ENCRYPTOR);
+		CookieServerSecurityContextRepository rotated = new CookieServerSecurityContextRepository(
+				Arrays.asList(ENCRYPTOR, OLD_ENCRYPTOR));
+		SecurityContext context = authenticatedContext();
+		MockServerWebExchange exchange = exchangeWith(save(old, context));
+		assertThat(rotated.load(exchange).block()).isEqualTo(context);
+		exchange.getResponse().setComplete().block();
+		ResponseCookie reencrypted = exchange.getResponse().getCookies()
+				.getFirst(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(this.repository.load(exchangeWith(reencrypted)).block()).isEqualTo(context);
+	}
+
+	@Test
+	public void saveWhenLargerThanMaxCookieSizeThenCookieRemoved() {
+		this.repository.setMaxCookieSize(64);
+		assertThat(save(this.repository, authenticatedContext()).getValue()).isEmpty();
+	}
+
+	private static SecurityContext authenticatedContext() {
+		return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("user", null,
+				AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+	private static ResponseCookie save(CookieServerSecurityContextRepository repository, SecurityContext context) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+		repository.save(exchange, context).block();
+		return exchange.getResponse().getCookies().getFirst(CookieServerSecurityContextRepository.DEFAULT_COOKIE_NAME);
+	}
+
+	private static MockServerWebExchange exchangeWith(ResponseCookie cookie) {
+		return MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").cookie(new HttpCookie(cookie.getName(), cookie.getValue())));
+	}
+
+}
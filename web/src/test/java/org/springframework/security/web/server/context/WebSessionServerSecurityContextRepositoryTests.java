@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,12 +22,17 @@ import reactor.test.publisher.PublisherProbe;
 
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.CompactSecurityContextCodec;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebSession;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 
@@ -78,6 +83,54 @@ public class WebSessionServerSecurityContextRepositoryTests {
 		assertThat(session.getId()).isNotEqualTo(originalSessionId);
 	}
 
+	@Test
+	public void saveAndLoadWhenContextSerializerThenSerializedContextStored() {
+		CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+		this.repository.setContextSerializer(codec);
+		this.repository.setContextDeserializer(codec);
+		SecurityContext expected = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("user",
+				null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+		this.repository.save(this.exchange, expected).block();
+		WebSession session = this.exchange.getSession().block();
+		assertThat(session.<Object>getAttribute(
+				WebSessionServerSecurityContextRepository.DEFAULT_SPRING_SECURITY_CONTEXT_ATTR_NAME))
+						.isInstanceOf(byte[].class);
+		SecurityContext actual = this.repository.load(this.exchange).block();
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	@Test
+	public void saveAndLoadWhenContextSerializerDoesNotSupportContextThenContextStored() {
+		CompactSecurityContextCodec codec = new CompactSecurityContextCodec();
+		this.repository.setContextSerializer(codec);
+		this.repository.setContextDeserializer(codec);
+		SecurityContext expected = new SecurityContextImpl(new TestingAuthenticationToken("user", "password"));
+		this.repository.save(this.exchange, expected).block();
+		WebSession session = this.exchange.getSession().block();
+		assertThat(session.<SecurityContext>getAttribute(
+				WebSessionServerSecurityContextRepository.DEFAULT_SPRING_SECURITY_CONTEXT_ATTR_NAME))
+						.isSameAs(expected);
+		SecurityContext actual = this.repository.load(this.exchange).block();
+		assertThat(actual).isSameAs(expected);
+	}
+
+	@Test
+	public void loadWhenSerializedContextAndNoContextDeserializerThenIllegalStateException() throws Exception {
+		byte[] serialized = new CompactSecurityContextCodec().serializeToByteArray(new SecurityContextImpl());
+		WebSession session = this.exchange.getSession().block();
+		session.getAttributes().put(WebSessionServerSecurityContextRepository.DEFAULT_SPRING_SECURITY_CONTEXT_ATTR_NAME,
+				serialized);
+		assertThatIllegalStateException().isThrownBy(() -> this.repository.load(this.exchange).block())
+				.withMessageContaining("no contextDeserializer is configured");
+	}
+
+	@Test
+	public void saveWhenContextSerializerWithoutDeserializerThenIllegalStateException() {
+		this.repository.setContextSerializer(new CompactSecurityContextCodec());
+		assertThatIllegalStateException()
+				.isThrownBy(() -> this.repository.save(this.exchange, new SecurityContextImpl()).block());
+	}
+
 	@Test
 	public void loadWhenNullThenNull() {
 		SecurityContext context = this.repository.load(this.exchange).block();
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PathPatternRequestMatcher}.
+ */
+public class PathPatternRequestMatcherTests {
+
+	@Test
+	public void constructorWhenEmptyPatternThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PathPatternRequestMatcher(""));
+	}
+
+	@Test
+	public void constructorWhenDoubleWildcardInMiddleThenPatternParseException() {
+		assertThatExceptionOfType(PatternParseException.class)
+				.isThrownBy(() -> new PathPatternRequestMatcher("/a/**/b"));
+	}
+
+	@Test
+	public void matchesWhenMatchAllThenMatchesAnyPath() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/**");
+		assertThat(matcher.matches(createRequest("/blah"))).isTrue();
+		assertThat(matcher.matches(createRequest(""))).isTrue();
+		assertThat(matcher.matcher(createRequest("/blah")).isMatch()).isTrue();
+	}
+
+	@Test
+	public void matchesWhenTrailingWildcardThenMatchesSubpaths() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/blah/blah/**");
+		assertThat(matcher.matches(createRequest("/blah/blah"))).isTrue();
+		assertThat(matcher.matches(createRequest("/blah/blah/"))).isTrue();
+		assertThat(matcher.matches(createRequest("/blah/blah/xxx"))).isTrue();
+		assertThat(matcher.matches(createRequest("/blah/blaha"))).isFalse();
+		assertThat(matcher.matches(createRequest("/blah/bleh"))).isFalse();
+	}
+
+	@Test
+	public void matchesWhenServletPathAndPathInfoThenMatchesBoth() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/servlet/path/info");
+		MockHttpServletRequest request = createRequest("/servlet");
+		request.setPathInfo("/path/info");
+		assertThat(matcher.matches(request)).isTrue();
+	}
+
+	@Test
+	public void matchesWhenCaseInsensitiveParserThenIgnoresCase() {
+		PathPatternParser parser = new PathPatternParser();
+		parser.setCaseSensitive(false);
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher(parser.parse("/blah/**"), null);
+		assertThat(matcher.matches(createRequest("/BLAH/bleh"))).isTrue();
+		assertThat(new PathPatternRequestMatcher("/blah/**").matches(createRequest("/BLAH/bleh"))).isFalse();
+	}
+
+	@Test
+	public void matchesWhenHttpMethodDiffersThenFalse() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/blah", HttpMethod.POST);
+		MockHttpServletRequest request = createRequest("/blah");
+		assertThat(matcher.matches(request)).isFalse();
+		request.setMethod("POST");
+		assertThat(matcher.matches(request)).isTrue();
+		request.setMethod(null);
+		assertThat(matcher.matches(request)).isTrue();
+	}
+
+	@Test
+	public void matcherWhenPathVariablesThenExtracted() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/users/{id}/{name}");
+		RequestMatcher.MatchResult result = matcher.matcher(createRequest("/users/1/rob"));
+		assertThat(result.isMatch()).isTrue();
+		assertThat(result.getVariables()).containsEntry("id", "1").containsEntry("name", "rob").hasSize(2);
+		assertThat(matcher.matcher(createRequest("/users/1")).isMatch()).isFalse();
+	}
+
+	@Test
+	public void matchesWhenEncodedCharacterThenPathNotDecodedAgain() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/a%20b");
+		assertThat(matcher.matches(createRequest("/a b"))).isFalse();
+		assertThat(matcher.matches(createRequest("/a%20b"))).isTrue();
+	}
+
+	@Test
+	public void matchesWhenSeveralMatchersThenPathParsedOnce() {
+		MockHttpServletRequest request = createRequest("/users/1");
+		new PathPatternRequestMatcher("/admin/**").matches(request);
+		PathContainer path = RequestMatchingContext.get(request).getPathContainer();
+		assertThat(new PathPatternRequestMatcher("/users/{id}").matches(request)).isTrue();
+		assertThat(RequestMatchingContext.get(request).getPathContainer()).isSameAs(path);
+	}
+
+	@Test
+	public void matchesWhenPathChangesThenPathParsedAgain() {
+		PathPatternRequestMatcher matcher = new PathPatternRequestMatcher("/users/**");
+		MockHttpServletRequest request = createRequest("/users/1");
+		assertThat(matcher.matches(request)).isTrue();
+		request.setServletPath("/error");
+		assertThat(matcher.matches(request)).isFalse();
+		assertThat(RequestMatchingContext.get(request).getPathContainer().value()).isEqualTo("/error");
+	}
+
+	@Test
+	public void equalsWhenSamePatternAndMethodThenEqual() {
+		assertThat(new PathPatternRequestMatcher("/a", HttpMethod.GET))
+				.isEqualTo(new PathPatternRequestMatcher("/a", HttpMethod.GET))
+				.hasSameHashCodeAs(new PathPatternRequestMatcher("/a", HttpMethod.GET));
+		assertThat(new PathPatternRequestMatcher("/a", HttpMethod.GET))
+				.isNotEqualTo(new PathPatternRequestMatcher("/a", HttpMethod.POST));
+		assertThat(new PathPatternRequestMatcher("/a")).isNotEqualTo(new PathPatternRequestMatcher("/b"));
+	}
+
+	@Test
+	public void toStringWhenMethodThenContainsPatternAndMethod() {
+		assertThat(new PathPatternRequestMatcher("/a/**", HttpMethod.GET).toString())
+				.isEqualTo("PathPattern [pattern='/a/**', GET]");
+	}
+
+	private MockHttpServletRequest createRequest(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setQueryString("doesntMatter");
+		request.setServletPath(path);
+		request.setMethod("GET");
+		return request;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.net.InetAddress;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RequestMatchingContext}.
+ */
+public class RequestMatchingContextTests {
+
+	@Test
+	public void getWhenRequestThenValuesFromRequest() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "");
+		request.setServletPath("/Servlet");
+		request.setPathInfo("/Path");
+		request.setQueryString("a=b");
+		request.setRemoteAddr("192.168.1.10");
+		RequestMatchingContext context = RequestMatchingContext.get(request);
+		assertThat(context.getPath()).isEqualTo("/Servlet/Path");
+		assertThat(context.getLowerCasePath()).isEqualTo("/servlet/path");
+		assertThat(context.getPathAndQuery()).isEqualTo("/Servlet/Path?a=b");
+		assertThat(context.getPathContainer().value()).isEqualTo("/Servlet/Path");
+		assertThat(context.getMethod()).isEqualTo(HttpMethod.POST);
+		assertThat(context.getRemoteAddress()).isEqualTo(InetAddress.getByName("192.168.1.10"));
+	}
+
+	@Test
+	public void getWhenNoPathInfoOrQueryThenServletPath() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/servlet");
+		RequestMatchingContext context = RequestMatchingContext.get(request);
+		assertThat(context.getPath()).isSameAs(request.getServletPath());
+		assertThat(context.getPathAndQuery()).isSameAs(request.getServletPath());
+	}
+
+	@Test
+	public void getWhenUnknownMethodThenNullMethod() {
+		MockHttpServletRequest request = new MockHttpServletRequest("FOO", "/");
+		assertThat(RequestMatchingContext.get(request).getMethod()).isNull();
+	}
+
+	@Test
+	public void getWhenCalledRepeatedlyThenSameContextAndValuesComputedOnce() {
+		MockHttpServletRequest request = spy(new MockHttpServletRequest("GET", ""));
+		request.setServletPath("/servlet");
+		RequestMatchingContext context = RequestMatchingContext.get(request);
+		String lowerCasePath = context.getLowerCasePath();
+		for (int i = 0; i < 3; i++) {
+			assertThat(RequestMatchingContext.get(request)).isSameAs(context);
+			assertThat(RequestMatchingContext.get(request).getLowerCasePath()).isSameAs(lowerCasePath);
+		}
+		verify(request, times(1)).setAttribute(RequestMatchingContext.ATTRIBUTE, context);
+	}
+
+	@Test
+	public void getWhenPathChangesThenNewContext() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "");
+		request.setServletPath("/servlet");
+		RequestMatchingContext context = RequestMatchingContext.get(request);
+		request.setServletPath("/error");
+		RequestMatchingContext forwarded = RequestMatchingContext.get(request);
+		assertThat(forwarded).isNotSameAs(context);
+		assertThat(forwarded.getPath()).isEqualTo("/error");
+		request.setQueryString("a=b");
+		assertThat(RequestMatchingContext.get(request).getPathAndQuery()).isEqualTo("/error?a=b");
+		request.setMethod("POST");
+		assertThat(RequestMatchingContext.get(request).getMethod()).isEqualTo(HttpMethod.POST);
+	}
+
+	@Test
+	public void getWhenWrapperChangesRemoteAddressThenNewContext() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("192.168.1.10");
+		RequestMatchingContext.get(request).getRemoteAddress();
+		HttpServletRequest wrapped = new HttpServletRequestWrapper(request) {
+
+			@Override
+			public String getRemoteAddr() {
+				return "10.0.0.1";
+			}
+
+		};
+		assertThat(RequestMatchingContext.get(wrapped).getRemoteAddress()).isEqualTo(InetAddress.getByName("10.0.0.1"));
+	}
+
+	@Test
+	public void getRemoteAddressWhenInvalidThenIllegalArgumentException() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("[::1");
+		RequestMatchingContext context = RequestMatchingContext.get(request);
+		assertThatIllegalArgumentException().isThrownBy(context::getRemoteAddress);
+	}
+
+}